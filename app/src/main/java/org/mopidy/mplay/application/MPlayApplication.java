@@ -23,14 +23,65 @@
 package org.mopidy.mplay.application;
 
 import android.app.Application;
+import android.content.SharedPreferences;
 import android.os.StrictMode;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
+import android.util.Log;
 
 import org.mopidy.mplay.BuildConfig;
+import org.mopidy.mplay.R;
+import org.mopidy.mplay.application.utils.HTTPClient;
+import org.mopidy.mplay.mpdservice.mpdprotocol.MPDSortHelper;
 
 public class MPlayApplication extends Application {
+    private static final String TAG = MPlayApplication.class.getSimpleName();
+
+    /**
+     * Time of the application start used to measure the time to the first meaningful frame
+     */
+    private static long sStartTime;
+
+    private static boolean sFirstFrameReported;
+
+    /**
+     * Time from the application start to the first meaningful frame and where the shown state
+     * came from, kept for the debug statistics.
+     */
+    private static long sFirstFrameTime;
+
+    private static String sFirstFrameSource;
+
+    /**
+     * Logs and keeps the time from the application start until the first frame that shows the
+     * current track was drawn. Only the first call after the start has an effect.
+     *
+     * @param source Where the shown state came from (e.g. snapshot or server)
+     */
+    public static synchronized void reportFirstMeaningfulFrame(String source) {
+        if (sFirstFrameReported || sStartTime == 0) {
+            return;
+        }
+        sFirstFrameReported = true;
+        sFirstFrameTime = SystemClock.elapsedRealtime() - sStartTime;
+        sFirstFrameSource = source;
+        Log.i(TAG, "First meaningful frame after " + sFirstFrameTime + " ms (" + source + ")");
+    }
+
+    /**
+     * @return Readable time to the first meaningful frame of this start.
+     */
+    public static synchronized String getStartupStatistics() {
+        if (!sFirstFrameReported) {
+            return "First meaningful frame: not drawn yet";
+        }
+        return "First meaningful frame: " + sFirstFrameTime + " ms (" + sFirstFrameSource + ")";
+    }
 
     @Override
     public void onCreate() {
+        sStartTime = SystemClock.elapsedRealtime();
+
         if (BuildConfig.DEBUG) {
 
             StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
@@ -46,5 +97,10 @@ public class MPlayApplication extends Application {
         }
 
         super.onCreate();
+
+        HTTPClient.init(this);
+
+        SharedPreferences sharedPref = PreferenceManager.getDefaultSharedPreferences(this);
+        MPDSortHelper.setStripArticles(sharedPref.getBoolean(getString(R.string.pref_sort_ignore_articles_key), getResources().getBoolean(R.bool.pref_sort_ignore_articles_default)));
     }
 }
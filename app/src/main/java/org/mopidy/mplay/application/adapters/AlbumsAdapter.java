@@ -29,8 +29,10 @@ import android.widget.GridView;
 
 import org.mopidy.mplay.R;
 import org.mopidy.mplay.application.artwork.ArtworkManager;
+import org.mopidy.mplay.application.artwork.BitmapCache;
 import org.mopidy.mplay.application.listviewitems.GenericGridItem;
 import org.mopidy.mplay.application.listviewitems.ImageListItem;
+import org.mopidy.mplay.application.utils.WindowArtworkLoader;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
 
 public class AlbumsAdapter extends GenericSectionAdapter<MPDAlbum> implements ArtworkManager.onNewAlbumImageListener {
@@ -44,6 +46,11 @@ public class AlbumsAdapter extends GenericSectionAdapter<MPDAlbum> implements Ar
 
     private final ArtworkManager mArtworkManager;
 
+    /**
+     * Loads the images of the visible list items, if set. Otherwise each item starts its own task.
+     */
+    private WindowArtworkLoader mArtworkLoader;
+
     public AlbumsAdapter(Context context, boolean useList) {
         super();
 
@@ -58,6 +65,22 @@ public class AlbumsAdapter extends GenericSectionAdapter<MPDAlbum> implements Ar
     }
 
 
+    /**
+     * Sets the loader for the images of the visible list items.
+     *
+     * @param artworkLoader Loader to use or null to start one task per item.
+     */
+    public void setArtworkLoader(WindowArtworkLoader artworkLoader) {
+        mArtworkLoader = artworkLoader;
+    }
+
+    /**
+     * @return Size of the images in list mode in pixels.
+     */
+    public int getListItemSize() {
+        return mListItemSize;
+    }
+
     @Override
     public View getView(int position, View convertView, ViewGroup parent) {
         MPDAlbum album = (MPDAlbum) getItem(position);
@@ -82,13 +105,22 @@ public class AlbumsAdapter extends GenericSectionAdapter<MPDAlbum> implements Ar
                 listItem = new ImageListItem(mContext, label, albumArtist, this);
             }
 
+            // Show the cached image right away if the view was recycled for another album
+            if (mArtworkLoader != null && !album.equals(listItem.getModelItem())) {
+                listItem.setImage(BitmapCache.getInstance().requestAlbumBitmap(album, mListItemSize, mListItemSize));
+            }
+
             // This will prepare the view for fetching the image from the internet if not already saved in local database.
             listItem.prepareArtworkFetching(mArtworkManager, album);
 
             // Check if the scroll speed currently is already 0, then start the image task right away.
             if (mScrollSpeed == 0) {
-                listItem.setImageDimension(mListItemSize, mListItemSize);
-                listItem.startCoverImageTask();
+                if (mArtworkLoader != null) {
+                    mArtworkLoader.invalidate();
+                } else {
+                    listItem.setImageDimension(mListItemSize, mListItemSize);
+                    listItem.startCoverImageTask();
+                }
             }
             return listItem;
         } else {
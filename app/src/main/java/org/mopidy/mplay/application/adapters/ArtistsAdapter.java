@@ -29,8 +29,10 @@ import android.widget.GridView;
 
 import org.mopidy.mplay.R;
 import org.mopidy.mplay.application.artwork.ArtworkManager;
+import org.mopidy.mplay.application.artwork.BitmapCache;
 import org.mopidy.mplay.application.listviewitems.GenericGridItem;
 import org.mopidy.mplay.application.listviewitems.ImageListItem;
+import org.mopidy.mplay.application.utils.WindowArtworkLoader;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDArtist;
 
 public class ArtistsAdapter extends GenericSectionAdapter<MPDArtist> implements ArtworkManager.onNewArtistImageListener {
@@ -43,6 +45,11 @@ public class ArtistsAdapter extends GenericSectionAdapter<MPDArtist> implements
 
     private final ArtworkManager mArtworkManager;
 
+    /**
+     * Loads the images of the visible list items, if set. Otherwise each item starts its own task.
+     */
+    private WindowArtworkLoader mArtworkLoader;
+
     public ArtistsAdapter(Context context, boolean useList) {
         super();
 
@@ -56,6 +63,22 @@ public class ArtistsAdapter extends GenericSectionAdapter<MPDArtist> implements
 
     }
 
+    /**
+     * Sets the loader for the images of the visible list items.
+     *
+     * @param artworkLoader Loader to use or null to start one task per item.
+     */
+    public void setArtworkLoader(WindowArtworkLoader artworkLoader) {
+        mArtworkLoader = artworkLoader;
+    }
+
+    /**
+     * @return Size of the images in list mode in pixels.
+     */
+    public int getListItemSize() {
+        return mListItemSize;
+    }
+
     @Override
     public View getView(int position, View convertView, ViewGroup parent) {
         MPDArtist artist = (MPDArtist) getItem(position);
@@ -77,12 +100,21 @@ public class ArtistsAdapter extends GenericSectionAdapter<MPDArtist> implements
                 listItem = new ImageListItem(mContext, label, null, this);
             }
 
+            // Show the cached image right away if the view was recycled for another artist
+            if (mArtworkLoader != null && !artist.equals(listItem.getModelItem())) {
+                listItem.setImage(BitmapCache.getInstance().requestArtistImage(artist, mListItemSize, mListItemSize));
+            }
+
             // This will prepare the view for fetching the image from the internet if not already saved in local database.
             listItem.prepareArtworkFetching(mArtworkManager, artist);
             // Check if the scroll speed currently is already 0, then start the image task right away.
             if (mScrollSpeed == 0) {
-                listItem.setImageDimension(mListItemSize, mListItemSize);
-                listItem.startCoverImageTask();
+                if (mArtworkLoader != null) {
+                    mArtworkLoader.invalidate();
+                } else {
+                    listItem.setImageDimension(mListItemSize, mListItemSize);
+                    listItem.startCoverImageTask();
+                }
             }
             return listItem;
         } else {
@@ -43,6 +43,8 @@ import org.mopidy.mplay.mpdservice.handlers.responsehandler.MPDResponseFileList;
 import org.mopidy.mplay.mpdservice.handlers.serverhandler.MPDQueryHandler;
 import org.mopidy.mplay.mpdservice.handlers.serverhandler.MPDStateMonitoringHandler;
 import org.mopidy.mplay.mpdservice.mpdprotocol.MPDCapabilities;
+import org.mopidy.mplay.mpdservice.mpdprotocol.MPDSessionSnapshot;
+import org.mopidy.mplay.mpdservice.mpdprotocol.MPDTrackList;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDCurrentStatus;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
@@ -50,9 +52,11 @@ import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDTrack;
 import org.mopidy.mplay.mpdservice.websocket.WSInterface;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.TreeMap;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -84,6 +88,17 @@ public class CurrentPlaylistAdapter extends BaseAdapter implements ArtworkManage
         TYPE_COUNT
     }
 
+    /**
+     * Callback for the results of {@link #findTracks(String, FindTracksCallback)}.
+     */
+    public interface FindTracksCallback {
+        /**
+         * @param tracks Matching tracks ordered by their position in the playlist
+         *               ({@link MPDTrack#getSongPosition()}).
+         */
+        void onTracksFound(List<MPDTrack> tracks);
+    }
+
     /**
      * Variable to store the current scroll speed. Used for image view optimizations
      */
@@ -161,6 +176,24 @@ public class CurrentPlaylistAdapter extends BaseAdapter implements ArtworkManage
      */
     private final PlaylistFetchResponseHandler mTrackResponseHandler;
 
+    /**
+     * ResponseHandler that receives the tracks found by the server for a playlist search.
+     */
+    private final FindTracksResponseHandler mFindResponseHandler;
+
+    /**
+     * Callback and matches in the loaded list blocks of the running playlist search.
+     */
+    private FindTracksCallback mFindCallback;
+
+    private List<MPDTrack> mLoadedFindResults;
+
+    /**
+     * Number of server requests of playlist searches that are not answered yet. The answers arrive
+     * in order, so only the last one belongs to the running search.
+     */
+    private int mPendingFindRequests;
+
     /**
      * This handler receives status updates from the MPDStateMonitoringHandler asychronously.
      */
@@ -199,6 +232,7 @@ public class CurrentPlaylistAdapter extends BaseAdapter implements ArtworkManage
         mContext = context;
 
         mTrackResponseHandler = new PlaylistFetchResponseHandler(this);
+        mFindResponseHandler = new FindTracksResponseHandler(this);
         mStateListener = new PlaylistStateListener(this);
         mConnectionListener = new ConnectionStateChangeListener(this, context.getMainLooper());
 
@@ -253,6 +287,15 @@ public class CurrentPlaylistAdapter extends BaseAdapter implements ArtworkManage
         if (!mSectionsEnabled) {
             return VIEW_TYPES.TYPE_TRACK_ITEM.ordinal();
         }
+        // Compare directly on the track list store if both tracks are part of one
+        MPDTrackList trackList = position > 0 ? getTrackListStore(position) : null;
+        if (trackList != null) {
+            int listPosition = mWindowEnabled ? position % WINDOW_SIZE : position;
+            if (listPosition > 0 && listPosition < trackList.size()) {
+                return trackList.isSameAlbum(listPosition, listPosition - 1) ? VIEW_TYPES.TYPE_TRACK_ITEM.ordinal() : VIEW_TYPES.TYPE_SECTION_TRACK_ITEM.ordinal();
+            }
+        }
+
         // Get MPDTrack at the given index used for this item.
         MPDTrack track = getTrack(position);
         boolean newAlbum = false;
@@ -481,6 +524,27 @@ public class CurrentPlaylistAdapter extends BaseAdapter implements ArtworkManage
         }
     }
 
+    /**
+     * Private class to handle the tracks found by the server for a playlist search.
+     */
+    private static class FindTracksResponseHandler extends MPDResponseFileList {
+
+        private final WeakReference<CurrentPlaylistAdapter> mCurrentPlaylistAdapter;
+
+        FindTracksResponseHandler(final CurrentPlaylistAdapter currentPlaylistAdapter) {
+            mCurrentPlaylistAdapter = new WeakReference<>(currentPlaylistAdapter);
+        }
+
+        @Override
+        public void handleTracks(List<MPDFileEntry> trackList, int start, int end) {
+            final CurrentPlaylistAdapter currentPlaylistAdapter = mCurrentPlaylistAdapter.get();
+
+            if (currentPlaylistAdapter != null) {
+                currentPlaylistAdapter.onServerTracksFound(trackList);
+            }
+        }
+    }
+
     private void updatePlaylist(final List<MPDFileEntry> trackList, final int start) {
         // If the ranged playlist feature is disabled
         if (!mWindowEnabled) {
@@ -611,6 +675,12 @@ public class CurrentPlaylistAdapter extends BaseAdapter implements ArtworkManage
         // If ranged playlist is not available just request the complete list.
         Log.e(TAG, "Update playlist");
         if (!mWindowEnabled) {
+            // Show the restored tracklist until the new one is received
+            MPDTrackList restoredTracks = getRestoredTrackList();
+            if (null != restoredTracks && restoredTracks.size() == mLastStatus.getPlaylistLength()) {
+                mPlaylist = restoredTracks;
+            }
+
             // The playlist has changed and we need to fetch a new one.
             MPDQueryHandler.getCurrentPlaylist(mTrackResponseHandler);
         } else {
@@ -637,14 +707,52 @@ public class CurrentPlaylistAdapter extends BaseAdapter implements ArtworkManage
 
                 }
 
+                // Fill the list blocks covered by the restored tracklist, so they can be shown
+                // before the server answers.
+                int restoredBlocks = 0;
+                MPDTrackList restoredTracks = getRestoredTrackList();
+                if (null != restoredTracks) {
+                    for (int i = 0; i < listCount; i++) {
+                        int start = i * WINDOW_SIZE;
+                        int end = Math.min(start + WINDOW_SIZE, mLastStatus.getPlaylistLength());
+                        if (end > restoredTracks.size() || start >= end) {
+                            break;
+                        }
+                        mWindowedPlaylists[i] = restoredTracks.copyRange(start, end);
+                        mWindowedListStates[i] = LIST_STATE.LIST_READY;
+                        restoredBlocks++;
+                    }
+                }
+
                 // Release the list lock
                 mListsLock.writeLock().unlock();
+
+                // If already connected, replace the restored blocks with the server state and
+                // do not use the snapshot again.
+                MPDSessionSnapshot snapshot = MPDSessionSnapshot.getRestored();
+                if (restoredBlocks > 0 && null != snapshot && WSInterface.getGenericInstance().isConnected()) {
+                    for (int i = 0; i < restoredBlocks; i++) {
+                        fetchWindow(i * WINDOW_SIZE);
+                    }
+                    snapshot.releaseTrackList();
+                }
             }
 
         }
         notifyDataSetChanged();
     }
 
+    /**
+     * @return The tracklist of the restored session snapshot if it matches the last status.
+     */
+    private MPDTrackList getRestoredTrackList() {
+        MPDSessionSnapshot snapshot = MPDSessionSnapshot.getRestored();
+        if (null == snapshot || null == mLastStatus) {
+            return null;
+        }
+        return snapshot.getTrackList(mLastStatus);
+    }
+
     /**
      * Requests the list block for a given list index. This maps the index to the list block index.
      *
@@ -710,6 +818,29 @@ public class CurrentPlaylistAdapter extends BaseAdapter implements ArtworkManage
         return null;
     }
 
+    /**
+     * Returns the track list store that holds the given position if it is already loaded.
+     *
+     * @param position Position of the track
+     * @return The {@link MPDTrackList} containing the position or null if not available.
+     */
+    private MPDTrackList getTrackListStore(int position) {
+        if (!mWindowEnabled) {
+            return mPlaylist instanceof MPDTrackList ? (MPDTrackList) mPlaylist : null;
+        }
+
+        MPDTrackList trackList = null;
+        mListsLock.readLock().lock();
+        int listIndex = position / WINDOW_SIZE;
+        if (mWindowedListStates != null && listIndex < mWindowedListStates.length &&
+                mWindowedListStates[listIndex] == LIST_STATE.LIST_READY &&
+                mWindowedPlaylists[listIndex] instanceof MPDTrackList) {
+            trackList = (MPDTrackList) mWindowedPlaylists[listIndex];
+        }
+        mListsLock.readLock().unlock();
+        return trackList;
+    }
+
     public void removeAlbumFrom(int position) {
         int rangeEnd = position;
 
@@ -734,6 +865,89 @@ public class CurrentPlaylistAdapter extends BaseAdapter implements ArtworkManage
         }
     }
 
+    /**
+     * Moves the listview to the given position. Only the list block containing the position
+     * is fetched, when the view for it is requested.
+     *
+     * @param position Position in the playlist to show
+     */
+    public void jumpToPosition(int position) {
+        if ((position >= 0) && (position < getCount())) {
+            mListView.setSelection(position);
+        }
+    }
+
+    /**
+     * Searches the playlist for tracks. The loaded list blocks are searched locally for
+     * title, artist and album containing all words of the term. The server is asked for
+     * tracks with exactly this title or URI, which also covers the blocks that are not loaded.
+     * A new search replaces a running one.
+     *
+     * @param term     Term to search for
+     * @param callback Callback that receives the merged results
+     */
+    public void findTracks(String term, FindTracksCallback callback) {
+        mFindCallback = callback;
+        mLoadedFindResults = findLoadedTracks(term);
+        mPendingFindRequests++;
+        MPDQueryHandler.findInCurrentPlaylist(term, mFindResponseHandler);
+    }
+
+    /**
+     * Searches all list blocks that are currently in memory.
+     */
+    private List<MPDTrack> findLoadedTracks(String term) {
+        List<MPDTrack> result = new ArrayList<>();
+        if (!mWindowEnabled) {
+            if (mPlaylist instanceof MPDTrackList) {
+                MPDTrackList trackList = (MPDTrackList) mPlaylist;
+                for (int index : trackList.findTracks(term)) {
+                    result.add(trackList.getTrack(index));
+                }
+            }
+            return result;
+        }
+
+        mListsLock.readLock().lock();
+        if (mWindowedPlaylists != null) {
+            for (int i = 0; i < mWindowedPlaylists.length; i++) {
+                if (mWindowedListStates[i] == LIST_STATE.LIST_READY && mWindowedPlaylists[i] instanceof MPDTrackList) {
+                    MPDTrackList trackList = (MPDTrackList) mWindowedPlaylists[i];
+                    for (int index : trackList.findTracks(term)) {
+                        result.add(trackList.getTrack(index));
+                    }
+                }
+            }
+        }
+        mListsLock.readLock().unlock();
+        return result;
+    }
+
+    private void onServerTracksFound(List<MPDFileEntry> serverTracks) {
+        mPendingFindRequests--;
+        if (mPendingFindRequests > 0 || null == mFindCallback) {
+            // Answer of a replaced search
+            return;
+        }
+
+        // Merge both results by position, tracks found in both appear once
+        TreeMap<Integer, MPDTrack> tracks = new TreeMap<>();
+        for (MPDTrack track : mLoadedFindResults) {
+            tracks.put(track.getSongPosition(), track);
+        }
+        for (MPDFileEntry entry : serverTracks) {
+            MPDTrack track = (MPDTrack) entry;
+            if (!tracks.containsKey(track.getSongPosition())) {
+                tracks.put(track.getSongPosition(), track);
+            }
+        }
+
+        FindTracksCallback callback = mFindCallback;
+        mFindCallback = null;
+        mLoadedFindResults = null;
+        callback.onTracksFound(new ArrayList<>(tracks.values()));
+    }
+
     /**
      * Task used for cleaning unnecessary list blocks.
      */
@@ -29,8 +29,10 @@ import android.widget.SectionIndexer;
 
 import androidx.core.util.Pair;
 
-import org.mopidy.mplay.application.utils.FilterTask;
+import org.mopidy.mplay.application.utils.FilterEngine;
 import org.mopidy.mplay.application.utils.SectionCreator;
+import org.mopidy.mplay.mpdservice.mpdprotocol.MPDLibraryIndex;
+import org.mopidy.mplay.mpdservice.mpdprotocol.MPDSearchIndex;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDGenericItem;
 
 import java.util.ArrayList;
@@ -62,13 +64,19 @@ public abstract class GenericSectionAdapter<T extends MPDGenericItem> extends Ba
 
     protected final List<T> mFilteredModelData;
 
+    /**
+     * List instance passed to {@link #swapModel(List)}. Used to find the library search index
+     * for this list.
+     */
+    private List<T> mSourceData;
+
     private String mFilterString;
 
     private boolean mSectionsEnabled;
     /**
-     * Task used to do the filtering of the list asynchronously
+     * Engine used to do the filtering of the list asynchronously
      */
-    private FilterTask<T> mFilterTask;
+    private final FilterEngine<T> mFilterEngine;
 
     private final ReentrantReadWriteLock mLock;
 
@@ -88,6 +96,8 @@ public abstract class GenericSectionAdapter<T extends MPDGenericItem> extends Ba
 
         mSectionCreator = provideSectionCreator();
 
+        mFilterEngine = new FilterEngine<>(provideFilterKey());
+
         mScrollSpeed = 0;
     }
 
@@ -102,9 +112,11 @@ public abstract class GenericSectionAdapter<T extends MPDGenericItem> extends Ba
     public void swapModel(List<T> data) {
         mLock.writeLock().lock();
         mFilteredModelData.clear();
+        mSourceData = data;
         if (data == null) {
             mModelData.clear();
             mLock.writeLock().unlock();
+            mFilterEngine.setModel(null);
             notifyDataSetChanged();
             return;
         } else {
@@ -113,6 +125,8 @@ public abstract class GenericSectionAdapter<T extends MPDGenericItem> extends Ba
         }
         mLock.writeLock().unlock();
 
+        mFilterEngine.setModel(data);
+
         setScrollSpeed(0);
 
         if (mFilterString.isEmpty()) {
@@ -124,7 +138,7 @@ public abstract class GenericSectionAdapter<T extends MPDGenericItem> extends Ba
             notifyDataSetChanged();
         } else {
             // Refilter the new data
-            startFilterTask();
+            startFiltering();
         }
     }
 
@@ -137,7 +151,8 @@ public abstract class GenericSectionAdapter<T extends MPDGenericItem> extends Ba
     @Override
     public int getPositionForSection(int sectionIndex) {
         if (mSectionsEnabled) {
-            return mSectionCreator.getPositionForIndex(sectionIndex);
+            // Sections of the previous model stay active until the new ones are created
+            return Math.max(0, Math.min(mSectionCreator.getPositionForIndex(sectionIndex), getCount() - 1));
         } else {
             return 0;
         }
@@ -159,9 +174,7 @@ public abstract class GenericSectionAdapter<T extends MPDGenericItem> extends Ba
     @Override
     public int getSectionForPosition(int pos) {
         if (mSectionsEnabled) {
-            final T model = getItem(pos);
-
-            return mSectionCreator.getSectionPositionForModel(model);
+            return mSectionCreator.getSectionForPosition(pos);
         }
         return 0;
     }
@@ -172,7 +185,7 @@ public abstract class GenericSectionAdapter<T extends MPDGenericItem> extends Ba
     @Override
     public Object[] getSections() {
         if (mSectionsEnabled) {
-            return mSectionCreator.getSectionList().toArray();
+            return mSectionCreator.getSectionList();
         }
         return null;
     }
@@ -221,31 +234,43 @@ public abstract class GenericSectionAdapter<T extends MPDGenericItem> extends Ba
     }
 
 
+    /**
+     * Starts creating the sections in the background. The lock is only held while the
+     * section creator copies the list. Once the sections are ready the views are notified
+     * so the fast scroller picks them up.
+     */
     private void createSections() {
-        // Get write lock, to ensure count does not change during execution
-        mLock.writeLock().lock();
-        mSectionCreator.createSections(mFilteredModelData.size() > 0 ? mFilteredModelData : mModelData);
-        mLock.writeLock().unlock();
+        mLock.readLock().lock();
+        mSectionCreator.createSections(mFilteredModelData.size() > 0 ? mFilteredModelData : mModelData,
+                this::notifyDataSetChanged);
+        mLock.readLock().unlock();
     }
 
     public void applyFilter(String filterString) {
         if (!filterString.equals(mFilterString)) {
             mFilterString = filterString;
-            startFilterTask();
+            startFiltering();
         }
     }
 
-    private void startFilterTask() {
-        if (mFilterTask != null) {
-            mFilterTask.cancel(true);
+    private void startFiltering() {
+        // Lists of the library cache are indexed already, no need to scan them.
+        final MPDSearchIndex<T> searchIndex = MPDLibraryIndex.getInstance().getIndexFor(mSourceData);
+        if (searchIndex != null) {
+            final List<T> result = searchIndex.filter(mFilterString);
+            if (result != null) {
+                mFilterEngine.cancel();
+                updateAfterFiltering(new Pair<>(result, mFilterString));
+                return;
+            }
         }
-        mFilterTask = provideFilterTask();
 
-        mFilterTask.execute(mFilterString);
+        mFilterEngine.filter(mFilterString, this::updateAfterFiltering);
     }
 
     public void removeFilter() {
         if (!mFilterString.isEmpty()) {
+            mFilterEngine.cancel();
             mLock.writeLock().lock();
 
             mFilteredModelData.clear();
@@ -277,26 +302,16 @@ public abstract class GenericSectionAdapter<T extends MPDGenericItem> extends Ba
         }
     }
 
-    private void filteringAborted() {
-        // Do nothing for now (readLock gets unlocked by FilterTask)
-    }
-
-    private FilterTask<T> provideFilterTask() {
-        return new FilterTask<>(mModelData, mLock.readLock(),
-                provideFilter(),
-                this::updateAfterFiltering, this::filteringAborted);
-    }
-
-    protected FilterTask.Filter<T> provideFilter() {
-        return (elem, filterString) -> elem.getSectionTitle().toLowerCase().contains(filterString.toLowerCase());
+    /**
+     * @return Provider of the string that is matched against the filter. It gets normalized once
+     * per model by the {@link FilterEngine}.
+     */
+    protected MPDSearchIndex.KeyProvider<T> provideFilterKey() {
+        return MPDGenericItem::getSectionTitle;
     }
 
     protected SectionCreator<T> provideSectionCreator() {
-        return new SectionCreator<>(model -> {
-            final String sectionTitle = model.getSectionTitle();
-
-            return sectionTitle.isEmpty() ? ' ' : sectionTitle.toUpperCase().charAt(0);
-        });
+        return new SectionCreator<>(MPDGenericItem::getSectionTitle);
     }
 
     /**
@@ -311,9 +326,7 @@ public abstract class GenericSectionAdapter<T extends MPDGenericItem> extends Ba
         if (mSectionsEnabled) {
             createSections();
         } else {
-            mLock.writeLock().lock();
             mSectionCreator.clearSections();
-            mLock.writeLock().unlock();
         }
         notifyDataSetChanged();
     }
@@ -59,6 +59,7 @@ import org.json.JSONException;
 import org.mopidy.mplay.application.background.WidgetProvider;
 
 import java.util.ArrayList;
+import java.util.List;
 
 public class ArtworkManager implements ArtProvider.ArtFetchError, InsertImageTask.ImageSavedCallback {
     private static final String TAG = ArtworkManager.class.getSimpleName();
@@ -151,6 +152,7 @@ public class ArtworkManager implements ArtProvider.ArtFetchError, InsertImageTas
         mArtistProvider = sharedPref.getString(mApplicationContext.getString(R.string.pref_artist_provider_key), mApplicationContext.getString(R.string.pref_artwork_provider_artist_default));
         mAlbumProvider = sharedPref.getString(mApplicationContext.getString(R.string.pref_album_provider_key), mApplicationContext.getString(R.string.pref_artwork_provider_album_default));
         mWifiOnly = sharedPref.getBoolean(mApplicationContext.getString(R.string.pref_download_wifi_only_key), mApplicationContext.getResources().getBoolean(R.bool.pref_download_wifi_default));
+        setStorageSize(sharedPref.getString(mApplicationContext.getString(R.string.pref_artwork_storage_size_key), mApplicationContext.getString(R.string.pref_artwork_storage_size_default)));
 
         MPDAlbumImageProvider.getInstance().setResponseLooper(Looper.getMainLooper());
     }
@@ -174,6 +176,19 @@ public class ArtworkManager implements ArtProvider.ArtFetchError, InsertImageTas
         mArtistProvider = artistProvider;
     }
 
+    /**
+     * Sets the size limit of the stored artwork.
+     *
+     * @param storageSize The limit in MB as stored by the preference.
+     */
+    public void setStorageSize(String storageSize) {
+        try {
+            mDBManager.setMaximumSize(Long.parseLong(storageSize) * 1024 * 1024);
+        } catch (NumberFormatException e) {
+            mDBManager.setMaximumSize(ArtworkDatabaseManager.DEFAULT_MAXIMUM_SIZE);
+        }
+    }
+
     public void initialize(String artistProvider, String albumProvider, boolean wifiOnly) {
         mArtistProvider = artistProvider;
         mAlbumProvider = albumProvider;
@@ -204,7 +219,7 @@ public class ArtworkManager implements ArtProvider.ArtFetchError, InsertImageTas
             imageResponse.model = model;
             imageResponse.image = null;
             imageResponse.url = null;
-            new InsertImageTask(mApplicationContext, this).execute(imageResponse);
+            new InsertImageTask(mApplicationContext, this).executeOnExecutor(InsertImageTask.IMAGE_EXECUTOR, imageResponse);
         }
     }
 
@@ -257,20 +272,17 @@ public class ArtworkManager implements ArtProvider.ArtFetchError, InsertImageTas
 
         if (!skipCache) {
             // Try cache first
-            Bitmap cacheImage = BitmapCache.getInstance().requestArtistImage(artist);
-            if (cacheImage != null && width <= cacheImage.getWidth() && height <= cacheImage.getWidth()) {
+            Bitmap cacheImage = BitmapCache.getInstance().requestArtistImage(artist, width, height);
+            if (cacheImage != null) {
                 return cacheImage;
             }
         }
 
-        final String image = mDBManager.getArtistImage(artist);
+        final String image = mDBManager.getArtistImage(artist, Math.max(width, height));
 
         // Checks if the database has an image for the requested artist
         if (null != image) {
-            // Create a bitmap from the data blob in the database
-            Bitmap bm = BitmapUtils.decodeSampledBitmapFromFile(image, width, height);
-            BitmapCache.getInstance().putArtistImage(artist, bm);
-            return bm;
+            return decodeImage(artist, image, width, height);
         }
         return null;
     }
@@ -282,20 +294,24 @@ public class ArtworkManager implements ArtProvider.ArtFetchError, InsertImageTas
 
         if (!skipCache) {
             // Try cache first
-            Bitmap cacheBitmap = BitmapCache.getInstance().requestTrackBitmap(track);
-            if (null != cacheBitmap && width <= cacheBitmap.getWidth() && height <= cacheBitmap.getWidth()) {
+            Bitmap cacheBitmap = BitmapCache.getInstance().requestTrackBitmap(track, width, height);
+            if (null != cacheBitmap) {
                 return cacheBitmap;
             }
         }
 
-        final String image = mDBManager.getTrackImage(track);
+        final String image = mDBManager.getTrackImage(track, Math.max(width, height));
 
         // Checks if the database has an image for the requested album
         if (null != image) {
             // Create a bitmap from the data blob in the database
             Bitmap bm = BitmapUtils.decodeSampledBitmapFromFile(image, width, height);
-            BitmapCache.getInstance().putTrackBitmap(track, bm);
-            return bm;
+            Bitmap cached = BitmapCache.getInstance().putTrackBitmap(track, width, height, bm);
+            if (cached != bm) {
+                // Only the scaled down copy is used, the decoded bitmap can be reused
+                BitmapCache.getInstance().addReusableBitmap(bm);
+            }
+            return cached;
         }
         return null;
     }
@@ -307,24 +323,83 @@ public class ArtworkManager implements ArtProvider.ArtFetchError, InsertImageTas
 
         if (!skipCache) {
             // Try cache first
-            Bitmap cacheBitmap = BitmapCache.getInstance().requestAlbumBitmap(album);
-            if (null != cacheBitmap && width <= cacheBitmap.getWidth() && height <= cacheBitmap.getWidth()) {
+            Bitmap cacheBitmap = BitmapCache.getInstance().requestAlbumBitmap(album, width, height);
+            if (null != cacheBitmap) {
                 return cacheBitmap;
             }
         }
 
-        final String image = mDBManager.getAlbumImage(album);
+        final String image = mDBManager.getAlbumImage(album, Math.max(width, height));
 
         // Checks if the database has an image for the requested album
         if (null != image) {
-            // Create a bitmap from the data blob in the database
-            Bitmap bm = BitmapUtils.decodeSampledBitmapFromFile(image, width, height);
-            BitmapCache.getInstance().putAlbumBitmap(album, bm);
-            return bm;
+            return decodeImage(album, image, width, height);
         }
         return null;
     }
 
+    /**
+     * Looks up the stored images of several albums at once.
+     *
+     * @param albums Albums to get the image paths for.
+     * @param size   Size in pixels the images are shown at.
+     * @return Image paths in the order of albums, see {@link ArtworkDatabaseManager#getAlbumImages(List, int)}.
+     */
+    public String[] getAlbumImagePaths(final List<MPDAlbum> albums, final int size) {
+        return mDBManager.getAlbumImages(albums, size);
+    }
+
+    /**
+     * Looks up the stored images of several artists at once.
+     *
+     * @param artists Artists to get the image paths for.
+     * @param size    Size in pixels the images are shown at.
+     * @return Image paths in the order of artists, see {@link ArtworkDatabaseManager#getArtistImages(List, int)}.
+     */
+    public String[] getArtistImagePaths(final List<MPDArtist> artists, final int size) {
+        return mDBManager.getArtistImages(artists, size);
+    }
+
+    /**
+     * Decodes the stored image of an album and puts it to the {@link BitmapCache}.
+     *
+     * @param album  Album the image belongs to.
+     * @param path   Path of the image file.
+     * @param width  Requested width of the image.
+     * @param height Requested height of the image.
+     * @return The decoded bitmap or null if the file could not be decoded.
+     */
+    public Bitmap decodeImage(final MPDAlbum album, final String path, int width, int height) {
+        // Create a bitmap from the image file of the database
+        Bitmap bm = BitmapUtils.decodeSampledBitmapFromFile(path, width, height);
+        Bitmap cached = BitmapCache.getInstance().putAlbumBitmap(album, width, height, bm);
+        if (cached != bm) {
+            // Only the scaled down copy is used, the decoded bitmap can be reused
+            BitmapCache.getInstance().addReusableBitmap(bm);
+        }
+        return cached;
+    }
+
+    /**
+     * Decodes the stored image of an artist and puts it to the {@link BitmapCache}.
+     *
+     * @param artist Artist the image belongs to.
+     * @param path   Path of the image file.
+     * @param width  Requested width of the image.
+     * @param height Requested height of the image.
+     * @return The decoded bitmap or null if the file could not be decoded.
+     */
+    public Bitmap decodeImage(final MPDArtist artist, final String path, int width, int height) {
+        // Create a bitmap from the image file of the database
+        Bitmap bm = BitmapUtils.decodeSampledBitmapFromFile(path, width, height);
+        Bitmap cached = BitmapCache.getInstance().putArtistImage(artist, width, height, bm);
+        if (cached != bm) {
+            // Only the scaled down copy is used, the decoded bitmap can be reused
+            BitmapCache.getInstance().addReusableBitmap(bm);
+        }
+        return cached;
+    }
+
     /**
      * Starts an asynchronous fetch for the image of the given artist.
      *
@@ -343,7 +418,7 @@ public class ArtworkManager implements ArtProvider.ArtFetchError, InsertImageTas
 
         if (mArtistProvider.equals(mApplicationContext.getString(R.string.pref_artwork_provider_fanarttv_key))) {
             FanartTVProvider.getInstance(mApplicationContext).fetchImage(requestModel,
-                    response -> new InsertImageTask(mApplicationContext, imageSavedCallback).execute(response),
+                    response -> new InsertImageTask(mApplicationContext, imageSavedCallback).executeOnExecutor(InsertImageTask.IMAGE_EXECUTOR, response),
                     errorCallback);
         }
     }
@@ -379,7 +454,7 @@ public class ArtworkManager implements ArtProvider.ArtFetchError, InsertImageTas
         if (!skipLocal) {
             if (MPDAlbumImageProvider.getInstance().getActive()) {
                 MPDAlbumImageProvider.getInstance().fetchImage(requestModel,
-                        response -> new InsertImageTask(mApplicationContext, imageSavedCallback).execute(response),
+                        response -> new InsertImageTask(mApplicationContext, imageSavedCallback).executeOnExecutor(InsertImageTask.IMAGE_EXECUTOR, response),
                         errorCallback);
                 return;
             }
@@ -387,14 +462,14 @@ public class ArtworkManager implements ArtProvider.ArtFetchError, InsertImageTas
 
         if (mAlbumProvider.equals(mApplicationContext.getString(R.string.pref_artwork_provider_musicbrainz_key))) {
             MusicBrainzProvider.getInstance(mApplicationContext).fetchImage(requestModel,
-                    response -> new InsertImageTask(mApplicationContext, imageSavedCallback).execute(response),
+                    response -> new InsertImageTask(mApplicationContext, imageSavedCallback).executeOnExecutor(InsertImageTask.IMAGE_EXECUTOR, response),
                     errorCallback);
             return;
         }
 
         if (mAlbumProvider.equals(mApplicationContext.getString(R.string.pref_artwork_provider_lastfm_key))) {
             LastFMProvider.getInstance(mApplicationContext).fetchImage(requestModel,
-                    response -> new InsertImageTask(mApplicationContext, imageSavedCallback).execute(response),
+                    response -> new InsertImageTask(mApplicationContext, imageSavedCallback).executeOnExecutor(InsertImageTask.IMAGE_EXECUTOR, response),
                     errorCallback);
         }
     }
@@ -437,7 +512,7 @@ public class ArtworkManager implements ArtProvider.ArtFetchError, InsertImageTas
             if (MPDAlbumImageProvider.getInstance().getActive()) {
                 // Check if MPD cover transfer is activated
                 MPDAlbumImageProvider.getInstance().fetchImage(requestModel,
-                        response -> new InsertImageTask(mApplicationContext, imageSavedCallback).execute(response),
+                        response -> new InsertImageTask(mApplicationContext, imageSavedCallback).executeOnExecutor(InsertImageTask.IMAGE_EXECUTOR, response),
                         errorCallback);
                 return;
             }
@@ -445,7 +520,7 @@ public class ArtworkManager implements ArtProvider.ArtFetchError, InsertImageTas
             if (HTTPAlbumImageProvider.getInstance(mApplicationContext).getActive()) {
                 // Check if user-specified HTTP cover download is activated
                 HTTPAlbumImageProvider.getInstance(mApplicationContext).fetchImage(requestModel,
-                        response -> new InsertImageTask(mApplicationContext, imageSavedCallback).execute(response),
+                        response -> new InsertImageTask(mApplicationContext, imageSavedCallback).executeOnExecutor(InsertImageTask.IMAGE_EXECUTOR, response),
                         errorCallback);
                 return;
             }
@@ -556,7 +631,7 @@ public class ArtworkManager implements ArtProvider.ArtFetchError, InsertImageTas
         imageResponse.model = model;
         imageResponse.image = null;
         imageResponse.url = null;
-        new InsertImageTask(mApplicationContext, this).execute(imageResponse);
+        new InsertImageTask(mApplicationContext, this).executeOnExecutor(InsertImageTask.IMAGE_EXECUTOR, imageResponse);
     }
 
     @Override
@@ -577,7 +652,7 @@ public class ArtworkManager implements ArtProvider.ArtFetchError, InsertImageTas
         imageResponse.model = model;
         imageResponse.image = null;
         imageResponse.url = null;
-        new InsertImageTask(mApplicationContext, this).execute(imageResponse);
+        new InsertImageTask(mApplicationContext, this).executeOnExecutor(InsertImageTask.IMAGE_EXECUTOR, imageResponse);
     }
 
     /**
@@ -23,7 +23,10 @@
 package org.mopidy.mplay.application.artwork;
 
 import android.graphics.Bitmap;
-import android.util.Log;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
 
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDArtist;
@@ -32,12 +35,19 @@ import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDTrack;
 import androidx.annotation.NonNull;
 import androidx.collection.LruCache;
 
+import java.util.ArrayList;
+
 /**
  * Simple LRU-based caching for album & artist images. This could reduce CPU usage
  * for the cost of memory usage by caching decoded {@link Bitmap} objects in a {@link LruCache}.
+ * <p>
+ * Every image can be cached in several size buckets, so a small grid thumbnail and the large
+ * cover of the now playing view do not replace each other. A missing size is downsampled from
+ * a larger cached variant. Decoded bitmaps that were only used to create a scaled copy are kept
+ * in a small pool and reused as {@link android.graphics.BitmapFactory.Options#inBitmap} for the
+ * next decode. Evicted bitmaps are never pooled, a view could still show them.
  */
 public class BitmapCache {
-    private static final String TAG = BitmapCache.class.getSimpleName();
 
     private static final int mMaxMemory = (int) (Runtime.getRuntime().maxMemory() / 1024);
 
@@ -46,6 +56,19 @@ public class BitmapCache {
      */
     private static final int mCacheSize = mMaxMemory / 4;
 
+    /**
+     * Maximum size of the bitmap reuse pool in kilobytes
+     */
+    private static final int POOL_SIZE = mMaxMemory / 32;
+
+    /**
+     * Maximum edge length of the images in each size bucket. Requests larger than the last bucket
+     * and requests without a size use the decoded image as it is.
+     */
+    private static final int[] BUCKET_SIZES = {96, 192, 384, 768};
+
+    private static final int BUCKET_ORIGINAL = BUCKET_SIZES.length;
+
     /**
      * Hash prefix for album images
      */
@@ -56,11 +79,35 @@ public class BitmapCache {
      */
     private static final String ARTIST_PREFIX = "B_";
 
+    /**
+     * Separator between the image hash and the size bucket
+     */
+    private static final char BUCKET_SEPARATOR = '@';
+
     /**
      * Private cache instance
      */
     private final LruCache<String, Bitmap> mCache;
 
+    /**
+     * Bitmaps that can be reused for decoding or scaling, neither referenced by the cache nor by a view
+     */
+    private final ArrayList<Bitmap> mReusableBitmaps = new ArrayList<>();
+
+    private int mReusableSize;
+
+    private final Paint mScalePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    private int mHitCount;
+
+    private int mDownsampleCount;
+
+    private int mMissCount;
+
+    private int mEvictionCount;
+
+    private int mReuseCount;
+
     /**
      * Singleton instance
      */
@@ -75,6 +122,12 @@ public class BitmapCache {
                 return bitmap.getByteCount() / 1024;
             }
 
+            @Override
+            protected void entryRemoved(boolean evicted, @NonNull String key, @NonNull Bitmap oldValue, Bitmap newValue) {
+                if (evicted) {
+                    mEvictionCount++;
+                }
+            }
         };
     }
 
@@ -86,49 +139,76 @@ public class BitmapCache {
     }
 
     /**
-     * Tries to get an album image from the cache
+     * Tries to get an album image from the cache in any size
      *
      * @param album Album object to try
-     * @return Bitmap if cache hit, null otherwise
+     * @return Largest cached bitmap if cache hit, null otherwise
      */
     public synchronized Bitmap requestAlbumBitmap(final MPDAlbum album) {
-        return mCache.get(getAlbumHash(album));
+        return getLargestBitmap(getAlbumHash(album));
+    }
+
+    /**
+     * Tries to get an album image from the cache in the size bucket of the requested size.
+     *
+     * @param album  Album object to try
+     * @param width  Requested width
+     * @param height Requested height
+     * @return Bitmap if cache hit, null otherwise
+     */
+    public synchronized Bitmap requestAlbumBitmap(final MPDAlbum album, final int width, final int height) {
+        return getBitmap(getAlbumHash(album), getBucket(width, height));
     }
 
     /**
-     * Tries to get an track image from the cache
+     * Tries to get an track image from the cache in any size
      * Track images will be treated as album images.
      *
      * @param track Track object to use for cache key
-     * @return Bitmap if cache hit, null otherwise
+     * @return Largest cached bitmap if cache hit, null otherwise
      */
     public synchronized Bitmap requestTrackBitmap(final MPDTrack track) {
-        return mCache.get(getAlbumHash(track));
+        return getLargestBitmap(getAlbumHash(track));
+    }
+
+    /**
+     * Tries to get an track image from the cache in the size bucket of the requested size.
+     * Track images will be treated as album images.
+     *
+     * @param track  Track object to use for cache key
+     * @param width  Requested width
+     * @param height Requested height
+     * @return Bitmap if cache hit, null otherwise
+     */
+    public synchronized Bitmap requestTrackBitmap(final MPDTrack track, final int width, final int height) {
+        return getBitmap(getAlbumHash(track), getBucket(width, height));
     }
 
     /**
      * Puts an album image to the cache
      *
-     * @param album Album object to use for cache key
-     * @param bm    Bitmap to store in cache
+     * @param album  Album object to use for cache key
+     * @param width  Requested width the bitmap was decoded for
+     * @param height Requested height the bitmap was decoded for
+     * @param bm     Bitmap to store in cache
+     * @return The cached bitmap, scaled down to the size bucket if necessary
      */
-    synchronized void putAlbumBitmap(final MPDAlbum album, final Bitmap bm) {
-        if (bm != null) {
-            mCache.put(getAlbumHash(album), bm);
-        }
+    synchronized Bitmap putAlbumBitmap(final MPDAlbum album, final int width, final int height, final Bitmap bm) {
+        return putBitmap(getAlbumHash(album), getBucket(width, height), bm);
     }
 
     /**
      * Puts a track image to the cache.
      * Track images will be treated as album images.
      *
-     * @param track Track object to use for cache key
-     * @param bm    Bitmap to store in cache
+     * @param track  Track object to use for cache key
+     * @param width  Requested width the bitmap was decoded for
+     * @param height Requested height the bitmap was decoded for
+     * @param bm     Bitmap to store in cache
+     * @return The cached bitmap, scaled down to the size bucket if necessary
      */
-    public synchronized void putTrackBitmap(final MPDTrack track, final Bitmap bm) {
-        if (bm != null) {
-            mCache.put(getAlbumHash(track), bm);
-        }
+    public synchronized Bitmap putTrackBitmap(final MPDTrack track, final int width, final int height, final Bitmap bm) {
+        return putBitmap(getAlbumHash(track), getBucket(width, height), bm);
     }
 
     /**
@@ -137,7 +217,7 @@ public class BitmapCache {
      * @param album Album object to use for cache key
      */
     synchronized void removeAlbumBitmap(final MPDAlbum album) {
-        mCache.remove(getAlbumHash(album));
+        removeBitmaps(getAlbumHash(album));
     }
 
     /**
@@ -197,25 +277,38 @@ public class BitmapCache {
     }
 
     /**
-     * Tries to get an artist image from the cache
+     * Tries to get an artist image from the cache in any size
      *
      * @param artist Artist object to check in cache
-     * @return Bitmap if cache hit, null otherwise
+     * @return Largest cached bitmap if cache hit, null otherwise
      */
     public synchronized Bitmap requestArtistImage(final MPDArtist artist) {
-        return mCache.get(getArtistHash(artist));
+        return getLargestBitmap(getArtistHash(artist));
+    }
+
+    /**
+     * Tries to get an artist image from the cache in the size bucket of the requested size.
+     *
+     * @param artist Artist object to check in cache
+     * @param width  Requested width
+     * @param height Requested height
+     * @return Bitmap if cache hit, null otherwise
+     */
+    public synchronized Bitmap requestArtistImage(final MPDArtist artist, final int width, final int height) {
+        return getBitmap(getArtistHash(artist), getBucket(width, height));
     }
 
     /**
      * Puts an artist image to the cache
      *
      * @param artist Artist used as cache key
+     * @param width  Requested width the bitmap was decoded for
+     * @param height Requested height the bitmap was decoded for
      * @param bm     Bitmap to store in cache
+     * @return The cached bitmap, scaled down to the size bucket if necessary
      */
-    synchronized void putArtistImage(final MPDArtist artist, final Bitmap bm) {
-        if (bm != null) {
-            mCache.put(getArtistHash(artist), bm);
-        }
+    synchronized Bitmap putArtistImage(final MPDArtist artist, final int width, final int height, final Bitmap bm) {
+        return putBitmap(getArtistHash(artist), getBucket(width, height), bm);
     }
 
     /**
@@ -224,7 +317,7 @@ public class BitmapCache {
      * @param artist Artist used as cache key
      */
     synchronized void removeArtistImage(final MPDArtist artist) {
-        mCache.remove(getArtistHash(artist));
+        removeBitmaps(getArtistHash(artist));
     }
 
     /**
@@ -245,14 +338,169 @@ public class BitmapCache {
     }
 
     /**
-     * Debug method to provide performance evaluation metrics
+     * Takes a bitmap from the reuse pool that can hold at least the given number of bytes.
+     * The returned bitmap is mutable and no longer owned by the cache.
+     *
+     * @param byteCount Number of bytes the bitmap has to hold
+     * @return The smallest fitting bitmap or null if none is available.
+     */
+    public synchronized Bitmap getReusableBitmap(final int byteCount) {
+        int bestIndex = -1;
+        for (int i = 0; i < mReusableBitmaps.size(); i++) {
+            final int size = mReusableBitmaps.get(i).getAllocationByteCount();
+            if (size >= byteCount && (bestIndex < 0 || size < mReusableBitmaps.get(bestIndex).getAllocationByteCount())) {
+                bestIndex = i;
+            }
+        }
+
+        if (bestIndex < 0) {
+            return null;
+        }
+
+        final Bitmap bitmap = mReusableBitmaps.remove(bestIndex);
+        mReusableSize -= bitmap.getAllocationByteCount() / 1024;
+        mReuseCount++;
+        return bitmap;
+    }
+
+    /**
+     * Hands a bitmap that is not used anymore to the reuse pool. Only bitmaps that are exclusively
+     * owned by the caller may be passed, never one that was returned by the cache.
+     *
+     * @param bitmap Bitmap that is neither cached nor referenced by any view
+     */
+    public synchronized void addReusableBitmap(final Bitmap bitmap) {
+        if (bitmap == null || !bitmap.isMutable() || bitmap.isRecycled()) {
+            return;
+        }
+
+        final int size = bitmap.getAllocationByteCount() / 1024;
+        if (size > POOL_SIZE) {
+            return;
+        }
+
+        // Drop the oldest bitmaps if the pool is full
+        while (mReusableSize + size > POOL_SIZE && !mReusableBitmaps.isEmpty()) {
+            mReusableSize -= mReusableBitmaps.remove(0).getAllocationByteCount() / 1024;
+        }
+        mReusableBitmaps.add(bitmap);
+        mReusableSize += size;
+    }
+
+    /**
+     * @return Human readable hit, miss and eviction counts of the cache.
+     */
+    public synchronized String getStatistics() {
+        final int requests = mHitCount + mDownsampleCount + mMissCount;
+        return "Cache usage: " + ((mCache.size() * 100) / mCache.maxSize()) + "%, "
+                + "hits: " + mHitCount + ", downsampled: " + mDownsampleCount + ", misses: " + mMissCount
+                + ", miss rate: " + (requests == 0 ? 0 : (mMissCount * 100) / requests) + "%, "
+                + "evictions: " + mEvictionCount + ", reused bitmaps: " + mReuseCount;
+    }
+
+    private Bitmap getBitmap(final String hash, final int bucket) {
+        final Bitmap bitmap = mCache.get(getKey(hash, bucket));
+        if (bitmap != null) {
+            mHitCount++;
+            return bitmap;
+        }
+
+        // Create the variant from a larger one instead of decoding it again
+        for (int larger = bucket + 1; larger <= BUCKET_ORIGINAL; larger++) {
+            final Bitmap source = mCache.get(getKey(hash, larger));
+            if (source != null) {
+                if (Math.max(source.getWidth(), source.getHeight()) <= BUCKET_SIZES[bucket]) {
+                    // Small enough already, a bitmap is never stored under a second key
+                    mHitCount++;
+                    return source;
+                }
+                mDownsampleCount++;
+                return putBitmap(hash, bucket, source);
+            }
+        }
+
+        mMissCount++;
+        return null;
+    }
+
+    private Bitmap getLargestBitmap(final String hash) {
+        for (int bucket = BUCKET_ORIGINAL; bucket >= 0; bucket--) {
+            final Bitmap bitmap = mCache.get(getKey(hash, bucket));
+            if (bitmap != null) {
+                mHitCount++;
+                return bitmap;
+            }
+        }
+
+        mMissCount++;
+        return null;
+    }
+
+    private Bitmap putBitmap(final String hash, final int bucket, final Bitmap bm) {
+        if (bm == null) {
+            return null;
+        }
+
+        if (bucket == BUCKET_ORIGINAL || Math.max(bm.getWidth(), bm.getHeight()) <= BUCKET_SIZES[bucket]) {
+            mCache.put(getKey(hash, bucket), bm);
+            return bm;
+        }
+
+        final Bitmap scaled = scaleBitmap(bm, BUCKET_SIZES[bucket]);
+        mCache.put(getKey(hash, bucket), scaled);
+        return scaled;
+    }
+
+    private void removeBitmaps(final String hash) {
+        for (int bucket = 0; bucket <= BUCKET_ORIGINAL; bucket++) {
+            mCache.remove(getKey(hash, bucket));
+        }
+    }
+
+    /**
+     * Scales the bitmap down so that its longer edge matches the given size, reusing a pooled
+     * bitmap for the result if possible.
      */
-    private void printUsage() {
-        Log.v(TAG, "Cache usage: " + ((mCache.size() * 100) / mCache.maxSize()) + '%');
-        int missCount = mCache.missCount();
-        int hitCount = mCache.hitCount();
-        if (missCount > 0) {
-            Log.v(TAG, "Cache hit count: " + hitCount + " miss count: " + missCount + " Miss rate: " + ((hitCount * 100) / missCount) + '%');
+    private Bitmap scaleBitmap(final Bitmap source, final int size) {
+        final float factor = (float) size / Math.max(source.getWidth(), source.getHeight());
+        final int width = Math.max(1, Math.round(source.getWidth() * factor));
+        final int height = Math.max(1, Math.round(source.getHeight() * factor));
+
+        Bitmap target = getReusableBitmap(width * height * 4);
+        if (target != null) {
+            try {
+                target.reconfigure(width, height, Bitmap.Config.ARGB_8888);
+                target.eraseColor(Color.TRANSPARENT);
+            } catch (IllegalArgumentException e) {
+                target = null;
+            }
+        }
+        if (target == null) {
+            target = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        }
+
+        new Canvas(target).drawBitmap(source, null, new Rect(0, 0, width, height), mScalePaint);
+        return target;
+    }
+
+    private static String getKey(final String hash, final int bucket) {
+        return hash + BUCKET_SEPARATOR + bucket;
+    }
+
+    /**
+     * @return The smallest bucket that holds images of the requested size.
+     */
+    private static int getBucket(final int width, final int height) {
+        final int size = Math.max(width, height);
+        if (size <= 0) {
+            return BUCKET_ORIGINAL;
+        }
+
+        for (int bucket = 0; bucket < BUCKET_SIZES.length; bucket++) {
+            if (size <= BUCKET_SIZES[bucket]) {
+                return bucket;
+            }
         }
+        return BUCKET_ORIGINAL;
     }
 }
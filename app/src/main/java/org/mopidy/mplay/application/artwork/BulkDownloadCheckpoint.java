@@ -0,0 +1,104 @@
+/*
+ *  Copyright (C) 2022 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://gitlab.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.mopidy.mplay.application.artwork;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+
+import org.mopidy.mplay.application.artwork.network.ArtworkRequestModel;
+
+import java.util.List;
+
+/**
+ * Persists the progress of a bulk download, so that a cancelled or killed download continues
+ * where it stopped instead of checking every request again.
+ * <p>
+ * The checkpoint is only valid for the same list of requests with the same providers. All
+ * requests before the stored position are finished, requests after it may be finished as well
+ * and are skipped by the regular database check.
+ */
+class BulkDownloadCheckpoint {
+
+    private static final String PREFERENCES_NAME = "bulk_download_checkpoint";
+
+    private static final String KEY_SIGNATURE = "signature";
+
+    private static final String KEY_TOTAL = "total";
+
+    private static final String KEY_POSITION = "position";
+
+    private static final String KEY_FAILED = "failed";
+
+    private final SharedPreferences mPreferences;
+
+    BulkDownloadCheckpoint(@NonNull final Context context) {
+        mPreferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Creates a signature for a list of requests, which changes if the library or the used
+     * providers change.
+     */
+    static String createSignature(final String artistProvider, final String albumProvider, @NonNull final List<ArtworkRequestModel> requests) {
+        int hash = 17;
+        for (ArtworkRequestModel request : requests) {
+            hash = 31 * hash + request.getType().ordinal();
+            hash = 31 * hash + request.getLoggingString().hashCode();
+        }
+        return artistProvider + '/' + albumProvider + '/' + requests.size() + '/' + Integer.toHexString(hash);
+    }
+
+    /**
+     * @param signature Signature of the current list of requests
+     * @param total     Number of requests in the current list
+     * @return The number of requests that can be skipped, 0 if no matching checkpoint exists.
+     */
+    int getResumePosition(final String signature, final int total) {
+        if (!signature.equals(mPreferences.getString(KEY_SIGNATURE, null)) || total != mPreferences.getInt(KEY_TOTAL, -1)) {
+            return 0;
+        }
+        return Math.min(Math.max(mPreferences.getInt(KEY_POSITION, 0), 0), total);
+    }
+
+    /**
+     * @return The number of failed requests stored with the checkpoint.
+     */
+    int getFailedCount() {
+        return mPreferences.getInt(KEY_FAILED, 0);
+    }
+
+    void save(final String signature, final int total, final int position, final int failed) {
+        mPreferences.edit()
+                .putString(KEY_SIGNATURE, signature)
+                .putInt(KEY_TOTAL, total)
+                .putInt(KEY_POSITION, position)
+                .putInt(KEY_FAILED, failed)
+                .apply();
+    }
+
+    void clear() {
+        mPreferences.edit().clear().apply();
+    }
+}
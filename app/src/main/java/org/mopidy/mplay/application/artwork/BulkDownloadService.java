@@ -38,6 +38,7 @@ import android.os.Bundle;
 import android.os.IBinder;
 import android.os.Looper;
 import android.os.PowerManager;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
@@ -72,10 +73,12 @@ import org.mopidy.mplay.mpdservice.websocket.WSInterface;
 import org.json.JSONException;
 
 import java.lang.ref.WeakReference;
+import java.util.BitSet;
+import java.util.EnumMap;
 import java.util.LinkedList;
 import java.util.List;
 
-public class BulkDownloadService extends Service implements InsertImageTask.ImageSavedCallback, ArtProvider.ArtFetchError {
+public class BulkDownloadService extends Service {
     private static final String TAG = BulkDownloadService.class.getSimpleName();
 
     private static final int NOTIFICATION_ID = 2;
@@ -96,6 +99,32 @@ public class BulkDownloadService extends Service implements InsertImageTask.Imag
 
     public static final String BUNDLE_KEY_WIFI_ONLY = "org.gateshipone.malp.wifi_only";
 
+    /**
+     * Maximum number of parallel requests to the cover providers of the own server (MPD and HTTP covers)
+     */
+    private static final int MAX_PARALLEL_SERVER_REQUESTS = 4;
+
+    /**
+     * Maximum number of parallel requests to online providers, which limit the request rate per client
+     */
+    private static final int MAX_PARALLEL_ONLINE_REQUESTS = 2;
+
+    /**
+     * Number of finished requests after which the progress is saved
+     */
+    private static final int CHECKPOINT_INTERVAL = 25;
+
+    /**
+     * Number of times a request rejected by the provider (HTTP 429/503) is queued again. The
+     * request queue pauses the host in the meantime.
+     */
+    private static final int MAX_REJECTED_RETRIES = 3;
+
+    /**
+     * Minimum time between two notification updates in ms
+     */
+    private static final long NOTIFICATION_UPDATE_INTERVAL = 1000;
+
     private static final int PENDING_INTENT_UPDATE_CURRENT_FLAG =
             Build.VERSION.SDK_INT >= Build.VERSION_CODES.M ? PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE : PendingIntent.FLAG_UPDATE_CURRENT;
 
@@ -117,6 +146,47 @@ public class BulkDownloadService extends Service implements InsertImageTask.Imag
 
     final private LinkedList<ArtworkRequestModel> mArtworkRequestQueue = new LinkedList<>();
 
+    /**
+     * Requests waiting to be started, one queue per request type so that a full provider does not
+     * block the requests for other providers.
+     */
+    private final EnumMap<ArtworkRequestModel.ArtworkRequestType, LinkedList<BulkRequest>> mPendingRequests = new EnumMap<>(ArtworkRequestModel.ArtworkRequestType.class);
+
+    private final int[] mRunningRequests = new int[ArtworkRequestModel.ArtworkRequestType.values().length];
+
+    /**
+     * Finished requests by their position in the request list, null if no download is running.
+     */
+    private BitSet mFinishedRequests;
+
+    private int mFinishedRequestCount;
+
+    private int mFailedRequestCount;
+
+    /**
+     * Position of the first request that is not finished yet
+     */
+    private int mCheckpointPosition;
+
+    private String mCheckpointSignature;
+
+    private BulkDownloadCheckpoint mCheckpoint;
+
+    /**
+     * Start time and number of requests finished by a provider in this run, used for the throughput
+     */
+    private long mRunStartTime;
+
+    private int mRunRequestCount;
+
+    private long mLastNotificationUpdate;
+
+    private boolean mDispatching;
+
+    private String mArtistProvider;
+
+    private String mAlbumProvider;
+
     private ArtworkManager mArtworkManager;
 
     private ArtworkDatabaseManager mDatabaseManager;
@@ -166,8 +236,8 @@ public class BulkDownloadService extends Service implements InsertImageTask.Imag
                 Log.v(TAG, "Starting bulk download in service with thread id: " + Thread.currentThread().getId());
             }
 
-            String mArtistProvider = getString(R.string.pref_artwork_provider_artist_default);
-            String mAlbumProvider = getString(R.string.pref_artwork_provider_album_default);
+            mArtistProvider = getString(R.string.pref_artwork_provider_artist_default);
+            mAlbumProvider = getString(R.string.pref_artwork_provider_album_default);
 
             // reset counter
             mSumArtworkRequests = 0;
@@ -203,6 +273,8 @@ public class BulkDownloadService extends Service implements InsertImageTask.Imag
 
             mDatabaseManager = ArtworkDatabaseManager.getInstance(getApplicationContext());
 
+            mCheckpoint = new BulkDownloadCheckpoint(getApplicationContext());
+
             runAsForeground();
 
             ConnectionManager.getInstance(getApplicationContext()).reconnectLastServer(this);
@@ -210,64 +282,6 @@ public class BulkDownloadService extends Service implements InsertImageTask.Imag
         return START_NOT_STICKY;
     }
 
-    @Override
-    public void onImageSaved(final ArtworkRequestModel artworkRequestModel) {
-        mArtworkManager.onImageSaved(artworkRequestModel);
-
-        performNextRequest();
-    }
-
-    @Override
-    public void fetchJSONException(final ArtworkRequestModel model, final JSONException exception) {
-        if (BuildConfig.DEBUG) {
-            Log.e(TAG, "JSONException fetching: " + model.getLoggingString());
-        }
-
-        ImageResponse imageResponse = new ImageResponse();
-        imageResponse.model = model;
-        imageResponse.image = null;
-        imageResponse.url = null;
-        new InsertImageTask(getApplicationContext(), this).execute(imageResponse);
-    }
-
-    @Override
-    public void fetchLocalFailed(ArtworkRequestModel model) {
-        if (BuildConfig.DEBUG) {
-            Log.e(TAG, "MPD cover fetching failed: " + model.getLoggingString());
-        }
-
-        if (mArtworkManager.hasImageProvider(model.getType())) {
-            createRequest(model, true);
-        } else {
-            ImageResponse imageResponse = new ImageResponse();
-            imageResponse.model = model;
-            imageResponse.image = null;
-            imageResponse.url = null;
-            new InsertImageTask(getApplicationContext(), this).execute(imageResponse);
-        }
-    }
-
-    @Override
-    public void fetchVolleyError(final ArtworkRequestModel model, final VolleyError error) {
-        if (BuildConfig.DEBUG) {
-            Log.e(TAG, "VolleyError for request: " + model.getLoggingString());
-        }
-
-        if (error != null) {
-            NetworkResponse networkResponse = error.networkResponse;
-            if (networkResponse != null && networkResponse.statusCode == 503) {
-                finishedLoading();
-                return;
-            }
-        }
-
-        ImageResponse imageResponse = new ImageResponse();
-        imageResponse.model = model;
-        imageResponse.image = null;
-        imageResponse.url = null;
-        new InsertImageTask(getApplicationContext(), this).execute(imageResponse);
-    }
-
     private void runAsForeground() {
         if (mBroadcastReceiver == null) {
             mBroadcastReceiver = new ActionReceiver();
@@ -338,35 +352,141 @@ public class BulkDownloadService extends Service implements InsertImageTask.Imag
             Log.v(TAG, "Bulk loading started with: " + mArtworkRequestQueue.size());
         }
 
-        mSumArtworkRequests = mArtworkRequestQueue.size();
+        synchronized (this) {
+            mSumArtworkRequests = mArtworkRequestQueue.size();
 
-        mBuilder.setContentTitle(getString(R.string.downloader_notification_remaining_images));
+            // Skip the requests that were finished by a previous run of the same download
+            mCheckpointSignature = BulkDownloadCheckpoint.createSignature(mArtistProvider, mAlbumProvider, mArtworkRequestQueue);
+            mCheckpointPosition = mCheckpoint.getResumePosition(mCheckpointSignature, mSumArtworkRequests);
+            mFinishedRequestCount = mCheckpointPosition;
+            mFailedRequestCount = mCheckpointPosition > 0 ? mCheckpoint.getFailedCount() : 0;
+            mFinishedRequests = new BitSet(mSumArtworkRequests);
+            mFinishedRequests.set(0, mCheckpointPosition);
 
-        if (mArtworkRequestQueue.isEmpty()) {
-            finishedLoading();
-        } else {
-            performNextRequest();
+            if (BuildConfig.DEBUG && mCheckpointPosition > 0) {
+                Log.v(TAG, "Resuming bulk loading at: " + mCheckpointPosition);
+            }
+
+            for (ArtworkRequestModel.ArtworkRequestType type : ArtworkRequestModel.ArtworkRequestType.values()) {
+                mPendingRequests.put(type, new LinkedList<>());
+                mRunningRequests[type.ordinal()] = 0;
+            }
+
+            int position = 0;
+            for (ArtworkRequestModel requestModel : mArtworkRequestQueue) {
+                if (position >= mCheckpointPosition) {
+                    mPendingRequests.get(requestModel.getType()).add(new BulkRequest(requestModel, position));
+                }
+                position++;
+            }
+            mArtworkRequestQueue.clear();
+
+            mRunStartTime = SystemClock.elapsedRealtime();
+            mRunRequestCount = 0;
+            mLastNotificationUpdate = 0;
         }
-    }
 
-    private void performNextRequest() {
-        ArtworkRequestModel requestModel;
-        while (true) {
-            synchronized (mArtworkRequestQueue) {
-                updateNotification(mArtworkRequestQueue.size());
+        mBuilder.setContentTitle(getString(R.string.downloader_notification_remaining_images));
+
+        dispatchRequests();
+    }
 
-                requestModel = mArtworkRequestQueue.pollFirst();
+    /**
+     * Starts pending requests until the parallel request limit of each provider is reached.
+     * Requests whose image is already in the database are finished without a request.
+     */
+    private void dispatchRequests() {
+        synchronized (this) {
+            // A request can fail synchronously, the outer call continues the dispatching then
+            if (mFinishedRequests == null || mDispatching) {
+                return;
             }
+            mDispatching = true;
 
-            if (requestModel != null) {
-                if (checkRequest(requestModel)) {
-                    createRequest(requestModel, false);
-                    return;
+            for (ArtworkRequestModel.ArtworkRequestType type : ArtworkRequestModel.ArtworkRequestType.values()) {
+                final LinkedList<BulkRequest> pendingRequests = mPendingRequests.get(type);
+                final int limit = getParallelRequestLimit(type);
+
+                while (mFinishedRequests != null && mRunningRequests[type.ordinal()] < limit && !pendingRequests.isEmpty()) {
+                    final BulkRequest request = pendingRequests.pollFirst();
+
+                    if (checkRequest(request.mModel)) {
+                        mRunningRequests[type.ordinal()]++;
+                        createRequest(request, false);
+                    } else {
+                        markFinished(request, false);
+                    }
                 }
-            } else {
-                finishedLoading();
+            }
+
+            mDispatching = false;
+
+            if (mFinishedRequests == null) {
+                return;
+            }
+
+            updateNotification();
+        }
+
+        finishIfDone();
+    }
+
+    /**
+     * Called once a started request is done, either with an image or without one.
+     */
+    private void onRequestFinished(final BulkRequest request) {
+        synchronized (this) {
+            if (mFinishedRequests == null) {
+                // Download was cancelled in the meantime
                 return;
             }
+
+            mRunningRequests[request.mModel.getType().ordinal()]--;
+            mRunRequestCount++;
+            markFinished(request, request.mFailed);
+        }
+
+        dispatchRequests();
+    }
+
+    /**
+     * Queues a request again that was rejected by its provider, it is started once a slot is free.
+     */
+    private void onRequestRejected(final BulkRequest request) {
+        synchronized (this) {
+            if (mFinishedRequests == null) {
+                return;
+            }
+
+            mRunningRequests[request.mModel.getType().ordinal()]--;
+            mPendingRequests.get(request.mModel.getType()).addLast(request);
+        }
+
+        dispatchRequests();
+    }
+
+    private void markFinished(final BulkRequest request, final boolean failed) {
+        mFinishedRequests.set(request.mPosition);
+        mFinishedRequestCount++;
+        if (failed) {
+            mFailedRequestCount++;
+        }
+
+        mCheckpointPosition = mFinishedRequests.nextClearBit(mCheckpointPosition);
+        if (mFinishedRequestCount % CHECKPOINT_INTERVAL == 0) {
+            mCheckpoint.save(mCheckpointSignature, mSumArtworkRequests, mCheckpointPosition, mFailedRequestCount);
+        }
+    }
+
+    private int getParallelRequestLimit(final ArtworkRequestModel.ArtworkRequestType type) {
+        switch (type) {
+            case TRACK:
+                // Track requests are only created if the covers of the server are used
+                return MAX_PARALLEL_SERVER_REQUESTS;
+            case ALBUM:
+                return MPDAlbumImageProvider.getInstance().getActive() ? MAX_PARALLEL_SERVER_REQUESTS : MAX_PARALLEL_ONLINE_REQUESTS;
+            default:
+                return MAX_PARALLEL_ONLINE_REQUESTS;
         }
     }
 
@@ -399,23 +519,62 @@ public class BulkDownloadService extends Service implements InsertImageTask.Imag
         return false;
     }
 
-    private void createRequest(@NonNull final ArtworkRequestModel requestModel, boolean skipLocal) {
+    private void createRequest(@NonNull final BulkRequest request, boolean skipLocal) {
+        final ArtworkRequestModel requestModel = request.mModel;
         switch (requestModel.getType()) {
             case ALBUM:
-                mArtworkManager.fetchImage((MPDAlbum) requestModel.getGenericModel(), this, this, skipLocal);
+                mArtworkManager.fetchImage((MPDAlbum) requestModel.getGenericModel(), request, request, skipLocal);
                 break;
             case ARTIST:
-                mArtworkManager.fetchImage((MPDArtist) requestModel.getGenericModel(), this, this);
+                mArtworkManager.fetchImage((MPDArtist) requestModel.getGenericModel(), request, request);
                 break;
             case TRACK:
-                mArtworkManager.fetchImage((MPDTrack) requestModel.getGenericModel(), this, this, skipLocal);
+                mArtworkManager.fetchImage((MPDTrack) requestModel.getGenericModel(), request, request, skipLocal);
                 break;
         }
     }
 
+    /**
+     * Finishes the download if all requests are done. Check and finish happen under the same lock,
+     * so only one of several concurrent callbacks finishes the service.
+     */
+    private void finishIfDone() {
+        synchronized (this) {
+            if (mFinishedRequests == null || mFinishedRequestCount < mSumArtworkRequests) {
+                return;
+            }
+            releaseRequests();
+        }
+
+        stopDownload();
+    }
+
     private void finishedLoading() {
+        synchronized (this) {
+            releaseRequests();
+        }
+
+        stopDownload();
+    }
+
+    /**
+     * Saves the progress and drops all remaining requests. Must be called with the lock held.
+     */
+    private void releaseRequests() {
         mArtworkRequestQueue.clear();
 
+        if (mFinishedRequests != null) {
+            if (mCheckpointPosition >= mSumArtworkRequests) {
+                mCheckpoint.clear();
+            } else {
+                mCheckpoint.save(mCheckpointSignature, mSumArtworkRequests, mCheckpointPosition, mFailedRequestCount);
+            }
+            mFinishedRequests = null;
+        }
+        mPendingRequests.clear();
+    }
+
+    private void stopDownload() {
         ArtworkManager.getInstance(getApplicationContext()).cancelAllRequests();
 
         mNotificationManager.cancel(NOTIFICATION_ID);
@@ -427,19 +586,25 @@ public class BulkDownloadService extends Service implements InsertImageTask.Imag
         }
     }
 
-    private void updateNotification(final int pendingRequests) {
+    private void updateNotification() {
         if (BuildConfig.DEBUG) {
-            Log.v(TAG, "Remaining requests: " + pendingRequests);
+            Log.v(TAG, "Finished requests: " + mFinishedRequestCount + '/' + mSumArtworkRequests);
         }
 
-        int finishedRequests = mSumArtworkRequests - pendingRequests;
-
-        if (finishedRequests % 10 == 0) {
-            mBuilder.setProgress(mSumArtworkRequests, finishedRequests, false);
-            mBuilder.setStyle(new NotificationCompat.BigTextStyle()
-                    .bigText(getString(R.string.downloader_notification_remaining_images) + ' ' + finishedRequests + '/' + mSumArtworkRequests));
-            mNotificationManager.notify(NOTIFICATION_ID, mBuilder.build());
+        final long now = SystemClock.elapsedRealtime();
+        if (now - mLastNotificationUpdate < NOTIFICATION_UPDATE_INTERVAL) {
+            return;
         }
+        mLastNotificationUpdate = now;
+
+        final long runTime = Math.max(now - mRunStartTime, 1);
+        final int imagesPerMinute = (int) (mRunRequestCount * 60000L / runTime);
+
+        mBuilder.setProgress(mSumArtworkRequests, mFinishedRequestCount, false);
+        mBuilder.setStyle(new NotificationCompat.BigTextStyle()
+                .bigText(getString(R.string.downloader_notification_remaining_images) + ' ' + mFinishedRequestCount + '/' + mSumArtworkRequests + '\n'
+                        + getString(R.string.downloader_notification_statistics, imagesPerMinute, mFailedRequestCount)));
+        mNotificationManager.notify(NOTIFICATION_ID, mBuilder.build());
     }
 
     private void openChannel() {
@@ -520,6 +685,95 @@ public class BulkDownloadService extends Service implements InsertImageTask.Imag
         }
     }
 
+    /**
+     * A single request of the bulk download. It receives the callbacks of its own provider request,
+     * so that the slot of the right provider is freed once it is finished.
+     */
+    private class BulkRequest implements InsertImageTask.ImageSavedCallback, ArtProvider.ArtFetchError {
+
+        private final ArtworkRequestModel mModel;
+
+        /**
+         * Position in the list of all requests of this download
+         */
+        private final int mPosition;
+
+        private boolean mFailed;
+
+        private int mRejectedCount;
+
+        BulkRequest(final ArtworkRequestModel model, final int position) {
+            mModel = model;
+            mPosition = position;
+        }
+
+        @Override
+        public void onImageSaved(final ArtworkRequestModel artworkRequestModel) {
+            mArtworkManager.onImageSaved(artworkRequestModel);
+
+            onRequestFinished(this);
+        }
+
+        @Override
+        public void fetchJSONException(final ArtworkRequestModel model, final JSONException exception) {
+            if (BuildConfig.DEBUG) {
+                Log.e(TAG, "JSONException fetching: " + model.getLoggingString());
+            }
+
+            insertNotFound(model);
+        }
+
+        @Override
+        public void fetchLocalFailed(ArtworkRequestModel model) {
+            if (BuildConfig.DEBUG) {
+                Log.e(TAG, "MPD cover fetching failed: " + model.getLoggingString());
+            }
+
+            if (mArtworkManager.hasImageProvider(model.getType())) {
+                createRequest(this, true);
+            } else {
+                insertNotFound(model);
+            }
+        }
+
+        @Override
+        public void fetchVolleyError(final ArtworkRequestModel model, final VolleyError error) {
+            if (BuildConfig.DEBUG) {
+                Log.e(TAG, "VolleyError for request: " + model.getLoggingString());
+            }
+
+            if (error != null) {
+                NetworkResponse networkResponse = error.networkResponse;
+                if (networkResponse != null && (networkResponse.statusCode == 429 || networkResponse.statusCode == 503)) {
+                    // The provider is overloaded, the request queue backs off from it. The image
+                    // is not marked as missing, so a later download tries it again.
+                    if (mRejectedCount++ < MAX_REJECTED_RETRIES) {
+                        onRequestRejected(this);
+                    } else {
+                        mFailed = true;
+                        onRequestFinished(this);
+                    }
+                    return;
+                }
+            }
+
+            insertNotFound(model);
+        }
+
+        /**
+         * Marks the image as not available, so that it is not requested again.
+         */
+        private void insertNotFound(final ArtworkRequestModel model) {
+            mFailed = true;
+
+            ImageResponse imageResponse = new ImageResponse();
+            imageResponse.model = model;
+            imageResponse.image = null;
+            imageResponse.url = null;
+            new InsertImageTask(getApplicationContext(), this).executeOnExecutor(InsertImageTask.BULK_EXECUTOR, imageResponse);
+        }
+    }
+
     private static class ArtistsResponseHandler extends MPDResponseArtistList {
         private final WeakReference<BulkDownloadService> mBulkDownloadService;
 
@@ -600,9 +854,19 @@ public class BulkDownloadService extends Service implements InsertImageTask.Imag
             Log.v(TAG, "Received track count: " + trackList.size());
         }
 
+        // Images of tracks are stored per album, so one request per album is sufficient
+        final TrackAlbumAggregator aggregator = new TrackAlbumAggregator();
+        for (MPDFileEntry entry : trackList) {
+            if (entry instanceof MPDTrack) {
+                final MPDTrack track = (MPDTrack) entry;
+                if (aggregator.accept(track)) {
+                    mArtworkRequestQueue.add(new ArtworkRequestModel(track));
+                }
+            }
+        }
 
-        for (MPDFileEntry track : trackList) {
-            mArtworkRequestQueue.add(new ArtworkRequestModel((MPDTrack) track));
+        if (BuildConfig.DEBUG) {
+            Log.v(TAG, "Queued " + aggregator.getAcceptedCount() + " track requests, removed " + aggregator.getRemovedCount() + " duplicate album requests");
         }
 
         fetchAllArtists();
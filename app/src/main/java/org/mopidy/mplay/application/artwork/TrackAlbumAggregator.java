@@ -0,0 +1,106 @@
+/*
+ *  Copyright (C) 2022 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://gitlab.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.mopidy.mplay.application.artwork;
+
+import androidx.annotation.NonNull;
+
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDTrack;
+
+import java.util.HashSet;
+
+/**
+ * Collapses tracks of the same album for the bulk download. Track images are stored per album
+ * (see {@link org.mopidy.mplay.application.artwork.storage.ArtworkDatabaseManager#getTrackImage(MPDTrack)}),
+ * so only the first track of each album needs to be checked and fetched.
+ * <p>
+ * Tracks are passed one by one and only the keys of the already seen albums are kept, so
+ * the aggregation does not depend on the complete track list.
+ */
+class TrackAlbumAggregator {
+
+    private final HashSet<String> mAlbumKeys = new HashSet<>();
+
+    private int mAcceptedTracks;
+
+    private int mRemovedTracks;
+
+    /**
+     * Checks if a request for the album of this track is necessary.
+     *
+     * @param track Track to check
+     * @return True if the track is the first one of its album or if it has no album, false
+     * if a track of the same album was accepted before.
+     */
+    boolean accept(@NonNull final MPDTrack track) {
+        final String key = getAlbumKey(track);
+
+        if (key == null || mAlbumKeys.add(key)) {
+            mAcceptedTracks++;
+            return true;
+        }
+
+        mRemovedTracks++;
+        return false;
+    }
+
+    /**
+     * @return Number of tracks that resulted in a request.
+     */
+    int getAcceptedCount() {
+        return mAcceptedTracks;
+    }
+
+    /**
+     * @return Number of tracks that were dropped because their album was already requested.
+     */
+    int getRemovedCount() {
+        return mRemovedTracks;
+    }
+
+    /**
+     * Creates the key of the album a track belongs to. The MBID is used if available, otherwise
+     * the album name and its album artist (or artist if the album artist is missing).
+     *
+     * @param track Track to create the key for
+     * @return The key or null if the track has no album information.
+     */
+    private static String getAlbumKey(@NonNull final MPDTrack track) {
+        final String mbid = track.getStringTag(MPDTrack.StringTagTypes.ALBUM_MBID);
+        if (!mbid.isEmpty()) {
+            return mbid;
+        }
+
+        final String album = track.getStringTag(MPDTrack.StringTagTypes.ALBUM);
+        if (album.isEmpty()) {
+            return null;
+        }
+
+        String artist = track.getStringTag(MPDTrack.StringTagTypes.ALBUMARTIST);
+        if (artist.isEmpty()) {
+            artist = track.getStringTag(MPDTrack.StringTagTypes.ARTIST);
+        }
+
+        // The separator can not be part of a tag value and keeps "a" + "bc" apart from "ab" + "c"
+        return album + '\u0000' + artist;
+    }
+}
@@ -25,6 +25,7 @@ package org.mopidy.mplay.application.artwork.network;
 import android.net.Uri;
 
 import org.mopidy.mplay.application.utils.FormatHelper;
+import org.mopidy.mplay.application.utils.FuzzyMatcher;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDArtist;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDGenericItem;
@@ -42,6 +43,13 @@ public class ArtworkRequestModel {
 
     private final ArtworkRequestType mType;
 
+    /**
+     * Normalized names used to match provider responses. Created on first use.
+     */
+    private String mAlbumMatchKey;
+
+    private String mArtistMatchKey;
+
     public ArtworkRequestModel(MPDArtist artistModel) {
         this(artistModel, ArtworkRequestType.ARTIST);
     }
@@ -98,6 +106,16 @@ public class ArtworkRequestModel {
         return null;
     }
 
+    /**
+     * @return The server URI of the album or null if this is not an album request.
+     */
+    public String getAlbumURI() {
+        if (mType == ArtworkRequestType.ALBUM) {
+            return ((MPDAlbum) mModel).getURI();
+        }
+        return null;
+    }
+
     public String getAlbumName() {
         String albumName = null;
 
@@ -113,6 +131,16 @@ public class ArtworkRequestModel {
         return albumName;
     }
 
+    /**
+     * @return Album name normalized by {@link FuzzyMatcher#normalize(String)}.
+     */
+    public String getAlbumMatchKey() {
+        if (mAlbumMatchKey == null) {
+            mAlbumMatchKey = FuzzyMatcher.normalize(getAlbumName());
+        }
+        return mAlbumMatchKey;
+    }
+
     public String getEncodedAlbumName() {
         String encodedAlbumName = null;
 
@@ -160,6 +188,16 @@ public class ArtworkRequestModel {
         return artistName;
     }
 
+    /**
+     * @return Artist name normalized by {@link FuzzyMatcher#normalize(String)}.
+     */
+    public String getArtistMatchKey() {
+        if (mArtistMatchKey == null) {
+            mArtistMatchKey = FuzzyMatcher.normalize(getArtistName());
+        }
+        return mArtistMatchKey;
+    }
+
     public String getEncodedArtistName() {
         String encodedArtistName = null;
 
@@ -26,16 +26,24 @@ import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.os.AsyncTask;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
 
+import org.mopidy.mplay.BuildConfig;
 import org.mopidy.mplay.application.artwork.network.responses.ImageResponse;
 import org.mopidy.mplay.application.artwork.storage.ArtworkDatabaseManager;
+import org.mopidy.mplay.application.utils.AppExecutors;
+import org.mopidy.mplay.application.utils.BitmapUtils;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDArtist;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDTrack;
 
 import java.io.ByteArrayOutputStream;
+import java.util.concurrent.Executor;
 
 public class InsertImageTask extends AsyncTask<ImageResponse, Object, ArtworkRequestModel> {
+    private static final String TAG = InsertImageTask.class.getSimpleName();
 
     public interface ImageSavedCallback {
         void onImageSaved(ArtworkRequestModel artworkRequestModel);
@@ -47,7 +55,7 @@ public class InsertImageTask extends AsyncTask<ImageResponse, Object, ArtworkReq
     private static final int MAXIMUM_IMAGE_RESOLUTION = 500;
 
     /**
-     * Compression level if images are rescaled
+     * Compression level of the WebP variants
      */
     private static final int IMAGE_COMPRESSION_SETTING = 80;
 
@@ -56,6 +64,34 @@ public class InsertImageTask extends AsyncTask<ImageResponse, Object, ArtworkReq
      */
     private static final int MAXIMUM_IMAGE_SIZE = 1024 * 1024;
 
+    /**
+     * Executor for the tasks of user requested images. The tasks re-encode large images, so they run
+     * on the bounded {@link AppExecutors.Pool#ENCODE} pool and never block the decoding of covers.
+     * Each worker holds at most one decoded bitmap, so the pool also bounds the memory used for rescaling.
+     */
+    public static final Executor IMAGE_EXECUTOR = AppExecutors.getExecutor(AppExecutors.Pool.ENCODE, AppExecutors.PRIORITY_NORMAL);
+
+    /**
+     * Executor for the tasks of the bulk download, which yield to user requested images
+     */
+    public static final Executor BULK_EXECUTOR = AppExecutors.getExecutor(AppExecutors.Pool.ENCODE, AppExecutors.PRIORITY_LOW);
+
+    /**
+     * Running totals of the transcoded images for the debug statistics, guarded by the class lock
+     */
+    private static int sTranscodedImages;
+
+    private static long sOriginalBytes;
+
+    private static long sStoredBytes;
+
+    /**
+     * Decode times of the originals and, in debug builds, of the stored large variants
+     */
+    private static long sOriginalDecodeNanos;
+
+    private static long sStoredDecodeNanos;
+
     private final ArtworkDatabaseManager mArtworkDatabaseManager;
 
     private final ImageSavedCallback mImageSavedCallback;
@@ -70,53 +106,150 @@ public class InsertImageTask extends AsyncTask<ImageResponse, Object, ArtworkReq
         ImageResponse response = params[0];
 
         if (response.image == null) {
-            insertImage(response.model, null);
+            insertImage(response.model, null, null);
             return response.model;
         }
 
-        // Rescale them if to big
+        final long start = SystemClock.elapsedRealtime();
+
         BitmapFactory.Options options = new BitmapFactory.Options();
         options.inJustDecodeBounds = true;
         BitmapFactory.decodeByteArray(response.image, 0, response.image.length, options);
-        if ((options.outHeight > MAXIMUM_IMAGE_RESOLUTION || options.outWidth > MAXIMUM_IMAGE_RESOLUTION)) {
-            // Calculate minimal scaling factor
-            float factor = Math.min((float) MAXIMUM_IMAGE_RESOLUTION / (float) options.outHeight, (float) MAXIMUM_IMAGE_RESOLUTION / (float) options.outWidth);
+        final int imageSize = Math.max(options.outWidth, options.outHeight);
+
+        Bitmap bm = null;
+        long originalDecodeNanos = 0;
+        if (imageSize > ArtworkDatabaseManager.THUMBNAIL_SIZE) {
+            // Decode only once, subsampled close to the size of the large variant
+            final int largeSize = Math.min(imageSize, MAXIMUM_IMAGE_RESOLUTION);
+            options.inSampleSize = BitmapUtils.calculateInSampleSize(options, largeSize, largeSize);
             options.inJustDecodeBounds = false;
-            Bitmap bm = BitmapFactory.decodeByteArray(response.image, 0, response.image.length, options);
-            ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
-            Bitmap.createScaledBitmap(bm, (int) (options.outWidth * factor), (int) (options.outHeight * factor), true)
-                    .compress(Bitmap.CompressFormat.JPEG, IMAGE_COMPRESSION_SETTING, byteStream);
+            final long decodeStart = SystemClock.elapsedRealtimeNanos();
+            bm = BitmapFactory.decodeByteArray(response.image, 0, response.image.length, options);
+            originalDecodeNanos = SystemClock.elapsedRealtimeNanos() - decodeStart;
+        }
+
+        if (bm == null) {
+            // Small enough to be used for all sizes or not decodable, keep the original data
+            if (response.image.length <= MAXIMUM_IMAGE_SIZE) {
+                insertImage(response.model, response.image, null);
+            }
+            return response.model;
+        }
 
-            if (byteStream.size() <= MAXIMUM_IMAGE_SIZE) {
-                insertImage(response.model, byteStream.toByteArray());
+        final byte[] image;
+        if (imageSize > MAXIMUM_IMAGE_RESOLUTION) {
+            final Bitmap large = scaleBitmap(bm, MAXIMUM_IMAGE_RESOLUTION);
+            if (large != bm) {
+                bm.recycle();
+                bm = large;
             }
+            image = compressBitmap(bm);
         } else {
-            if (response.image.length <= MAXIMUM_IMAGE_SIZE) {
-                insertImage(response.model, response.image);
+            // Already small enough, only keep the original if WebP does not save anything
+            final byte[] encoded = compressBitmap(bm);
+            image = encoded.length < response.image.length ? encoded : response.image;
+        }
+
+        final Bitmap thumbnailBitmap = scaleBitmap(bm, ArtworkDatabaseManager.THUMBNAIL_SIZE);
+        final byte[] thumbnail = compressBitmap(thumbnailBitmap);
+        if (thumbnailBitmap != bm) {
+            thumbnailBitmap.recycle();
+        }
+        bm.recycle();
+
+        if (image.length <= MAXIMUM_IMAGE_SIZE) {
+            insertImage(response.model, image, thumbnail);
+        }
+
+        long storedDecodeNanos = 0;
+        if (BuildConfig.DEBUG) {
+            // Decodes the stored variant once more to compare it to the original
+            final long decodeStart = SystemClock.elapsedRealtimeNanos();
+            final Bitmap stored = BitmapFactory.decodeByteArray(image, 0, image.length);
+            storedDecodeNanos = SystemClock.elapsedRealtimeNanos() - decodeStart;
+            if (stored != null) {
+                stored.recycle();
             }
         }
+        addStatistics(response.image.length, image.length + thumbnail.length, originalDecodeNanos, storedDecodeNanos);
+
+        Log.v(TAG, "Transcoded " + imageSize + "px image of " + response.image.length + " bytes to " + image.length + " + " +
+                thumbnail.length + " bytes in " + (SystemClock.elapsedRealtime() - start) + " ms");
 
         return response.model;
     }
 
+    /**
+     * @return Human readable totals of the transcoded images: bytes of the downloaded originals
+     * compared to the stored variants and the average decode time of both.
+     */
+    public static synchronized String getStatistics() {
+        if (sTranscodedImages == 0) {
+            return "Transcoded images: none";
+        }
+        return "Transcoded images: " + sTranscodedImages +
+                "\nBytes: " + sOriginalBytes / 1024 + " KiB original, " + sStoredBytes / 1024 + " KiB stored" +
+                "\nAverage decode: " + sOriginalDecodeNanos / sTranscodedImages / 1000 + " us original, " +
+                sStoredDecodeNanos / sTranscodedImages / 1000 + " us stored";
+    }
+
+    private static synchronized void addStatistics(final int originalBytes, final int storedBytes, final long originalDecodeNanos,
+                                                   final long storedDecodeNanos) {
+        sTranscodedImages++;
+        sOriginalBytes += originalBytes;
+        sStoredBytes += storedBytes;
+        sOriginalDecodeNanos += originalDecodeNanos;
+        sStoredDecodeNanos += storedDecodeNanos;
+    }
+
     @Override
     protected void onPostExecute(ArtworkRequestModel artworkRequestModel) {
         mImageSavedCallback.onImageSaved(artworkRequestModel);
     }
 
-    private void insertImage(final ArtworkRequestModel model, final byte[] image) {
+    private void insertImage(final ArtworkRequestModel model, final byte[] image, final byte[] thumbnail) {
         switch (model.getType()) {
             case ALBUM:
-                mArtworkDatabaseManager.insertAlbumImage((MPDAlbum) model.getGenericModel(), image);
+                mArtworkDatabaseManager.insertAlbumImage((MPDAlbum) model.getGenericModel(), image, thumbnail);
                 break;
             case ARTIST:
-                mArtworkDatabaseManager.insertArtistImage((MPDArtist) model.getGenericModel(), image);
+                mArtworkDatabaseManager.insertArtistImage((MPDArtist) model.getGenericModel(), image, thumbnail);
                 break;
             case TRACK:
                 final MPDTrack track = (MPDTrack) model.getGenericModel();
                 MPDAlbum fakeAlbum = track.getAlbum();
-                mArtworkDatabaseManager.insertAlbumImage(fakeAlbum, image);
+                mArtworkDatabaseManager.insertAlbumImage(fakeAlbum, image, thumbnail);
                 break;
         }
     }
+
+    /**
+     * Scales the bitmap down so that neither side exceeds the given size.
+     *
+     * @return The scaled bitmap or the given bitmap if it already fits.
+     */
+    private static Bitmap scaleBitmap(final Bitmap bitmap, final int size) {
+        final int width = bitmap.getWidth();
+        final int height = bitmap.getHeight();
+        if (width <= size && height <= size) {
+            return bitmap;
+        }
+
+        final float factor = Math.min((float) size / (float) width, (float) size / (float) height);
+        return Bitmap.createScaledBitmap(bitmap, Math.max(1, Math.round(width * factor)), Math.max(1, Math.round(height * factor)), true);
+    }
+
+    /**
+     * Encodes the bitmap as lossy WebP, which is considerably smaller than JPEG at the same quality.
+     */
+    @SuppressWarnings("deprecation")
+    private static byte[] compressBitmap(final Bitmap bitmap) {
+        final Bitmap.CompressFormat format = Build.VERSION.SDK_INT >= Build.VERSION_CODES.R ?
+                Bitmap.CompressFormat.WEBP_LOSSY : Bitmap.CompressFormat.WEBP;
+
+        ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+        bitmap.compress(format, IMAGE_COMPRESSION_SETTING, byteStream);
+        return byteStream.toByteArray();
+    }
 }
\ No newline at end of file
@@ -26,51 +26,176 @@ package org.mopidy.mplay.application.artwork.network;
 import static com.android.volley.RequestQueue.RequestEvent.REQUEST_FINISHED;
 
 import android.content.Context;
+import android.net.Uri;
+import android.os.SystemClock;
 import android.util.Log;
 
 import com.android.volley.Cache;
 import com.android.volley.Network;
+import com.android.volley.NetworkResponse;
 import com.android.volley.Request;
 import com.android.volley.RequestQueue;
+import com.android.volley.VolleyError;
 import com.android.volley.toolbox.BasicNetwork;
-import com.android.volley.toolbox.DiskBasedCache;
-import com.android.volley.toolbox.HurlStack;
+import com.android.volley.toolbox.NoCache;
 
 import org.mopidy.mplay.BuildConfig;
+import org.mopidy.mplay.application.utils.HTTPClient;
 
-import java.util.Queue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
-import java.util.concurrent.LinkedBlockingQueue;
 
 
+/**
+ * Request queue for the online artwork providers.
+ * <p>
+ * Every host has its own token bucket with a rate, a burst size and a maximum number of parallel
+ * requests, so that the strict limit of MusicBrainz does not slow down the other providers.
+ * Hosts that answer with HTTP 429 or 503 are paused with an exponential back-off.
+ */
 public class MALPRequestQueue extends RequestQueue implements RequestQueue.RequestEventListener {
 
     private static final String TAG = MALPRequestQueue.class.getSimpleName();
 
-    private Timer mLimiterTimer;
+    /**
+     * Number of threads used for network requests
+     */
+    private static final int NETWORK_THREAD_COUNT = 4;
+
+    /**
+     * Back-off after the first 429/503 response of a host, doubled for every further one
+     */
+    private static final long MIN_BACKOFF_TIME = 2000;
+
+    private static final long MAX_BACKOFF_TIME = 60000;
+
+    /**
+     * Limits for hosts that are not configured explicitly
+     */
+    private static final HostLimit DEFAULT_LIMIT = new HostLimit(8, 8, 4);
 
     private static MALPRequestQueue mInstance;
 
-    private final Queue<Request<?>> mLimitingRequestQueue;
+    private final Timer mLimiterTimer;
+
+    /**
+     * Time at which the next dispatch is scheduled, 0 if none is scheduled.
+     */
+    private long mScheduledDispatch;
+
+    private final HashMap<String, HostLimit> mHostLimits = new HashMap<>();
+
+    private final HashMap<String, HostQueue> mHostQueues = new HashMap<>();
+
+    /**
+     * Rate, burst size and concurrency of a host.
+     */
+    private static class HostLimit {
+        /**
+         * Requests per second
+         */
+        private final double mRate;
+
+        private final int mBurst;
+
+        private final int mConcurrency;
+
+        private HostLimit(final double rate, final int burst, final int concurrency) {
+            mRate = rate;
+            mBurst = Math.max(burst, 1);
+            mConcurrency = Math.max(concurrency, 1);
+        }
+    }
+
+    private static class PendingRequest {
+        private final Request<?> mRequest;
+
+        private final long mQueueTime;
+
+        private PendingRequest(final Request<?> request, final long queueTime) {
+            mRequest = request;
+            mQueueTime = queueTime;
+        }
+    }
 
     /**
-     * Wait 1000ms between every request
+     * Token bucket and waiting requests of a single host.
      */
-    private static final int REQUEST_RATE = 1000;
+    private static class HostQueue {
+        private final ArrayDeque<PendingRequest> mPendingRequests = new ArrayDeque<>();
+
+        private HostLimit mLimit;
+
+        private double mTokens;
+
+        private long mLastRefill;
+
+        private int mRunningRequests;
+
+        private long mBackoffUntil;
+
+        private long mBackoffTime;
+
+        private long mDispatchedRequests;
+
+        private long mWaitTime;
+
+        private HostQueue(final HostLimit limit, final long now) {
+            mLimit = limit;
+            mTokens = limit.mBurst;
+            mLastRefill = now;
+        }
+
+        private void refill(final long now) {
+            mTokens = Math.min(mLimit.mBurst, mTokens + (now - mLastRefill) * mLimit.mRate / 1000.0);
+            mLastRefill = now;
+        }
+
+        private boolean canDispatch(final long now) {
+            return !mPendingRequests.isEmpty() && mRunningRequests < mLimit.mConcurrency
+                    && mBackoffUntil <= now && mTokens >= 1.0;
+        }
+
+        /**
+         * @return The time at which the next request can be sent or Long.MAX_VALUE if nothing is
+         * waiting or a running request has to finish first.
+         */
+        private long getNextDispatchTime(final long now) {
+            if (mPendingRequests.isEmpty() || mRunningRequests >= mLimit.mConcurrency) {
+                return Long.MAX_VALUE;
+            }
+
+            long time = Math.max(now, mBackoffUntil);
+            if (mTokens < 1.0) {
+                time = Math.max(time, now + (long) Math.ceil((1.0 - mTokens) * 1000.0 / mLimit.mRate));
+            }
+            return time;
+        }
+    }
 
     private MALPRequestQueue(Cache cache, Network network) {
-        super(cache, network, 1);
-        mLimitingRequestQueue = new LinkedBlockingQueue<>();
-        mLimiterTimer = null;
+        super(cache, network, NETWORK_THREAD_COUNT);
+        mLimiterTimer = new Timer("MALPRequestLimiter", true);
         addRequestEventListener(this);
+
+        // MusicBrainz allows one request per second, see https://musicbrainz.org/doc/MusicBrainz_API/Rate_Limiting
+        setHostLimit("musicbrainz.org", 1, 1, 1);
+        setHostLimit("coverartarchive.org", 4, 4, 4);
+        setHostLimit("webservice.fanart.tv", 4, 4, 2);
+        setHostLimit("ws.audioscrobbler.com", 5, 5, 2);
     }
 
     public synchronized static MALPRequestQueue getInstance(Context context) {
         if (null == mInstance) {
-            Network network = new BasicNetwork(new HurlStack());
-            // 10MB disk cache
-            Cache cache = new DiskBasedCache(context.getCacheDir(), 1024 * 1024 * 10);
+            Network network = new BackoffNetwork(new BasicNetwork(new OkHttpStack(HTTPClient.getInstance())));
+            // Responses are cached and revalidated by the shared HTTP client
+            Cache cache = new NoCache();
 
             mInstance = new MALPRequestQueue(cache, network);
             mInstance.start();
@@ -78,72 +203,235 @@ public class MALPRequestQueue extends RequestQueue implements RequestQueue.Reque
         return mInstance;
     }
 
+    /**
+     * Sets the limits for all requests to the given host.
+     *
+     * @param host        Host name as used in the request URLs
+     * @param rate        Requests per second
+     * @param burst       Number of requests that can be sent at once after an idle time
+     * @param concurrency Maximum number of requests running in parallel
+     */
+    public void setHostLimit(final String host, final double rate, final int burst, final int concurrency) {
+        final HostLimit limit = new HostLimit(rate, burst, concurrency);
+        synchronized (mHostQueues) {
+            mHostLimits.put(host, limit);
+            final HostQueue hostQueue = mHostQueues.get(host);
+            if (hostQueue != null) {
+                hostQueue.mLimit = limit;
+            }
+        }
+        dispatchRequests();
+    }
 
     @Override
     public <T> Request<T> add(Request<T> request) {
         if (null == request) {
             return null;
         }
-        // Add a request to the internal queue
-        synchronized (mLimitingRequestQueue) {
-            mLimitingRequestQueue.add(request);
-            if (null == mLimiterTimer) {
-                // Timer currently not running
-                mLimiterTimer = new Timer();
-                mLimiterTimer.schedule(new LimiterTask(), 0, REQUEST_RATE);
-            }
+
+        // Add a request to the queue of its host
+        synchronized (mHostQueues) {
+            final long now = SystemClock.elapsedRealtime();
+            getHostQueue(getHost(request), now).mPendingRequests.add(new PendingRequest(request, now));
         }
+        dispatchRequests();
         return request;
     }
 
-
-    private <T> void realAddRequest(Request<T> request) {
-        super.add(request);
+    /**
+     * Cancels all requests in this queue for which the given filter applies.
+     *
+     * @param filter The filtering function to use
+     */
+    public void cancelAll(RequestFilter filter) {
+        super.cancelAll(filter);
+        synchronized (mHostQueues) {
+            for (HostQueue hostQueue : mHostQueues.values()) {
+                final Iterator<PendingRequest> iterator = hostQueue.mPendingRequests.iterator();
+                while (iterator.hasNext()) {
+                    final Request<?> request = iterator.next().mRequest;
+                    if (filter.apply(request)) {
+                        request.cancel();
+                        iterator.remove();
+                    }
+                }
+            }
+        }
     }
 
     @Override
     public void onRequestEvent(Request<?> request, int event) {
-        if (BuildConfig.DEBUG) {
-            if (event == REQUEST_FINISHED) {
+        if (event == REQUEST_FINISHED) {
+            if (BuildConfig.DEBUG) {
                 Log.v(TAG, "Request finished");
             }
+
+            synchronized (mHostQueues) {
+                final HostQueue hostQueue = mHostQueues.get(getHost(request));
+                if (hostQueue != null && hostQueue.mRunningRequests > 0) {
+                    hostQueue.mRunningRequests--;
+                }
+            }
+            dispatchRequests();
         }
     }
 
     /**
-     * Cancels all requests in this queue for which the given filter applies.
-     *
-     * @param filter The filtering function to use
+     * @return Human readable queue depth, running requests and average wait time of all hosts.
      */
-    public void cancelAll(RequestFilter filter) {
-        super.cancelAll(filter);
-        synchronized (mLimitingRequestQueue) {
-            for (Request<?> request : mLimitingRequestQueue) {
-                if (filter.apply(request)) {
-                    request.cancel();
-                    mLimitingRequestQueue.remove(request);
+    public String getStatistics() {
+        final StringBuilder builder = new StringBuilder();
+        synchronized (mHostQueues) {
+            for (Map.Entry<String, HostQueue> entry : mHostQueues.entrySet()) {
+                final HostQueue hostQueue = entry.getValue();
+                builder.append(entry.getKey())
+                        .append(": queued ").append(hostQueue.mPendingRequests.size())
+                        .append(", running ").append(hostQueue.mRunningRequests)
+                        .append(", sent ").append(hostQueue.mDispatchedRequests)
+                        .append(", wait ").append(hostQueue.mDispatchedRequests == 0 ? 0 : hostQueue.mWaitTime / hostQueue.mDispatchedRequests)
+                        .append(" ms\n");
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Forwards all requests to volley whose host has a token and a free slot, and schedules the
+     * next run for the earliest host that has to wait.
+     */
+    private void dispatchRequests() {
+        final List<Request<?>> requests = new ArrayList<>();
+
+        synchronized (mHostQueues) {
+            final long now = SystemClock.elapsedRealtime();
+            long nextDispatch = Long.MAX_VALUE;
+
+            for (HostQueue hostQueue : mHostQueues.values()) {
+                hostQueue.refill(now);
+                while (hostQueue.canDispatch(now)) {
+                    final PendingRequest pendingRequest = hostQueue.mPendingRequests.poll();
+                    hostQueue.mTokens -= 1.0;
+                    hostQueue.mRunningRequests++;
+                    hostQueue.mDispatchedRequests++;
+                    hostQueue.mWaitTime += now - pendingRequest.mQueueTime;
+                    requests.add(pendingRequest.mRequest);
                 }
+                nextDispatch = Math.min(nextDispatch, hostQueue.getNextDispatchTime(now));
+            }
+
+            if (nextDispatch != Long.MAX_VALUE && (mScheduledDispatch == 0 || nextDispatch < mScheduledDispatch)) {
+                mScheduledDispatch = nextDispatch;
+                mLimiterTimer.schedule(new LimiterTask(), Math.max(nextDispatch - now, 0));
+            }
+        }
+
+        // Volley notifies the event listeners while adding, so this must not hold the lock
+        for (Request<?> request : requests) {
+            realAddRequest(request);
+        }
+    }
+
+    private <T> void realAddRequest(Request<T> request) {
+        super.add(request);
+    }
+
+    private HostQueue getHostQueue(final String host, final long now) {
+        HostQueue hostQueue = mHostQueues.get(host);
+        if (hostQueue == null) {
+            final HostLimit limit = mHostLimits.get(host);
+            hostQueue = new HostQueue(limit != null ? limit : DEFAULT_LIMIT, now);
+            mHostQueues.put(host, hostQueue);
+        }
+        return hostQueue;
+    }
+
+    /**
+     * Pauses all requests to the host of the given request after it was rejected by the server.
+     *
+     * @param request    The rejected request
+     * @param retryAfter Wait time in ms requested by the server or 0 if none was given
+     */
+    private void backoff(final Request<?> request, final long retryAfter) {
+        synchronized (mHostQueues) {
+            final long now = SystemClock.elapsedRealtime();
+            final HostQueue hostQueue = getHostQueue(getHost(request), now);
+            hostQueue.mBackoffTime = Math.min(hostQueue.mBackoffTime == 0 ? MIN_BACKOFF_TIME : hostQueue.mBackoffTime * 2, MAX_BACKOFF_TIME);
+            hostQueue.mBackoffUntil = now + Math.max(hostQueue.mBackoffTime, retryAfter);
+
+            if (BuildConfig.DEBUG) {
+                Log.v(TAG, "Backing off from " + getHost(request) + " for " + (hostQueue.mBackoffUntil - now) + " ms");
+            }
+        }
+    }
+
+    private void resetBackoff(final Request<?> request) {
+        synchronized (mHostQueues) {
+            final HostQueue hostQueue = mHostQueues.get(getHost(request));
+            if (hostQueue != null) {
+                hostQueue.mBackoffTime = 0;
             }
         }
     }
 
+    private static String getHost(final Request<?> request) {
+        final String host = Uri.parse(request.getUrl()).getHost();
+        return host == null ? "" : host;
+    }
+
     private class LimiterTask extends TimerTask {
         @Override
         public void run() {
-            synchronized (mLimitingRequestQueue) {
-                Request<?> request = mLimitingRequestQueue.poll();
-                if (null != request) {
-                    // Forward the request to the volley request queue
-                    realAddRequest(request);
-                } else {
-                    // Stop the timer, no requests left
-                    mLimiterTimer.cancel();
-                    mLimiterTimer.purge();
-                    mLimiterTimer = null;
+            synchronized (mHostQueues) {
+                mScheduledDispatch = 0;
+            }
+            dispatchRequests();
+        }
+    }
+
+    /**
+     * Network wrapper that reports rejected requests (HTTP 429/503) to the queue.
+     */
+    private static class BackoffNetwork implements Network {
+
+        private final Network mNetwork;
+
+        private BackoffNetwork(final Network network) {
+            mNetwork = network;
+        }
+
+        @Override
+        public NetworkResponse performRequest(Request<?> request) throws VolleyError {
+            try {
+                final NetworkResponse response = mNetwork.performRequest(request);
+                if (mInstance != null) {
+                    mInstance.resetBackoff(request);
                 }
+                return response;
+            } catch (VolleyError error) {
+                final NetworkResponse response = error.networkResponse;
+                if (mInstance != null && response != null && (response.statusCode == 429 || response.statusCode == 503)) {
+                    mInstance.backoff(request, getRetryAfter(response));
+                }
+                throw error;
             }
+        }
 
+        /**
+         * @return The value of the Retry-After header in ms or 0 if it is missing or a date.
+         */
+        private static long getRetryAfter(final NetworkResponse response) {
+            if (response.headers == null) {
+                return 0;
+            }
+            final String retryAfter = response.headers.get("Retry-After");
+            if (retryAfter == null) {
+                return 0;
+            }
+            try {
+                return Long.parseLong(retryAfter.trim()) * 1000;
+            } catch (NumberFormatException e) {
+                return 0;
+            }
         }
     }
-
 }
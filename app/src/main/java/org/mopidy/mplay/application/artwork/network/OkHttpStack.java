@@ -0,0 +1,145 @@
+/*
+ *  Copyright (C) 2022 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://gitlab.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.mopidy.mplay.application.artwork.network;
+
+import com.android.volley.AuthFailureError;
+import com.android.volley.Header;
+import com.android.volley.Request;
+import com.android.volley.toolbox.BaseHttpStack;
+import com.android.volley.toolbox.HttpResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Volley stack that sends the requests with the shared {@link OkHttpClient}, so that volley
+ * uses its connection pool and response cache.
+ */
+public class OkHttpStack extends BaseHttpStack {
+
+    private final OkHttpClient mClient;
+
+    public OkHttpStack(final OkHttpClient client) {
+        mClient = client;
+    }
+
+    @Override
+    public HttpResponse executeRequest(Request<?> request, Map<String, String> additionalHeaders) throws IOException, AuthFailureError {
+        // Derived clients share the connection pool and the cache of the shared client
+        final int timeoutMs = request.getTimeoutMs();
+        final OkHttpClient client = mClient.newBuilder()
+                .connectTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .readTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .build();
+
+        final okhttp3.Request.Builder builder = new okhttp3.Request.Builder().url(request.getUrl());
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            builder.header(header.getKey(), header.getValue());
+        }
+        for (Map.Entry<String, String> header : additionalHeaders.entrySet()) {
+            builder.header(header.getKey(), header.getValue());
+        }
+        setMethod(builder, request);
+
+        final Call call = client.newCall(builder.build());
+        final Response response = call.execute();
+
+        final List<Header> headers = new ArrayList<>();
+        final Headers responseHeaders = response.headers();
+        for (int i = 0; i < responseHeaders.size(); i++) {
+            headers.add(new Header(responseHeaders.name(i), responseHeaders.value(i)));
+        }
+
+        final ResponseBody body = response.body();
+        if (body == null || !hasResponseBody(request.getMethod(), response.code())) {
+            response.close();
+            return new HttpResponse(response.code(), headers);
+        }
+
+        // Transparently decompressed responses have no known length (-1)
+        return new HttpResponse(response.code(), headers, (int) body.contentLength(), body.byteStream());
+    }
+
+    private static void setMethod(final okhttp3.Request.Builder builder, final Request<?> request) throws AuthFailureError {
+        switch (request.getMethod()) {
+            case Request.Method.DEPRECATED_GET_OR_POST: {
+                final byte[] body = request.getBody();
+                if (body != null) {
+                    builder.post(createBody(request, body));
+                }
+                break;
+            }
+            case Request.Method.GET:
+                builder.get();
+                break;
+            case Request.Method.DELETE:
+                builder.delete(createBody(request, request.getBody()));
+                break;
+            case Request.Method.POST:
+                builder.post(createBody(request, request.getBody()));
+                break;
+            case Request.Method.PUT:
+                builder.put(createBody(request, request.getBody()));
+                break;
+            case Request.Method.HEAD:
+                builder.head();
+                break;
+            case Request.Method.OPTIONS:
+                builder.method("OPTIONS", null);
+                break;
+            case Request.Method.TRACE:
+                builder.method("TRACE", null);
+                break;
+            case Request.Method.PATCH:
+                builder.patch(createBody(request, request.getBody()));
+                break;
+            default:
+                throw new IllegalStateException("Unknown method type.");
+        }
+    }
+
+    private static RequestBody createBody(final Request<?> request, final byte[] body) {
+        return RequestBody.create(body == null ? new byte[0] : body, MediaType.parse(request.getBodyContentType()));
+    }
+
+    /**
+     * Responses to HEAD requests and 1xx, 204 and 304 responses have no body.
+     */
+    private static boolean hasResponseBody(final int requestMethod, final int responseCode) {
+        return requestMethod != Request.Method.HEAD
+                && !(100 <= responseCode && responseCode < 200)
+                && responseCode != 204
+                && responseCode != 304;
+    }
+}
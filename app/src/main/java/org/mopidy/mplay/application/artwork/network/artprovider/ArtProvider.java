@@ -27,7 +27,7 @@ import com.android.volley.VolleyError;
 
 import org.mopidy.mplay.application.artwork.network.ArtworkRequestModel;
 import org.mopidy.mplay.application.artwork.network.responses.ImageResponse;
-import org.mopidy.mplay.application.utils.StringCompareUtils;
+import org.mopidy.mplay.application.utils.FuzzyMatcher;
 import org.json.JSONException;
 
 public abstract class ArtProvider {
@@ -40,11 +40,37 @@ public abstract class ArtProvider {
 
     public abstract void fetchImage(final ArtworkRequestModel model, final Response.Listener<ImageResponse> listener, final ArtFetchError errorListener);
 
-    boolean compareAlbumResponse(final String expectedAlbum, final String expectedArtist, final String retrievedAlbum, final String retrievedArtist) {
-        return StringCompareUtils.compareStrings(expectedAlbum, retrievedAlbum) && StringCompareUtils.compareStrings(expectedArtist, retrievedArtist);
+    boolean compareAlbumResponse(final ArtworkRequestModel model, final String retrievedAlbum, final String retrievedArtist) {
+        return rateAlbumResponse(model, retrievedAlbum, retrievedArtist) != FuzzyMatcher.NO_MATCH;
     }
 
-    boolean compareArtistResponse(final String expectedArtist, final String retrievedArtist) {
-        return StringCompareUtils.compareStrings(expectedArtist, retrievedArtist);
+    /**
+     * Rates how well a retrieved album matches the requested one. Album and artist must both match.
+     *
+     * @return Score between 0 and 1, higher is better, or {@link FuzzyMatcher#NO_MATCH}.
+     */
+    float rateAlbumResponse(final ArtworkRequestModel model, final String retrievedAlbum, final String retrievedArtist) {
+        final FuzzyMatcher matcher = FuzzyMatcher.getInstance();
+
+        final float albumScore = matcher.score(model.getAlbumMatchKey(), FuzzyMatcher.normalize(retrievedAlbum));
+        if (albumScore == FuzzyMatcher.NO_MATCH) {
+            return FuzzyMatcher.NO_MATCH;
+        }
+
+        final float artistScore = matcher.score(model.getArtistMatchKey(), FuzzyMatcher.normalize(retrievedArtist));
+        if (artistScore == FuzzyMatcher.NO_MATCH) {
+            return FuzzyMatcher.NO_MATCH;
+        }
+
+        return (albumScore + artistScore) / 2;
+    }
+
+    /**
+     * Rates how well a retrieved artist matches the requested one.
+     *
+     * @return Score between 0 and 1, higher is better, or {@link FuzzyMatcher#NO_MATCH}.
+     */
+    float rateArtistResponse(final ArtworkRequestModel model, final String retrievedArtist) {
+        return FuzzyMatcher.getInstance().score(model.getArtistMatchKey(), FuzzyMatcher.normalize(retrievedArtist));
     }
 }
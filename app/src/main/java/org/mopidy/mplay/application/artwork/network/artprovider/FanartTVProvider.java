@@ -38,6 +38,7 @@ import org.mopidy.mplay.application.artwork.network.requests.MALPJsonObjectReque
 import org.mopidy.mplay.application.artwork.network.responses.FanartResponse;
 import org.mopidy.mplay.application.artwork.network.responses.ImageResponse;
 import org.mopidy.mplay.application.utils.FormatHelper;
+import org.mopidy.mplay.application.utils.FuzzyMatcher;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDArtist;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDTrack;
 import org.json.JSONArray;
@@ -80,9 +81,10 @@ public class FanartTVProvider extends ArtProvider implements FanartProvider {
     private static final String MUSICBRAINZ_FORMAT_JSON = "&fmt=json";
 
     /**
-     * Limit the number of results to one. Used for resolving artist names to MBIDs
+     * Limit the number of results. Used for resolving artist names to MBIDs, the best matching
+     * artist of the results is used.
      */
-    private static final int MUSICBRAINZ_LIMIT_RESULT_COUNT = 1;
+    private static final int MUSICBRAINZ_LIMIT_RESULT_COUNT = 5;
 
     /**
      * Constant URL format to limit results
@@ -165,16 +167,17 @@ public class FanartTVProvider extends ArtProvider implements FanartProvider {
                 try {
                     artists = response.getJSONArray("artists");
 
-                    // Only check the first matching artist
                     if (!artists.isNull(0)) {
-                        final JSONObject artistObj = artists.getJSONObject(0);
-
-                        // verify response
-                        final String artist = artistObj.getString("name");
+                        // verify response and pick the best matching artist
+                        final float[] scores = new float[Math.min(artists.length(), MUSICBRAINZ_LIMIT_RESULT_COUNT)];
+                        for (int i = 0; i < scores.length; i++) {
+                            scores[i] = rateArtistResponse(model, artists.getJSONObject(i).getString("name"));
+                        }
 
-                        final boolean isMatching = compareArtistResponse(model.getArtistName(), artist);
+                        final int[] candidates = FuzzyMatcher.rank(scores);
 
-                        if (isMatching) {
+                        if (candidates.length > 0) {
+                            final JSONObject artistObj = artists.getJSONObject(candidates[0]);
 
                             final String artistMBID = artistObj.getString("id");
 
@@ -195,7 +198,7 @@ public class FanartTVProvider extends ArtProvider implements FanartProvider {
                             }, error -> errorListener.fetchVolleyError(model, error));
                         } else {
                             if (BuildConfig.DEBUG) {
-                                Log.v(TAG, "Response ( " + artist + " )" + " doesn't match requested model: " +
+                                Log.v(TAG, "No response matches requested model: " +
                                         "( " + model.getLoggingString() + " )");
                             }
 
@@ -34,14 +34,15 @@ import com.android.volley.RequestQueue;
 import com.android.volley.Response;
 import com.android.volley.VolleyError;
 import com.android.volley.toolbox.BasicNetwork;
-import com.android.volley.toolbox.DiskBasedCache;
-import com.android.volley.toolbox.HurlStack;
+import com.android.volley.toolbox.NoCache;
 
 import org.mopidy.mplay.BuildConfig;
 import org.mopidy.mplay.application.artwork.network.ArtworkRequestModel;
+import org.mopidy.mplay.application.artwork.network.OkHttpStack;
 import org.mopidy.mplay.application.artwork.network.requests.MALPByteRequest;
 import org.mopidy.mplay.application.artwork.network.responses.ImageResponse;
 import org.mopidy.mplay.application.utils.FormatHelper;
+import org.mopidy.mplay.application.utils.HTTPClient;
 
 public class HTTPAlbumImageProvider extends ArtProvider {
     private static final String TAG = HTTPAlbumImageProvider.class.getSimpleName();
@@ -74,9 +75,9 @@ public class HTTPAlbumImageProvider extends ArtProvider {
 
     private HTTPAlbumImageProvider(final Context context) {
         // Don't use MALPRequestQueue because we do not need to limit the load on the local server
-        Network network = new BasicNetwork(new HurlStack());
-        // 10MB disk cache
-        Cache cache = new DiskBasedCache(context.getApplicationContext().getCacheDir(), 1024 * 1024 * 10);
+        Network network = new BasicNetwork(new OkHttpStack(HTTPClient.getInstance()));
+        // Responses are cached and revalidated by the shared HTTP client
+        Cache cache = new NoCache();
 
         mRequestQueue = new RequestQueue(cache, network);
         mRequestQueue.start();
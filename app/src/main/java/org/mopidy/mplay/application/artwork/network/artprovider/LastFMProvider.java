@@ -148,7 +148,7 @@ public class LastFMProvider extends ArtProvider {
             final String album = baseObj.getString("name");
             final String artist = baseObj.getString("artist");
 
-            final boolean isMatching = compareAlbumResponse(model.getAlbumName(), model.getArtistName(), album, artist);
+            final boolean isMatching = compareAlbumResponse(model, album, artist);
 
             if (isMatching) {
                 final JSONArray images = baseObj.getJSONArray("image");
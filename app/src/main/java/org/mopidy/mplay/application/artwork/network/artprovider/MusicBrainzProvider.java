@@ -36,6 +36,7 @@ import org.mopidy.mplay.application.artwork.network.requests.MALPByteRequest;
 import org.mopidy.mplay.application.artwork.network.requests.MALPJsonObjectRequest;
 import org.mopidy.mplay.application.artwork.network.responses.ImageResponse;
 import org.mopidy.mplay.application.utils.FormatHelper;
+import org.mopidy.mplay.application.utils.FuzzyMatcher;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -104,71 +105,82 @@ public class MusicBrainzProvider extends ArtProvider {
      */
     private void resolveAlbumMBID(final ArtworkRequestModel album, final Response.Listener<ImageResponse> listener, final ArtFetchError errorListener) {
         getAlbumMBID(album,
-                response -> parseMusicBrainzReleaseJSON(album, 0, response, listener, errorListener),
+                response -> parseMusicBrainzReleaseJSON(album, response, listener, errorListener),
                 error -> errorListener.fetchVolleyError(album, error));
     }
 
     /**
-     * Parses the JSON response and searches the image URL
+     * Parses the JSON response and ranks the releases by how well they match the requested album.
      *
      * @param model         Album to check for an image
-     * @param releaseIndex  Index of the requested release to check for an image
      * @param response      Response to check use to search for an image
      * @param listener      Callback to handle the response
      * @param errorListener Callback to handle errors
      */
-    private void parseMusicBrainzReleaseJSON(final ArtworkRequestModel model, final int releaseIndex, final JSONObject response,
+    private void parseMusicBrainzReleaseJSON(final ArtworkRequestModel model, final JSONObject response,
                                              final Response.Listener<ImageResponse> listener, final ArtFetchError errorListener) {
-        if (releaseIndex >= MUSICBRAINZ_LIMIT_RESULT_COUNT) {
-            errorListener.fetchVolleyError(model, null);
-            return;
-        }
-
         try {
             final JSONArray releases = response.getJSONArray("releases");
-            if (releases.length() > releaseIndex) {
+            final float[] scores = new float[Math.min(releases.length(), MUSICBRAINZ_LIMIT_RESULT_COUNT)];
+
+            for (int releaseIndex = 0; releaseIndex < scores.length; releaseIndex++) {
                 final JSONObject baseObj = releases.getJSONObject(releaseIndex);
 
                 // verify response
                 final String album = baseObj.getString("title");
                 final String artist = baseObj.getJSONArray("artist-credit").getJSONObject(0).getString("name");
 
-                final boolean isMatching = compareAlbumResponse(model.getAlbumName(), model.getArtistName(), album, artist);
+                scores[releaseIndex] = rateAlbumResponse(model, album, artist);
 
-                if (isMatching) {
-                    final String mbid = releases.getJSONObject(releaseIndex).getString("id");
-                    final String url = COVERART_ARCHIVE_API_URL + "/" + "release/" + mbid + "/front-500";
+                if (BuildConfig.DEBUG && scores[releaseIndex] == FuzzyMatcher.NO_MATCH) {
+                    Log.v(TAG, "Response ( " + album + "-" + artist + " )" + " doesn't match requested model: " +
+                            "( " + model.getLoggingString() + " )");
+                }
+            }
 
-                    getAlbumImage(url, model, listener, error -> {
-                        if (BuildConfig.DEBUG) {
-                            Log.v(TAG, "No image found for: " + model.getAlbumName() + " with release index: " + releaseIndex);
-                        }
+            tryRelease(model, releases, FuzzyMatcher.rank(scores), 0, listener, errorListener);
+        } catch (JSONException e) {
+            errorListener.fetchJSONException(model, e);
+        }
+    }
 
-                        if (releaseIndex + 1 < releases.length()) {
-                            parseMusicBrainzReleaseJSON(model, releaseIndex + 1, response, listener, errorListener);
-                        } else {
-                            errorListener.fetchVolleyError(model, error);
-                        }
-                    });
+    /**
+     * Recursive method to try the matching releases, best match first.
+     *
+     * @param model          Album to check for an image
+     * @param releases       Releases of the MusicBrainz response
+     * @param candidates     Indices of the matching releases, best match first
+     * @param candidateIndex Index of the candidate to check for an image
+     * @param listener       Callback to handle the response
+     * @param errorListener  Callback to handle errors
+     */
+    private void tryRelease(final ArtworkRequestModel model, final JSONArray releases, final int[] candidates, final int candidateIndex,
+                            final Response.Listener<ImageResponse> listener, final ArtFetchError errorListener) {
+        if (candidateIndex >= candidates.length) {
+            errorListener.fetchVolleyError(model, null);
+            return;
+        }
+
+        final int releaseIndex = candidates[candidateIndex];
+
+        try {
+            final String mbid = releases.getJSONObject(releaseIndex).getString("id");
+            final String url = COVERART_ARCHIVE_API_URL + "/" + "release/" + mbid + "/front-500";
+
+            getAlbumImage(url, model, listener, error -> {
+                if (BuildConfig.DEBUG) {
+                    Log.v(TAG, "No image found for: " + model.getAlbumName() + " with release index: " + releaseIndex);
+                }
+
+                if (candidateIndex + 1 < candidates.length) {
+                    tryRelease(model, releases, candidates, candidateIndex + 1, listener, errorListener);
                 } else {
-                    if (BuildConfig.DEBUG) {
-                        Log.v(TAG, "Response ( " + album + "-" + artist + " )" + " doesn't match requested model: " +
-                                "( " + model.getLoggingString() + " )");
-                    }
-
-                    if (releaseIndex + 1 < releases.length()) {
-                        parseMusicBrainzReleaseJSON(model, releaseIndex + 1, response, listener, errorListener);
-                    } else {
-                        errorListener.fetchVolleyError(model, null);
-                    }
+                    errorListener.fetchVolleyError(model, error);
                 }
-            } else {
-                errorListener.fetchVolleyError(model, null);
-            }
+            });
         } catch (JSONException e) {
             errorListener.fetchJSONException(model, e);
         }
-
     }
 
     /**
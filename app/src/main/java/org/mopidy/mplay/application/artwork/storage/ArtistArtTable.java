@@ -33,6 +33,11 @@ class ArtistArtTable {
 
     static final String COLUMN_IMAGE_FILE_PATH = "artist_image_file_path";
 
+    /**
+     * Small variant of the image, null if the image is not larger than the thumbnail size
+     */
+    static final String COLUMN_THUMBNAIL_FILE_PATH = "artist_thumbnail_file_path";
+
     static final String COLUMN_IMAGE_NOT_FOUND = "image_not_found";
 
     private static final String DATABASE_CREATE = "CREATE TABLE if not exists " +
@@ -41,14 +46,86 @@ class ArtistArtTable {
             COLUMN_ARTIST_NAME + " text," +
             COLUMN_ARTIST_MBID + " text," +
             COLUMN_IMAGE_NOT_FOUND + " integer," +
-            COLUMN_IMAGE_FILE_PATH + " text" +
+            COLUMN_IMAGE_FILE_PATH + " text," +
+            COLUMN_THUMBNAIL_FILE_PATH + " text" +
             ");";
 
+    private static final String INDEX_KEY = TABLE_NAME + "_key";
+
+    private static final String INDEX_NAME = TABLE_NAME + "_name";
+
+    private static final String INDEX_IMAGE = TABLE_NAME + "_image";
+
+    private static final String INDEX_THUMBNAIL = TABLE_NAME + "_thumbnail";
+
+    /**
+     * One row per artist. Required for replace() to update an existing entry instead of adding
+     * a new one. Also used for the lookups by mbid.
+     */
+    private static final String INDEX_KEY_CREATE = "CREATE UNIQUE INDEX if not exists " +
+            INDEX_KEY + " ON " + TABLE_NAME +
+            " (" +
+            COLUMN_ARTIST_MBID + "," +
+            COLUMN_ARTIST_NAME +
+            ");";
+
+    /**
+     * Covering index for the lookups by artist name
+     */
+    private static final String INDEX_NAME_CREATE = "CREATE INDEX if not exists " +
+            INDEX_NAME + " ON " + TABLE_NAME +
+            " (" +
+            COLUMN_ARTIST_NAME + "," +
+            COLUMN_IMAGE_NOT_FOUND + "," +
+            COLUMN_IMAGE_FILE_PATH +
+            ");";
+
+    /**
+     * Keeps only the most recent row of each artist
+     */
+    private static final String REMOVE_DUPLICATES = "DELETE FROM " + TABLE_NAME +
+            " WHERE rowid NOT IN (SELECT MAX(rowid) FROM " + TABLE_NAME +
+            " GROUP BY " + COLUMN_ARTIST_MBID + "," + COLUMN_ARTIST_NAME + ");";
+
+    /**
+     * Index for the reference counting of the artwork blobs
+     */
+    private static final String INDEX_IMAGE_CREATE = "CREATE INDEX if not exists " +
+            INDEX_IMAGE + " ON " + TABLE_NAME +
+            " (" +
+            COLUMN_IMAGE_FILE_PATH +
+            ");";
+
+    private static final String INDEX_THUMBNAIL_CREATE = "CREATE INDEX if not exists " +
+            INDEX_THUMBNAIL + " ON " + TABLE_NAME +
+            " (" +
+            COLUMN_THUMBNAIL_FILE_PATH +
+            ");";
+
+    private static final String ADD_THUMBNAIL_COLUMN = "ALTER TABLE " + TABLE_NAME +
+            " ADD COLUMN " + COLUMN_THUMBNAIL_FILE_PATH + " text";
+
     private static final String DATABASE_DROP = "DROP TABLE if exists " + TABLE_NAME;
 
     static void createTable(SQLiteDatabase database) {
         // Create table if not already existing
         database.execSQL(DATABASE_CREATE);
+        createIndexes(database);
+    }
+
+    static void createIndexes(final SQLiteDatabase database) {
+        database.execSQL(INDEX_KEY_CREATE);
+        database.execSQL(INDEX_NAME_CREATE);
+        database.execSQL(INDEX_IMAGE_CREATE);
+        database.execSQL(INDEX_THUMBNAIL_CREATE);
+    }
+
+    static void addThumbnailColumn(final SQLiteDatabase database) {
+        database.execSQL(ADD_THUMBNAIL_COLUMN);
+    }
+
+    static void removeDuplicates(final SQLiteDatabase database) {
+        database.execSQL(REMOVE_DUPLICATES);
     }
 
     static void dropTable(final SQLiteDatabase database) {
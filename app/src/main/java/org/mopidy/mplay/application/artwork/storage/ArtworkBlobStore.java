@@ -0,0 +1,228 @@
+/*
+ *  Copyright (C) 2022 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://gitlab.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.mopidy.mplay.application.artwork.storage;
+
+import android.content.Context;
+
+import org.mopidy.mplay.application.utils.FileUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Content addressed file store for artwork images. Every image is stored once under the
+ * SHA-256 hash of its content, so identical images of several albums or artists share one file.
+ * Files are sharded into subdirectories by the first characters of the hash. New files are
+ * written to a temporary file in the target directory and renamed once they are complete, so a
+ * file with a hash name is never partially written.
+ * <p>
+ * Reference counts and access times of the files are kept by {@link ArtworkDatabaseManager},
+ * which also serializes all calls that add or delete files.
+ */
+class ArtworkBlobStore {
+
+    private static final String DIRECTORY_BLOBS = "blobs";
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * Number of hash characters used as the name of the subdirectory, 256 directories for 2
+     */
+    private static final int SHARD_LENGTH = 2;
+
+    private final File mDirectory;
+
+    /**
+     * An image that is written to a temporary file but not yet visible under its hash.
+     */
+    static class PendingBlob {
+        private final String mHash;
+
+        private final long mSize;
+
+        /**
+         * Temporary file or null if the store already contained the image
+         */
+        private final File mTempFile;
+
+        private PendingBlob(final String hash, final long size, final File tempFile) {
+            mHash = hash;
+            mSize = size;
+            mTempFile = tempFile;
+        }
+
+        String getHash() {
+            return mHash;
+        }
+
+        long getSize() {
+            return mSize;
+        }
+    }
+
+    ArtworkBlobStore(final Context context) {
+        mDirectory = FileUtils.getArtworkDirectory(context, DIRECTORY_BLOBS);
+    }
+
+    /**
+     * Writes the image to a temporary file. Does not need to be serialized with other calls.
+     *
+     * @param image The raw image data.
+     * @return The pending image that needs to be committed or discarded.
+     * @throws IOException If the file couldn't be written.
+     */
+    PendingBlob prepare(final byte[] image) throws IOException {
+        final String hash;
+        try {
+            hash = FileUtils.createSHA256HashForBytes(image);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+
+        if (getFile(hash).exists()) {
+            return new PendingBlob(hash, image.length, null);
+        }
+
+        final File directory = getShardDirectory(hash);
+        directory.mkdirs();
+
+        final File tempFile = File.createTempFile(hash, TEMP_SUFFIX, directory);
+        try (FileOutputStream outputStream = new FileOutputStream(tempFile)) {
+            outputStream.write(image);
+        } catch (IOException e) {
+            tempFile.delete();
+            throw e;
+        }
+        return new PendingBlob(hash, image.length, tempFile);
+    }
+
+    /**
+     * Makes a prepared image visible under its hash.
+     *
+     * @param blob The prepared image.
+     * @return True if the file of the hash exists afterwards.
+     */
+    boolean commit(final PendingBlob blob) {
+        final File file = getFile(blob.mHash);
+        if (blob.mTempFile == null) {
+            return file.exists();
+        }
+
+        if (file.exists()) {
+            // Same content was stored meanwhile
+            blob.mTempFile.delete();
+            return true;
+        }
+
+        if (!blob.mTempFile.renameTo(file)) {
+            blob.mTempFile.delete();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Removes the temporary file of a prepared image that is not committed.
+     */
+    void discard(final PendingBlob blob) {
+        if (blob.mTempFile != null) {
+            blob.mTempFile.delete();
+        }
+    }
+
+    /**
+     * Moves an existing image file into the store.
+     *
+     * @param source The image file. It is moved or deleted if the store already contains it.
+     * @return The pending image for the database entry. It is already committed.
+     * @throws IOException If the file couldn't be read or moved.
+     */
+    PendingBlob importFile(final File source) throws IOException {
+        final String hash;
+        try {
+            hash = FileUtils.createSHA256HashForFile(source);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+
+        final long size = source.length();
+        final File file = getFile(hash);
+        if (file.exists()) {
+            source.delete();
+        } else {
+            getShardDirectory(hash).mkdirs();
+            if (!source.renameTo(file)) {
+                throw new IOException("Cannot move " + source);
+            }
+        }
+        return new PendingBlob(hash, size, null);
+    }
+
+    /**
+     * @param hash The hash of the image.
+     * @return The file of the image. It might not exist.
+     */
+    File getFile(final String hash) {
+        return new File(getShardDirectory(hash), hash);
+    }
+
+    void delete(final String hash) {
+        getFile(hash).delete();
+    }
+
+    /**
+     * @return All files of the store including temporary files.
+     */
+    List<File> listFiles() {
+        final List<File> result = new ArrayList<>();
+        final File[] directories = mDirectory.listFiles();
+        if (directories == null) {
+            return result;
+        }
+
+        for (File directory : directories) {
+            final File[] files = directory.listFiles();
+            if (files == null) {
+                // Not a directory
+                result.add(directory);
+                continue;
+            }
+            for (File file : files) {
+                result.add(file);
+            }
+        }
+        return result;
+    }
+
+    static boolean isTemporaryFile(final File file) {
+        return file.getName().endsWith(TEMP_SUFFIX);
+    }
+
+    private File getShardDirectory(final String hash) {
+        return new File(mDirectory, hash.substring(0, SHARD_LENGTH));
+    }
+}
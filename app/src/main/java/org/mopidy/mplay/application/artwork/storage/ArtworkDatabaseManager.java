@@ -25,18 +25,41 @@ package org.mopidy.mplay.application.artwork.storage;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
 
+import org.mopidy.mplay.application.utils.AppExecutors;
 import org.mopidy.mplay.application.utils.FileUtils;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDArtist;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDTrack;
 
+import java.io.File;
 import java.io.IOException;
-import java.security.NoSuchAlgorithmException;
-
-
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Stores the downloaded artwork. The database connection stays open for the
+ * lifetime of the app and uses write-ahead logging, so lookups from several threads run in
+ * parallel and are not blocked by the bulk downloader writing new images.
+ * <p>
+ * The image files are kept in an {@link ArtworkBlobStore} and the album and artist rows reference
+ * them by their content hash. A file is deleted once no row references it anymore. If the files
+ * exceed the configured size limit, the least recently used ones are evicted together with their
+ * rows, so that the images are downloaded again when they are needed.
+ */
 public class ArtworkDatabaseManager extends SQLiteOpenHelper {
     private static final String TAG = ArtworkDatabaseManager.class.getSimpleName();
     /**
@@ -47,29 +70,125 @@ public class ArtworkDatabaseManager extends SQLiteOpenHelper {
     /**
      * The version of the database
      */
-    private static final int DATABASE_VERSION = 22;
+    private static final int DATABASE_VERSION = 25;
 
     private static ArtworkDatabaseManager mInstance;
 
+    /**
+     * Size of the thumbnail variant of the images. Requests up to this size are served from it.
+     * Matches a size bucket of the BitmapCache, so thumbnails are cached without scaling.
+     */
+    public static final int THUMBNAIL_SIZE = 192;
+
+    /**
+     * Default size limit of the stored images in bytes
+     */
+    public static final long DEFAULT_MAXIMUM_SIZE = 200 * 1024 * 1024;
+
+    /**
+     * Fraction of the size limit the store is trimmed to, so that not every new image causes
+     * an eviction
+     */
+    private static final float TRIM_FACTOR = 0.9f;
+
+    /**
+     * Minimum age of temporary files that the integrity check removes. Younger files might
+     * belong to an insert that is still running.
+     */
+    private static final long STALE_TEMP_FILE_AGE = 60 * 60 * 1000;
+
     private static final String DIRECTORY_ALBUM_IMAGES = "albumArt";
 
     private static final String DIRECTORY_ARTIST_IMAGES = "artistArt";
 
+    /**
+     * Result of the lookup statements for entries that have the not_found flag set
+     */
+    private static final String NOT_FOUND = "";
+
+    private static final String ALBUM_IMAGE = "CASE WHEN " + AlbumArtTable.COLUMN_IMAGE_NOT_FOUND + "=1 THEN '" + NOT_FOUND + "' ELSE " +
+            AlbumArtTable.COLUMN_IMAGE_FILE_PATH + " END";
+
+    private static final String ARTIST_IMAGE = "CASE WHEN " + ArtistArtTable.COLUMN_IMAGE_NOT_FOUND + "=1 THEN '" + NOT_FOUND + "' ELSE " +
+            ArtistArtTable.COLUMN_IMAGE_FILE_PATH + " END";
+
+    private static final String ALBUM_THUMBNAIL = "CASE WHEN " + AlbumArtTable.COLUMN_IMAGE_NOT_FOUND + "=1 THEN '" + NOT_FOUND + "' ELSE IFNULL(" +
+            AlbumArtTable.COLUMN_THUMBNAIL_FILE_PATH + "," + AlbumArtTable.COLUMN_IMAGE_FILE_PATH + ") END";
+
+    private static final String ARTIST_THUMBNAIL = "CASE WHEN " + ArtistArtTable.COLUMN_IMAGE_NOT_FOUND + "=1 THEN '" + NOT_FOUND + "' ELSE IFNULL(" +
+            ArtistArtTable.COLUMN_THUMBNAIL_FILE_PATH + "," + ArtistArtTable.COLUMN_IMAGE_FILE_PATH + ") END";
+
+    /**
+     * Maximum number of arguments of one batch lookup. SQLite allows 999 variables per statement.
+     */
+    private static final int MAX_BATCH_ARGUMENTS = 500;
+
+    private final AlbumLookup mAlbumLookup = new AlbumLookup(ALBUM_IMAGE);
+
+    private final AlbumLookup mAlbumThumbnailLookup = new AlbumLookup(ALBUM_THUMBNAIL);
+
+    private final ArtistLookup mArtistLookup = new ArtistLookup(ARTIST_IMAGE);
+
+    private final ArtistLookup mArtistThumbnailLookup = new ArtistLookup(ARTIST_THUMBNAIL);
+
+    /**
+     * Serializes the modifications. Lookups do not take this lock.
+     */
+    private final Object mWriteLock = new Object();
+
     private final Context mApplicationContext;
 
+    private final ArtworkBlobStore mBlobStore;
+
+    /**
+     * Access times of images since the last write, flushed to the blob table before evicting.
+     * Lookups only record the time here to stay free of writes.
+     */
+    private final ConcurrentHashMap<String, Long> mAccessTimes = new ConcurrentHashMap<>();
+
+    private volatile long mMaximumSize = DEFAULT_MAXIMUM_SIZE;
+
+    /**
+     * Total size of the stored images or -1 if not yet known. Kept up to date by the reference
+     * handling, bulk deletions reset it. Guarded by {@link #mWriteLock}.
+     */
+    private long mTotalSize = -1;
+
+    /**
+     * Database connection that is kept open
+     */
+    private volatile SQLiteDatabase mDatabase;
+
     private ArtworkDatabaseManager(final Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
 
         mApplicationContext = context.getApplicationContext();
+        mBlobStore = new ArtworkBlobStore(mApplicationContext);
+        setWriteAheadLoggingEnabled(true);
     }
 
     public static synchronized ArtworkDatabaseManager getInstance(final Context context) {
         if (null == mInstance) {
             mInstance = new ArtworkDatabaseManager(context);
+            AppExecutors.submit(AppExecutors.Pool.BACKGROUND, AppExecutors.PRIORITY_LOW, mInstance::checkIntegrity);
         }
         return mInstance;
     }
 
+    /**
+     * Sets the size limit of the stored images and evicts images if it is exceeded.
+     *
+     * @param maximumSize The limit in bytes.
+     */
+    public void setMaximumSize(final long maximumSize) {
+        mMaximumSize = maximumSize;
+        AppExecutors.submit(AppExecutors.Pool.BACKGROUND, AppExecutors.PRIORITY_LOW, () -> {
+            synchronized (mWriteLock) {
+                trimToSize(getDatabase());
+            }
+        });
+    }
+
     /**
      * Creates the database tables if they are not already existing
      *
@@ -79,17 +198,101 @@ public class ArtworkDatabaseManager extends SQLiteOpenHelper {
     public void onCreate(SQLiteDatabase db) {
         AlbumArtTable.createTable(db);
         ArtistArtTable.createTable(db);
+        BlobTable.createTable(db);
     }
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        if (newVersion == 22) {
+        if (oldVersion < 22) {
             AlbumArtTable.dropTable(db);
             ArtistArtTable.dropTable(db);
+            BlobTable.dropTable(db);
             onCreate(db);
+            // The old rows are dropped, so their images are not imported
+            FileUtils.removeArtworkDirectory(mApplicationContext, DIRECTORY_ALBUM_IMAGES);
+            FileUtils.removeArtworkDirectory(mApplicationContext, DIRECTORY_ARTIST_IMAGES);
+        } else {
+            if (oldVersion < 23) {
+                // Tables had no unique key before, so replace() only ever added rows
+                AlbumArtTable.removeDuplicates(db);
+                ArtistArtTable.removeDuplicates(db);
+            }
+            if (oldVersion < 25) {
+                // Existing images have no thumbnail, lookups fall back to the large image
+                AlbumArtTable.addThumbnailColumn(db);
+                ArtistArtTable.addThumbnailColumn(db);
+            }
+            AlbumArtTable.createIndexes(db);
+            ArtistArtTable.createIndexes(db);
+            if (oldVersion < 24) {
+                // The images of the old rows are imported by the integrity check, as reading
+                // and hashing them is too slow for the thread that opens the database
+                BlobTable.createTable(db);
+            }
         }
     }
 
+    /**
+     * Imports the images of the per item files left by a database upgrade into the blob store
+     * and removes their directories afterwards. Does nothing if the directories are gone.
+     * Must be called with {@link #mWriteLock} held.
+     */
+    private void importArtworkDirectories(final SQLiteDatabase database) {
+        final File albumDir = FileUtils.getArtworkDirectory(mApplicationContext, DIRECTORY_ALBUM_IMAGES);
+        final File artistDir = FileUtils.getArtworkDirectory(mApplicationContext, DIRECTORY_ARTIST_IMAGES);
+        if (!albumDir.exists() && !artistDir.exists()) {
+            return;
+        }
+
+        final long startTime = System.currentTimeMillis();
+        database.beginTransaction();
+        try {
+            importArtworkFiles(database, AlbumArtTable.TABLE_NAME, AlbumArtTable.COLUMN_IMAGE_FILE_PATH, DIRECTORY_ALBUM_IMAGES);
+            importArtworkFiles(database, ArtistArtTable.TABLE_NAME, ArtistArtTable.COLUMN_IMAGE_FILE_PATH, DIRECTORY_ARTIST_IMAGES);
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+
+        // Images of the old rows are imported into the blob store or dropped with the rows
+        FileUtils.removeArtworkDirectory(mApplicationContext, DIRECTORY_ALBUM_IMAGES);
+        FileUtils.removeArtworkDirectory(mApplicationContext, DIRECTORY_ARTIST_IMAGES);
+        Log.v(TAG, "Imported artwork files in " + (System.currentTimeMillis() - startTime) + " ms");
+    }
+
+    /**
+     * Moves the images of the per item files (named by the hash of the album or artist) into the
+     * blob store and references them by their content hash. Rows whose file is missing are
+     * removed to download the image again.
+     */
+    private void importArtworkFiles(final SQLiteDatabase db, final String table, final String pathColumn, final String directory) {
+        final File artworkDir = FileUtils.getArtworkDirectory(mApplicationContext, directory);
+        final HashMap<String, ArtworkBlobStore.PendingBlob> imported = new HashMap<>();
+
+        final Cursor cursor = db.query(table, new String[]{pathColumn}, pathColumn + " IS NOT NULL", null, pathColumn, null, null);
+        while (cursor.moveToNext()) {
+            final String fileName = cursor.getString(0);
+            try {
+                imported.put(fileName, mBlobStore.importFile(new File(artworkDir, fileName)));
+            } catch (IOException e) {
+                Log.e(TAG, "Cannot import artwork file " + fileName + ": " + e.getMessage());
+            }
+        }
+        cursor.close();
+
+        final ContentValues values = new ContentValues();
+        for (Map.Entry<String, ArtworkBlobStore.PendingBlob> entry : imported.entrySet()) {
+            values.clear();
+            values.put(pathColumn, entry.getValue().getHash());
+            final int references = db.update(table, values, pathColumn + "=?", new String[]{entry.getKey()});
+            for (int i = 0; i < references; i++) {
+                addReference(db, entry.getValue());
+            }
+        }
+
+        removeDanglingRows(db, table, pathColumn);
+    }
+
     /**
      * Tries to fetch an image for given track, by album mbid, by album name and artist name or only by album name.
      *
@@ -97,74 +300,82 @@ public class ArtworkDatabaseManager extends SQLiteOpenHelper {
      * @return The path to the raw image file.
      * @throws ImageNotFoundException If the image is not in the database and it was not searched for before.
      */
-    public synchronized String getTrackImage(final MPDTrack track) throws ImageNotFoundException {
+    public String getTrackImage(final MPDTrack track) throws ImageNotFoundException {
         return getAlbumImage(track.getAlbum());
     }
 
+    /**
+     * Tries to fetch an image for given track, by album mbid, by album name and artist name or only by album name.
+     *
+     * @param track The track to search for
+     * @param size  The size in pixels the image is shown at or 0 for the full size image.
+     * @return The path to the raw image file.
+     * @throws ImageNotFoundException If the image is not in the database and it was not searched for before.
+     */
+    public String getTrackImage(final MPDTrack track, final int size) throws ImageNotFoundException {
+        return getAlbumImage(track.getAlbum(), size);
+    }
+
+    /**
+     * Tries to fetch an image for given album, by mbid, by album name and artist name or only by album name.
+     *
+     * @param album The album to search for
+     * @return The path to the raw image file.
+     * @throws ImageNotFoundException If the image is not in the database and it was not searched for before.
+     */
+    public String getAlbumImage(final MPDAlbum album) throws ImageNotFoundException {
+        return getAlbumImage(album, 0);
+    }
+
     /**
      * Tries to fetch an image for given album, by mbid, by album name and artist name or only by album name.
      *
      * @param album The album to search for
+     * @param size  The size in pixels the image is shown at or 0 for the full size image.
+     *              Sizes up to {@link #THUMBNAIL_SIZE} are served from the thumbnail.
      * @return The path to the raw image file.
      * @throws ImageNotFoundException If the image is not in the database and it was not searched for before.
      */
-    public synchronized String getAlbumImage(final MPDAlbum album) throws ImageNotFoundException {
+    public String getAlbumImage(final MPDAlbum album, final int size) throws ImageNotFoundException {
         final String mbid = album.getMBID();
         final String albumName = album.getName();
         final String artistName = album.getArtistName();
 
-        return getAlbumImage(mbid, albumName, artistName);
+        return getAlbumImage(isThumbnailSize(size) ? mAlbumThumbnailLookup : mAlbumLookup, mbid, albumName, artistName);
     }
 
     /**
      * Tries to fetch an image for the given album parameters.
      *
+     * @param lookup     The lookup of the image variant.
      * @param mbid       The musicbrainz id of the album or empty.
      * @param albumName  The album name.
      * @param artistName The artist name or empty.
      * @return The path to the raw image file.
      * @throws ImageNotFoundException If the image is not in the database and it was not searched for before.
      */
-    private synchronized String getAlbumImage(final String mbid, final String albumName, final String artistName) throws ImageNotFoundException {
-        final SQLiteDatabase database = getReadableDatabase();
-
-        String selection;
-        String[] selectionArguments;
+    private String getAlbumImage(final AlbumLookup lookup, final String mbid, final String albumName, final String artistName) throws ImageNotFoundException {
+        final String artworkFilename;
 
         if (!mbid.isEmpty()) {
-            selection = AlbumArtTable.COLUMN_ALBUM_MBID + "=?";
-            selectionArguments = new String[]{mbid};
+            artworkFilename = lookup.mByMBID.queryForString(mbid);
         } else if (!artistName.isEmpty()) {
-            selection = AlbumArtTable.COLUMN_ALBUM_NAME + "=? AND " + AlbumArtTable.COLUMN_ARTIST_NAME + "=?";
-            selectionArguments = new String[]{albumName, artistName};
+            artworkFilename = lookup.mByNameAndArtist.queryForString(albumName, artistName);
         } else {
-            selection = AlbumArtTable.COLUMN_ALBUM_NAME + "=?";
-            selectionArguments = new String[]{albumName};
+            artworkFilename = lookup.mByName.queryForString(albumName);
         }
 
-        final Cursor requestCursor = database.query(AlbumArtTable.TABLE_NAME, new String[]{AlbumArtTable.COLUMN_IMAGE_FILE_PATH, AlbumArtTable.COLUMN_IMAGE_NOT_FOUND},
-                selection, selectionArguments, null, null, null);
-
-        // Check if an image was found
-        if (requestCursor.moveToFirst()) {
-            // If the not_found flag is set then return null here, to indicate that the image is not here but was searched for before.
-            if (requestCursor.getInt(requestCursor.getColumnIndexOrThrow(AlbumArtTable.COLUMN_IMAGE_NOT_FOUND)) == 1) {
-                requestCursor.close();
-                database.close();
-                return null;
-            }
-            final String artworkFilename = requestCursor.getString(requestCursor.getColumnIndexOrThrow(AlbumArtTable.COLUMN_IMAGE_FILE_PATH));
-
-            requestCursor.close();
-            database.close();
+        // If we reach this, no entry was found for the given request. Throw an exception
+        if (artworkFilename == null) {
+            throw new ImageNotFoundException();
+        }
 
-            return FileUtils.getFullArtworkFilePath(mApplicationContext, artworkFilename, DIRECTORY_ALBUM_IMAGES);
+        // If the not_found flag is set then return null here, to indicate that the image is not here but was searched for before.
+        if (artworkFilename.equals(NOT_FOUND)) {
+            return null;
         }
 
-        // If we reach this, no entry was found for the given request. Throw an exception
-        requestCursor.close();
-        database.close();
-        throw new ImageNotFoundException();
+        return getBlobPath(artworkFilename);
     }
 
     /**
@@ -174,9 +385,21 @@ public class ArtworkDatabaseManager extends SQLiteOpenHelper {
      * @return The path to the raw image file.
      * @throws ImageNotFoundException If the image is not in the database and it was not searched for before.
      */
-    public synchronized String getArtistImage(final MPDArtist artist) throws ImageNotFoundException {
-        final SQLiteDatabase database = getReadableDatabase();
+    public String getArtistImage(final MPDArtist artist) throws ImageNotFoundException {
+        return getArtistImage(artist, 0);
+    }
 
+    /**
+     * Tries to fetch an image for the artist with the given id (android artist id).
+     *
+     * @param artist The artist to search for
+     * @param size   The size in pixels the image is shown at or 0 for the full size image.
+     *               Sizes up to {@link #THUMBNAIL_SIZE} are served from the thumbnail.
+     * @return The path to the raw image file.
+     * @throws ImageNotFoundException If the image is not in the database and it was not searched for before.
+     */
+    public String getArtistImage(final MPDArtist artist, final int size) throws ImageNotFoundException {
+        final ArtistLookup lookup = isThumbnailSize(size) ? mArtistThumbnailLookup : mArtistLookup;
         final String artistName = artist.getArtistName();
         String mbid = "";
 
@@ -189,42 +412,168 @@ public class ArtworkDatabaseManager extends SQLiteOpenHelper {
             mbid = mbids.toString();
         }
 
-        String selection;
-        String[] selectionArguments;
+        final String artworkFilename;
 
         if (!mbid.isEmpty()) {
-            selection = ArtistArtTable.COLUMN_ARTIST_MBID + "=?";
-            selectionArguments = new String[]{mbid};
+            artworkFilename = lookup.mByMBID.queryForString(mbid);
         } else {
-            selection = ArtistArtTable.COLUMN_ARTIST_NAME + "=?";
-            selectionArguments = new String[]{artistName};
+            artworkFilename = lookup.mByName.queryForString(artistName);
         }
 
-        final Cursor requestCursor = database.query(ArtistArtTable.TABLE_NAME, new String[]{ArtistArtTable.COLUMN_ARTIST_MBID, ArtistArtTable.COLUMN_IMAGE_FILE_PATH, ArtistArtTable.COLUMN_IMAGE_NOT_FOUND},
-                selection, selectionArguments, null, null, null);
+        // If we reach this, no entry was found for the given request. Throw an exception
+        if (artworkFilename == null) {
+            throw new ImageNotFoundException();
+        }
 
-        // Check if an image was found
-        if (requestCursor.moveToFirst()) {
-            // If the not_found flag is set then return null here, to indicate that the image is not here but was searched for before.
-            if (requestCursor.getInt(requestCursor.getColumnIndexOrThrow(ArtistArtTable.COLUMN_IMAGE_NOT_FOUND)) == 1) {
-                requestCursor.close();
-                database.close();
-                return null;
+        // If the not_found flag is set then return null here, to indicate that the image is not here but was searched for before.
+        if (artworkFilename.equals(NOT_FOUND)) {
+            return null;
+        }
+
+        return getBlobPath(artworkFilename);
+    }
+
+    /**
+     * Looks up the images of several albums with one query per lookup type (mbid or name).
+     *
+     * @param albums The albums to search for
+     * @param size   The size in pixels the images are shown at or 0 for the full size images.
+     * @return Array in the order of the given albums. Entries are the path to the raw image file,
+     * an empty string if the image was searched for before but not found, or null if the album is
+     * not in the database (see {@link #getAlbumImage(MPDAlbum, int)}).
+     */
+    public String[] getAlbumImages(final List<MPDAlbum> albums, final int size) {
+        final String image = isThumbnailSize(size) ? ALBUM_THUMBNAIL : ALBUM_IMAGE;
+        final ArrayList<String> mbids = new ArrayList<>();
+        final ArrayList<String> names = new ArrayList<>();
+
+        for (MPDAlbum album : albums) {
+            if (!album.getMBID().isEmpty()) {
+                mbids.add(album.getMBID());
+            } else {
+                names.add(album.getName());
+            }
+        }
+
+        final HashMap<String, String> mbidImages = new HashMap<>();
+        final HashMap<String, String> nameImages = new HashMap<>();
+
+        for (int start = 0; start < mbids.size(); start += MAX_BATCH_ARGUMENTS) {
+            final List<String> arguments = mbids.subList(start, Math.min(start + MAX_BATCH_ARGUMENTS, mbids.size()));
+            final Cursor cursor = getDatabase().rawQuery("SELECT " + AlbumArtTable.COLUMN_ALBUM_MBID + "," + image + " FROM " + AlbumArtTable.TABLE_NAME +
+                    " WHERE " + AlbumArtTable.COLUMN_ALBUM_MBID + " IN (" + createPlaceholders(arguments.size()) + ")", arguments.toArray(new String[0]));
+            while (cursor.moveToNext()) {
+                mbidImages.put(cursor.getString(0), cursor.getString(1));
             }
+            cursor.close();
+        }
 
-            // get the filename for the image
-            final String artworkFilename = requestCursor.getString(requestCursor.getColumnIndexOrThrow(ArtistArtTable.COLUMN_IMAGE_FILE_PATH));
+        for (int start = 0; start < names.size(); start += MAX_BATCH_ARGUMENTS) {
+            final List<String> arguments = names.subList(start, Math.min(start + MAX_BATCH_ARGUMENTS, names.size()));
+            final Cursor cursor = getDatabase().rawQuery("SELECT " + AlbumArtTable.COLUMN_ALBUM_NAME + "," + AlbumArtTable.COLUMN_ARTIST_NAME + "," + image +
+                    " FROM " + AlbumArtTable.TABLE_NAME + " WHERE " + AlbumArtTable.COLUMN_ALBUM_NAME + " IN (" + createPlaceholders(arguments.size()) + ")",
+                    arguments.toArray(new String[0]));
+            while (cursor.moveToNext()) {
+                final String albumName = cursor.getString(0);
+                final String artworkFilename = cursor.getString(2);
+
+                nameImages.put(albumName + '\u0000' + cursor.getString(1), artworkFilename);
+                // Lookups without an artist name accept any entry of the album name
+                if (!nameImages.containsKey(albumName)) {
+                    nameImages.put(albumName, artworkFilename);
+                }
+            }
+            cursor.close();
+        }
 
-            requestCursor.close();
-            database.close();
+        final String[] images = new String[albums.size()];
+        for (int i = 0; i < images.length; i++) {
+            final MPDAlbum album = albums.get(i);
+            final String artworkFilename;
+
+            if (!album.getMBID().isEmpty()) {
+                artworkFilename = mbidImages.get(album.getMBID());
+            } else if (!album.getArtistName().isEmpty()) {
+                artworkFilename = nameImages.get(album.getName() + '\u0000' + album.getArtistName());
+            } else {
+                artworkFilename = nameImages.get(album.getName());
+            }
 
-            return FileUtils.getFullArtworkFilePath(mApplicationContext, artworkFilename, DIRECTORY_ARTIST_IMAGES);
+            if (artworkFilename == null || artworkFilename.equals(NOT_FOUND)) {
+                images[i] = artworkFilename;
+            } else {
+                images[i] = getBlobPath(artworkFilename);
+            }
         }
+        return images;
+    }
 
-        // If we reach this, no entry was found for the given request. Throw an exception
-        requestCursor.close();
-        database.close();
-        throw new ImageNotFoundException();
+    /**
+     * Looks up the images of several artists with one query per lookup type (mbid or name).
+     *
+     * @param artists The artists to search for
+     * @param size    The size in pixels the images are shown at or 0 for the full size images.
+     * @return Array in the order of the given artists. Entries are the path to the raw image file,
+     * an empty string if the image was searched for before but not found, or null if the artist is
+     * not in the database (see {@link #getArtistImage(MPDArtist, int)}).
+     */
+    public String[] getArtistImages(final List<MPDArtist> artists, final int size) {
+        final String image = isThumbnailSize(size) ? ARTIST_THUMBNAIL : ARTIST_IMAGE;
+        final String[] keys = new String[artists.size()];
+        final ArrayList<String> mbids = new ArrayList<>();
+        final ArrayList<String> names = new ArrayList<>();
+
+        for (int i = 0; i < keys.length; i++) {
+            final MPDArtist artist = artists.get(i);
+            final StringBuilder mbid = new StringBuilder();
+            for (int j = 0; j < artist.getMBIDCount(); j++) {
+                mbid.append(artist.getMBID(j));
+            }
+
+            if (mbid.length() > 0) {
+                keys[i] = mbid.toString();
+                mbids.add(keys[i]);
+            } else {
+                names.add(artist.getArtistName());
+            }
+        }
+
+        final HashMap<String, String> mbidImages = new HashMap<>();
+        final HashMap<String, String> nameImages = new HashMap<>();
+
+        for (int start = 0; start < mbids.size(); start += MAX_BATCH_ARGUMENTS) {
+            final List<String> arguments = mbids.subList(start, Math.min(start + MAX_BATCH_ARGUMENTS, mbids.size()));
+            final Cursor cursor = getDatabase().rawQuery("SELECT " + ArtistArtTable.COLUMN_ARTIST_MBID + "," + image + " FROM " + ArtistArtTable.TABLE_NAME +
+                    " WHERE " + ArtistArtTable.COLUMN_ARTIST_MBID + " IN (" + createPlaceholders(arguments.size()) + ")", arguments.toArray(new String[0]));
+            while (cursor.moveToNext()) {
+                mbidImages.put(cursor.getString(0), cursor.getString(1));
+            }
+            cursor.close();
+        }
+
+        for (int start = 0; start < names.size(); start += MAX_BATCH_ARGUMENTS) {
+            final List<String> arguments = names.subList(start, Math.min(start + MAX_BATCH_ARGUMENTS, names.size()));
+            final Cursor cursor = getDatabase().rawQuery("SELECT " + ArtistArtTable.COLUMN_ARTIST_NAME + "," + image + " FROM " + ArtistArtTable.TABLE_NAME +
+                    " WHERE " + ArtistArtTable.COLUMN_ARTIST_NAME + " IN (" + createPlaceholders(arguments.size()) + ")", arguments.toArray(new String[0]));
+            while (cursor.moveToNext()) {
+                if (!nameImages.containsKey(cursor.getString(0))) {
+                    nameImages.put(cursor.getString(0), cursor.getString(1));
+                }
+            }
+            cursor.close();
+        }
+
+        final String[] images = new String[keys.length];
+        for (int i = 0; i < images.length; i++) {
+            final String artworkFilename = keys[i] != null ? mbidImages.get(keys[i]) : nameImages.get(artists.get(i).getArtistName());
+
+            if (artworkFilename == null || artworkFilename.equals(NOT_FOUND)) {
+                images[i] = artworkFilename;
+            } else {
+                images[i] = getBlobPath(artworkFilename);
+            }
+        }
+        return images;
     }
 
     /**
@@ -234,44 +583,35 @@ public class ArtworkDatabaseManager extends SQLiteOpenHelper {
      * @param image  byte[] containing the raw image that was downloaded. This can be null in which case
      *               the database entry will have the not_found flag set.
      */
-    public synchronized void insertArtistImage(final MPDArtist artist, final byte[] image) {
-        final SQLiteDatabase database = getWritableDatabase();
+    public void insertArtistImage(final MPDArtist artist, final byte[] image) {
+        insertArtistImage(artist, image, null);
+    }
 
+    /**
+     * Inserts the given byte[] image and its thumbnail to the artists table.
+     *
+     * @param artist    Artist for the associated image byte[].
+     * @param image     byte[] containing the image. This can be null in which case
+     *                  the database entry will have the not_found flag set.
+     * @param thumbnail byte[] containing the thumbnail of the image or null if the image is
+     *                  small enough to be used as thumbnail.
+     */
+    public void insertArtistImage(final MPDArtist artist, final byte[] image, final byte[] thumbnail) {
         final StringBuilder mbids = new StringBuilder();
         for (int i = 0; i < artist.getMBIDCount(); i++) {
             mbids.append(artist.getMBID(i));
         }
 
-        final String artistName = artist.getArtistName();
-
-        String artworkFilename = null;
-        if (image != null) {
-            try {
-                artworkFilename = FileUtils.createSHA256HashForString(mbids.toString(), artistName) + ".jpg";
-            } catch (NoSuchAlgorithmException e) {
-                e.printStackTrace();
-                return;
-            }
-
-            try {
-                FileUtils.saveArtworkFile(mApplicationContext, artworkFilename, DIRECTORY_ARTIST_IMAGES, image);
-            } catch (IOException e) {
-                e.printStackTrace();
-                return;
-            }
-        }
-
         final ContentValues values = new ContentValues();
         values.put(ArtistArtTable.COLUMN_ARTIST_MBID, mbids.toString());
         values.put(ArtistArtTable.COLUMN_ARTIST_NAME, artist.getArtistName());
-        values.put(ArtistArtTable.COLUMN_IMAGE_FILE_PATH, artworkFilename);
 
         // If null was given as byte[] set the not_found flag for this entry.
         values.put(ArtistArtTable.COLUMN_IMAGE_NOT_FOUND, image == null ? 1 : 0);
 
-        database.replace(ArtistArtTable.TABLE_NAME, "", values);
-
-        database.close();
+        insertImage(ArtistArtTable.TABLE_NAME, ArtistArtTable.COLUMN_IMAGE_FILE_PATH, ArtistArtTable.COLUMN_THUMBNAIL_FILE_PATH,
+                ArtistArtTable.COLUMN_ARTIST_MBID + "=? AND " + ArtistArtTable.COLUMN_ARTIST_NAME + "=?",
+                new String[]{mbids.toString(), artist.getArtistName()}, values, image, thumbnail);
     }
 
     /**
@@ -281,94 +621,178 @@ public class ArtworkDatabaseManager extends SQLiteOpenHelper {
      * @param image byte[] containing the raw image that was downloaded. This can be null in which case
      *              the database entry will have the not_found flag set.
      */
-    public synchronized void insertAlbumImage(final MPDAlbum album, final byte[] image) {
-        final SQLiteDatabase database = getWritableDatabase();
-
-        final String albumMBID = album.getMBID();
-        final String albumName = album.getName();
-        final String albumArtistName = album.getArtistName();
-
-        String artworkFilename = null;
-        if (image != null) {
-            try {
-                artworkFilename = FileUtils.createSHA256HashForString(albumMBID, albumName, albumArtistName) + ".jpg";
-            } catch (NoSuchAlgorithmException e) {
-                e.printStackTrace();
-                return;
-            }
-
-            try {
-                FileUtils.saveArtworkFile(mApplicationContext, artworkFilename, DIRECTORY_ALBUM_IMAGES, image);
-            } catch (IOException e) {
-                e.printStackTrace();
-                return;
-            }
-        }
+    public void insertAlbumImage(final MPDAlbum album, final byte[] image) {
+        insertAlbumImage(album, image, null);
+    }
 
+    /**
+     * Inserts the given byte[] image and its thumbnail to the albums table.
+     *
+     * @param album     Album for the associated image byte[].
+     * @param image     byte[] containing the image. This can be null in which case
+     *                  the database entry will have the not_found flag set.
+     * @param thumbnail byte[] containing the thumbnail of the image or null if the image is
+     *                  small enough to be used as thumbnail.
+     */
+    public void insertAlbumImage(final MPDAlbum album, final byte[] image, final byte[] thumbnail) {
         final ContentValues values = new ContentValues();
         values.put(AlbumArtTable.COLUMN_ALBUM_MBID, album.getMBID());
         values.put(AlbumArtTable.COLUMN_ALBUM_NAME, album.getName());
         values.put(AlbumArtTable.COLUMN_ARTIST_NAME, album.getArtistName());
-        values.put(AlbumArtTable.COLUMN_IMAGE_FILE_PATH, artworkFilename);
 
         // If null was given as byte[] set the not_found flag for this entry.
         values.put(AlbumArtTable.COLUMN_IMAGE_NOT_FOUND, image == null ? 1 : 0);
 
-        database.replace(AlbumArtTable.TABLE_NAME, "", values);
-
-        database.close();
+        insertImage(AlbumArtTable.TABLE_NAME, AlbumArtTable.COLUMN_IMAGE_FILE_PATH, AlbumArtTable.COLUMN_THUMBNAIL_FILE_PATH,
+                AlbumArtTable.COLUMN_ALBUM_MBID + "=? AND " + AlbumArtTable.COLUMN_ALBUM_NAME + "=? AND " + AlbumArtTable.COLUMN_ARTIST_NAME + "=?",
+                new String[]{album.getMBID(), album.getName(), album.getArtistName()}, values, image, thumbnail);
     }
 
     /**
-     * Removes all lines from the artists table
+     * Stores the image and its thumbnail in the blob store and replaces the row of the item.
+     *
+     * @param table           The table of the item.
+     * @param pathColumn      The column that references the image.
+     * @param thumbnailColumn The column that references the thumbnail.
+     * @param keyWhere        Selection of the row that is replaced by the new row.
+     * @param keyArgs         Arguments of the selection.
+     * @param values          The values of the new row without the image references.
+     * @param image           The raw image or null.
+     * @param thumbnail       The thumbnail of the image or null.
      */
-    public synchronized void clearArtistImages() {
-        SQLiteDatabase database = getWritableDatabase();
+    private void insertImage(final String table, final String pathColumn, final String thumbnailColumn, final String keyWhere, final String[] keyArgs,
+                             final ContentValues values, final byte[] image, final byte[] thumbnail) {
+        ArtworkBlobStore.PendingBlob blob = null;
+        ArtworkBlobStore.PendingBlob thumbnailBlob = null;
+        // Written outside of the lock, only the rename is serialized
+        try {
+            if (image != null) {
+                blob = mBlobStore.prepare(image);
+            }
+            if (image != null && thumbnail != null) {
+                thumbnailBlob = mBlobStore.prepare(thumbnail);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            if (blob != null) {
+                mBlobStore.discard(blob);
+            }
+            return;
+        }
+        values.put(pathColumn, blob != null ? blob.getHash() : null);
+        values.put(thumbnailColumn, thumbnailBlob != null ? thumbnailBlob.getHash() : null);
 
-        database.delete(ArtistArtTable.TABLE_NAME, null, null);
+        final SQLiteDatabase database = getDatabase();
+        final List<String> unreferenced = new ArrayList<>();
 
-        database.close();
+        synchronized (mWriteLock) {
+            if (blob != null && !mBlobStore.commit(blob)) {
+                if (thumbnailBlob != null) {
+                    mBlobStore.discard(thumbnailBlob);
+                }
+                return;
+            }
+            if (thumbnailBlob != null && !mBlobStore.commit(thumbnailBlob)) {
+                // The image alone is still usable for all sizes
+                thumbnailBlob = null;
+                values.putNull(thumbnailColumn);
+            }
 
-        FileUtils.removeArtworkDirectory(mApplicationContext, DIRECTORY_ARTIST_IMAGES);
+            database.beginTransaction();
+            try {
+                // Referenced first, so an unchanged image is not released in between
+                if (blob != null) {
+                    addReference(database, blob);
+                }
+                if (thumbnailBlob != null) {
+                    addReference(database, thumbnailBlob);
+                }
+
+                final Cursor cursor = database.query(table, new String[]{pathColumn, thumbnailColumn}, keyWhere, keyArgs, null, null, null);
+                while (cursor.moveToNext()) {
+                    releaseReferences(database, cursor, unreferenced);
+                }
+                cursor.close();
+
+                database.replace(table, "", values);
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+
+            deleteBlobFiles(unreferenced);
+            trimToSize(database);
+        }
     }
 
     /**
-     * Removes all lines from the albums table
+     * Removes all lines from the artists table
      */
-    public synchronized void clearAlbumImages() {
-        SQLiteDatabase database = getWritableDatabase();
+    public void clearArtistImages() {
+        final SQLiteDatabase database = getDatabase();
 
-        database.delete(AlbumArtTable.TABLE_NAME, null, null);
+        synchronized (mWriteLock) {
+            final List<String> unreferenced;
+            database.beginTransaction();
+            try {
+                database.delete(ArtistArtTable.TABLE_NAME, null, null);
+                recountReferences(database);
+                unreferenced = removeUnreferencedBlobs(database);
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+            mTotalSize = -1;
+            deleteBlobFiles(unreferenced);
+        }
+    }
 
-        database.close();
+    /**
+     * Removes all lines from the albums table
+     */
+    public void clearAlbumImages() {
+        final SQLiteDatabase database = getDatabase();
 
-        FileUtils.removeArtworkDirectory(mApplicationContext, DIRECTORY_ALBUM_IMAGES);
+        synchronized (mWriteLock) {
+            final List<String> unreferenced;
+            database.beginTransaction();
+            try {
+                database.delete(AlbumArtTable.TABLE_NAME, null, null);
+                recountReferences(database);
+                unreferenced = removeUnreferencedBlobs(database);
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+            mTotalSize = -1;
+            deleteBlobFiles(unreferenced);
+        }
     }
 
-    public synchronized void clearBlockedArtistImages() {
-        SQLiteDatabase database = getWritableDatabase();
+    public void clearBlockedArtistImages() {
+        final SQLiteDatabase database = getDatabase();
 
         String where = ArtistArtTable.COLUMN_IMAGE_NOT_FOUND + "=?";
         String[] whereArgs = {"1"};
 
-        database.delete(ArtistArtTable.TABLE_NAME, where, whereArgs);
-
-        database.close();
+        synchronized (mWriteLock) {
+            database.delete(ArtistArtTable.TABLE_NAME, where, whereArgs);
+        }
     }
 
-    public synchronized void clearBlockedAlbumImages() {
-        SQLiteDatabase database = getWritableDatabase();
+    public void clearBlockedAlbumImages() {
+        final SQLiteDatabase database = getDatabase();
 
         String where = AlbumArtTable.COLUMN_IMAGE_NOT_FOUND + "=?";
         String[] whereArgs = {"1"};
 
-        database.delete(AlbumArtTable.TABLE_NAME, where, whereArgs);
-
-        database.close();
+        synchronized (mWriteLock) {
+            database.delete(AlbumArtTable.TABLE_NAME, where, whereArgs);
+        }
     }
 
-    public synchronized void removeArtistImage(final MPDArtist artist) {
-        final SQLiteDatabase database = getWritableDatabase();
+    public void removeArtistImage(final MPDArtist artist) {
+        final SQLiteDatabase database = getDatabase();
 
         String where;
         String[] whereArgs;
@@ -381,23 +805,12 @@ public class ArtworkDatabaseManager extends SQLiteOpenHelper {
             whereArgs = new String[]{artist.getMBID(0), artist.getArtistName()};
         }
 
-        final Cursor requestCursor = database.query(ArtistArtTable.TABLE_NAME, new String[]{ArtistArtTable.COLUMN_IMAGE_FILE_PATH},
-                where, whereArgs, null, null, null);
-
-        if (requestCursor.moveToFirst()) {
-
-            final String artworkFilename = requestCursor.getString(requestCursor.getColumnIndexOrThrow(ArtistArtTable.COLUMN_IMAGE_FILE_PATH));
-            FileUtils.removeArtworkFile(mApplicationContext, artworkFilename, DIRECTORY_ARTIST_IMAGES);
-        }
-
-        database.delete(ArtistArtTable.TABLE_NAME, where, whereArgs);
-
-        requestCursor.close();
-        database.close();
+        removeImages(database, ArtistArtTable.TABLE_NAME, ArtistArtTable.COLUMN_IMAGE_FILE_PATH, ArtistArtTable.COLUMN_THUMBNAIL_FILE_PATH,
+                where, whereArgs);
     }
 
-    public synchronized void removeAlbumImage(final MPDAlbum album) {
-        final SQLiteDatabase database = getWritableDatabase();
+    public void removeAlbumImage(final MPDAlbum album) {
+        final SQLiteDatabase database = getDatabase();
 
         String where;
         String[] whereArgs;
@@ -411,19 +824,473 @@ public class ArtworkDatabaseManager extends SQLiteOpenHelper {
             whereArgs = new String[]{album.getMBID(), album.getName(), album.getArtistName()};
         }
 
-        final Cursor requestCursor = database.query(AlbumArtTable.TABLE_NAME, new String[]{AlbumArtTable.COLUMN_IMAGE_FILE_PATH},
-                where, whereArgs, null, null, null);
+        removeImages(database, AlbumArtTable.TABLE_NAME, AlbumArtTable.COLUMN_IMAGE_FILE_PATH, AlbumArtTable.COLUMN_THUMBNAIL_FILE_PATH,
+                where, whereArgs);
+    }
+
+    /**
+     * Removes the selected rows and releases their images.
+     */
+    private void removeImages(final SQLiteDatabase database, final String table, final String pathColumn, final String thumbnailColumn,
+                              final String where, final String[] whereArgs) {
+        final List<String> unreferenced = new ArrayList<>();
+
+        synchronized (mWriteLock) {
+            database.beginTransaction();
+            try {
+                removeRows(database, table, pathColumn, thumbnailColumn, where, whereArgs, unreferenced);
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+
+            deleteBlobFiles(unreferenced);
+        }
+    }
+
+    /**
+     * Repairs inconsistencies between the database and the stored files, e.g. after the app was
+     * killed while writing. Removes rows whose image file is missing or incomplete, recounts the
+     * references, deletes unreferenced and orphaned files and enforces the size limit.
+     * Also imports the image files left by an upgrade from an older database version.
+     * Runs once in the background when the database is first used.
+     */
+    public void checkIntegrity() {
+        final SQLiteDatabase database = getDatabase();
+        final List<String> broken = new ArrayList<>();
+        final List<String> released = new ArrayList<>();
+        final List<String> unreferenced;
+        final HashSet<String> blobs = new HashSet<>();
+        int orphans = 0;
+
+        synchronized (mWriteLock) {
+            importArtworkDirectories(database);
+            flushAccessTimes(database);
+
+            database.beginTransaction();
+            try {
+                final Cursor cursor = database.query(BlobTable.TABLE_NAME, new String[]{BlobTable.COLUMN_HASH, BlobTable.COLUMN_SIZE},
+                        null, null, null, null, null);
+                while (cursor.moveToNext()) {
+                    final String hash = cursor.getString(0);
+                    // length() is 0 for missing files
+                    if (mBlobStore.getFile(hash).length() != cursor.getLong(1)) {
+                        broken.add(hash);
+                    } else {
+                        blobs.add(hash);
+                    }
+                }
+                cursor.close();
+
+                // The running total is recalculated after the check
+                for (String hash : broken) {
+                    removeBlob(database, hash, 0, released);
+                }
+                released.removeAll(broken);
+                removeDanglingRows(database, AlbumArtTable.TABLE_NAME, AlbumArtTable.COLUMN_IMAGE_FILE_PATH);
+                removeDanglingRows(database, AlbumArtTable.TABLE_NAME, AlbumArtTable.COLUMN_THUMBNAIL_FILE_PATH);
+                removeDanglingRows(database, ArtistArtTable.TABLE_NAME, ArtistArtTable.COLUMN_IMAGE_FILE_PATH);
+                removeDanglingRows(database, ArtistArtTable.TABLE_NAME, ArtistArtTable.COLUMN_THUMBNAIL_FILE_PATH);
+
+                recountReferences(database);
+                unreferenced = removeUnreferencedBlobs(database);
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+
+            mTotalSize = -1;
+            deleteBlobFiles(broken);
+            deleteBlobFiles(released);
+            deleteBlobFiles(unreferenced);
+            blobs.removeAll(released);
+            blobs.removeAll(unreferenced);
+
+            // Files without a row and temporary files of interrupted inserts
+            final long now = System.currentTimeMillis();
+            for (File file : mBlobStore.listFiles()) {
+                final boolean orphan = ArtworkBlobStore.isTemporaryFile(file) ? now - file.lastModified() > STALE_TEMP_FILE_AGE :
+                        !blobs.contains(file.getName());
+                if (orphan && file.delete()) {
+                    orphans++;
+                }
+            }
+
+            trimToSize(database);
+        }
+
+        Log.v(TAG, "Integrity check: " + broken.size() + " missing, " + unreferenced.size() + " unreferenced, " + orphans + " orphaned files");
+    }
+
+    /**
+     * @return True if an image shown at the given size is served from the thumbnail.
+     */
+    private static boolean isThumbnailSize(final int size) {
+        return size > 0 && size <= THUMBNAIL_SIZE;
+    }
+
+    /**
+     * @return The path of the image file. Records the access for the eviction order.
+     */
+    private String getBlobPath(final String hash) {
+        mAccessTimes.put(hash, System.currentTimeMillis());
+        return mBlobStore.getFile(hash).getPath();
+    }
+
+    /**
+     * Adds a reference from a new row to the image. Must be called with {@link #mWriteLock} held.
+     */
+    private void addReference(final SQLiteDatabase database, final ArtworkBlobStore.PendingBlob blob) {
+        final long now = System.currentTimeMillis();
+
+        final ContentValues values = new ContentValues();
+        values.put(BlobTable.COLUMN_HASH, blob.getHash());
+        values.put(BlobTable.COLUMN_SIZE, blob.getSize());
+        values.put(BlobTable.COLUMN_REFERENCE_COUNT, 0);
+        values.put(BlobTable.COLUMN_LAST_ACCESS, now);
+        if (database.insertWithOnConflict(BlobTable.TABLE_NAME, null, values, SQLiteDatabase.CONFLICT_IGNORE) != -1) {
+            changeTotalSize(blob.getSize());
+        }
+
+        database.execSQL("UPDATE " + BlobTable.TABLE_NAME + " SET " + BlobTable.COLUMN_REFERENCE_COUNT + "=" + BlobTable.COLUMN_REFERENCE_COUNT + "+1," +
+                BlobTable.COLUMN_LAST_ACCESS + "=? WHERE " + BlobTable.COLUMN_HASH + "=?", new Object[]{now, blob.getHash()});
+    }
+
+    /**
+     * Removes a reference of a deleted or replaced row from the image. The entry of an image that
+     * is no longer referenced is removed and its hash added to unreferenced, its file needs to be
+     * deleted after the transaction. Must be called with {@link #mWriteLock} held.
+     */
+    private void releaseReference(final SQLiteDatabase database, final String hash, final List<String> unreferenced) {
+        database.execSQL("UPDATE " + BlobTable.TABLE_NAME + " SET " + BlobTable.COLUMN_REFERENCE_COUNT + "=" + BlobTable.COLUMN_REFERENCE_COUNT + "-1" +
+                " WHERE " + BlobTable.COLUMN_HASH + "=?", new Object[]{hash});
+
+        final Cursor cursor = database.query(BlobTable.TABLE_NAME, new String[]{BlobTable.COLUMN_SIZE},
+                BlobTable.COLUMN_HASH + "=? AND " + BlobTable.COLUMN_REFERENCE_COUNT + "<=0", new String[]{hash}, null, null, null);
+        if (cursor.moveToFirst()) {
+            database.delete(BlobTable.TABLE_NAME, BlobTable.COLUMN_HASH + "=?", new String[]{hash});
+            changeTotalSize(-cursor.getLong(0));
+            unreferenced.add(hash);
+        }
+        cursor.close();
+    }
+
+    /**
+     * Releases the image and thumbnail references of the current row of the cursor.
+     * The cursor contains the image column followed by the thumbnail column.
+     */
+    private void releaseReferences(final SQLiteDatabase database, final Cursor cursor, final List<String> unreferenced) {
+        for (int i = 0; i < 2; i++) {
+            final String hash = cursor.getString(i);
+            if (hash != null) {
+                releaseReference(database, hash, unreferenced);
+            }
+        }
+    }
+
+    /**
+     * Sets the reference counts to the number of rows that use each image.
+     */
+    private static void recountReferences(final SQLiteDatabase database) {
+        database.execSQL("UPDATE " + BlobTable.TABLE_NAME + " SET " + BlobTable.COLUMN_REFERENCE_COUNT + "=" +
+                "(SELECT COUNT(*) FROM " + AlbumArtTable.TABLE_NAME + " WHERE " + AlbumArtTable.COLUMN_IMAGE_FILE_PATH + "=" + BlobTable.COLUMN_HASH + ")+" +
+                "(SELECT COUNT(*) FROM " + AlbumArtTable.TABLE_NAME + " WHERE " + AlbumArtTable.COLUMN_THUMBNAIL_FILE_PATH + "=" + BlobTable.COLUMN_HASH + ")+" +
+                "(SELECT COUNT(*) FROM " + ArtistArtTable.TABLE_NAME + " WHERE " + ArtistArtTable.COLUMN_IMAGE_FILE_PATH + "=" + BlobTable.COLUMN_HASH + ")+" +
+                "(SELECT COUNT(*) FROM " + ArtistArtTable.TABLE_NAME + " WHERE " + ArtistArtTable.COLUMN_THUMBNAIL_FILE_PATH + "=" + BlobTable.COLUMN_HASH + ")");
+    }
+
+    /**
+     * Removes the entries of all images without references.
+     *
+     * @return The hashes of the removed images. Their files need to be deleted after the transaction.
+     */
+    private static List<String> removeUnreferencedBlobs(final SQLiteDatabase database) {
+        final List<String> unreferenced = new ArrayList<>();
+        final Cursor cursor = database.query(BlobTable.TABLE_NAME, new String[]{BlobTable.COLUMN_HASH},
+                BlobTable.COLUMN_REFERENCE_COUNT + "<=0", null, null, null, null);
+        while (cursor.moveToNext()) {
+            unreferenced.add(cursor.getString(0));
+        }
+        cursor.close();
+
+        database.delete(BlobTable.TABLE_NAME, BlobTable.COLUMN_REFERENCE_COUNT + "<=0", null);
+        return unreferenced;
+    }
+
+    /**
+     * Removes an image entry together with all rows that use it. The other image of each of these
+     * rows is released. The hashes of all removed images are added to unreferenced, their files
+     * need to be deleted after the transaction.
+     *
+     * @param size Size of the image.
+     */
+    private void removeBlob(final SQLiteDatabase database, final String hash, final long size, final List<String> unreferenced) {
+        final String[] whereArgs = {hash, hash};
+        removeRows(database, AlbumArtTable.TABLE_NAME, AlbumArtTable.COLUMN_IMAGE_FILE_PATH, AlbumArtTable.COLUMN_THUMBNAIL_FILE_PATH,
+                AlbumArtTable.COLUMN_IMAGE_FILE_PATH + "=? OR " + AlbumArtTable.COLUMN_THUMBNAIL_FILE_PATH + "=?", whereArgs, unreferenced);
+        removeRows(database, ArtistArtTable.TABLE_NAME, ArtistArtTable.COLUMN_IMAGE_FILE_PATH, ArtistArtTable.COLUMN_THUMBNAIL_FILE_PATH,
+                ArtistArtTable.COLUMN_IMAGE_FILE_PATH + "=? OR " + ArtistArtTable.COLUMN_THUMBNAIL_FILE_PATH + "=?", whereArgs, unreferenced);
+
+        // Still present if its reference count was wrong
+        if (database.delete(BlobTable.TABLE_NAME, BlobTable.COLUMN_HASH + "=?", new String[]{hash}) > 0) {
+            changeTotalSize(-size);
+            unreferenced.add(hash);
+        }
+    }
+
+    /**
+     * Deletes the selected rows and releases their images. Must be called with {@link #mWriteLock}
+     * held, inside of a transaction.
+     */
+    private void removeRows(final SQLiteDatabase database, final String table, final String pathColumn, final String thumbnailColumn,
+                            final String where, final String[] whereArgs, final List<String> unreferenced) {
+        final Cursor cursor = database.query(table, new String[]{pathColumn, thumbnailColumn}, where, whereArgs, null, null, null);
+        while (cursor.moveToNext()) {
+            releaseReferences(database, cursor, unreferenced);
+        }
+        cursor.close();
+
+        database.delete(table, where, whereArgs);
+    }
+
+    /**
+     * Removes the rows that reference an image that is not in the blob table.
+     */
+    private static void removeDanglingRows(final SQLiteDatabase database, final String table, final String pathColumn) {
+        database.delete(table, pathColumn + " IS NOT NULL AND " + pathColumn + " NOT IN (SELECT " + BlobTable.COLUMN_HASH +
+                " FROM " + BlobTable.TABLE_NAME + ")", null);
+    }
+
+    private void deleteBlobFiles(final List<String> hashes) {
+        for (String hash : hashes) {
+            mBlobStore.delete(hash);
+            mAccessTimes.remove(hash);
+        }
+    }
+
+    /**
+     * Evicts the least recently used rows with their images until the images use less than
+     * {@link #TRIM_FACTOR} of the size limit. A row counts as used when its image or its thumbnail
+     * was accessed, so a shown thumbnail also keeps the large image of the row.
+     * Must be called with {@link #mWriteLock} held.
+     */
+    private void trimToSize(final SQLiteDatabase database) {
+        final long maximumSize = mMaximumSize;
+        if (mTotalSize < 0) {
+            mTotalSize = DatabaseUtils.longForQuery(database, "SELECT IFNULL(SUM(" + BlobTable.COLUMN_SIZE + "),0) FROM " + BlobTable.TABLE_NAME, null);
+        }
+        if (mTotalSize <= maximumSize) {
+            return;
+        }
+
+        flushAccessTimes(database);
+
+        final long targetSize = (long) (maximumSize * TRIM_FACTOR);
+        final List<String> tables = new ArrayList<>();
+        final List<Long> rowIds = new ArrayList<>();
+        final Cursor cursor = database.rawQuery(
+                getRowAccessQuery(AlbumArtTable.TABLE_NAME, AlbumArtTable.COLUMN_IMAGE_FILE_PATH, AlbumArtTable.COLUMN_THUMBNAIL_FILE_PATH) + " UNION ALL " +
+                        getRowAccessQuery(ArtistArtTable.TABLE_NAME, ArtistArtTable.COLUMN_IMAGE_FILE_PATH, ArtistArtTable.COLUMN_THUMBNAIL_FILE_PATH) +
+                        " ORDER BY 3 ASC", null);
+        while (cursor.moveToNext()) {
+            tables.add(cursor.getString(0));
+            rowIds.add(cursor.getLong(1));
+        }
+        cursor.close();
+
+        final List<String> evicted = new ArrayList<>();
+        int evictedRows = 0;
+        database.beginTransaction();
+        try {
+            // The running total shrinks as the last reference of an image is released
+            for (; evictedRows < rowIds.size() && mTotalSize > targetSize; evictedRows++) {
+                final String[] whereArgs = {String.valueOf(rowIds.get(evictedRows))};
+                if (AlbumArtTable.TABLE_NAME.equals(tables.get(evictedRows))) {
+                    removeRows(database, AlbumArtTable.TABLE_NAME, AlbumArtTable.COLUMN_IMAGE_FILE_PATH, AlbumArtTable.COLUMN_THUMBNAIL_FILE_PATH,
+                            "rowid=?", whereArgs, evicted);
+                } else {
+                    removeRows(database, ArtistArtTable.TABLE_NAME, ArtistArtTable.COLUMN_IMAGE_FILE_PATH, ArtistArtTable.COLUMN_THUMBNAIL_FILE_PATH,
+                            "rowid=?", whereArgs, evicted);
+                }
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+
+        deleteBlobFiles(evicted);
+        Log.v(TAG, "Evicted " + evictedRows + " rows with " + evicted.size() + " images, " + mTotalSize + " bytes remaining");
+    }
+
+    /**
+     * @return Query for the table name, row id and last access of the rows with images. The last
+     * access of a row is the newer access time of its image and its thumbnail.
+     */
+    private static String getRowAccessQuery(final String table, final String pathColumn, final String thumbnailColumn) {
+        return "SELECT '" + table + "'," + table + ".rowid," +
+                "MAX(IFNULL(image." + BlobTable.COLUMN_LAST_ACCESS + ",0),IFNULL(thumbnail." + BlobTable.COLUMN_LAST_ACCESS + ",0))" +
+                " FROM " + table +
+                " LEFT JOIN " + BlobTable.TABLE_NAME + " image ON image." + BlobTable.COLUMN_HASH + "=" + table + "." + pathColumn +
+                " LEFT JOIN " + BlobTable.TABLE_NAME + " thumbnail ON thumbnail." + BlobTable.COLUMN_HASH + "=" + table + "." + thumbnailColumn +
+                " WHERE " + table + "." + pathColumn + " IS NOT NULL OR " + table + "." + thumbnailColumn + " IS NOT NULL";
+    }
+
+    /**
+     * Adds the size change to the running total, if it is known.
+     */
+    private void changeTotalSize(final long change) {
+        if (mTotalSize >= 0) {
+            mTotalSize += change;
+        }
+    }
+
+    /**
+     * Writes the access times recorded by the lookups to the blob table.
+     */
+    private void flushAccessTimes(final SQLiteDatabase database) {
+        if (mAccessTimes.isEmpty()) {
+            return;
+        }
 
-        if (requestCursor.moveToFirst()) {
+        final SQLiteStatement statement = database.compileStatement("UPDATE " + BlobTable.TABLE_NAME + " SET " + BlobTable.COLUMN_LAST_ACCESS +
+                "=MAX(" + BlobTable.COLUMN_LAST_ACCESS + ",?) WHERE " + BlobTable.COLUMN_HASH + "=?");
+        database.beginTransaction();
+        try {
+            final Iterator<Map.Entry<String, Long>> iterator = mAccessTimes.entrySet().iterator();
+            while (iterator.hasNext()) {
+                final Map.Entry<String, Long> entry = iterator.next();
+                iterator.remove();
+
+                statement.bindLong(1, entry.getValue());
+                statement.bindString(2, entry.getKey());
+                statement.executeUpdateDelete();
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+            statement.close();
+        }
+    }
 
-            final String artworkFilename = requestCursor.getString(requestCursor.getColumnIndexOrThrow(AlbumArtTable.COLUMN_IMAGE_FILE_PATH));
-            FileUtils.removeArtworkFile(mApplicationContext, artworkFilename, DIRECTORY_ALBUM_IMAGES);
+    /**
+     * @return Comma separated list of count placeholders for an IN clause
+     */
+    private static String createPlaceholders(final int count) {
+        final StringBuilder placeholders = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                placeholders.append(',');
+            }
+            placeholders.append('?');
         }
+        return placeholders.toString();
+    }
 
-        database.delete(AlbumArtTable.TABLE_NAME, where, whereArgs);
+    /**
+     * @return The open database connection, opened on first use.
+     */
+    private SQLiteDatabase getDatabase() {
+        SQLiteDatabase database = mDatabase;
+        if (database == null || !database.isOpen()) {
+            synchronized (this) {
+                database = mDatabase;
+                if (database == null || !database.isOpen()) {
+                    database = getWritableDatabase();
+                    mDatabase = database;
+                }
+            }
+        }
+        return database;
+    }
 
-        requestCursor.close();
-        database.close();
+    /**
+     * Compiled album lookups of one image variant.
+     */
+    private class AlbumLookup {
+        final StatementPool mByMBID;
+
+        final StatementPool mByNameAndArtist;
+
+        final StatementPool mByName;
+
+        /**
+         * @param image Expression that selects the image variant.
+         */
+        AlbumLookup(final String image) {
+            final String lookup = "SELECT " + image + " FROM " + AlbumArtTable.TABLE_NAME + " WHERE ";
+            mByMBID = new StatementPool(lookup + AlbumArtTable.COLUMN_ALBUM_MBID + "=? LIMIT 1");
+            mByNameAndArtist = new StatementPool(lookup + AlbumArtTable.COLUMN_ALBUM_NAME + "=? AND " +
+                    AlbumArtTable.COLUMN_ARTIST_NAME + "=? LIMIT 1");
+            mByName = new StatementPool(lookup + AlbumArtTable.COLUMN_ALBUM_NAME + "=? LIMIT 1");
+        }
     }
 
+    /**
+     * Compiled artist lookups of one image variant.
+     */
+    private class ArtistLookup {
+        final StatementPool mByMBID;
+
+        final StatementPool mByName;
+
+        /**
+         * @param image Expression that selects the image variant.
+         */
+        ArtistLookup(final String image) {
+            final String lookup = "SELECT " + image + " FROM " + ArtistArtTable.TABLE_NAME + " WHERE ";
+            mByMBID = new StatementPool(lookup + ArtistArtTable.COLUMN_ARTIST_MBID + "=? LIMIT 1");
+            mByName = new StatementPool(lookup + ArtistArtTable.COLUMN_ARTIST_NAME + "=? LIMIT 1");
+        }
+    }
+
+    /**
+     * Compiled single value lookup. {@link SQLiteStatement}s keep their bound arguments, so each
+     * thread takes its own statement from the pool. Statements are compiled on demand and at most
+     * {@link #MAX_IDLE_STATEMENTS} are kept for reuse.
+     */
+    private class StatementPool {
+        private static final int MAX_IDLE_STATEMENTS = 4;
+
+        private final String mSQL;
+
+        private final ArrayDeque<SQLiteStatement> mIdleStatements = new ArrayDeque<>();
+
+        StatementPool(final String sql) {
+            mSQL = sql;
+        }
+
+        /**
+         * @param arguments Arguments to bind to the statement
+         * @return The value of the first column of the first row or null if no row matches.
+         */
+        String queryForString(final String... arguments) {
+            SQLiteStatement statement;
+            synchronized (mIdleStatements) {
+                statement = mIdleStatements.poll();
+            }
+            if (statement == null) {
+                statement = getDatabase().compileStatement(mSQL);
+            }
+
+            try {
+                statement.bindAllArgsAsStrings(arguments);
+                return statement.simpleQueryForString();
+            } catch (SQLiteDoneException e) {
+                return null;
+            } finally {
+                statement.clearBindings();
+                release(statement);
+            }
+        }
+
+        private void release(final SQLiteStatement statement) {
+            synchronized (mIdleStatements) {
+                if (mIdleStatements.size() < MAX_IDLE_STATEMENTS) {
+                    mIdleStatements.push(statement);
+                    return;
+                }
+            }
+            statement.close();
+        }
+    }
 }
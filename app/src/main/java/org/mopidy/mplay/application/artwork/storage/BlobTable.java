@@ -0,0 +1,75 @@
+/*
+ *  Copyright (C) 2022 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://gitlab.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.mopidy.mplay.application.artwork.storage;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * One row per file of the {@link ArtworkBlobStore}. The reference count is the number of album
+ * and artist rows that use the file, the access time is used to evict the least recently used
+ * files once the store exceeds its size limit.
+ */
+class BlobTable {
+    static final String TABLE_NAME = "malp_artwork_blobs";
+
+    static final String COLUMN_HASH = "blob_hash";
+
+    static final String COLUMN_SIZE = "blob_size";
+
+    static final String COLUMN_REFERENCE_COUNT = "blob_reference_count";
+
+    static final String COLUMN_LAST_ACCESS = "blob_last_access";
+
+    private static final String DATABASE_CREATE = "CREATE TABLE if not exists " +
+            TABLE_NAME +
+            " (" +
+            COLUMN_HASH + " text primary key," +
+            COLUMN_SIZE + " integer," +
+            COLUMN_REFERENCE_COUNT + " integer," +
+            COLUMN_LAST_ACCESS + " integer" +
+            ");";
+
+    private static final String INDEX_LAST_ACCESS = TABLE_NAME + "_last_access";
+
+    /**
+     * Index for the eviction in access order
+     */
+    private static final String INDEX_LAST_ACCESS_CREATE = "CREATE INDEX if not exists " +
+            INDEX_LAST_ACCESS + " ON " + TABLE_NAME +
+            " (" +
+            COLUMN_LAST_ACCESS +
+            ");";
+
+    private static final String DATABASE_DROP = "DROP TABLE if exists " + TABLE_NAME;
+
+    static void createTable(SQLiteDatabase database) {
+        // Create table if not already existing
+        database.execSQL(DATABASE_CREATE);
+        database.execSQL(INDEX_LAST_ACCESS_CREATE);
+    }
+
+    static void dropTable(final SQLiteDatabase database) {
+        // drop table if already existing
+        database.execSQL(DATABASE_DROP);
+    }
+}
@@ -197,6 +197,12 @@ public class ArtworkSettingsFragment extends PreferenceFragmentCompat implements
         String albumProviderKey = getString(R.string.pref_album_provider_key);
         String artistProviderKey = getString(R.string.pref_artist_provider_key);
         String downloadWifiOnlyKey = getString(R.string.pref_download_wifi_only_key);
+        String storageSizeKey = getString(R.string.pref_artwork_storage_size_key);
+
+        if (key.equals(storageSizeKey)) {
+            ArtworkManager.getInstance(getContext()).setStorageSize(sharedPreferences.getString(storageSizeKey, getString(R.string.pref_artwork_storage_size_default)));
+            return;
+        }
 
         if (key.equals(albumProviderKey) || key.equals(artistProviderKey) || key.equals(downloadWifiOnlyKey)) {
             Intent nextIntent = new Intent(BulkDownloadService.ACTION_CANCEL);
@@ -40,6 +40,7 @@ import org.mopidy.mplay.application.activities.MainActivity;
 import org.mopidy.mplay.application.callbacks.FABFragmentCallback;
 import org.mopidy.mplay.application.utils.ThemeUtils;
 import org.mopidy.mplay.application.views.VolumeStepPreferenceDialog;
+import org.mopidy.mplay.mpdservice.mpdprotocol.MPDSortHelper;
 
 public class SettingsFragment extends PreferenceFragmentCompat implements SharedPreferences.OnSharedPreferenceChangeListener {
     public static final String TAG = SettingsFragment.class.getSimpleName();
@@ -139,6 +140,8 @@ public class SettingsFragment extends PreferenceFragmentCompat implements Shared
             intent.putExtra(MainActivity.MAINACTIVITY_INTENT_EXTRA_REQUESTEDVIEW, MainActivity.REQUESTEDVIEW.SETTINGS.ordinal());
             requireActivity().finish();
             startActivity(intent);
+        } else if (key.equals(getString(R.string.pref_sort_ignore_articles_key))) {
+            MPDSortHelper.setStripArticles(sharedPreferences.getBoolean(key, getResources().getBoolean(R.bool.pref_sort_ignore_articles_default)));
         }
     }
 
@@ -49,6 +49,7 @@ import org.mopidy.mplay.application.artwork.ArtworkManager;
 import org.mopidy.mplay.application.callbacks.AlbumCallback;
 import org.mopidy.mplay.application.listviewitems.AbsImageListViewItem;
 import org.mopidy.mplay.application.utils.ScrollSpeedListener;
+import org.mopidy.mplay.application.utils.WindowArtworkLoader;
 import org.mopidy.mplay.application.utils.ThemeUtils;
 import org.mopidy.mplay.application.viewmodels.AlbumsViewModel;
 import org.mopidy.mplay.application.viewmodels.GenericViewModel;
@@ -68,6 +69,11 @@ public class AlbumsFragment extends GenericMPDFragment<MPDAlbum> implements Adap
 
     private AlbumCallback mAlbumSelectCallback;
 
+    /**
+     * Loads the images of the visible items in list mode
+     */
+    private WindowArtworkLoader mArtworkLoader;
+
     public static AlbumsFragment newInstance(@Nullable final String albumPath) {
         final Bundle args = new Bundle();
         args.putString(BUNDLE_STRING_EXTRA_PATH, albumPath);
@@ -122,7 +128,13 @@ public class AlbumsFragment extends GenericMPDFragment<MPDAlbum> implements Adap
 
         adapterView.setAdapter(mAdapter);
         adapterView.setOnItemClickListener(this);
-        adapterView.setOnScrollListener(new ScrollSpeedListener(mAdapter));
+        if (useList) {
+            mArtworkLoader = new WindowArtworkLoader(adapterView, ((AlbumsAdapter) mAdapter).getListItemSize());
+            ((AlbumsAdapter) mAdapter).setArtworkLoader(mArtworkLoader);
+            adapterView.setOnScrollListener(mArtworkLoader.createScrollListener(mAdapter));
+        } else {
+            adapterView.setOnScrollListener(new ScrollSpeedListener(mAdapter));
+        }
 
         // register for context menu
         registerForContextMenu(adapterView);
@@ -162,6 +174,10 @@ public class AlbumsFragment extends GenericMPDFragment<MPDAlbum> implements Adap
         setupToolbarAndStuff();
 
         ArtworkManager.getInstance(getContext()).registerOnNewAlbumImageListener((AlbumsAdapter) mAdapter);
+
+        if (mArtworkLoader != null) {
+            mArtworkLoader.invalidate();
+        }
     }
 
     /**
@@ -185,6 +201,10 @@ public class AlbumsFragment extends GenericMPDFragment<MPDAlbum> implements Adap
         super.onPause();
 
         ArtworkManager.getInstance(getContext()).unregisterOnNewAlbumImageListener((AlbumsAdapter) mAdapter);
+
+        if (mArtworkLoader != null) {
+            mArtworkLoader.cancel();
+        }
     }
 
     /**
@@ -49,6 +49,7 @@ import org.mopidy.mplay.application.artwork.ArtworkManager;
 import org.mopidy.mplay.application.listviewitems.AbsImageListViewItem;
 import org.mopidy.mplay.application.utils.PreferenceHelper;
 import org.mopidy.mplay.application.utils.ScrollSpeedListener;
+import org.mopidy.mplay.application.utils.WindowArtworkLoader;
 import org.mopidy.mplay.application.utils.ThemeUtils;
 import org.mopidy.mplay.application.viewmodels.ArtistsViewModel;
 import org.mopidy.mplay.application.viewmodels.GenericViewModel;
@@ -62,6 +63,11 @@ public class ArtistsFragment extends GenericMPDFragment<MPDArtist> implements Ad
 
     private ArtistSelectedCallback mSelectedCallback;
 
+    /**
+     * Loads the images of the visible items in list mode
+     */
+    private WindowArtworkLoader mArtworkLoader;
+
     private MPDAlbum.MPD_ALBUM_SORT_ORDER mAlbumSortOrder;
 
     private boolean mUseAlbumArtists;
@@ -114,7 +120,13 @@ public class ArtistsFragment extends GenericMPDFragment<MPDArtist> implements Ad
         adapterView.setAdapter(mAdapter);
         adapterView.setOnItemClickListener(this);
 
-        adapterView.setOnScrollListener(new ScrollSpeedListener(mAdapter));
+        if (useList) {
+            mArtworkLoader = new WindowArtworkLoader(adapterView, ((ArtistsAdapter) mAdapter).getListItemSize());
+            ((ArtistsAdapter) mAdapter).setArtworkLoader(mArtworkLoader);
+            adapterView.setOnScrollListener(mArtworkLoader.createScrollListener(mAdapter));
+        } else {
+            adapterView.setOnScrollListener(new ScrollSpeedListener(mAdapter));
+        }
 
         // register for context menu
         registerForContextMenu(adapterView);
@@ -154,6 +166,10 @@ public class ArtistsFragment extends GenericMPDFragment<MPDArtist> implements Ad
             mFABCallback.setupToolbar(getString(R.string.app_name), true, true, false);
         }
         ArtworkManager.getInstance(requireContext().getApplicationContext()).registerOnNewArtistImageListener((ArtistsAdapter) mAdapter);
+
+        if (mArtworkLoader != null) {
+            mArtworkLoader.invalidate();
+        }
     }
 
     @Override
@@ -161,6 +177,10 @@ public class ArtistsFragment extends GenericMPDFragment<MPDArtist> implements Ad
         super.onPause();
 
         ArtworkManager.getInstance(requireContext().getApplicationContext()).unregisterOnNewArtistImageListener((ArtistsAdapter) mAdapter);
+
+        if (mArtworkLoader != null) {
+            mArtworkLoader.cancel();
+        }
     }
 
     /**
@@ -63,6 +63,7 @@ import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDPlaylist;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDTrack;
 import org.mopidy.mplay.mpdservice.websocket.WSInterface;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class FilesFragment extends GenericMPDFragment<MPDFileEntry> implements AbsListView.OnItemClickListener {
@@ -140,6 +141,7 @@ public class FilesFragment extends GenericMPDFragment<MPDFileEntry> implements A
         // Combine the two to a happy couple
         mListView.setAdapter(mAdapter);
         mListView.setOnItemClickListener(this);
+        mListView.setOnScrollListener(new PrefetchScrollListener());
         registerForContextMenu(mListView);
 
         // get swipe layout
@@ -160,6 +162,15 @@ public class FilesFragment extends GenericMPDFragment<MPDFileEntry> implements A
         getViewModel().getData().observe(getViewLifecycleOwner(), this::onDataReady);
     }
 
+    /**
+     * Skips the browse cache because the user explicitly asked for fresh data.
+     */
+    @Override
+    public void refreshContent() {
+        WSInterface.getGenericInstance().invalidateFiles(mPath);
+        super.refreshContent();
+    }
+
     @Override
     GenericViewModel<MPDFileEntry> getViewModel() {
         return new ViewModelProvider(this, new FilesViewModel.FilesViewModelFactory(requireActivity().getApplication(), mPath)).get(FilesViewModel.class);
@@ -208,6 +219,33 @@ public class FilesFragment extends GenericMPDFragment<MPDFileEntry> implements A
             mListView.setSelection(mLastPosition);
             mLastPosition = -1;
         }
+
+        // Wait for the layout of the new entries to know which of them are visible
+        mListView.post(this::prefetchVisibleDirectories);
+    }
+
+    /**
+     * Fetches the visible subdirectories in the background so that opening them is instant.
+     */
+    private void prefetchVisibleDirectories() {
+        if (mListView == null || mAdapter == null) {
+            return;
+        }
+
+        final int first = Math.max(mListView.getFirstVisiblePosition(), 0);
+        final int last = Math.min(mListView.getLastVisiblePosition(), mAdapter.getCount() - 1);
+
+        final List<String> paths = new ArrayList<>();
+        for (int i = first; i <= last; i++) {
+            final Object item = mAdapter.getItem(i);
+            if (item instanceof MPDDirectory) {
+                paths.add(((MPDDirectory) item).getPath());
+            }
+        }
+
+        if (!paths.isEmpty()) {
+            WSInterface.getGenericInstance().prefetchFiles(paths);
+        }
     }
 
     /**
@@ -497,4 +535,22 @@ public class FilesFragment extends GenericMPDFragment<MPDFileEntry> implements A
 
     }
 
+    /**
+     * Prefetches the visible directories once the list comes to rest.
+     */
+    private class PrefetchScrollListener implements AbsListView.OnScrollListener {
+
+        @Override
+        public void onScrollStateChanged(AbsListView view, int scrollState) {
+            if (scrollState == SCROLL_STATE_IDLE) {
+                prefetchVisibleDirectories();
+            }
+        }
+
+        @Override
+        public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+            // only the idle state is of interest
+        }
+    }
+
 }
@@ -73,6 +73,11 @@ import java.util.List;
 public class SearchFragment extends GenericMPDFragment<MPDFileEntry> implements AdapterView.OnItemClickListener, View.OnFocusChangeListener {
     public static final String TAG = SearchFragment.class.getSimpleName();
 
+    /**
+     * Minimum number of characters before results are shown while typing.
+     */
+    private static final int MIN_SEARCH_AS_YOU_TYPE_LENGTH = 3;
+
     /**
      * Main ListView of this fragment
      */
@@ -485,6 +490,11 @@ public class SearchFragment extends GenericMPDFragment<MPDFileEntry> implements
             // Write settings values
             prefEditor.apply();
 
+            // Search again in the newly selected field
+            if (!mSearchText.isEmpty()) {
+                ((SearchResultViewModel) getViewModel()).search(mSearchText, mSearchType);
+            }
+
             if (mFABCallback.getNowPlayingDragStatus() == NowPlayingView.NowPlayingDragStatusReceiver.DRAG_STATUS.DRAGGED_DOWN) {
                 mSearchView.requestFocus();
                 // Open the keyboard again
@@ -513,6 +523,10 @@ public class SearchFragment extends GenericMPDFragment<MPDFileEntry> implements
 
         @Override
         public boolean onQueryTextChange(String newText) {
+            if (newText.isEmpty() || newText.length() >= MIN_SEARCH_AS_YOU_TYPE_LENGTH) {
+                mSearchText = newText;
+                ((SearchResultViewModel) getViewModel()).search(mSearchText, mSearchType);
+            }
             return false;
         }
     }
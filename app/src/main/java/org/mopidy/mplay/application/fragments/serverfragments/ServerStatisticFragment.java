@@ -34,7 +34,13 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.lifecycle.ViewModelProvider;
 
+import org.mopidy.mplay.BuildConfig;
 import org.mopidy.mplay.R;
+import org.mopidy.mplay.application.MPlayApplication;
+import org.mopidy.mplay.application.artwork.BitmapCache;
+import org.mopidy.mplay.application.artwork.network.InsertImageTask;
+import org.mopidy.mplay.application.artwork.network.MALPRequestQueue;
+import org.mopidy.mplay.application.utils.AppExecutors;
 import org.mopidy.mplay.application.utils.FormatHelper;
 import org.mopidy.mplay.application.viewmodels.GenericViewModel;
 import org.mopidy.mplay.application.viewmodels.StatisticsViewModel;
@@ -66,6 +72,18 @@ public class ServerStatisticFragment extends GenericMPDFragment<MPDStatistics> {
 
     private TextView mServerFeatures;
 
+    private TextView mBrowseCache;
+
+    private TextView mArtworkRequests;
+
+    private TextView mImageCache;
+
+    private TextView mImageTranscoding;
+
+    private TextView mThreadPools;
+
+    private TextView mStartup;
+
     private MPDCurrentStatus mLastStatus;
     private ServerStatusHandler mServerStatusHandler;
 
@@ -95,6 +113,17 @@ public class ServerStatisticFragment extends GenericMPDFragment<MPDStatistics> {
 
         mServerFeatures = view.findViewById(R.id.server_statistic_malp_server_information);
 
+        // Cache statistics are only of interest while developing
+        if (BuildConfig.DEBUG) {
+            view.findViewById(R.id.server_statistic_browse_cache_section).setVisibility(View.VISIBLE);
+            mBrowseCache = view.findViewById(R.id.server_statistic_browse_cache_information);
+            mArtworkRequests = view.findViewById(R.id.server_statistic_artwork_requests_information);
+            mImageCache = view.findViewById(R.id.server_statistic_image_cache_information);
+            mImageTranscoding = view.findViewById(R.id.server_statistic_image_transcoding_information);
+            mThreadPools = view.findViewById(R.id.server_statistic_thread_pools_information);
+            mStartup = view.findViewById(R.id.server_statistic_startup_information);
+        }
+
         view.findViewById(R.id.server_statistic_update_db_btn).setOnClickListener(v -> {
             // Update the whole database => no path
             MPDQueryHandler.updateDatabase("");
@@ -150,6 +179,30 @@ public class ServerStatisticFragment extends GenericMPDFragment<MPDStatistics> {
             if (capabilities != null) {
                 mServerFeatures.setText(capabilities.getServerFeatures());
             }
+
+            if (mBrowseCache != null) {
+                mBrowseCache.setText(WSInterface.getGenericInstance().getBrowseCacheStatistics());
+            }
+
+            if (mArtworkRequests != null) {
+                mArtworkRequests.setText(MALPRequestQueue.getInstance(requireContext()).getStatistics());
+            }
+
+            if (mImageCache != null) {
+                mImageCache.setText(BitmapCache.getInstance().getStatistics());
+            }
+
+            if (mImageTranscoding != null) {
+                mImageTranscoding.setText(InsertImageTask.getStatistics());
+            }
+
+            if (mThreadPools != null) {
+                mThreadPools.setText(AppExecutors.getStatistics());
+            }
+
+            if (mStartup != null) {
+                mStartup.setText(MPlayApplication.getStartupStatistics());
+            }
         }
     }
 
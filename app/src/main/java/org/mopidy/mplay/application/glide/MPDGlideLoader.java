@@ -31,9 +31,9 @@ import com.bumptech.glide.load.data.DataFetcher;
 import com.bumptech.glide.load.model.ModelLoader;
 import com.bumptech.glide.signature.ObjectKey;
 
-import org.mopidy.mplay.mpdservice.mpdprotocol.MPDException;
 import org.mopidy.mplay.mpdservice.websocket.WSInterface;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 
@@ -47,19 +47,20 @@ import java.nio.ByteBuffer;
 
         private final String model;
 
-        MPDDataFetcher(String model) {
+        private final int size;
+
+        MPDDataFetcher(String model, int size) {
             this.model = model;
+            this.size = size;
         }
         @Override
         public void loadData(Priority priority, DataCallback<? super ByteBuffer> callback) {
-            try {
-                byte[] imageData = WSInterface.getGenericInstance().getAlbumArt(model,true);
-                ByteBuffer byteBuffer = ByteBuffer.wrap(imageData);
-                callback.onDataReady(byteBuffer);
-            } catch (MPDException e) {
-                e.printStackTrace();
+            byte[] imageData = WSInterface.getGenericInstance().getAlbumArt(model, size);
+            if (imageData == null) {
+                callback.onLoadFailed(new IOException("No artwork for " + model));
+                return;
             }
-
+            callback.onDataReady(ByteBuffer.wrap(imageData));
         }
 
         @Override
@@ -85,7 +86,9 @@ import java.nio.ByteBuffer;
     @Override
     public LoadData<ByteBuffer> buildLoadData(String model, int width, int height, Options options) {
         Key diskCacheKey = new ObjectKey(model);
-        return new LoadData<ByteBuffer>(diskCacheKey, new MPDDataFetcher(model));
+        // Target.SIZE_ORIGINAL is negative and requests the largest image
+        int size = Math.max(0, Math.max(width, height));
+        return new LoadData<ByteBuffer>(diskCacheKey, new MPDDataFetcher(model, size));
     }
 
     @Override
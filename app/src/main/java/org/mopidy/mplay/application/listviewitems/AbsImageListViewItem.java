@@ -45,6 +45,7 @@ import com.bumptech.glide.load.resource.bitmap.BitmapTransformation;
 import org.mopidy.mplay.R;
 import org.mopidy.mplay.application.adapters.ScrollSpeedAdapter;
 import org.mopidy.mplay.application.artwork.ArtworkManager;
+import org.mopidy.mplay.application.utils.AppExecutors;
 import org.mopidy.mplay.application.utils.AsyncLoader;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDGenericItem;
 
@@ -91,6 +92,13 @@ public abstract class AbsImageListViewItem extends RelativeLayout implements Cov
         }
     }
 
+    /**
+     * @return The model item this view is prepared to show the image for.
+     */
+    public MPDGenericItem getModelItem() {
+        return mHolder.modelItem;
+    }
+
     public void setImageDimension(int width, int height) {
         mHolder.imageDimension = new Pair<>(width, height);
     }
@@ -101,7 +109,8 @@ public abstract class AbsImageListViewItem extends RelativeLayout implements Cov
     public void startCoverImageTask() {
         if (mLoaderTask == null && mHolder.artworkManager != null && mHolder.modelItem != null && !mCoverDone) {
             mLoaderTask = new AsyncLoader();
-            mLoaderTask.execute(mHolder);
+            // Covers run on the LIFO decode pool, so the most recently shown items load first
+            mLoaderTask.executeOnExecutor(AppExecutors.getExecutor(AppExecutors.Pool.DECODE, AppExecutors.PRIORITY_HIGH), mHolder);
         }
     }
 
@@ -183,43 +192,23 @@ public abstract class AbsImageListViewItem extends RelativeLayout implements Cov
         Glide.with(getContext()).load(artwork).into(mImageView);
     }
     /**
-     * Sets the image of this view with a smooth fading animation.
+     * Sets the image of this view.
      * If null is supplied it will reset the cover placeholder image.
      * @param image Image to show inside the view. null will result in the placeholder being shown.
      */
-    /*
     public void setImage(Bitmap image) {
-        mBitmap = image;
         if ( null == mImageView || null == mSwitcher) {
             return;
         }
 
         if (null != image) {
             mCoverDone = true;
-
             mImageView.setImageBitmap(image);
-            mSwitcher.setDisplayedChild(1);
         } else {
-            // Cancel old task
-            if (mLoaderTask != null) {
-                mLoaderTask.cancel(true);
-            }
-            mLoaderTask = null;
-            mHolder.modelItem = null;
-
             mCoverDone = false;
-            mSwitcher.setOutAnimation(null);
-            mSwitcher.setInAnimation(null);
-            mImageView.setImageDrawable(null);
-            mSwitcher.setDisplayedChild(0);
-            mSwitcher.setOutAnimation(AnimationUtils.loadAnimation(getContext(), android.R.anim.fade_out));
-            mSwitcher.setInAnimation(AnimationUtils.loadAnimation(getContext(), android.R.anim.fade_in));
+            mImageView.setImageDrawable(ResourcesCompat.getDrawable(getResources(),R.drawable.cover_placeholder_128dp, null));
         }
+        mSwitcher.setDisplayedChild(1);
     }
 
-    public Bitmap getBitmap() {
-        return mBitmap;
-    }
-*/
-
 }
@@ -0,0 +1,333 @@
+/*
+ *  Copyright (C) 2022 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://gitlab.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.mopidy.mplay.application.utils;
+
+import android.os.Process;
+
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * App wide thread pools for background work. Each {@link Pool} has its own bounded number of
+ * threads, so slow work of one kind (e.g. re-encoding downloaded images) can not block work of
+ * another kind (e.g. decoding the covers of the visible items). Queued tasks run by priority.
+ * Pools with the LIFO option run the newest task of a priority first and drop the oldest tasks
+ * if too many are queued. Only tasks queued with {@link #submit(Pool, int, Runnable)} are dropped,
+ * their submitter gets a cancelled {@link Future}.
+ */
+public final class AppExecutors {
+
+    public static final int PRIORITY_HIGH = 0;
+
+    public static final int PRIORITY_NORMAL = 1;
+
+    public static final int PRIORITY_LOW = 2;
+
+    /**
+     * Time after which idle threads are stopped
+     */
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    public enum Pool {
+        /**
+         * Decoding of images that are shown right now. Newest request first, because older
+         * requests are often for items that were already scrolled away.
+         */
+        DECODE("Decode", Math.max(2, Math.min(Runtime.getRuntime().availableProcessors() - 1, 3)), Process.THREAD_PRIORITY_DEFAULT, 64, true),
+
+        /**
+         * Database lookups and file access
+         */
+        DISK_IO("DiskIO", 2, Process.THREAD_PRIORITY_BACKGROUND, 0, false),
+
+        /**
+         * CPU heavy work like re-encoding downloaded images
+         */
+        ENCODE("Encode", Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() / 2, 2)), Process.THREAD_PRIORITY_BACKGROUND, 0, false),
+
+        /**
+         * Everything else that is not time critical
+         */
+        BACKGROUND("Background", 1, Process.THREAD_PRIORITY_BACKGROUND + Process.THREAD_PRIORITY_LESS_FAVORABLE, 0, false);
+
+        private final String mName;
+
+        private final int mThreads;
+
+        private final int mThreadPriority;
+
+        /**
+         * Maximum number of queued tasks, 0 for no limit
+         */
+        private final int mQueueLimit;
+
+        private final boolean mLifo;
+
+        Pool(String name, int threads, int threadPriority, int queueLimit, boolean lifo) {
+            mName = name;
+            mThreads = threads;
+            mThreadPriority = threadPriority;
+            mQueueLimit = queueLimit;
+            mLifo = lifo;
+        }
+    }
+
+    private static final EnumMap<Pool, PoolExecutor> sExecutors = new EnumMap<>(Pool.class);
+
+    /**
+     * Sequence number of the queued tasks, orders tasks of the same priority
+     */
+    private static final AtomicLong sSequence = new AtomicLong();
+
+    private AppExecutors() {
+    }
+
+    /**
+     * Queues a task with normal priority.
+     *
+     * @param pool Pool to run the task on.
+     * @param task Task to run.
+     * @return Future to cancel the task.
+     */
+    public static Future<?> submit(Pool pool, Runnable task) {
+        return submit(pool, PRIORITY_NORMAL, task);
+    }
+
+    /**
+     * Queues a task. If the queue of the pool is full, the task can be dropped later, which
+     * cancels the returned future.
+     *
+     * @param pool     Pool to run the task on.
+     * @param priority One of {@link #PRIORITY_HIGH}, {@link #PRIORITY_NORMAL} or {@link #PRIORITY_LOW}.
+     * @param task     Task to run.
+     * @return Future to cancel the task.
+     */
+    public static Future<?> submit(Pool pool, int priority, Runnable task) {
+        return enqueue(pool, priority, task, true);
+    }
+
+    /**
+     * Returns an {@link Executor} that queues its tasks on the given pool, e.g. for
+     * {@link android.os.AsyncTask#executeOnExecutor(Executor, Object[])}. Its tasks are never
+     * dropped, the submitter would not notice it (an AsyncTask would stay running forever).
+     *
+     * @param pool     Pool to run the tasks on.
+     * @param priority Priority of the tasks.
+     * @return Executor for the pool.
+     */
+    public static Executor getExecutor(Pool pool, int priority) {
+        return task -> enqueue(pool, priority, task, false);
+    }
+
+    private static Future<?> enqueue(Pool pool, int priority, Runnable task, boolean droppable) {
+        final PoolTask poolTask = new PoolTask(task, priority, sSequence.getAndIncrement(), pool.mLifo, droppable);
+        getPoolExecutor(pool).enqueue(poolTask);
+        return poolTask;
+    }
+
+    /**
+     * @param pool Pool to get the size of.
+     * @return Number of threads of the pool.
+     */
+    public static int getThreadCount(Pool pool) {
+        return pool.mThreads;
+    }
+
+    /**
+     * @return Human readable queue and latency metrics of all pools that were used.
+     */
+    public static String getStatistics() {
+        final StringBuilder statistics = new StringBuilder();
+        synchronized (sExecutors) {
+            for (PoolExecutor executor : sExecutors.values()) {
+                if (statistics.length() > 0) {
+                    statistics.append('\n');
+                }
+                statistics.append(executor.getStatistics());
+            }
+        }
+        return statistics.toString();
+    }
+
+    private static PoolExecutor getPoolExecutor(Pool pool) {
+        synchronized (sExecutors) {
+            PoolExecutor executor = sExecutors.get(pool);
+            if (executor == null) {
+                executor = new PoolExecutor(pool);
+                sExecutors.put(pool, executor);
+            }
+            return executor;
+        }
+    }
+
+    private static class PoolTask extends FutureTask<Void> implements Comparable<PoolTask> {
+        private final int mPriority;
+
+        private final long mSequence;
+
+        private final boolean mLifo;
+
+        /**
+         * True if the submitter handles a cancelled future, so the task may be dropped
+         */
+        private final boolean mDroppable;
+
+        private long mQueueTime;
+
+        PoolTask(Runnable task, int priority, long sequence, boolean lifo, boolean droppable) {
+            super(task, null);
+            mPriority = priority;
+            mSequence = sequence;
+            mLifo = lifo;
+            mDroppable = droppable;
+        }
+
+        @Override
+        public int compareTo(PoolTask other) {
+            if (mPriority != other.mPriority) {
+                return mPriority < other.mPriority ? -1 : 1;
+            }
+            if (mSequence == other.mSequence) {
+                return 0;
+            }
+            return (mSequence < other.mSequence) != mLifo ? -1 : 1;
+        }
+    }
+
+    private static class PoolExecutor extends ThreadPoolExecutor {
+        private final Pool mPool;
+
+        private final AtomicLong mSubmittedCount = new AtomicLong();
+
+        private final AtomicLong mCompletedCount = new AtomicLong();
+
+        private final AtomicLong mDroppedCount = new AtomicLong();
+
+        private final AtomicLong mWaitTime = new AtomicLong();
+
+        private final AtomicLong mRunTime = new AtomicLong();
+
+        private final AtomicInteger mMaxQueueDepth = new AtomicInteger();
+
+        private final ThreadLocal<Long> mStartTime = new ThreadLocal<>();
+
+        PoolExecutor(Pool pool) {
+            super(pool.mThreads, pool.mThreads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new PriorityBlockingQueue<>(), new PoolThreadFactory(pool));
+            mPool = pool;
+            allowCoreThreadTimeOut(true);
+        }
+
+        void enqueue(PoolTask task) {
+            mSubmittedCount.incrementAndGet();
+
+            if (mPool.mQueueLimit > 0 && getQueue().size() >= mPool.mQueueLimit) {
+                dropLeastImportantTask();
+            }
+
+            task.mQueueTime = System.nanoTime();
+            execute(task);
+
+            final int depth = getQueue().size();
+            int maxDepth = mMaxQueueDepth.get();
+            while (depth > maxDepth && !mMaxQueueDepth.compareAndSet(maxDepth, depth)) {
+                maxDepth = mMaxQueueDepth.get();
+            }
+        }
+
+        /**
+         * Removes the droppable task of the queue that would run last.
+         */
+        private void dropLeastImportantTask() {
+            PoolTask last = null;
+            final Iterator<Runnable> iterator = getQueue().iterator();
+            while (iterator.hasNext()) {
+                final PoolTask task = (PoolTask) iterator.next();
+                if (task.mDroppable && (last == null || task.compareTo(last) > 0)) {
+                    last = task;
+                }
+            }
+
+            if (last != null && remove(last)) {
+                last.cancel(false);
+                mDroppedCount.incrementAndGet();
+            }
+        }
+
+        @Override
+        protected void beforeExecute(Thread thread, Runnable runnable) {
+            super.beforeExecute(thread, runnable);
+            final long now = System.nanoTime();
+            mWaitTime.addAndGet(now - ((PoolTask) runnable).mQueueTime);
+            mStartTime.set(now);
+        }
+
+        @Override
+        protected void afterExecute(Runnable runnable, Throwable throwable) {
+            super.afterExecute(runnable, throwable);
+            final Long startTime = mStartTime.get();
+            if (startTime != null) {
+                mRunTime.addAndGet(System.nanoTime() - startTime);
+            }
+            mCompletedCount.incrementAndGet();
+        }
+
+        String getStatistics() {
+            final long completed = Math.max(mCompletedCount.get(), 1);
+            return mPool.mName + ": " + mPool.mThreads + " threads, active: " + getActiveCount()
+                    + ", queued: " + getQueue().size() + " (max " + mMaxQueueDepth.get() + ")"
+                    + ", submitted: " + mSubmittedCount.get() + ", completed: " + mCompletedCount.get()
+                    + ", dropped: " + mDroppedCount.get()
+                    + ", avg wait: " + TimeUnit.NANOSECONDS.toMillis(mWaitTime.get() / completed) + " ms"
+                    + ", avg run: " + TimeUnit.NANOSECONDS.toMillis(mRunTime.get() / completed) + " ms";
+        }
+    }
+
+    private static class PoolThreadFactory implements ThreadFactory {
+        private final Pool mPool;
+
+        private final AtomicInteger mThreadCount = new AtomicInteger();
+
+        PoolThreadFactory(Pool pool) {
+            mPool = pool;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(() -> {
+                Process.setThreadPriority(mPool.mThreadPriority);
+                runnable.run();
+            }, mPool.mName + "-" + mThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
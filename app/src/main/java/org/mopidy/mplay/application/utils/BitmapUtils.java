@@ -25,9 +25,12 @@ package org.mopidy.mplay.application.utils;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 
+import org.mopidy.mplay.application.artwork.BitmapCache;
+
 public class BitmapUtils {
     /**
-     * Resize retrieved bitmap if necessary
+     * Resize retrieved bitmap if necessary. The bitmap is decoded into a pooled bitmap of the
+     * {@link BitmapCache} if one is large enough.
      */
     public static Bitmap decodeSampledBitmapFromFile(String pathName, int reqWidth, int reqHeight) {
 
@@ -44,8 +47,26 @@ public class BitmapUtils {
             options.inSampleSize = calculateInSampleSize(options, reqWidth, reqHeight);
         }
 
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
         // Decode bitmap with inSampleSize set
         options.inJustDecodeBounds = false;
+        options.inMutable = true;
+
+        final int sampledWidth = (options.outWidth + options.inSampleSize - 1) / options.inSampleSize;
+        final int sampledHeight = (options.outHeight + options.inSampleSize - 1) / options.inSampleSize;
+        options.inBitmap = BitmapCache.getInstance().getReusableBitmap(sampledWidth * sampledHeight * 4);
+
+        if (options.inBitmap != null) {
+            try {
+                return BitmapFactory.decodeFile(pathName, options);
+            } catch (IllegalArgumentException e) {
+                // The pooled bitmap could not be reused, decode into a new one
+                options.inBitmap = null;
+            }
+        }
         return BitmapFactory.decodeFile(pathName, options);
     }
 
@@ -133,18 +133,23 @@ public class CoverBitmapLoader {
                     e.printStackTrace();
                 }
             } else {
-                // At first get image independent of resolution (can be replaced later with higher resolution)
-                Bitmap image = BitmapCache.getInstance().requestAlbumBitmap(tempAlbum);
+                // At first try the cached image in the requested resolution
+                Bitmap image = BitmapCache.getInstance().requestAlbumBitmap(tempAlbum, mWidth, mHeight);
+                if (image != null) {
+                    mListener.receiveBitmap(image, IMAGE_TYPE.ALBUM_IMAGE);
+                    return;
+                }
+
+                // Get image independent of resolution (will be replaced with higher resolution)
+                image = BitmapCache.getInstance().requestAlbumBitmap(tempAlbum);
                 if (image != null) {
                     mListener.receiveBitmap(image, IMAGE_TYPE.ALBUM_IMAGE);
                 }
 
                 try {
-                    // If image was to small get it in the right resolution
-                    if (image == null || !(mWidth <= image.getWidth() && mHeight <= image.getHeight())) {
-                        Bitmap albumImage = ArtworkManager.getInstance(mApplicationContext).getImage(mTrack, mWidth, mHeight, true);
-                        mListener.receiveBitmap(albumImage, IMAGE_TYPE.ALBUM_IMAGE);
-                    }
+                    // Image is not cached in the right resolution
+                    Bitmap albumImage = ArtworkManager.getInstance(mApplicationContext).getImage(mTrack, mWidth, mHeight, true);
+                    mListener.receiveBitmap(albumImage, IMAGE_TYPE.ALBUM_IMAGE);
                 } catch (ImageNotFoundException e) {
                     if (mFetchImage) {
                         ArtworkManager.getInstance(mApplicationContext).fetchImage(mTrack);
@@ -172,18 +177,23 @@ public class CoverBitmapLoader {
          */
         @Override
         public void run() {
-            // At first get image independent of resolution (can be replaced later with higher resolution)
-            Bitmap image = BitmapCache.getInstance().requestArtistImage(mArtist);
+            // At first try the cached image in the requested resolution
+            Bitmap image = BitmapCache.getInstance().requestArtistImage(mArtist, mWidth, mHeight);
+            if (image != null) {
+                mListener.receiveBitmap(image, IMAGE_TYPE.ARTIST_IMAGE);
+                return;
+            }
+
+            // Get image independent of resolution (will be replaced with higher resolution)
+            image = BitmapCache.getInstance().requestArtistImage(mArtist);
             if (image != null) {
                 mListener.receiveBitmap(image, IMAGE_TYPE.ARTIST_IMAGE);
             }
 
             try {
-                // If image was to small get it in the right resolution
-                if (image == null || !(mWidth <= image.getWidth() && mHeight <= image.getHeight())) {
-                    image = ArtworkManager.getInstance(mApplicationContext).getImage(mArtist, mWidth, mHeight, true);
-                    mListener.receiveBitmap(image, IMAGE_TYPE.ARTIST_IMAGE);
-                }
+                // Image is not cached in the right resolution
+                image = ArtworkManager.getInstance(mApplicationContext).getImage(mArtist, mWidth, mHeight, true);
+                mListener.receiveBitmap(image, IMAGE_TYPE.ARTIST_IMAGE);
             } catch (ImageNotFoundException e) {
                 if (mFetchImage) {
                     ArtworkManager.getInstance(mApplicationContext).fetchImage(mArtist);
@@ -213,18 +223,23 @@ public class CoverBitmapLoader {
          */
         @Override
         public void run() {
-            // At first get image independent of resolution (can be replaced later with higher resolution)
-            Bitmap image = BitmapCache.getInstance().requestArtistImage(mArtist);
+            // At first try the cached image in the requested resolution
+            Bitmap image = BitmapCache.getInstance().requestArtistImage(mArtist, mWidth, mHeight);
+            if (image != null) {
+                mListener.receiveBitmap(image, IMAGE_TYPE.ARTIST_IMAGE);
+                return;
+            }
+
+            // Get image independent of resolution (will be replaced with higher resolution)
+            image = BitmapCache.getInstance().requestArtistImage(mArtist);
             if (image != null) {
                 mListener.receiveBitmap(image, IMAGE_TYPE.ARTIST_IMAGE);
             }
 
             try {
-                // If image was to small get it in the right resolution
-                if (image == null || !(mWidth <= image.getWidth() && mHeight <= image.getHeight())) {
-                    image = ArtworkManager.getInstance(mApplicationContext).getImage(mArtist, mWidth, mHeight, true);
-                    mListener.receiveBitmap(image, IMAGE_TYPE.ARTIST_IMAGE);
-                }
+                // Image is not cached in the right resolution
+                image = ArtworkManager.getInstance(mApplicationContext).getImage(mArtist, mWidth, mHeight, true);
+                mListener.receiveBitmap(image, IMAGE_TYPE.ARTIST_IMAGE);
             } catch (ImageNotFoundException e) {
                 if (mFetchImage) {
                     ArtworkManager.getInstance(mApplicationContext).fetchImage(mArtist);
@@ -251,18 +266,23 @@ public class CoverBitmapLoader {
          */
         @Override
         public void run() {
-            // At first get image independent of resolution (can be replaced later with higher resolution)
-            Bitmap image = BitmapCache.getInstance().requestAlbumBitmap(mAlbum);
+            // At first try the cached image in the requested resolution
+            Bitmap image = BitmapCache.getInstance().requestAlbumBitmap(mAlbum, mWidth, mHeight);
+            if (image != null) {
+                mListener.receiveBitmap(image, IMAGE_TYPE.ALBUM_IMAGE);
+                return;
+            }
+
+            // Get image independent of resolution (will be replaced with higher resolution)
+            image = BitmapCache.getInstance().requestAlbumBitmap(mAlbum);
             if (image != null) {
                 mListener.receiveBitmap(image, IMAGE_TYPE.ALBUM_IMAGE);
             }
 
             try {
-                // If image was to small get it in the right resolution
-                if (image == null || !(mWidth <= image.getWidth() && mHeight <= image.getHeight())) {
-                    Bitmap albumImage = ArtworkManager.getInstance(mApplicationContext).getImage(mAlbum, mWidth, mHeight, true);
-                    mListener.receiveBitmap(albumImage, IMAGE_TYPE.ALBUM_IMAGE);
-                }
+                // Image is not cached in the right resolution
+                Bitmap albumImage = ArtworkManager.getInstance(mApplicationContext).getImage(mAlbum, mWidth, mHeight, true);
+                mListener.receiveBitmap(albumImage, IMAGE_TYPE.ALBUM_IMAGE);
             } catch (ImageNotFoundException e) {
                 if (mFetchImage) {
                     ArtworkManager.getInstance(mApplicationContext).fetchImage(mAlbum);
@@ -25,8 +25,9 @@ package org.mopidy.mplay.application.utils;
 import android.content.Context;
 
 import java.io.File;
-import java.io.FileOutputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
@@ -56,62 +57,67 @@ public class FileUtils {
         final MessageDigest md = MessageDigest.getInstance("SHA-256");
         md.update(input.toString().getBytes());
 
-        final byte[] bytes = md.digest();
+        return toHexString(md.digest());
+    }
 
-        final StringBuilder hexString = new StringBuilder();
-        for (byte oneByte : bytes) {
-            final String hex = Integer.toHexString(0xff & oneByte);
-            if (hex.length() == 1) {
-                hexString.append('0');
-            }
-            hexString.append(hex);
-        }
+    /**
+     * Create a SHA256 Hash for the given data.
+     *
+     * @param data The data to hash.
+     * @return The result as a hex string.
+     * @throws NoSuchAlgorithmException If SHA-256 is not available.
+     */
+    public static String createSHA256HashForBytes(final byte[] data) throws NoSuchAlgorithmException {
+        final MessageDigest md = MessageDigest.getInstance("SHA-256");
+        md.update(data);
 
-        return hexString.toString();
+        return toHexString(md.digest());
     }
 
     /**
-     * Saves an image byte array in a file in the given directory.
+     * Create a SHA256 Hash for the content of the given file.
      *
-     * @param context  The application context to get the files directory of the app.
-     * @param fileName The name that will be used to save the file.
-     * @param dirName  The directory name in which the file is saved.
-     * @param image    The image byte array that will be saved in a file.
-     * @throws IOException If the file couldn't be written.
+     * @param file The file to hash.
+     * @return The result as a hex string.
+     * @throws IOException              If the file couldn't be read.
+     * @throws NoSuchAlgorithmException If SHA-256 is not available.
      */
-    public static void saveArtworkFile(final Context context, final String fileName, final String dirName, final byte[] image) throws IOException {
-        final File artworkDir = new File(context.getFilesDir() + "/" + ARTWORK_DIR + "/" + dirName + "/");
-        artworkDir.mkdirs();
+    public static String createSHA256HashForFile(final File file) throws IOException, NoSuchAlgorithmException {
+        final MessageDigest md = MessageDigest.getInstance("SHA-256");
 
-        final File imageFile = new File(artworkDir, fileName);
+        try (InputStream inputStream = new FileInputStream(file)) {
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) > 0) {
+                md.update(buffer, 0, read);
+            }
+        }
 
-        final FileOutputStream outputStream = new FileOutputStream(imageFile);
-        outputStream.write(image);
-        outputStream.close();
+        return toHexString(md.digest());
     }
 
+    private static String toHexString(final byte[] bytes) {
+        final StringBuilder hexString = new StringBuilder();
+        for (byte oneByte : bytes) {
+            final String hex = Integer.toHexString(0xff & oneByte);
+            if (hex.length() == 1) {
+                hexString.append('0');
+            }
+            hexString.append(hex);
+        }
 
-    /**
-     * Generates the full absolute file path for an artwork image
-     * @param context Context used for directory resolving
-     * @param fileName Filename used as a basis
-     * @param dirName Directory suffix
-     * @return Full absolute file path
-     */
-    public static String getFullArtworkFilePath(final Context context, final String fileName, final String dirName) {
-        return context.getFilesDir() + "/" + ARTWORK_DIR + "/" + dirName + "/" + fileName;
+        return hexString.toString();
     }
 
     /**
-     * Removes a file from the given directory.
+     * Returns a directory for artwork images. The directory is not created.
      *
-     * @param context  The application context to get the files directory of the app.
-     * @param fileName The name of the file.
-     * @param dirName  The name of the parent directory of the file.
+     * @param context The application context to get the files directory of the app.
+     * @param dirName The name of the directory.
+     * @return The directory.
      */
-    public static void removeArtworkFile(final Context context, final String fileName, final String dirName) {
-        final File artworkFile = new File(context.getFilesDir() + "/" + ARTWORK_DIR + "/" + dirName + "/" + fileName);
-        artworkFile.delete();
+    public static File getArtworkDirectory(final Context context, final String dirName) {
+        return new File(context.getFilesDir() + "/" + ARTWORK_DIR + "/" + dirName + "/");
     }
 
     /**
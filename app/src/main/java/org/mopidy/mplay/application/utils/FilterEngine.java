@@ -0,0 +1,318 @@
+/*
+ *  Copyright (C) 2022 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://gitlab.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.mopidy.mplay.application.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.core.util.Pair;
+
+import org.mopidy.mplay.mpdservice.mpdprotocol.MPDSearchIndex;
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDGenericItem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Filters the model of an adapter in the background.
+ * <p/>
+ * The normalized key of every item is computed once per model. When the new filter string only
+ * extends the previous one, only the previous matches are checked again. Large models are split
+ * in chunks that are checked in parallel on a fork-join pool. A newer request cancels the running
+ * one at the next chunk boundary. The engine works on its own copy of the model, so no adapter lock
+ * is held while filtering.
+ */
+public class FilterEngine<T extends MPDGenericItem> {
+
+    public interface ResultCallback<T> {
+        void onFilterResult(final Pair<List<T>, String> result);
+    }
+
+    /**
+     * Number of items that are checked by one task without splitting it further.
+     */
+    private static final int CHUNK_SIZE = 2048;
+
+    private static final ForkJoinPool sPool = new ForkJoinPool(Math.max(2, Runtime.getRuntime().availableProcessors() - 1));
+
+    private final MPDSearchIndex.KeyProvider<T> mKeyProvider;
+
+    private final Handler mHandler;
+
+    /**
+     * Id of the newest request. Tasks of older requests stop at the next chunk boundary.
+     */
+    private final AtomicInteger mRequest;
+
+    /**
+     * Model state, guarded by this.
+     */
+    private Object[] mItems;
+
+    private String[] mKeys;
+
+    private int mGeneration;
+
+    /**
+     * Result of the last completed request of the current generation, used to narrow down
+     * extended filter strings.
+     */
+    private String[] mLastWords;
+
+    private int[] mLastMatches;
+
+    public FilterEngine(@NonNull final MPDSearchIndex.KeyProvider<T> keyProvider) {
+        mKeyProvider = keyProvider;
+        mHandler = new Handler(Looper.getMainLooper());
+        mRequest = new AtomicInteger();
+        mItems = new Object[0];
+    }
+
+    /**
+     * Sets the model to filter. Cancels a running request.
+     *
+     * @param data New model, can be null.
+     */
+    public void setModel(final List<T> data) {
+        mRequest.incrementAndGet();
+        synchronized (this) {
+            mItems = data != null ? data.toArray() : new Object[0];
+            mKeys = null;
+            mLastWords = null;
+            mLastMatches = null;
+            mGeneration++;
+        }
+    }
+
+    /**
+     * Cancels a running request. Its callback will not be called.
+     */
+    public void cancel() {
+        mRequest.incrementAndGet();
+    }
+
+    /**
+     * Starts filtering the model. The callback is called on the main thread, unless the request
+     * was cancelled or replaced by a newer one in the meantime.
+     *
+     * @param filterString Filter string as typed by the user
+     * @param callback     Callback for the result
+     */
+    public void filter(@NonNull final String filterString, @NonNull final ResultCallback<T> callback) {
+        final int request = mRequest.incrementAndGet();
+
+        sPool.execute(() -> {
+            final Object[] items;
+            final int generation;
+            final String[] lastWords;
+            final int[] lastMatches;
+            synchronized (this) {
+                items = mItems;
+                generation = mGeneration;
+                lastWords = mLastWords;
+                lastMatches = mLastMatches;
+            }
+
+            final String[] keys = getKeys(items, generation);
+            final String normalized = StringCompareUtils.normalize(filterString);
+            final String[] words = normalized.isEmpty() ? new String[0] : normalized.split(" ");
+
+            final int[] candidates = extendsWords(words, lastWords) ? lastMatches : null;
+            final int[] matches = new MatchTask(keys, candidates, words, request,
+                    0, candidates != null ? candidates.length : keys.length).invoke();
+            if (matches == null) {
+                // Cancelled
+                return;
+            }
+
+            synchronized (this) {
+                if (generation == mGeneration) {
+                    mLastWords = words;
+                    mLastMatches = matches;
+                }
+            }
+
+            final List<T> result = new ArrayList<>(matches.length);
+            for (int index : matches) {
+                result.add(castItem(items[index]));
+            }
+
+            mHandler.post(() -> {
+                if (request == mRequest.get()) {
+                    callback.onFilterResult(new Pair<>(result, filterString));
+                }
+            });
+        });
+    }
+
+    /**
+     * Returns the normalized keys of the given model, computing them in parallel on first use.
+     */
+    private String[] getKeys(final Object[] items, final int generation) {
+        synchronized (this) {
+            if (generation == mGeneration && mKeys != null) {
+                return mKeys;
+            }
+        }
+
+        final String[] keys = new String[items.length];
+        new KeyTask(items, keys, 0, items.length).invoke();
+
+        synchronized (this) {
+            if (generation == mGeneration) {
+                mKeys = keys;
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * @return True if every previous word is contained in one of the new words. Every item
+     * matching the new words then also matched the previous ones.
+     */
+    private static boolean extendsWords(final String[] words, final String[] lastWords) {
+        if (lastWords == null || lastWords.length == 0) {
+            return false;
+        }
+        for (String lastWord : lastWords) {
+            boolean contained = false;
+            for (String word : words) {
+                if (word.contains(lastWord)) {
+                    contained = true;
+                    break;
+                }
+            }
+            if (!contained) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T castItem(final Object item) {
+        return (T) item;
+    }
+
+    private class KeyTask extends RecursiveAction {
+        private final Object[] mItems;
+
+        private final String[] mKeys;
+
+        private final int mStart;
+
+        private final int mEnd;
+
+        KeyTask(final Object[] items, final String[] keys, final int start, final int end) {
+            mItems = items;
+            mKeys = keys;
+            mStart = start;
+            mEnd = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (mEnd - mStart > CHUNK_SIZE) {
+                final int middle = (mStart + mEnd) >>> 1;
+                invokeAll(new KeyTask(mItems, mKeys, mStart, middle), new KeyTask(mItems, mKeys, middle, mEnd));
+                return;
+            }
+            for (int i = mStart; i < mEnd; i++) {
+                mKeys[i] = StringCompareUtils.normalize(mKeyProvider.getSearchKey(castItem(mItems[i])));
+            }
+        }
+    }
+
+    /**
+     * Checks a range of either all items or the given candidate indices.
+     * Returns the ascending indices of the matching items or null if the request was cancelled.
+     */
+    private class MatchTask extends RecursiveTask<int[]> {
+        private final String[] mKeys;
+
+        private final int[] mCandidates;
+
+        private final String[] mWords;
+
+        private final int mRequestId;
+
+        private final int mStart;
+
+        private final int mEnd;
+
+        MatchTask(final String[] keys, final int[] candidates, final String[] words, final int requestId, final int start, final int end) {
+            mKeys = keys;
+            mCandidates = candidates;
+            mWords = words;
+            mRequestId = requestId;
+            mStart = start;
+            mEnd = end;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (mRequestId != mRequest.get()) {
+                return null;
+            }
+
+            if (mEnd - mStart > CHUNK_SIZE) {
+                final int middle = (mStart + mEnd) >>> 1;
+                final MatchTask first = new MatchTask(mKeys, mCandidates, mWords, mRequestId, mStart, middle);
+                first.fork();
+                final int[] second = new MatchTask(mKeys, mCandidates, mWords, mRequestId, middle, mEnd).compute();
+                final int[] firstResult = first.join();
+                if (firstResult == null || second == null) {
+                    return null;
+                }
+                final int[] result = Arrays.copyOf(firstResult, firstResult.length + second.length);
+                System.arraycopy(second, 0, result, firstResult.length, second.length);
+                return result;
+            }
+
+            final int[] result = new int[mEnd - mStart];
+            int count = 0;
+            for (int i = mStart; i < mEnd; i++) {
+                final int index = mCandidates != null ? mCandidates[i] : i;
+                if (matches(mKeys[index])) {
+                    result[count++] = index;
+                }
+            }
+            return Arrays.copyOf(result, count);
+        }
+
+        private boolean matches(final String key) {
+            for (String word : mWords) {
+                if (!key.contains(word)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
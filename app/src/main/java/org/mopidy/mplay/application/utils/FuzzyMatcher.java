@@ -0,0 +1,226 @@
+/*
+ *  Copyright (C) 2022 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://gitlab.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.mopidy.mplay.application.utils;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Fuzzy matcher used to verify and rank names returned by the artwork providers.
+ * <p>
+ * The edit distance is only computed up to the distance that the threshold allows. Only a band
+ * of the DP matrix around the diagonal is evaluated and the computation stops as soon as a
+ * row exceeds the limit. The row buffers are reused between calls, so one instance must only
+ * be used by one thread. {@link #getInstance()} returns an instance for the calling thread.
+ */
+public class FuzzyMatcher {
+
+    /**
+     * Score of a candidate that does not match.
+     */
+    public static final float NO_MATCH = -1.0f;
+
+    /**
+     * Global threshold for the normalized edit distance.
+     */
+    private static final float COMPARE_THRESHOLD = 0.20f;
+
+    /**
+     * Highest score of a candidate that was only matched because one name contains the other.
+     * Always lower than the score of a candidate matched by the edit distance.
+     */
+    private static final float CONTAINS_SCORE = 0.5f;
+
+    private static final ThreadLocal<FuzzyMatcher> sInstance = new ThreadLocal<FuzzyMatcher>() {
+        @Override
+        protected FuzzyMatcher initialValue() {
+            return new FuzzyMatcher(COMPARE_THRESHOLD);
+        }
+    };
+
+    private final float mThreshold;
+
+    private int[] mPreviousRow = new int[32];
+
+    private int[] mCurrentRow = new int[32];
+
+    public FuzzyMatcher(final float threshold) {
+        mThreshold = threshold;
+    }
+
+    /**
+     * @return Matcher with the default threshold for the calling thread.
+     */
+    public static FuzzyMatcher getInstance() {
+        return sInstance.get();
+    }
+
+    /**
+     * Normalizes a name for matching: lower case, no diacritics and punctuation reduced to
+     * single spaces. Names that consist only of punctuation are kept as lower case.
+     *
+     * @param value Name to normalize, can be null.
+     * @return The normalized name, never null.
+     */
+    public static String normalize(final String value) {
+        final String normalized = StringCompareUtils.normalize(value);
+        if (normalized.isEmpty() && value != null) {
+            return value.trim().toLowerCase(Locale.ROOT);
+        }
+        return normalized;
+    }
+
+    /**
+     * Rates a candidate against the expected name. Both values must be normalized with
+     * {@link #normalize(String)}.
+     * <p>
+     * A candidate matches if the normalized edit distance is below the threshold or if one
+     * name contains the other one.
+     *
+     * @param expected The expected name.
+     * @param actual   The name of the candidate.
+     * @return Score between 0 and 1, higher is better, or {@link #NO_MATCH}.
+     */
+    public float score(final String expected, final String actual) {
+        if (expected.equals(actual)) {
+            return 1.0f;
+        }
+
+        final int maxLength = Math.max(expected.length(), actual.length());
+        // distance / maxLength < threshold
+        final int maxDistance = (int) Math.ceil(mThreshold * maxLength) - 1;
+        if (maxDistance > 0) {
+            final int distance = distance(expected, actual, maxDistance);
+            if (distance <= maxDistance) {
+                return 1.0f - (float) distance / maxLength;
+            }
+        }
+
+        if (actual.contains(expected) || expected.contains(actual)) {
+            final int minLength = Math.min(expected.length(), actual.length());
+            return CONTAINS_SCORE * minLength / maxLength;
+        }
+        return NO_MATCH;
+    }
+
+    /**
+     * @return True if the candidate matches the expected value. Both values must be normalized.
+     */
+    public boolean matches(final String expected, final String actual) {
+        return score(expected, actual) != NO_MATCH;
+    }
+
+    /**
+     * Levenshtein distance of the two strings, limited to maxDistance.
+     *
+     * @return The distance or maxDistance + 1 if the distance is larger than maxDistance.
+     */
+    public int distance(String first, String second, final int maxDistance) {
+        if (first.length() > second.length()) {
+            final String swap = first;
+            first = second;
+            second = swap;
+        }
+
+        final int n = first.length();
+        final int m = second.length();
+        if (m - n > maxDistance) {
+            return maxDistance + 1;
+        }
+        if (n == 0) {
+            return m;
+        }
+
+        if (mPreviousRow.length < n + 1) {
+            mPreviousRow = new int[n + 1];
+            mCurrentRow = new int[n + 1];
+        }
+        int[] previous = mPreviousRow;
+        int[] current = mCurrentRow;
+
+        final int boundary = Math.min(n, maxDistance) + 1;
+        for (int i = 0; i < boundary; i++) {
+            previous[i] = i;
+        }
+        Arrays.fill(previous, boundary, n + 1, Integer.MAX_VALUE);
+        Arrays.fill(current, 0, n + 1, Integer.MAX_VALUE);
+
+        for (int j = 1; j <= m; j++) {
+            final char secondChar = second.charAt(j - 1);
+            current[0] = j;
+
+            // Only the band of width 2 * maxDistance + 1 around the diagonal can be in range
+            final int min = Math.max(1, j - maxDistance);
+            final int max = Math.min(n, j + maxDistance);
+            if (min > 1) {
+                current[min - 1] = Integer.MAX_VALUE;
+            }
+
+            int rowMinimum = Integer.MAX_VALUE;
+            for (int i = min; i <= max; i++) {
+                if (first.charAt(i - 1) == secondChar) {
+                    current[i] = previous[i - 1];
+                } else {
+                    current[i] = 1 + Math.min(Math.min(current[i - 1], previous[i]), previous[i - 1]);
+                }
+                rowMinimum = Math.min(rowMinimum, current[i]);
+            }
+
+            if (rowMinimum > maxDistance) {
+                return maxDistance + 1;
+            }
+
+            final int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        return previous[n] <= maxDistance ? previous[n] : maxDistance + 1;
+    }
+
+    /**
+     * Orders the matching candidates by their score.
+     *
+     * @param scores Scores of the candidates as returned by {@link #score(String, String)}.
+     * @return Indices of all matching candidates, best first. Candidates with the same score
+     * keep their original order.
+     */
+    public static int[] rank(final float[] scores) {
+        int count = 0;
+        final Integer[] order = new Integer[scores.length];
+        for (int i = 0; i < scores.length; i++) {
+            if (scores[i] != NO_MATCH) {
+                order[count++] = i;
+            }
+        }
+
+        final Integer[] matches = Arrays.copyOf(order, count);
+        Arrays.sort(matches, (first, second) -> Float.compare(scores[second], scores[first]));
+
+        final int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = matches[i];
+        }
+        return result;
+    }
+}
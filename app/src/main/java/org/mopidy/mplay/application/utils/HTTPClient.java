@@ -0,0 +1,110 @@
+/*
+ *  Copyright (C) 2022 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://gitlab.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.mopidy.mplay.application.utils;
+
+import android.content.Context;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+
+/**
+ * Shared HTTP client of the app. All HTTP requests (artwork providers, server probes, local
+ * playback) use this client, so they share one pool of keep-alive connections, one response
+ * cache and the same timeouts.
+ * <p>
+ * The client negotiates HTTP/2 with servers that support it, requests gzip compressed responses
+ * and revalidates cached responses with ETag/If-Modified-Since, so an unchanged image costs a
+ * 304 response instead of a download.
+ */
+public final class HTTPClient {
+
+    private static final long CONNECT_TIMEOUT = 10;
+
+    private static final long READ_TIMEOUT = 20;
+
+    /**
+     * Idle connections are kept for 5 minutes, which covers the time between two bulk requests
+     * to the same host.
+     */
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+
+    private static final long KEEP_ALIVE_DURATION = 5;
+
+    /**
+     * 20MB disk cache for HTTP responses
+     */
+    private static final long CACHE_SIZE = 20 * 1024 * 1024;
+
+    private static final String CACHE_DIRECTORY = "http";
+
+    private static OkHttpClient sClient;
+
+    private static OkHttpClient sUncachedClient;
+
+    private HTTPClient() {
+    }
+
+    /**
+     * Creates the shared client with its response cache. Must be called once when the application starts.
+     */
+    public static synchronized void init(final Context context) {
+        if (sClient == null) {
+            sClient = createBuilder()
+                    .cache(new Cache(new File(context.getApplicationContext().getCacheDir(), CACHE_DIRECTORY), CACHE_SIZE))
+                    .build();
+        }
+    }
+
+    /**
+     * @return The shared client.
+     */
+    public static synchronized OkHttpClient getInstance() {
+        if (sClient == null) {
+            // Without a context no cache directory is known
+            sClient = createBuilder().build();
+        }
+        return sClient;
+    }
+
+    /**
+     * @return A client sharing the connections of {@link #getInstance()} that does not cache
+     * responses, for streams that would only evict the cached images.
+     */
+    public static synchronized OkHttpClient getUncachedInstance() {
+        if (sUncachedClient == null) {
+            sUncachedClient = getInstance().newBuilder().cache(null).build();
+        }
+        return sUncachedClient;
+    }
+
+    private static OkHttpClient.Builder createBuilder() {
+        return new OkHttpClient.Builder()
+                .connectTimeout(CONNECT_TIMEOUT, TimeUnit.SECONDS)
+                .readTimeout(READ_TIMEOUT, TimeUnit.SECONDS)
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_DURATION, TimeUnit.MINUTES));
+    }
+}
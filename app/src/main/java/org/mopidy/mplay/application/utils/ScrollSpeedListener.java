@@ -57,10 +57,7 @@ public class ScrollSpeedListener implements AbsListView.OnScrollListener {
         if (scrollState == AbsListView.OnScrollListener.SCROLL_STATE_IDLE) {
             mScrollSpeed = 0;
             mAdapter.setScrollSpeed(0);
-            for (int i = 0; i <= view.getLastVisiblePosition() - view.getFirstVisiblePosition(); i++) {
-                AbsImageListViewItem listItem = (AbsImageListViewItem) view.getChildAt(i);
-                listItem.startCoverImageTask();
-            }
+            loadVisibleImages(view);
         }
     }
 
@@ -78,6 +75,7 @@ public class ScrollSpeedListener implements AbsListView.OnScrollListener {
         // New row started if this is true.
         if (firstVisibleItem != mLastFirstVisibleItem) {
             long currentTime = System.currentTimeMillis();
+            int direction = firstVisibleItem > mLastFirstVisibleItem ? 1 : -1;
 
             // Calculate the duration of scroll per line
             long timeScrollPerRow = currentTime - mLastTime;
@@ -105,12 +103,35 @@ public class ScrollSpeedListener implements AbsListView.OnScrollListener {
             // Start the items image loader task only if scroll speed is slow enough:
             // The devices is able to render the images needed for the scroll speed
             if (mScrollSpeed < imageLoadingRate) {
-                for (int i = 0; i < visibleItemCount; i++) {
-                    AbsImageListViewItem listItem = (AbsImageListViewItem) view.getChildAt(i);
-                    listItem.startCoverImageTask();
-                }
+                loadVisibleImages(view);
+            } else {
+                prefetchImages(view, direction, mScrollSpeed);
             }
         }
 
     }
+
+    /**
+     * Called when the view is scrolled slow enough to load the images of the visible items.
+     * Starts the image task of every visible item.
+     *
+     * @param view View whose visible items need their images.
+     */
+    protected void loadVisibleImages(AbsListView view) {
+        for (int i = 0; i < view.getChildCount(); i++) {
+            AbsImageListViewItem listItem = (AbsImageListViewItem) view.getChildAt(i);
+            listItem.startCoverImageTask();
+        }
+    }
+
+    /**
+     * Called when the view is scrolled too fast to load the images of the visible items.
+     * Can be used to prepare the images of the items that will become visible next.
+     *
+     * @param view        View that is being scrolled.
+     * @param direction   1 if the view scrolls towards the end, -1 towards the start.
+     * @param scrollSpeed Scroll speed in items per second.
+     */
+    protected void prefetchImages(AbsListView view, int direction, int scrollSpeed) {
+    }
 }
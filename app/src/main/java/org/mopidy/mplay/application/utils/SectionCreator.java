@@ -22,86 +22,223 @@
 
 package org.mopidy.mplay.application.utils;
 
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import org.mopidy.mplay.mpdservice.mpdprotocol.MPDSortHelper;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDGenericItem;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.text.Normalizer;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the fast scroll sections of a sorted list on a background thread.
+ * <p/>
+ * Items are put in buckets similar to ICU's AlphabeticIndex: latin letters without their
+ * diacritics, letters of other alphabets by their upper case form, Hangul by the initial
+ * consonant, Kana by their Hiragana form, ideographs in one overflow bucket and numbers and
+ * symbols in a "#" bucket. The result is kept as primitive arrays and replaced in one step on the
+ * main thread, so reading the sections never needs a lock.
+ */
 public class SectionCreator<T extends MPDGenericItem> {
 
     public interface SectionChooser<T> {
-        char getSectionName(T model);
+        /**
+         * @return The text whose first letter decides the section of the model.
+         */
+        String getSectionText(T model);
     }
 
-    private final SectionChooser<T> mSectionChooser;
+    public interface SectionsCreatedCallback {
+        void onSectionsCreated();
+    }
 
-    private final List<String> mSectionList;
+    private static final int BUCKET_NUMBERS = '#';
 
-    private final List<Integer> mSectionPositions;
+    private static final int BUCKET_OVERFLOW = '\u2026';
 
-    private final Map<Character, Integer> mPositionSectionMap;
+    /**
+     * Hangul compatibility jamo for the 19 initial consonants of a syllable.
+     */
+    private static final char[] HANGUL_INITIALS = {
+            '\u3131', '\u3132', '\u3134', '\u3137', '\u3138', '\u3139', '\u3141', '\u3142', '\u3143', '\u3145',
+            '\u3146', '\u3147', '\u3148', '\u3149', '\u314A', '\u314B', '\u314C', '\u314D', '\u314E'};
 
-    public SectionCreator(final SectionChooser<T> sectionChooser) {
-        mSectionList = new ArrayList<>();
-        mSectionPositions = new ArrayList<>();
-        mPositionSectionMap = new HashMap<>();
-        mSectionChooser = sectionChooser;
-    }
+    /**
+     * Check for a newer request every this many items.
+     */
+    private static final int CANCEL_CHECK_INTERVAL = 1024;
 
-    public void createSections(final List<T> modelData) {
-        clearSections();
+    private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor();
 
-        final int count = modelData.size();
+    private final SectionChooser<T> mSectionChooser;
 
-        if (count > 0) {
-            T currentModel = modelData.get(0);
+    private final Handler mHandler;
 
-            char lastSection = mSectionChooser.getSectionName(currentModel);
+    private final AtomicInteger mGeneration;
 
-            mSectionList.add(String.valueOf(lastSection));
-            mSectionPositions.add(0);
-            mPositionSectionMap.put(lastSection, mSectionList.size() - 1);
+    private volatile Sections mSections;
 
-            for (int i = 1; i < count; i++) {
-                currentModel = modelData.get(i);
+    /**
+     * Immutable result. mPositions holds the ascending start position of every section.
+     */
+    private static final class Sections {
+        static final Sections EMPTY = new Sections(new String[0], new int[0]);
 
-                final char currentSection = mSectionChooser.getSectionName(currentModel);
+        final String[] mLabels;
 
-                if (lastSection != currentSection) {
-                    mSectionList.add("" + currentSection);
+        final int[] mPositions;
 
-                    lastSection = currentSection;
-                    mSectionPositions.add(i);
-                    mPositionSectionMap.put(currentSection, mSectionList.size() - 1);
-                }
+        Sections(String[] labels, int[] positions) {
+            mLabels = labels;
+            mPositions = positions;
+        }
+    }
+
+    public SectionCreator(final SectionChooser<T> sectionChooser) {
+        mSectionChooser = sectionChooser;
+        mHandler = new Handler(Looper.getMainLooper());
+        mGeneration = new AtomicInteger();
+        mSections = Sections.EMPTY;
+    }
 
+    /**
+     * Starts creating the sections for the given list. Only the copy of the list is done by the
+     * calling thread, so a lock protecting the list has to be held for this call only.
+     * A newer call or {@link #clearSections()} cancels the previous one.
+     *
+     * @param modelData Sorted model data
+     * @param callback  Called on the main thread after the new sections were published
+     */
+    public void createSections(@NonNull final List<T> modelData, @NonNull final SectionsCreatedCallback callback) {
+        final Object[] items = modelData.toArray();
+        final int generation = mGeneration.incrementAndGet();
+
+        sExecutor.execute(() -> {
+            final Sections sections = buildSections(items, generation);
+            if (sections == null) {
+                return;
             }
-        }
+            mHandler.post(() -> {
+                if (generation == mGeneration.get()) {
+                    mSections = sections;
+                    callback.onSectionsCreated();
+                }
+            });
+        });
     }
 
     public int getPositionForIndex(final int sectionIndex) {
-        return mSectionPositions.get(sectionIndex);
+        final int[] positions = mSections.mPositions;
+        if (positions.length == 0) {
+            return 0;
+        }
+        return positions[Math.max(0, Math.min(sectionIndex, positions.length - 1))];
     }
 
-    public int getSectionPositionForModel(final T model) {
-        final char section = mSectionChooser.getSectionName(model);
-
-        if (mPositionSectionMap.containsKey(section)) {
-            return mPositionSectionMap.get(section);
-        } else {
+    /**
+     * @param position Position within the list
+     * @return Index of the section containing the position
+     */
+    public int getSectionForPosition(final int position) {
+        final int[] positions = mSections.mPositions;
+        if (positions.length == 0) {
             return 0;
         }
+        final int index = Arrays.binarySearch(positions, position);
+        // Not a section start: the section is the one before the insertion point
+        return index >= 0 ? index : Math.max(0, -index - 2);
     }
 
-    public List<String> getSectionList() {
-        return mSectionList;
+    public String[] getSectionList() {
+        return mSections.mLabels;
     }
 
     public void clearSections() {
-        mSectionList.clear();
-        mSectionPositions.clear();
-        mPositionSectionMap.clear();
+        mGeneration.incrementAndGet();
+        mSections = Sections.EMPTY;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Sections buildSections(final Object[] items, final int generation) {
+        final boolean stripArticles = (MPDSortHelper.getFlags() & MPDSortHelper.FLAG_STRIP_ARTICLES) != 0;
+
+        String[] labels = new String[32];
+        int[] positions = new int[32];
+        int count = 0;
+        int lastBucket = -1;
+
+        for (int i = 0; i < items.length; i++) {
+            if (i % CANCEL_CHECK_INTERVAL == 0 && generation != mGeneration.get()) {
+                return null;
+            }
+
+            String text = mSectionChooser.getSectionText((T) items[i]);
+            if (stripArticles && text != null) {
+                text = MPDSortHelper.stripArticle(text);
+            }
+            final int bucket = getBucket(text);
+            if (bucket != lastBucket) {
+                if (count == positions.length) {
+                    labels = Arrays.copyOf(labels, count * 2);
+                    positions = Arrays.copyOf(positions, count * 2);
+                }
+                labels[count] = new String(Character.toChars(bucket));
+                positions[count] = i;
+                count++;
+                lastBucket = bucket;
+            }
+        }
+
+        return new Sections(Arrays.copyOf(labels, count), Arrays.copyOf(positions, count));
+    }
+
+    /**
+     * Returns the code point of the section label for the given text.
+     */
+    static int getBucket(final String text) {
+        if (text == null) {
+            return BUCKET_NUMBERS;
+        }
+
+        // Skip leading punctuation like quotes or brackets
+        int codePoint = -1;
+        for (int i = 0; i < text.length(); i += Character.charCount(codePoint)) {
+            codePoint = text.codePointAt(i);
+            if (Character.isLetterOrDigit(codePoint)) {
+                break;
+            }
+            codePoint = -1;
+        }
+
+        if (codePoint < 0 || Character.isDigit(codePoint)) {
+            return BUCKET_NUMBERS;
+        }
+        if (codePoint < 0x80) {
+            return Character.toUpperCase(codePoint);
+        }
+        if (codePoint >= 0xAC00 && codePoint <= 0xD7A3) {
+            return HANGUL_INITIALS[(codePoint - 0xAC00) / 588];
+        }
+        if (codePoint >= 0x30A1 && codePoint <= 0x30F6) {
+            // Katakana to Hiragana
+            return codePoint - 0x60;
+        }
+        if (codePoint >= 0x3041 && codePoint <= 0x3096) {
+            return codePoint;
+        }
+        if (Character.isIdeographic(codePoint)) {
+            return BUCKET_OVERFLOW;
+        }
+
+        // Remove diacritics (e.g. an accented E is put in the E bucket)
+        final String decomposed = Normalizer.normalize(new String(Character.toChars(codePoint)), Normalizer.Form.NFD);
+        return Character.toUpperCase(decomposed.codePointAt(0));
     }
 }
@@ -22,7 +22,9 @@
 
 package org.mopidy.mplay.application.utils;
 
-import info.debatty.java.stringsimilarity.NormalizedLevenshtein;
+import androidx.annotation.NonNull;
+
+import java.text.Normalizer;
 
 /**
  * Utils class which holds several static methods for string comparison tasks.
@@ -30,28 +32,38 @@ import info.debatty.java.stringsimilarity.NormalizedLevenshtein;
 public class StringCompareUtils {
 
     /**
-     * Global threshold for string comparison.
-     */
-    private static final double COMPARE_THRESHOLD = 0.20;
-
-    /**
-     * Method to compare to strings using normalized levenshtein distance.
-     * <p>
-     * If the COMPARE_THRESHOLD is violated a simple contains check will be applied.
+     * Lower cases the value, strips diacritics and replaces everything that is not a letter or
+     * digit by a single space. Used as common form for filtering, searching and matching names.
      *
-     * @param expected The expected string.
-     * @param actual   The actual string.
-     * @return True if the comparison succeed otherwise false.
+     * @param value Value to normalize, can be null.
+     * @return Normalized value without leading or trailing spaces.
      */
-    public static boolean compareStrings(final String expected, final String actual) {
-        final NormalizedLevenshtein comparator = new NormalizedLevenshtein();
+    @NonNull
+    public static String normalize(final String value) {
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
 
-        double distance = comparator.distance(expected, actual);
+        boolean ascii = true;
+        for (int i = 0; i < value.length() && ascii; i++) {
+            ascii = value.charAt(i) < 0x80;
+        }
+        final String decomposed = ascii ? value : Normalizer.normalize(value, Normalizer.Form.NFD);
 
-        if (distance < COMPARE_THRESHOLD) {
-            return true;
-        } else {
-            return actual.toLowerCase().contains(expected.toLowerCase()) || expected.toLowerCase().contains(actual.toLowerCase());
+        final StringBuilder builder = new StringBuilder(decomposed.length());
+        boolean separator = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            final char c = decomposed.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (separator && builder.length() > 0) {
+                    builder.append(' ');
+                }
+                separator = false;
+                builder.append(Character.toLowerCase(c));
+            } else if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                separator = true;
+            }
         }
+        return builder.toString();
     }
 }
\ No newline at end of file
@@ -0,0 +1,412 @@
+/*
+ *  Copyright (C) 2022 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://gitlab.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.mopidy.mplay.application.utils;
+
+import android.graphics.Bitmap;
+import android.view.View;
+import android.widget.AbsListView;
+import android.widget.Adapter;
+
+import org.mopidy.mplay.application.adapters.ScrollSpeedAdapter;
+import org.mopidy.mplay.application.artwork.ArtworkManager;
+import org.mopidy.mplay.application.artwork.BitmapCache;
+import org.mopidy.mplay.application.listviewitems.AbsImageListViewItem;
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDArtist;
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDGenericItem;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * Loads the images of all visible album and artist items of a list at once, instead of starting
+ * one {@link AsyncLoader} per item. The images of the visible items and of a margin around them
+ * are looked up in the artwork database with one batch query. They are decoded on a small thread
+ * pool, visible items first, and handed to the item views by position.
+ * <p>
+ * While the list scrolls too fast to load the visible items, the images of the items that are
+ * about to appear in the direction of travel are decoded into the {@link BitmapCache} instead.
+ * The lookahead grows with the scroll speed and the measured image load time. Work for items
+ * that left the wanted range, e.g. because the scroll direction changed, is skipped.
+ */
+public class WindowArtworkLoader {
+    private static final String TAG = WindowArtworkLoader.class.getSimpleName();
+
+    /**
+     * Minimum number of items before and after the visible items that are loaded in advance
+     */
+    private static final int MIN_PREFETCH_MARGIN = 8;
+
+    /**
+     * Memory in bytes that prefetched images may use in the {@link BitmapCache}. Kept well below
+     * the cache size, so prefetching does not evict the images of the visible items.
+     */
+    private static final long PREFETCH_MEMORY = Runtime.getRuntime().maxMemory() / 16;
+
+    private final AbsListView mListView;
+
+    private final ArtworkManager mArtworkManager;
+
+    private final int mImageSize;
+
+    /**
+     * Maximum number of items that are loaded beyond the visible ones
+     */
+    private final int mMaxPrefetchItems;
+
+    /**
+     * First (upper 32 bits) and last (lower 32 bits) position whose images are currently wanted.
+     * Queued tasks outside of this range are skipped. Starts as the empty range 0 to -1.
+     */
+    private volatile long mRange = 0xFFFFFFFFL;
+
+    /**
+     * Queued lookup or decode of items, to not queue them twice. Tasks can also be dropped by
+     * the pool, so only unfinished tasks count.
+     */
+    private final IdentityHashMap<MPDGenericItem, Future<?>> mQueuedItems = new IdentityHashMap<>();
+
+    private final Runnable mLoadWindowRunnable = this::loadWindow;
+
+    /**
+     * @param listView  List or grid view whose visible items should show images.
+     * @param imageSize Size of the item images in pixels.
+     */
+    public WindowArtworkLoader(AbsListView listView, int imageSize) {
+        mListView = listView;
+        mArtworkManager = ArtworkManager.getInstance(listView.getContext().getApplicationContext());
+        mImageSize = imageSize;
+        mMaxPrefetchItems = (int) Math.max(MIN_PREFETCH_MARGIN, PREFETCH_MEMORY / ((long) Math.max(imageSize, 1) * Math.max(imageSize, 1) * 4));
+    }
+
+    /**
+     * Creates a {@link ScrollSpeedListener} that loads the window of this loader, when scrolling
+     * is slow enough, instead of starting the image tasks of the single items. During faster
+     * scrolling it prefetches the images ahead of the visible items.
+     *
+     * @param adapter Adapter of the list view.
+     * @return Listener to set on the list view.
+     */
+    public ScrollSpeedListener createScrollListener(ScrollSpeedAdapter adapter) {
+        return new ScrollSpeedListener(adapter) {
+            @Override
+            protected void loadVisibleImages(AbsListView view) {
+                loadWindow();
+            }
+
+            @Override
+            protected void prefetchImages(AbsListView view, int direction, int scrollSpeed) {
+                prefetchAhead(direction, scrollSpeed);
+            }
+        };
+    }
+
+    /**
+     * Schedules loading the images of the visible window, e.g. after the adapter bound new items.
+     * Multiple calls before the next frame result in one load.
+     */
+    public void invalidate() {
+        mListView.removeCallbacks(mLoadWindowRunnable);
+        mListView.post(mLoadWindowRunnable);
+    }
+
+    /**
+     * Cancels all pending lookups and decodes.
+     */
+    public void cancel() {
+        mListView.removeCallbacks(mLoadWindowRunnable);
+        setRange(0, -1);
+    }
+
+    /**
+     * Shows the cached images of the visible items and starts loading the missing ones.
+     * Must be called from the GUI thread.
+     */
+    private void loadWindow() {
+        mListView.removeCallbacks(mLoadWindowRunnable);
+
+        final Adapter adapter = mListView.getAdapter();
+        final int first = mListView.getFirstVisiblePosition();
+        final int last = mListView.getLastVisiblePosition();
+        if (adapter == null || first < 0 || last < first) {
+            return;
+        }
+
+        final int margin = Math.min(Math.max(last - first + 1, MIN_PREFETCH_MARGIN), mMaxPrefetchItems / 2);
+        final int start = Math.max(first - margin, 0);
+        final int end = Math.min(last + margin, adapter.getCount() - 1);
+        setRange(start, end);
+
+        final ArrayList<WindowItem> items = new ArrayList<>();
+
+        // Visible items first, then the items that will be scrolled into view next
+        addWindowItems(items, adapter, first, last, true);
+        addWindowItems(items, adapter, last + 1, end, false);
+        addWindowItems(items, adapter, start, first - 1, false);
+
+        queueLookup(items);
+    }
+
+    /**
+     * Warms the cache with the images of the items that will be visible next while the list is
+     * scrolled too fast to load the visible images. Must be called from the GUI thread.
+     *
+     * @param direction   1 if the list scrolls towards the end, -1 towards the start.
+     * @param scrollSpeed Scroll speed in items per second.
+     */
+    private void prefetchAhead(int direction, int scrollSpeed) {
+        final Adapter adapter = mListView.getAdapter();
+        final int first = mListView.getFirstVisiblePosition();
+        final int last = mListView.getLastVisiblePosition();
+        if (adapter == null || first < 0 || last < first || direction == 0) {
+            return;
+        }
+
+        final int visibleCount = last - first + 1;
+        final long loadTime = adapter instanceof ScrollSpeedAdapter ? ((ScrollSpeedAdapter) adapter).getAverageImageLoadTime() : 1;
+
+        // Items that pass the screen until a queued image is decoded would be loaded too late
+        final long speed = Math.min(scrollSpeed, adapter.getCount());
+        final int skip = (int) Math.min(speed * loadTime / 1000, adapter.getCount());
+
+        // Look further ahead the faster the list moves compared to the decoding of one screen
+        final long screenLoadTime = loadTime * visibleCount / AppExecutors.getThreadCount(AppExecutors.Pool.DECODE);
+        final int lookahead = (int) Math.min(visibleCount + speed * screenLoadTime / 1000, mMaxPrefetchItems);
+
+        final ArrayList<WindowItem> items = new ArrayList<>();
+        if (direction > 0) {
+            final int start = last + 1 + skip;
+            final int end = Math.min(start + lookahead - 1, adapter.getCount() - 1);
+            setRange(start, end);
+            addWindowItems(items, adapter, start, end, false);
+        } else {
+            final int end = first - 1 - skip;
+            final int start = Math.max(end - lookahead + 1, 0);
+            setRange(start, end);
+            // Nearest items first
+            for (int position = end; position >= start; position--) {
+                addWindowItems(items, adapter, position, position, false);
+            }
+        }
+
+        queueLookup(items);
+    }
+
+    private void setRange(int start, int end) {
+        mRange = ((long) start << 32) | (end & 0xFFFFFFFFL);
+    }
+
+    private boolean isWanted(int position) {
+        final long range = mRange;
+        return position >= (int) (range >> 32) && position <= (int) range;
+    }
+
+    private void addWindowItems(List<WindowItem> items, Adapter adapter, int start, int end, boolean visible) {
+        for (int position = start; position <= end; position++) {
+            final Object modelItem = adapter.getItem(position);
+            final Bitmap image;
+
+            if (modelItem instanceof MPDAlbum) {
+                image = BitmapCache.getInstance().requestAlbumBitmap((MPDAlbum) modelItem, mImageSize, mImageSize);
+            } else if (modelItem instanceof MPDArtist) {
+                image = BitmapCache.getInstance().requestArtistImage((MPDArtist) modelItem, mImageSize, mImageSize);
+            } else {
+                continue;
+            }
+
+            if (image != null) {
+                if (visible) {
+                    publishImage(position, (MPDGenericItem) modelItem, image);
+                }
+                continue;
+            }
+
+            synchronized (mQueuedItems) {
+                final Future<?> task = mQueuedItems.get(modelItem);
+                if (task != null && !task.isDone()) {
+                    // Already on the way
+                    continue;
+                }
+            }
+            items.add(new WindowItem(position, (MPDGenericItem) modelItem, visible));
+        }
+    }
+
+    private void queueLookup(List<WindowItem> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+
+        synchronized (mQueuedItems) {
+            final Future<?> task = AppExecutors.submit(AppExecutors.Pool.DISK_IO, AppExecutors.PRIORITY_HIGH, () -> lookupImages(items));
+            for (WindowItem item : items) {
+                mQueuedItems.put(item.mModelItem, task);
+            }
+        }
+    }
+
+    private void finishItem(WindowItem item) {
+        synchronized (mQueuedItems) {
+            mQueuedItems.remove(item.mModelItem);
+        }
+    }
+
+    /**
+     * Gives up an item that left the wanted range. The range is checked under the same lock that
+     * {@link #addWindowItems} uses, so a window that wants the item again either lets this task
+     * continue or queues the item anew.
+     *
+     * @return True if the item is not wanted anymore and was given up.
+     */
+    private boolean skipUnwanted(WindowItem item) {
+        synchronized (mQueuedItems) {
+            if (isWanted(item.mPosition)) {
+                return false;
+            }
+            mQueuedItems.remove(item.mModelItem);
+            return true;
+        }
+    }
+
+    /**
+     * Looks up the image files of all items with one query per model type and queues the decoding.
+     */
+    private void lookupImages(List<WindowItem> items) {
+        final ArrayList<WindowItem> wantedItems = new ArrayList<>();
+        final ArrayList<MPDAlbum> albums = new ArrayList<>();
+        final ArrayList<MPDArtist> artists = new ArrayList<>();
+        for (WindowItem item : items) {
+            if (!skipUnwanted(item)) {
+                wantedItems.add(item);
+                if (item.mModelItem instanceof MPDAlbum) {
+                    albums.add((MPDAlbum) item.mModelItem);
+                } else {
+                    artists.add((MPDArtist) item.mModelItem);
+                }
+            }
+        }
+
+        final String[] albumImages = albums.isEmpty() ? new String[0] : mArtworkManager.getAlbumImagePaths(albums, mImageSize);
+        final String[] artistImages = artists.isEmpty() ? new String[0] : mArtworkManager.getArtistImagePaths(artists, mImageSize);
+
+        // The decode pool runs the newest task first, so queue the most important items last
+        int albumIndex = albums.size();
+        int artistIndex = artists.size();
+        for (int i = wantedItems.size() - 1; i >= 0; i--) {
+            final WindowItem item = wantedItems.get(i);
+            final String image;
+            if (item.mModelItem instanceof MPDAlbum) {
+                image = albumImages[--albumIndex];
+            } else {
+                image = artistImages[--artistIndex];
+            }
+
+            if (image == null) {
+                // Image is not fetched yet, check if fetching for this item is already ongoing
+                fetchImage(item.mModelItem);
+                finishItem(item);
+            } else if (image.isEmpty()) {
+                finishItem(item);
+            } else {
+                synchronized (mQueuedItems) {
+                    mQueuedItems.put(item.mModelItem, AppExecutors.submit(AppExecutors.Pool.DECODE,
+                            item.mVisible ? AppExecutors.PRIORITY_HIGH : AppExecutors.PRIORITY_NORMAL, () -> decodeImage(item, image)));
+                }
+            }
+        }
+    }
+
+    private void fetchImage(MPDGenericItem modelItem) {
+        if (modelItem instanceof MPDAlbum) {
+            final MPDAlbum album = (MPDAlbum) modelItem;
+            if (!album.getFetching()) {
+                mArtworkManager.fetchImage(album);
+                album.setFetching(true);
+            }
+        } else if (modelItem instanceof MPDArtist) {
+            final MPDArtist artist = (MPDArtist) modelItem;
+            if (!artist.getFetching()) {
+                mArtworkManager.fetchImage(artist);
+                artist.setFetching(true);
+            }
+        }
+    }
+
+    private void decodeImage(WindowItem item, String path) {
+        if (skipUnwanted(item)) {
+            // Scrolled away or mispredicted, skip the work
+            return;
+        }
+
+        final long startTime = System.currentTimeMillis();
+        final Bitmap image;
+        if (item.mModelItem instanceof MPDAlbum) {
+            image = mArtworkManager.decodeImage((MPDAlbum) item.mModelItem, path, mImageSize, mImageSize);
+        } else {
+            image = mArtworkManager.decodeImage((MPDArtist) item.mModelItem, path, mImageSize, mImageSize);
+        }
+        finishItem(item);
+
+        if (image != null) {
+            final long loadTime = System.currentTimeMillis() - startTime;
+            mListView.post(() -> {
+                // Notify the adapter about the time for the scroll speed estimation
+                if (mListView.getAdapter() instanceof ScrollSpeedAdapter) {
+                    ((ScrollSpeedAdapter) mListView.getAdapter()).addImageLoadTime(loadTime);
+                }
+                publishImage(item.mPosition, item.mModelItem, image);
+            });
+        }
+    }
+
+    /**
+     * Sets the image to the view at the given position, if it still shows the given item.
+     */
+    private void publishImage(int position, MPDGenericItem modelItem, Bitmap image) {
+        final int index = position - mListView.getFirstVisiblePosition();
+        if (index < 0 || index >= mListView.getChildCount()) {
+            return;
+        }
+
+        final View view = mListView.getChildAt(index);
+        if (view instanceof AbsImageListViewItem && modelItem.equals(((AbsImageListViewItem) view).getModelItem())) {
+            ((AbsImageListViewItem) view).setImage(image);
+        }
+    }
+
+    private static class WindowItem {
+        final int mPosition;
+
+        final MPDGenericItem mModelItem;
+
+        final boolean mVisible;
+
+        WindowItem(int position, MPDGenericItem modelItem, boolean visible) {
+            mPosition = position;
+            mModelItem = modelItem;
+            mVisible = visible;
+        }
+    }
+}
@@ -34,11 +34,13 @@ import org.mopidy.mplay.R;
 import org.mopidy.mplay.application.utils.PreferenceHelper;
 import org.mopidy.mplay.mpdservice.handlers.responsehandler.MPDResponseAlbumList;
 import org.mopidy.mplay.mpdservice.handlers.serverhandler.MPDQueryHandler;
+import org.mopidy.mplay.mpdservice.mpdprotocol.MPDSessionSnapshot;
+import org.mopidy.mplay.mpdservice.mpdprotocol.MPDSortHelper;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDArtist;
+import org.mopidy.mplay.mpdservice.websocket.WSInterface;
 
 import java.lang.ref.WeakReference;
-import java.util.Collections;
 import java.util.List;
 
 public class AlbumsViewModel extends GenericViewModel<MPDAlbum> {
@@ -78,13 +80,19 @@ public class AlbumsViewModel extends GenericViewModel<MPDAlbum> {
         } else
         if ((null == mArtistName) || mArtistName.isEmpty()) {
             if (null == mAlbumsPath || mAlbumsPath.isEmpty()) {
+                // Show the albums of the last session until the server list is received
+                MPDSessionSnapshot snapshot = MPDSessionSnapshot.getRestored();
+                List<MPDAlbum> restoredAlbums = null != snapshot ? snapshot.getAlbums() : null;
+                if (null != restoredAlbums && !WSInterface.getGenericInstance().isConnected()) {
+                    setData(restoredAlbums);
+                }
                 MPDQueryHandler.getAlbums(mAlbumsResponseHandler);
             } else {
                 MPDQueryHandler.getAlbumsInPath(mAlbumsPath, mAlbumsResponseHandler);
             }
         } else {
             if (!mUseArtistSort) {
-                MPDQueryHandler.getArtistAlbums(mAlbumsResponseHandler, mArtistName);
+                MPDQueryHandler.getArtistAlbumsByName(mAlbumsResponseHandler, mArtistName);
             } else {
                 MPDQueryHandler.getArtistSortAlbums(mAlbumsResponseHandler, mArtistName);
             }
@@ -106,7 +114,7 @@ public class AlbumsViewModel extends GenericViewModel<MPDAlbum> {
             if (albumsViewModel != null) {
                 // If artist albums and sort by year is active, resort the list
                 if (albumsViewModel.mSortOrder == MPDAlbum.MPD_ALBUM_SORT_ORDER.DATE && !((null == albumsViewModel.mArtistName) || albumsViewModel.mArtistName.isEmpty())) {
-                    Collections.sort(albumList, new MPDAlbum.MPDAlbumDateComparator());
+                    MPDSortHelper.sortAlbumsByDate(albumList);
                 }
                 albumsViewModel.setData(albumList);
             }
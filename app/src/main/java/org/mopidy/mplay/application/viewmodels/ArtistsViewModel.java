@@ -30,7 +30,9 @@ import androidx.lifecycle.ViewModelProvider;
 
 import org.mopidy.mplay.mpdservice.handlers.responsehandler.MPDResponseArtistList;
 import org.mopidy.mplay.mpdservice.handlers.serverhandler.MPDQueryHandler;
+import org.mopidy.mplay.mpdservice.mpdprotocol.MPDSessionSnapshot;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDArtist;
+import org.mopidy.mplay.mpdservice.websocket.WSInterface;
 
 import java.lang.ref.WeakReference;
 import java.util.List;
@@ -56,6 +58,12 @@ public class ArtistsViewModel extends GenericViewModel<MPDArtist> {
     void loadData() {
         if (!mUseAlbumArtists) {
             if (!mUseArtistSort) {
+                // Show the artists of the last session until the server list is received
+                MPDSessionSnapshot snapshot = MPDSessionSnapshot.getRestored();
+                List<MPDArtist> restoredArtists = null != snapshot ? snapshot.getArtists() : null;
+                if (null != restoredArtists && !WSInterface.getGenericInstance().isConnected()) {
+                    setData(restoredArtists);
+                }
                 MPDQueryHandler.getArtists(mArtistResponseHandler);
             } else {
                 MPDQueryHandler.getArtistSort(mArtistResponseHandler);
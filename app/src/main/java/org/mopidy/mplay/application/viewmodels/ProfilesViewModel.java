@@ -29,6 +29,7 @@ import androidx.annotation.NonNull;
 import androidx.lifecycle.ViewModel;
 import androidx.lifecycle.ViewModelProvider;
 
+import org.mopidy.mplay.application.utils.AppExecutors;
 import org.mopidy.mplay.mpdservice.profilemanagement.MPDProfileManager;
 import org.mopidy.mplay.mpdservice.profilemanagement.MPDServerProfile;
 
@@ -43,7 +44,7 @@ public class ProfilesViewModel extends GenericViewModel<MPDServerProfile> {
 
     @Override
     void loadData() {
-        new ProfilesLoaderTask(this).execute();
+        new ProfilesLoaderTask(this).executeOnExecutor(AppExecutors.getExecutor(AppExecutors.Pool.DISK_IO, AppExecutors.PRIORITY_HIGH));
     }
 
     private static class ProfilesLoaderTask extends AsyncTask<Void, Void, List<MPDServerProfile>> {
@@ -23,32 +23,79 @@
 package org.mopidy.mplay.application.viewmodels;
 
 import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
 
 import androidx.annotation.NonNull;
 import androidx.lifecycle.ViewModel;
 import androidx.lifecycle.ViewModelProvider;
 
-import org.mopidy.mplay.mpdservice.handlers.responsehandler.MPDResponseFileList;
+import org.mopidy.mplay.mpdservice.handlers.responsehandler.MPDResponseSearchResult;
 import org.mopidy.mplay.mpdservice.handlers.serverhandler.MPDQueryHandler;
 import org.mopidy.mplay.mpdservice.mpdprotocol.MPDCommands;
+import org.mopidy.mplay.mpdservice.mpdprotocol.MPDLibraryIndex;
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDArtist;
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDDirectory;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.TreeMap;
 
 public class SearchResultViewModel extends GenericViewModel<MPDFileEntry> {
 
-    private final MPDResponseFileList pTrackResponseHandler;
+    /**
+     * Time to wait after the last key stroke before a search is sent to the server.
+     */
+    private static final long SEARCH_DELAY_MS = 300;
+
+    /**
+     * Number of complete search results that are kept for instant reuse.
+     */
+    private static final int RESULT_CACHE_SIZE = 16;
+
+    /**
+     * Maximum number of results per type taken from the local library index while typing.
+     */
+    private static final int MAX_LOCAL_RESULTS = 20;
+
+    private final MPDResponseSearchResult pSearchResponseHandler;
+
+    private final Handler mDelayHandler;
+
+    private final Runnable mDelayedSearch = this::startSearch;
+
+    private final LruCache<String, List<MPDFileEntry>> mResultCache;
+
+    /**
+     * Results of the running search per backend index, so that they can be merged in a stable order.
+     */
+    private final TreeMap<Integer, List<MPDFileEntry>> mBackendResults;
+
+    /**
+     * True if a backend of the running search failed. Its merged result is shown but not cached,
+     * so the next search for the term asks the server again.
+     */
+    private boolean mBackendFailed;
 
     private String mSearchString;
 
     private MPDCommands.MPD_SEARCH_TYPE mSearchType;
 
+    private int mSearchId = -1;
+
+    private String mSearchKey;
+
     public SearchResultViewModel(@NonNull final Application application) {
         super(application);
 
-        pTrackResponseHandler = new TrackResponseHandler(this);
+        pSearchResponseHandler = new SearchResponseHandler(this);
+        mDelayHandler = new Handler(Looper.getMainLooper());
+        mResultCache = new LruCache<>(RESULT_CACHE_SIZE);
+        mBackendResults = new TreeMap<>();
     }
 
     public void setSearchOptions(final String searchTerm, final MPDCommands.MPD_SEARCH_TYPE type) {
@@ -56,28 +103,183 @@ public class SearchResultViewModel extends GenericViewModel<MPDFileEntry> {
         mSearchType = type;
     }
 
+    /**
+     * Search as you type. Cached results are shown immediately. Otherwise the ranked matches of
+     * the local library index are shown until the server answers, the search is sent after the
+     * input was idle for {@link #SEARCH_DELAY_MS}. A pending or running search is superseded by
+     * this one.
+     *
+     * @param searchTerm Current text of the search field
+     * @param type       Field to search in
+     */
+    public void search(final String searchTerm, final MPDCommands.MPD_SEARCH_TYPE type) {
+        setSearchOptions(searchTerm, type);
+        mDelayHandler.removeCallbacks(mDelayedSearch);
+
+        if (!hasSearchOptions()) {
+            cancelSearch();
+            setData(new ArrayList<>());
+            return;
+        }
+
+        List<MPDFileEntry> cached = mResultCache.get(getSearchKey());
+        if (cached != null) {
+            cancelSearch();
+            setData(cached);
+        } else {
+            final List<MPDFileEntry> localResults = getLocalResults();
+            if (!localResults.isEmpty()) {
+                // Results of the previous term would replace the local ones
+                cancelSearch();
+                setData(localResults);
+            }
+            mDelayHandler.postDelayed(mDelayedSearch, SEARCH_DELAY_MS);
+        }
+    }
+
+    @Override
+    public void reloadData() {
+        // An explicit reload always asks the server again
+        if (hasSearchOptions()) {
+            mResultCache.remove(getSearchKey());
+        }
+        super.reloadData();
+    }
+
     @Override
     void loadData() {
-        if (mSearchString != null && !mSearchString.isEmpty() && mSearchType != null) {
-            MPDQueryHandler.searchFiles(mSearchString, mSearchType, pTrackResponseHandler);
-        } else {
+        mDelayHandler.removeCallbacks(mDelayedSearch);
+
+        if (!hasSearchOptions()) {
+            cancelSearch();
             setData(new ArrayList<>());
+            return;
+        }
+
+        List<MPDFileEntry> cached = mResultCache.get(getSearchKey());
+        if (cached != null) {
+            cancelSearch();
+            setData(cached);
+        } else {
+            startSearch();
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        mDelayHandler.removeCallbacks(mDelayedSearch);
+        cancelSearch();
+    }
+
+    private boolean hasSearchOptions() {
+        return mSearchString != null && !mSearchString.isEmpty() && mSearchType != null;
+    }
+
+    private String getSearchKey() {
+        return mSearchType.ordinal() + ":" + mSearchString;
+    }
+
+    /**
+     * Type-ahead results from the lists that are already cached locally, in the order of the
+     * server results (albums, artists, tracks). Tracks are taken from the tracklist.
+     */
+    private List<MPDFileEntry> getLocalResults() {
+        final MPDLibraryIndex index = MPDLibraryIndex.getInstance();
+        final List<MPDFileEntry> results = new ArrayList<>();
+
+        if (mSearchType == MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_ALBUM || mSearchType == MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_ANY) {
+            for (MPDAlbum album : index.searchAlbums(mSearchString, MAX_LOCAL_RESULTS)) {
+                MPDDirectory dir = new MPDDirectory(album.getURI() == null ? "" : album.getURI());
+                dir.setName(album.getName());
+                dir.setURI(album.getURI());
+                dir.setArtwork(album.hasArtwork() ? album.getRawArtwork() : "");
+                dir.setType("album");
+                results.add(dir);
+            }
+        }
+        if (mSearchType == MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_ARTIST || mSearchType == MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_ANY) {
+            for (MPDArtist artist : index.searchArtists(mSearchString, MAX_LOCAL_RESULTS)) {
+                MPDDirectory dir = new MPDDirectory(artist.getURI() == null ? "" : artist.getURI());
+                dir.setName(artist.getArtistName());
+                dir.setURI(artist.getURI());
+                dir.setArtwork(artist.getRawArtwork());
+                results.add(dir);
+            }
+        }
+        if (mSearchType == MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_TRACK || mSearchType == MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_ANY) {
+            results.addAll(index.searchTracks(mSearchString, MAX_LOCAL_RESULTS));
+        }
+        return results;
+    }
+
+    private void startSearch() {
+        if (!hasSearchOptions()) {
+            return;
+        }
+        mBackendResults.clear();
+        mBackendFailed = false;
+        mSearchKey = getSearchKey();
+        mSearchId = MPDQueryHandler.searchFilesPerBackend(mSearchString, mSearchType, pSearchResponseHandler);
+    }
+
+    private void cancelSearch() {
+        if (mSearchId != -1) {
+            MPDQueryHandler.cancelSearches();
+            mSearchId = -1;
+        }
+        mBackendResults.clear();
+        mBackendFailed = false;
+    }
+
+    private void onSearchResult(final int searchId, final int backendIndex, final List<MPDFileEntry> results,
+                                final boolean failed, final boolean complete) {
+        if (searchId != mSearchId) {
+            // Result of a superseded search
+            return;
+        }
+
+        if (failed) {
+            mBackendFailed = true;
+        } else {
+            mBackendResults.put(backendIndex, results);
+        }
+
+        // Empty partial results would only clear the list shortly
+        if (results.isEmpty() && !complete) {
+            return;
+        }
+
+        List<MPDFileEntry> merged = new ArrayList<>();
+        for (List<MPDFileEntry> backendResults : mBackendResults.values()) {
+            merged.addAll(backendResults);
+        }
+        setData(merged);
+
+        if (complete) {
+            if (!mBackendFailed) {
+                mResultCache.put(mSearchKey, merged);
+            }
+            mSearchId = -1;
+            mBackendResults.clear();
+            mBackendFailed = false;
         }
     }
 
-    private static class TrackResponseHandler extends MPDResponseFileList {
+    private static class SearchResponseHandler extends MPDResponseSearchResult {
         private final WeakReference<SearchResultViewModel> mSearchResultViewModel;
 
-        private TrackResponseHandler(final SearchResultViewModel searchResultViewModel) {
+        private SearchResponseHandler(final SearchResultViewModel searchResultViewModel) {
             mSearchResultViewModel = new WeakReference<>(searchResultViewModel);
         }
 
         @Override
-        public void handleTracks(final List<MPDFileEntry> trackList, final int start, final int end) {
+        public void handleSearchResult(final int searchId, final int backendIndex, final List<MPDFileEntry> results,
+                                       final boolean failed, final boolean complete) {
             SearchResultViewModel searchResultViewModel = mSearchResultViewModel.get();
 
             if (searchResultViewModel != null) {
-                searchResultViewModel.setData(trackList);
+                searchResultViewModel.onSearchResult(searchId, backendIndex, results, failed, complete);
             }
         }
     }
@@ -101,4 +101,18 @@ public class CurrentPlaylistView extends LinearLayout implements AdapterView.OnI
         mPlaylistAdapter.jumpToCurrent();
     }
 
+    /**
+     * Moves the list to the given playlist position. Not animated.
+     */
+    public void jumpToPosition(int position) {
+        mPlaylistAdapter.jumpToPosition(position);
+    }
+
+    /**
+     * Searches the playlist for tracks matching the term.
+     */
+    public void findTracks(String term, CurrentPlaylistAdapter.FindTracksCallback callback) {
+        mPlaylistAdapter.findTracks(term, callback);
+    }
+
 }
@@ -43,6 +43,7 @@ import android.view.MenuItem;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.widget.ImageButton;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
@@ -66,6 +67,7 @@ import com.bumptech.glide.load.resource.bitmap.BitmapTransformation;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 
 import org.mopidy.mplay.R;
+import org.mopidy.mplay.application.MPlayApplication;
 import org.mopidy.mplay.application.activities.FanartActivity;
 import org.mopidy.mplay.application.artwork.ArtworkManager;
 import org.mopidy.mplay.application.background.BackgroundService;
@@ -93,6 +95,7 @@ import org.mopidy.mplay.mpdservice.websocket.WSInterface;
 
 import java.lang.ref.WeakReference;
 import java.security.MessageDigest;
+import java.util.List;
 import java.util.Locale;
 
 public class NowPlayingView extends RelativeLayout implements PopupMenu.OnMenuItemClickListener, ArtworkManager.onNewAlbumImageListener, ArtworkManager.onNewArtistImageListener,
@@ -247,6 +250,11 @@ public class NowPlayingView extends RelativeLayout implements PopupMenu.OnMenuIt
     private MPDCurrentStatus mLastStatus;
     private MPDTrack mLastTrack;
 
+    /**
+     * Set once the first track was shown, to measure the time to the first meaningful frame
+     */
+    private boolean mFirstTrackShown;
+
     private boolean mUseEnglishWikipedia;
 
     public NowPlayingView(Context context) {
@@ -423,6 +431,15 @@ public class NowPlayingView extends RelativeLayout implements PopupMenu.OnMenuIt
             addURLDialog.show(((AppCompatActivity) getContext()).getSupportFragmentManager(), "AddURLDialog");
         } else if (itemId == R.id.action_jump_to_current) {
             mPlaylistView.jumpToCurrentSong();
+        } else if (itemId == R.id.action_find_in_playlist) {
+            TextDialog findDialog = TextDialog.newInstance(getResources().getString(R.string.dialog_find_in_playlist), "");
+
+            findDialog.setCallback(term -> {
+                if (!term.isEmpty()) {
+                    mPlaylistView.findTracks(term, this::showFoundTracks);
+                }
+            });
+            findDialog.show(((AppCompatActivity) getContext()).getSupportFragmentManager(), "FindInPlaylistDialog");
         } else if (itemId == R.id.action_toggle_single_mode) {
             if (null != mLastStatus) {
                 if (mLastStatus.getSinglePlayback() == 0) {
@@ -1172,6 +1189,9 @@ public class NowPlayingView extends RelativeLayout implements PopupMenu.OnMenuIt
         MPDStateMonitoringHandler.getHandler().registerStatusListener(mStateListener);
         WSInterface.getGenericInstance().addMPDConnectionStateChangeListener(mConnectionStateListener);
 
+        // Show the last known state (e.g. restored from the session snapshot) until the server answers
+        updateMPDStatus(MPDStateMonitoringHandler.getHandler().getLastStatus());
+
         mPlaylistView.onResume();
         ArtworkManager.getInstance(getContext().getApplicationContext()).registerOnNewAlbumImageListener(this);
         ArtworkManager.getInstance(getContext().getApplicationContext()).registerOnNewArtistImageListener(this);
@@ -1357,6 +1377,19 @@ public class NowPlayingView extends RelativeLayout implements PopupMenu.OnMenuIt
         String title = track.getVisibleTitle();
         mTrackName.setText(title);
 
+        if (!mFirstTrackShown && !title.isEmpty()) {
+            mFirstTrackShown = true;
+            final String source = WSInterface.getGenericInstance().isConnected() ? "server" : "snapshot";
+            getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+                @Override
+                public boolean onPreDraw() {
+                    getViewTreeObserver().removeOnPreDrawListener(this);
+                    MPlayApplication.reportFirstMeaningfulFrame(source);
+                    return true;
+                }
+            });
+        }
+
 
         mTrackAdditionalInfo.setText(track.getSubLine(getContext()));
 
@@ -1507,6 +1540,45 @@ public class NowPlayingView extends RelativeLayout implements PopupMenu.OnMenuIt
         }
     }
 
+    /**
+     * Shows the result of a playlist search. A single match is shown directly, otherwise the
+     * user can choose the track to jump to.
+     *
+     * @param tracks Tracks found in the playlist, ordered by position
+     */
+    private void showFoundTracks(List<MPDTrack> tracks) {
+        final MaterialAlertDialogBuilder builder = new MaterialAlertDialogBuilder(getContext());
+        builder.setTitle(R.string.action_find_in_playlist);
+
+        if (tracks.isEmpty()) {
+            builder.setMessage(R.string.dialog_message_find_in_playlist_no_results);
+            builder.setPositiveButton(R.string.dialog_action_ok, (dialog, which) -> {
+            });
+            builder.create().show();
+            return;
+        }
+
+        if (mViewSwitcher.getCurrentView() != mPlaylistView) {
+            setViewSwitcherStatus(NowPlayingDragStatusReceiver.VIEW_SWITCHER_STATUS.PLAYLIST_VIEW);
+        }
+
+        if (tracks.size() == 1) {
+            mPlaylistView.jumpToPosition(tracks.get(0).getSongPosition());
+            return;
+        }
+
+        final String[] labels = new String[tracks.size()];
+        for (int i = 0; i < labels.length; i++) {
+            final MPDTrack track = tracks.get(i);
+            labels[i] = getContext().getString(R.string.find_in_playlist_result_format, track.getSongPosition() + 1,
+                    track.getVisibleTitle(), track.getStringTag(MPDTrack.StringTagTypes.ARTIST));
+        }
+        builder.setItems(labels, (dialog, which) -> mPlaylistView.jumpToPosition(tracks.get(which).getSongPosition()));
+        builder.setNegativeButton(R.string.dialog_action_cancel, (dialog, which) -> {
+        });
+        builder.create().show();
+    }
+
     /**
      * Simple sharing for the current track.
      * <p>
@@ -36,11 +36,14 @@ import org.mopidy.mplay.application.background.BackgroundService;
 import org.mopidy.mplay.mpdservice.handlers.MPDConnectionStateChangeHandler;
 import org.mopidy.mplay.mpdservice.handlers.serverhandler.MPDCommandHandler;
 import org.mopidy.mplay.mpdservice.handlers.serverhandler.MPDStateMonitoringHandler;
+import org.mopidy.mplay.mpdservice.mpdprotocol.MPDCache;
+import org.mopidy.mplay.mpdservice.mpdprotocol.MPDSessionSnapshot;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDCurrentStatus;
 import org.mopidy.mplay.mpdservice.profilemanagement.MPDProfileManager;
 import org.mopidy.mplay.mpdservice.profilemanagement.MPDServerProfile;
 import org.mopidy.mplay.mpdservice.websocket.WSInterface;
 
+import java.io.File;
 import java.util.Timer;
 import java.util.TimerTask;
 
@@ -68,6 +71,11 @@ public class ConnectionManager extends MPDConnectionStateChangeHandler {
 
     private static final int SHORT_RECONNECT_TRIES = 5;
 
+    /**
+     * Directory (below the files directory) for the session snapshots of the profiles
+     */
+    private static final String SNAPSHOT_DIRECTORY = "snapshots";
+
     private String mHostname;
     private String mPassword;
     private int mPort;
@@ -85,6 +93,8 @@ public class ConnectionManager extends MPDConnectionStateChangeHandler {
 
     private int mUseCounter;
 
+    private boolean mSnapshotRestored;
+
     private MPDServerProfile mServerProfile = new MPDServerProfile();
 
     private final Context mApplicationContext;
@@ -133,6 +143,12 @@ public class ConnectionManager extends MPDConnectionStateChangeHandler {
             autoConnect(context);
         }
 
+        // Show the last session of the profile until the connection is established
+        if (!instance.mSnapshotRestored) {
+            instance.mSnapshotRestored = true;
+            instance.restoreSessionSnapshot();
+        }
+
         instance.mDisconnectRequested = false;
 
         MPDCommandHandler.connectToMPDServer();
@@ -195,6 +211,52 @@ public class ConnectionManager extends MPDConnectionStateChangeHandler {
         }
     }
 
+    /**
+     * @return The snapshot file for the currently set server or null if no server is set.
+     */
+    private File getSnapshotFile() {
+        if (null == mHostname || mHostname.isEmpty()) {
+            return null;
+        }
+        String name = mHostname.replaceAll("[^A-Za-z0-9.-]", "_") + '_' + mPort + ".snapshot";
+        return new File(new File(mApplicationContext.getFilesDir(), SNAPSHOT_DIRECTORY), name);
+    }
+
+    private void restoreSessionSnapshot() {
+        File snapshotFile = getSnapshotFile();
+        if (null == snapshotFile || WSInterface.getGenericInstance().isConnected()) {
+            return;
+        }
+
+        MPDSessionSnapshot snapshot = MPDSessionSnapshot.restore(snapshotFile);
+        MPDStateMonitoringHandler.getHandler().restoreSnapshot(snapshot);
+    }
+
+    /**
+     * Saves the current state of the connected server as the session snapshot of its profile.
+     * The data is collected immediately and written in a separate thread.
+     */
+    private void saveSessionSnapshot() {
+        final File snapshotFile = getSnapshotFile();
+        if (null == snapshotFile || !WSInterface.getGenericInstance().isConnected()) {
+            return;
+        }
+
+        MPDCache cache = WSInterface.getGenericInstance().getCache();
+        final MPDSessionSnapshot snapshot = new MPDSessionSnapshot(MPDStateMonitoringHandler.getHandler().getLastStatus(),
+                MPDStateMonitoringHandler.getHandler().getLastTrack(),
+                cache.getTracklistHead(MPDSessionSnapshot.MAX_TRACKS),
+                cache.getAlbums(), cache.getArtists());
+
+        Thread saveThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                snapshot.save(snapshotFile);
+            }
+        });
+        saveThread.start();
+    }
+
     /**
      * Increases the use counter of the {@link ConnectionManager}.
      *
@@ -302,6 +364,9 @@ public class ConnectionManager extends MPDConnectionStateChangeHandler {
                 mApplicationContext.startService(showNotificationIntent);
             }
 
+            // The app left the foreground, keep the current state for the next start
+            saveSessionSnapshot();
+
             //disconnectFromServer();
             mDisconnectTimer = null;
         }
@@ -314,6 +379,7 @@ public class ConnectionManager extends MPDConnectionStateChangeHandler {
         }
         if (mHostname.equals(profile.getHostname()) && mPort == profile.getPort())
             return;
+        saveSessionSnapshot();
         disconnectFromServer();
         setParameters(profile, context);
         reconnectLastServer(context);
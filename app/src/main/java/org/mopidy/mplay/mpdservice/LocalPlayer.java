@@ -27,7 +27,11 @@ import android.os.Handler;
 
 import com.google.android.exoplayer2.ExoPlayer;
 import com.google.android.exoplayer2.MediaItem;
+import com.google.android.exoplayer2.ext.okhttp.OkHttpDataSource;
+import com.google.android.exoplayer2.source.DefaultMediaSourceFactory;
+import com.google.android.exoplayer2.upstream.DefaultDataSource;
 
+import org.mopidy.mplay.application.utils.HTTPClient;
 import org.mopidy.mplay.mpdservice.profilemanagement.MPDProfileManager;
 
 public class LocalPlayer {
@@ -113,7 +117,12 @@ public class LocalPlayer {
     }
 
     public LocalPlayer(Context context) {
-        mPlayer = new ExoPlayer.Builder(context).build();
+        // Streams are not cached, they would only evict the cached images
+        DefaultDataSource.Factory dataSourceFactory = new DefaultDataSource.Factory(context,
+                new OkHttpDataSource.Factory(HTTPClient.getUncachedInstance()));
+        mPlayer = new ExoPlayer.Builder(context)
+                .setMediaSourceFactory(new DefaultMediaSourceFactory(dataSourceFactory))
+                .build();
         mHandler = new Handler();
     }
 
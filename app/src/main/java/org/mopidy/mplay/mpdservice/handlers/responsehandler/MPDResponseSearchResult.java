@@ -0,0 +1,87 @@
+/*
+ *  Copyright (C) 2022 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://gitlab.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.mopidy.mplay.mpdservice.handlers.responsehandler;
+
+
+import android.os.Bundle;
+import android.os.Message;
+
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
+
+import java.util.List;
+
+/**
+ * Response handler for searches that are sent to every backend of the server separately.
+ * The results of each backend are delivered as soon as they arrive.
+ */
+public abstract class MPDResponseSearchResult extends MPDResponseHandler {
+    private static final String EXTRA_SEARCH_ID = "searchid";
+    private static final String EXTRA_BACKEND_INDEX = "backendindex";
+    private static final String EXTRA_FAILED = "failed";
+    private static final String EXTRA_COMPLETE = "complete";
+
+    public MPDResponseSearchResult() {
+
+    }
+
+    /**
+     * Handle function for the search results. This only calls the abstract method
+     * which needs to get implemented by the user of this class.
+     *
+     * @param msg Message object containing a list of MPDFileEntry items.
+     */
+    @Override
+    public void handleMessage(Message msg) {
+        super.handleMessage(msg);
+
+        Bundle args = msg.getData();
+
+        List<MPDFileEntry> results = (List<MPDFileEntry>) msg.obj;
+        handleSearchResult(args.getInt(EXTRA_SEARCH_ID), args.getInt(EXTRA_BACKEND_INDEX), results,
+                args.getBoolean(EXTRA_FAILED), args.getBoolean(EXTRA_COMPLETE));
+    }
+
+    public void sendSearchResult(int searchId, int backendIndex, List<MPDFileEntry> results, boolean failed, boolean complete) {
+        Message responseMessage = this.obtainMessage();
+        responseMessage.obj = results;
+        Bundle data = new Bundle();
+        data.putInt(EXTRA_SEARCH_ID, searchId);
+        data.putInt(EXTRA_BACKEND_INDEX, backendIndex);
+        data.putBoolean(EXTRA_FAILED, failed);
+        data.putBoolean(EXTRA_COMPLETE, complete);
+        responseMessage.setData(data);
+        sendMessage(responseMessage);
+    }
+
+    /**
+     * Abstract method to be implemented by the user of the MPD implementation.
+     * This should be a callback for the UI thread and run in the UI thread.
+     *
+     * @param searchId     Id of the search as returned when it was started
+     * @param backendIndex Index of the backend in the servers list of URI schemes
+     * @param results      Results of this backend, empty if it failed
+     * @param failed       True if the search of this backend failed
+     * @param complete     True if this was the last backend to answer
+     */
+    abstract public void handleSearchResult(int searchId, int backendIndex, List<MPDFileEntry> results, boolean failed, boolean complete);
+}
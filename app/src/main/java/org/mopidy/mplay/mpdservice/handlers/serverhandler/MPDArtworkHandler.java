@@ -32,8 +32,11 @@ import org.mopidy.mplay.mpdservice.handlers.responsehandler.MPDResponseHandler;
 import org.mopidy.mplay.mpdservice.mpdprotocol.MPDException;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
 import org.mopidy.mplay.mpdservice.websocket.WSInterface;
+import org.mopidy.mplay.mpdservice.websocket.types.JSONImage;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 public class MPDArtworkHandler extends MPDGenericHandler {
     private static final String TAG = MPDArtworkHandler.class.getSimpleName();
@@ -49,6 +52,18 @@ public class MPDArtworkHandler extends MPDGenericHandler {
     private static HandlerThread mHandlerThread = null;
     private static MPDArtworkHandler mHandlerSingleton = null;
 
+    /**
+     * Size of the requested images. Matches the resolution the artwork is stored with.
+     */
+    private static final int ARTWORK_SIZE = 500;
+
+    /**
+     * Artwork requests that arrived since the last batch was processed. All requests that are
+     * queued at the same time (e.g. for one screen of albums) share their
+     * core.library.get_images calls.
+     */
+    private final List<MPDHandlerAction> mPendingArtworkActions = new ArrayList<>();
+
     /**
      * Private constructor for use in singleton. Called by the static singleton retrieval method.
      *
@@ -114,42 +129,91 @@ public class MPDArtworkHandler extends MPDGenericHandler {
          *  * Send the message to the ResponseHandler
          */
         MPDHandlerAction.NET_HANDLER_ACTION action = mpdAction.getAction();
-            if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_ALBUM_ART_FOR_TRACK) {
+            if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_ALBUM_ART_FOR_TRACK
+                    || action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_ALBUM_ART_FOR_ALBUM) {
                 responseHandler = mpdAction.getResponseHandler();
                 if (!(responseHandler instanceof MPDResponseAlbumArt)) {
                     return;
                 }
-                String url = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_PATH);
-
-                byte[] imageData = getTrackArtwork(url);
 
-                ((MPDResponseAlbumArt) responseHandler).sendAlbumArtwork(imageData, url);
-            } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_ALBUM_ART_FOR_ALBUM) {
-                responseHandler = mpdAction.getResponseHandler();
-                if (!(responseHandler instanceof MPDResponseAlbumArt)) {
-                    return;
-                }
-                String albumName = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ALBUM_NAME);
-                String albumMBID = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ALBUM_MBID);
-
-                // Get album tracks first
-                List<MPDFileEntry> tracks = null;
-                try {
-                    tracks = WSInterface.getGenericInstance().getAlbumTracks(albumName, albumMBID);
-                } catch (MPDException e) {
-                    Log.e(TAG, "Error fetching tracks for album: " + e.getError());
+                // Process the request after all requests that are already queued
+                mPendingArtworkActions.add(mpdAction);
+                if (mPendingArtworkActions.size() == 1) {
+                    post(this::processPendingArtworkActions);
                 }
+            }
+    }
 
-                byte[] imageData = null;
-                String url = "";
-                if (tracks != null && tracks.size() > 0) {
-                    MPDFileEntry track = tracks.get(0);
-                    url = track.getPath();
-                    imageData = getTrackArtwork(url);
-                }
+    /**
+     * Resolves the images of all pending requests with batched core.library.get_images calls
+     * and downloads the selected images afterwards.
+     * Albums are resolved by their own URI. If the server has no image for it, the first track
+     * of the album is used instead.
+     */
+    private void processPendingArtworkActions() {
+        List<MPDHandlerAction> actions = new ArrayList<>(mPendingArtworkActions);
+        mPendingArtworkActions.clear();
+
+        WSInterface wsInterface = WSInterface.getGenericInstance();
+        String[] urls = new String[actions.size()];
+        List<String> requestURLs = new ArrayList<>();
+        for (int i = 0; i < actions.size(); i++) {
+            MPDHandlerAction mpdAction = actions.get(i);
+            if (mpdAction.getAction() == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_ALBUM_ART_FOR_TRACK) {
+                urls[i] = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_PATH);
+            } else {
+                urls[i] = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ALBUM_URL);
+            }
+            if (urls[i] != null && !urls[i].isEmpty()) {
+                requestURLs.add(urls[i]);
+            }
+        }
+        Map<String, List<JSONImage>> images = wsInterface.getImages(requestURLs);
 
-                ((MPDResponseAlbumArt) responseHandler).sendAlbumArtwork(imageData, url);
+        // Fall back to the first track for albums without their own image
+        requestURLs.clear();
+        for (int i = 0; i < actions.size(); i++) {
+            MPDHandlerAction mpdAction = actions.get(i);
+            if (mpdAction.getAction() != MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_ALBUM_ART_FOR_ALBUM
+                    || hasImages(images, urls[i])) {
+                continue;
             }
+            urls[i] = getFirstTrackURL(mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ALBUM_NAME),
+                    mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ALBUM_MBID));
+            if (!urls[i].isEmpty()) {
+                requestURLs.add(urls[i]);
+            }
+        }
+        if (!requestURLs.isEmpty()) {
+            wsInterface.getImages(requestURLs);
+        }
+
+        for (int i = 0; i < actions.size(); i++) {
+            String url = urls[i] != null ? urls[i] : "";
+            byte[] imageData = getTrackArtwork(url);
+            ((MPDResponseAlbumArt) actions.get(i).getResponseHandler()).sendAlbumArtwork(imageData, url);
+        }
+    }
+
+    private static boolean hasImages(Map<String, List<JSONImage>> images, String url) {
+        if (url == null || url.isEmpty()) {
+            return false;
+        }
+        List<JSONImage> urlImages = images.get(url);
+        return urlImages != null && !urlImages.isEmpty();
+    }
+
+    private String getFirstTrackURL(String albumName, String albumMBID) {
+        List<MPDFileEntry> tracks = null;
+        try {
+            tracks = WSInterface.getGenericInstance().getAlbumTracks(albumName, albumMBID);
+        } catch (MPDException e) {
+            Log.e(TAG, "Error fetching tracks for album: " + e.getError());
+        }
+        if (tracks != null && tracks.size() > 0) {
+            return tracks.get(0).getPath();
+        }
+        return "";
     }
 
 
@@ -173,17 +237,8 @@ public class MPDArtworkHandler extends MPDGenericHandler {
         if (url == null || url.isEmpty()) {
             return null;
         }
-        byte[] imageData = null;
-        try {
-            // Try cover file first, then embedded image.
-            imageData = WSInterface.getGenericInstance().getAlbumArt(url, false);
-            if (imageData == null || imageData.length == 0) {
-                imageData = WSInterface.getGenericInstance().getAlbumArt(url, true);
-            }
-        } catch (MPDException e) {
-            handleMPDError(e);
-        }
-        return imageData;
+        // Mopidy makes no difference between cover files and embedded images
+        return WSInterface.getGenericInstance().getAlbumArt(url, ARTWORK_SIZE);
     }
 
     public static void getAlbumArtworkForTrack(String url, MPDResponseAlbumArt responseHandler) {
@@ -195,11 +250,12 @@ public class MPDArtworkHandler extends MPDGenericHandler {
         sendMsg(action);
     }
 
-    public static void getAlbumArtworkForAlbum(String albumName, String albumMBID, MPDResponseAlbumArt responseHandler) {
+    public static void getAlbumArtworkForAlbum(String albumName, String albumMBID, String albumURL, MPDResponseAlbumArt responseHandler) {
         MPDHandlerAction action = new MPDHandlerAction(MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_ALBUM_ART_FOR_ALBUM);
         action.setResponseHandler(responseHandler);
         action.setStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ALBUM_NAME, albumName);
         action.setStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ALBUM_MBID, albumMBID);
+        action.setStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ALBUM_URL, albumURL);
 
         sendMsg(action);
     }
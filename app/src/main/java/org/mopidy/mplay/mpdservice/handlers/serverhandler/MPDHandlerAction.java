@@ -55,6 +55,7 @@ public class MPDHandlerAction {
         ACTION_GET_SERVER_STATISTICS,
         ACTION_GET_CURRENT_PLAYLIST,
         ACTION_GET_CURRENT_PLAYLIST_WINDOW,
+        ACTION_FIND_IN_CURRENT_PLAYLIST,
         ACTION_GET_SAVED_PLAYLIST,
         ACTION_GET_SAVED_PLAYLISTS,
         ACTION_GET_FILES,
@@ -108,6 +109,7 @@ public class MPDHandlerAction {
         ACTION_DISABLE_OUTPUT,
         ACTION_UPDATE_DATABASE,
         ACTION_SEARCH_FILES,
+        ACTION_SEARCH_FILES_PER_BACKEND,
         ACTION_ADD_SEARCH_FILES,
         ACTION_PLAY_SEARCH_FILES,
         ACTION_LIKE
@@ -152,6 +154,7 @@ public class MPDHandlerAction {
         EXTRA_WINDOW_END,
         EXTRA_OUTPUT_ID,
         EXTRA_SEARCH_TYPE,
+        EXTRA_SEARCH_ID,
         EXTRA_SORT_ORDER,
     }
 
@@ -40,6 +40,7 @@ import org.mopidy.mplay.mpdservice.handlers.responsehandler.MPDResponseArtistLis
 import org.mopidy.mplay.mpdservice.handlers.responsehandler.MPDResponseFileList;
 import org.mopidy.mplay.mpdservice.handlers.responsehandler.MPDResponseHandler;
 import org.mopidy.mplay.mpdservice.handlers.responsehandler.MPDResponseOutputList;
+import org.mopidy.mplay.mpdservice.handlers.responsehandler.MPDResponseSearchResult;
 import org.mopidy.mplay.mpdservice.handlers.responsehandler.MPDResponseServerStatistics;
 import org.mopidy.mplay.mpdservice.mpdprotocol.MPDCapabilities;
 import org.mopidy.mplay.mpdservice.mpdprotocol.MPDCommands;
@@ -54,10 +55,12 @@ import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDStatistics;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDTrack;
 import org.mopidy.mplay.mpdservice.websocket.WSInterface;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This handler is used for all long running queries to the mpd server. This includes:
@@ -86,6 +89,11 @@ public class MPDQueryHandler extends MPDGenericHandler {
     private static HandlerThread mHandlerThread = null;
     private static MPDQueryHandler mHandlerSingleton = null;
 
+    /**
+     * Id of the newest per backend search. Results of older searches are dropped.
+     */
+    private static final AtomicInteger sSearchId = new AtomicInteger();
+
     ExecutorService es = Executors.newFixedThreadPool(4);
     ListeningExecutorService service = MoreExecutors.listeningDecorator(es);
     /**
@@ -191,12 +199,14 @@ public class MPDQueryHandler extends MPDGenericHandler {
                 WSInterface.getGenericInstance().playSongIndex(0);
             } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_ARTIST_ALBUMS) {
                 String artistUri = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ARTIST_URL);
+                String artistName = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ARTIST_NAME);
                 responseHandler = mpdAction.getResponseHandler();
-                if (!(responseHandler instanceof MPDResponseAlbumList) || (null == artistUri)) {
+                if (!(responseHandler instanceof MPDResponseAlbumList) || (null == artistUri && null == artistName)) {
                     return;
                 }
 
-                List<MPDAlbum> albumList = WSInterface.getGenericInstance().getArtistAlbums(artistUri);
+                List<MPDAlbum> albumList = null != artistUri ? WSInterface.getGenericInstance().getArtistAlbums(artistUri) :
+                        WSInterface.getGenericInstance().getArtistAlbumsByName(artistName);
 
                 ((MPDResponseAlbumList) responseHandler).sendAlbums(albumList);
             } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_ARTISTSORT_ALBUMS) {
@@ -378,6 +388,15 @@ public class MPDQueryHandler extends MPDGenericHandler {
                         Log.e(TAG,"Cannot get currentplaylistwindow");
                     }
                 },service);
+            } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_FIND_IN_CURRENT_PLAYLIST) {
+                String term = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_SEARCH_TERM);
+                responseHandler = mpdAction.getResponseHandler();
+                if (!(responseHandler instanceof MPDResponseFileList)) {
+                    return;
+                }
+
+                List<MPDFileEntry> trackList = WSInterface.getGenericInstance().findInTracklist(term);
+                ((MPDResponseFileList) responseHandler).sendFileList(trackList);
             } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_SAVED_PLAYLIST) {
                 String playlistName = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_PLAYLIST_NAME);
                 responseHandler = mpdAction.getResponseHandler();
@@ -615,6 +634,61 @@ public class MPDQueryHandler extends MPDGenericHandler {
                 List<MPDFileEntry> fileList = WSInterface.getGenericInstance().getSearchedFiles(term, type);
 
                 ((MPDResponseFileList) responseHandler).sendFileList(fileList);
+            } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_SEARCH_FILES_PER_BACKEND) {
+                String term = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_SEARCH_TERM);
+                MPDCommands.MPD_SEARCH_TYPE type = MPDCommands.MPD_SEARCH_TYPE.values()[mpdAction.getIntExtra(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_SEARCH_TYPE)];
+                int searchId = mpdAction.getIntExtra(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_SEARCH_ID);
+
+                responseHandler = mpdAction.getResponseHandler();
+                if (!(responseHandler instanceof MPDResponseSearchResult) || searchId != sSearchId.get()) {
+                    return;
+                }
+
+                List<String> schemes = WSInterface.getGenericInstance().getSearchURISchemes();
+                if (schemes.isEmpty()) {
+                    // Backends unknown, fall back to one combined search
+                    schemes.add(null);
+                }
+
+                AtomicInteger pending = new AtomicInteger(schemes.size());
+                for (int i = 0; i < schemes.size(); i++) {
+                    final int backendIndex = i;
+                    final String scheme = schemes.get(i);
+                    ListenableFuture<List<MPDFileEntry>> results = service.submit(() -> {
+                        // Skip backends that were not queried yet if a newer search started
+                        if (searchId != sSearchId.get()) {
+                            return null;
+                        }
+                        return WSInterface.getGenericInstance().getSearchedFiles(term, type, scheme);
+                    });
+                    Futures.addCallback(results, new FutureCallback<List<MPDFileEntry>>() {
+                        @Override
+                        public void onSuccess(List<MPDFileEntry> result) {
+                            if (result == null) {
+                                Log.e(TAG, "Search of backend " + scheme + " failed");
+                            }
+                            deliver(result);
+                        }
+
+                        @Override
+                        public void onFailure(Throwable t) {
+                            Log.e(TAG, "Search of backend " + scheme + " failed");
+                            deliver(null);
+                        }
+
+                        /**
+                         * @param result Results of the backend or null if its search failed
+                         */
+                        private void deliver(List<MPDFileEntry> result) {
+                            boolean complete = pending.decrementAndGet() == 0;
+                            if (searchId != sSearchId.get()) {
+                                return;
+                            }
+                            ((MPDResponseSearchResult) responseHandler).sendSearchResult(searchId, backendIndex,
+                                    result == null ? new ArrayList<>() : result, result == null, complete);
+                        }
+                    }, service);
+                }
             } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_ADD_SEARCH_FILES) {
                 String term = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_SEARCH_TERM);
                 MPDCommands.MPD_SEARCH_TYPE type = MPDCommands.MPD_SEARCH_TYPE.values()[mpdAction.getIntExtra(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_SEARCH_TYPE)];
@@ -812,6 +886,17 @@ public class MPDQueryHandler extends MPDGenericHandler {
                 MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ARTIST_URL, artist, responseHandler);
     }
 
+    /**
+     * Requests a list of albums of an artist that has no URI.
+     *
+     * @param responseHandler The handler used to send the requested data
+     * @param artistName      Name of the artist to get a list of albums from.
+     */
+    public static void getArtistAlbumsByName(MPDResponseAlbumList responseHandler, String artistName) {
+        genericStringResponseAction(MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_ARTIST_ALBUMS,
+                MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ARTIST_NAME, artistName, responseHandler);
+    }
+
     /**
      * Requests a list of albums of an artist.
      *
@@ -968,6 +1053,22 @@ public class MPDQueryHandler extends MPDGenericHandler {
         sendMsg(action);
     }
 
+    /**
+     * Searches the current playlist on the server for tracks with the exact title or URI.
+     * The returned tracks carry their position in the current playlist.
+     *
+     * @param term            Title or URI to search for
+     * @param responseHandler The handler used to send the requested data
+     */
+    public static void findInCurrentPlaylist(String term, MPDResponseFileList responseHandler) {
+        MPDHandlerAction action = new MPDHandlerAction(MPDHandlerAction.NET_HANDLER_ACTION.ACTION_FIND_IN_CURRENT_PLAYLIST);
+
+        action.setResponseHandler(responseHandler);
+        action.setStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_SEARCH_TERM, term);
+
+        sendMsg(action);
+    }
+
     /**
      * Requests a list of playlists saved on the server.
      *
@@ -1240,6 +1341,37 @@ public class MPDQueryHandler extends MPDGenericHandler {
         sendMsg(action);
     }
 
+    /**
+     * Starts a search that queries every backend of the server separately. Results are
+     * delivered per backend as soon as they arrive. Starting a new search cancels all
+     * previous ones.
+     *
+     * @param term            Search term
+     * @param type            Field to search in
+     * @param responseHandler Handler that receives the results of each backend
+     * @return Id of the search that is passed to the response handler
+     */
+    public static int searchFilesPerBackend(String term, MPDCommands.MPD_SEARCH_TYPE type, MPDResponseSearchResult responseHandler) {
+        int searchId = sSearchId.incrementAndGet();
+        MPDHandlerAction action = new MPDHandlerAction(MPDHandlerAction.NET_HANDLER_ACTION.ACTION_SEARCH_FILES_PER_BACKEND);
+
+        action.setResponseHandler(responseHandler);
+        action.setStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_SEARCH_TERM, term);
+        action.setIntExtras(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_SEARCH_TYPE, type.ordinal());
+        action.setIntExtras(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_SEARCH_ID, searchId);
+
+        sendMsg(action);
+        return searchId;
+    }
+
+    /**
+     * Cancels all running per backend searches. Requests that were already sent to the server
+     * are not aborted but their results are dropped.
+     */
+    public static void cancelSearches() {
+        sSearchId.incrementAndGet();
+    }
+
     /**
      * Requests to add a search request
      *
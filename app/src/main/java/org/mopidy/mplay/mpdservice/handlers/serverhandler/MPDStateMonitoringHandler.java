@@ -37,6 +37,7 @@ import org.mopidy.mplay.mpdservice.handlers.MPDIdleChangeHandler;
 import org.mopidy.mplay.mpdservice.handlers.MPDStatusChangeHandler;
 import org.mopidy.mplay.mpdservice.handlers.responsehandler.MPDResponseHandler;
 import org.mopidy.mplay.mpdservice.mpdprotocol.MPDException;
+import org.mopidy.mplay.mpdservice.mpdprotocol.MPDSessionSnapshot;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDCurrentStatus;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDTrack;
 import org.mopidy.mplay.mpdservice.websocket.WSInterface;
@@ -235,6 +236,31 @@ public class MPDStateMonitoringHandler extends MPDGenericHandler {
         return mLastStatus;
     }
 
+    public MPDTrack getLastTrack() {
+        return mLastFile;
+    }
+
+    /**
+     * Shows the state of a restored {@link MPDSessionSnapshot} until the connection is established.
+     * The state is replaced by the server state as soon as it is fetched after connecting.
+     *
+     * @param snapshot Snapshot restored on start.
+     */
+    public void restoreSnapshot(MPDSessionSnapshot snapshot) {
+        if (null == snapshot || WSInterface.getGenericInstance().isConnected()) {
+            return;
+        }
+
+        if (null != snapshot.getStatus()) {
+            mLastStatus = snapshot.getStatus();
+            distributeNewStatus(mLastStatus);
+        }
+        if (null != snapshot.getTrack()) {
+            mLastFile = snapshot.getTrack();
+            distributeNewTrack(mLastFile);
+        }
+    }
+
 
     public void registerStatusListener(MPDStatusChangeHandler handler) {
         if (null != handler) {
@@ -286,6 +312,7 @@ public class MPDStateMonitoringHandler extends MPDGenericHandler {
             mLastStatus = new MPDCurrentStatus();
             mLastFile = new MPDTrack("");
         }
+        MPDSessionSnapshot.reconcile(mLastStatus);
         distributeNewStatus(mLastStatus);
         distributeNewTrack(mLastFile);
         resynchronizeState();
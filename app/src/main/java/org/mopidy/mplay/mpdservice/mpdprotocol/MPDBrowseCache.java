@@ -0,0 +1,183 @@
+/*
+ *  Copyright (C) 2022 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://gitlab.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.mopidy.mplay.mpdservice.mpdprotocol;
+
+import android.os.SystemClock;
+
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache for the results of core.library.browse, keyed by the browsed URI.
+ * <p>
+ * Entries expire after a time that depends on the URI scheme of the browsed directory: the
+ * local library only changes after a rescan, while directories of streaming or radio backends
+ * are regenerated by the server on every request. The cache holds at most
+ * {@link #MAX_ENTRIES} directories and drops the least recently used ones first.
+ */
+public class MPDBrowseCache {
+
+    /**
+     * Maximum number of cached directories
+     */
+    private static final int MAX_ENTRIES = 256;
+
+    /**
+     * Time to live of the root directory, which only lists the backends of the server
+     */
+    private static final long TTL_ROOT = 10 * 60 * 1000;
+
+    /**
+     * Time to live of directories of backends that are not listed in {@link #TTL_SCHEMES}
+     */
+    private static final long TTL_DEFAULT = 5 * 60 * 1000;
+
+    private static final String[] TTL_SCHEMES = {"local", "file", "m3u"};
+    private static final long[] TTL_SCHEME_VALUES = {30 * 60 * 1000, 30 * 60 * 1000, 60 * 1000};
+
+    private static class Entry {
+        private final List<MPDFileEntry> mFiles;
+        private final long mExpires;
+        private boolean mPrefetched;
+
+        private Entry(List<MPDFileEntry> files, long expires, boolean prefetched) {
+            mFiles = files;
+            mExpires = expires;
+            mPrefetched = prefetched;
+        }
+    }
+
+    private final LinkedHashMap<String, Entry> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private int mHits;
+    private int mMisses;
+    private int mPrefetches;
+    private int mPrefetchHits;
+    private int mExpired;
+    private int mEvicted;
+
+    /**
+     * Returns the cached content of the directory.
+     *
+     * @param uri URI of the directory, an empty string for the root directory.
+     * @return A copy of the cached list or null if the directory is not cached or expired.
+     */
+    public synchronized List<MPDFileEntry> get(String uri) {
+        Entry entry = mEntries.get(uri);
+        if (entry == null) {
+            mMisses++;
+            return null;
+        }
+        if (entry.mExpires < SystemClock.elapsedRealtime()) {
+            mEntries.remove(uri);
+            mExpired++;
+            mMisses++;
+            return null;
+        }
+
+        mHits++;
+        if (entry.mPrefetched) {
+            entry.mPrefetched = false;
+            mPrefetchHits++;
+        }
+        return new ArrayList<>(entry.mFiles);
+    }
+
+    /**
+     * Checks if the directory is cached without counting it as an access.
+     */
+    public synchronized boolean contains(String uri) {
+        Entry entry = mEntries.get(uri);
+        return entry != null && entry.mExpires >= SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Stores the content of a directory.
+     *
+     * @param uri        URI of the directory, an empty string for the root directory.
+     * @param files      Content of the directory
+     * @param prefetched True if the directory was fetched before the user opened it.
+     */
+    public synchronized void put(String uri, List<MPDFileEntry> files, boolean prefetched) {
+        mEntries.put(uri, new Entry(new ArrayList<>(files), SystemClock.elapsedRealtime() + getTimeToLive(uri), prefetched));
+        if (prefetched) {
+            mPrefetches++;
+        }
+
+        Iterator<Map.Entry<String, Entry>> iterator = mEntries.entrySet().iterator();
+        while (mEntries.size() > MAX_ENTRIES && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            mEvicted++;
+        }
+    }
+
+    /**
+     * Removes a single directory from the cache, e.g. if the user explicitly refreshes it.
+     */
+    public synchronized void invalidate(String uri) {
+        mEntries.remove(uri);
+    }
+
+    /**
+     * Removes all directories from the cache.
+     */
+    public synchronized void invalidateAll() {
+        mEntries.clear();
+    }
+
+    /**
+     * @return Human readable summary of the cache usage.
+     */
+    public synchronized String getStatistics() {
+        int requests = mHits + mMisses;
+        return "Directories: " + mEntries.size() + '/' + MAX_ENTRIES + '\n'
+                + "Hits: " + mHits + " (" + (requests == 0 ? 0 : (mHits * 100 / requests)) + "%)\n"
+                + "Misses: " + mMisses + '\n'
+                + "Prefetched: " + mPrefetches + " (used: " + mPrefetchHits + ")\n"
+                + "Expired: " + mExpired + '\n'
+                + "Evicted: " + mEvicted;
+    }
+
+    private static long getTimeToLive(String uri) {
+        if (uri.isEmpty()) {
+            return TTL_ROOT;
+        }
+
+        int separator = uri.indexOf(':');
+        if (separator > 0) {
+            String scheme = uri.substring(0, separator);
+            for (int i = 0; i < TTL_SCHEMES.length; i++) {
+                if (TTL_SCHEMES[i].equals(scheme)) {
+                    return TTL_SCHEME_VALUES[i];
+                }
+            }
+        }
+        return TTL_DEFAULT;
+    }
+}
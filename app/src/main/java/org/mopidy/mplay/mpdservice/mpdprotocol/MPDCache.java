@@ -27,14 +27,16 @@ import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDArtist;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDCurrentStatus;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
 
+import java.util.HashMap;
 import java.util.List;
 
 public class MPDCache {
 
     private List<MPDFileEntry> mPlaylists;
     private MPDCurrentStatus mStatus = null;
-    private List<MPDFileEntry> mTrackList;
+    private MPDTrackList mTrackList;
     private boolean mTrackListValid = false;
+    private final HashMap<Integer, MPDTrackList> mTrackListWindows = new HashMap<>();
     private List<MPDArtist> mAlbumArtists;
     private List<MPDArtist> mArtists;
     private List<MPDArtist> mArtistsSort;
@@ -42,6 +44,10 @@ public class MPDCache {
 
     private List<MPDAlbum> mAlbums;
 
+    private List<String> mURISchemes;
+
+    private final MPDBrowseCache mBrowseCache = new MPDBrowseCache();
+
     private final long mVersion;
 
     public MPDCache(long version) {
@@ -61,6 +67,7 @@ public class MPDCache {
 
     public void cacheAlbumArtists(List<MPDArtist> artists) {
         mAlbumArtists = artists;
+        MPDLibraryIndex.getInstance().updateAlbumArtists(artists);
     }
 
     public List<MPDArtist> getArtists() {
@@ -72,6 +79,7 @@ public class MPDCache {
 
     public void cacheArtists(List<MPDArtist> artists) {
         mArtists = artists;
+        MPDLibraryIndex.getInstance().updateArtists(artists);
     }
 
     public List<MPDArtist> getArtistsSort() {
@@ -106,6 +114,7 @@ public class MPDCache {
 
     public void cacheAlbums(List<MPDAlbum> albums) {
         mAlbums = albums;
+        MPDLibraryIndex.getInstance().updateAlbums(albums);
     }
 
     public boolean trackListValid() {
@@ -113,16 +122,61 @@ public class MPDCache {
     }
     public void invalidateTrackList() {
         mTrackListValid = false;
+        synchronized (mTrackListWindows) {
+            mTrackListWindows.clear();
+        }
     }
-    public void cacheTracklist(List<MPDFileEntry> tracks) {
+    public void cacheTracklist(MPDTrackList tracks) {
         mTrackList = tracks;
         mTrackListValid = true;
+        MPDLibraryIndex.getInstance().updateTracks(tracks);
     }
 
-    public List<MPDFileEntry> getTracklist() {
+    public MPDTrackList getTracklist() {
         return mTrackList;
     }
 
+    /**
+     * Keeps a fetched tracklist window if it is part of the first {@link MPDSessionSnapshot#MAX_TRACKS}
+     * entries, so that the head of the tracklist is available for the session snapshot.
+     */
+    public void cacheTracklistWindow(int start, MPDTrackList window) {
+        if (start >= MPDSessionSnapshot.MAX_TRACKS) {
+            return;
+        }
+        synchronized (mTrackListWindows) {
+            mTrackListWindows.put(start, window);
+        }
+    }
+
+    /**
+     * Returns the first entries of the tracklist, either from the complete cached tracklist or
+     * from the consecutive windows fetched from the start of the tracklist.
+     *
+     * @param maxTracks Maximum number of entries to return
+     * @return The head of the tracklist or null if nothing is cached.
+     */
+    public MPDTrackList getTracklistHead(int maxTracks) {
+        if (mTrackListValid && mTrackList != null) {
+            return mTrackList.copyRange(0, Math.min(maxTracks, mTrackList.size()));
+        }
+
+        synchronized (mTrackListWindows) {
+            MPDTrackList head = null;
+            int start = 0;
+            MPDTrackList window = mTrackListWindows.get(start);
+            while (window != null && window.size() > 0 && start < maxTracks) {
+                if (head == null) {
+                    head = new MPDTrackList(maxTracks);
+                }
+                head.addRange(window, 0, Math.min(window.size(), maxTracks - start));
+                start += window.size();
+                window = mTrackListWindows.get(start);
+            }
+            return head;
+        }
+    }
+
     public void cacheStatus(MPDCurrentStatus status) {
         mStatus = status;
     }
@@ -132,6 +186,18 @@ public class MPDCache {
         return mStatus;
     }
 
+    public List<String> getURISchemes() {
+        return mURISchemes;
+    }
+
+    public void cacheURISchemes(List<String> schemes) {
+        mURISchemes = schemes;
+    }
+
+    public MPDBrowseCache getBrowseCache() {
+        return mBrowseCache;
+    }
+
     public void cachePlaylists(List<MPDFileEntry> playlists) {
         mPlaylists = playlists;
     }
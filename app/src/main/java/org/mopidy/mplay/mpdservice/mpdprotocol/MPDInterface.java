@@ -228,7 +228,7 @@ public class MPDInterface {
             List<MPDAlbum> resultList = new ArrayList<>(result);
 
             // Sort the created list
-            Collections.sort(resultList);
+            MPDSortHelper.sortAlbums(resultList);
             return resultList;
         } else {
             synchronized (this) {
@@ -274,7 +274,7 @@ public class MPDInterface {
             List<MPDAlbum> resultList = new ArrayList<>(result);
 
             // Sort the created list
-            Collections.sort(resultList);
+            MPDSortHelper.sortAlbums(resultList);
             return resultList;
         } else {
             synchronized (this) {
@@ -874,7 +874,7 @@ public class MPDInterface {
 
         // Check if sort by date is active and resort collection first
         if (sortOrder == MPDAlbum.MPD_ALBUM_SORT_ORDER.DATE) {
-            Collections.sort(albums, new MPDAlbum.MPDAlbumDateComparator());
+            MPDSortHelper.sortAlbumsByDate(albums);
         }
 
         for (MPDAlbum album : albums) {
@@ -896,7 +896,7 @@ public class MPDInterface {
 
         // Check if sort by date is active and resort collection first
         if (sortOrder == MPDAlbum.MPD_ALBUM_SORT_ORDER.DATE) {
-            Collections.sort(albums, new MPDAlbum.MPDAlbumDateComparator());
+            MPDSortHelper.sortAlbumsByDate(albums);
         }
 
         for (MPDAlbum album : albums) {
@@ -0,0 +1,185 @@
+/*
+ *  Copyright (C) 2022 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://gitlab.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.mopidy.mplay.mpdservice.mpdprotocol;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import org.mopidy.mplay.BuildConfig;
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDArtist;
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDGenericItem;
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDTrack;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local search indices for the library lists held by the {@link MPDCache}.
+ * The indices are updated on a single background thread whenever the cache receives a new list.
+ * The adapters use them to filter the cached lists, see {@link #getIndexFor(List)}, the search
+ * uses them for type-ahead results.
+ * <p/>
+ * Tracks of the tracklist are not copied into an index of their own, the columnar
+ * {@link MPDTrackList} keeps the word map over its distinct tag values itself.
+ */
+public class MPDLibraryIndex {
+    private static final String TAG = MPDLibraryIndex.class.getSimpleName();
+
+    private static MPDLibraryIndex mInstance;
+
+    private final MPDSearchIndex<MPDArtist> mArtists;
+
+    private final MPDSearchIndex<MPDArtist> mAlbumArtists;
+
+    private final MPDSearchIndex<MPDAlbum> mAlbums;
+
+    private volatile MPDTrackList mTracks;
+
+    private final ExecutorService mExecutor;
+
+    private MPDLibraryIndex() {
+        mArtists = new MPDSearchIndex<>();
+        mAlbumArtists = new MPDSearchIndex<>();
+        mAlbums = new MPDSearchIndex<>();
+        mExecutor = Executors.newSingleThreadExecutor();
+    }
+
+    public static synchronized MPDLibraryIndex getInstance() {
+        if (null == mInstance) {
+            mInstance = new MPDLibraryIndex();
+        }
+        return mInstance;
+    }
+
+    public void updateArtists(List<MPDArtist> artists) {
+        scheduleUpdate(mArtists, artists, "artists");
+    }
+
+    public void updateAlbumArtists(List<MPDArtist> artists) {
+        scheduleUpdate(mAlbumArtists, artists, "album artists");
+    }
+
+    public void updateAlbums(List<MPDAlbum> albums) {
+        scheduleUpdate(mAlbums, albums, "albums");
+    }
+
+    public void updateTracks(MPDTrackList trackList) {
+        mTracks = trackList;
+        if (trackList == null) {
+            return;
+        }
+        mExecutor.execute(() -> {
+            final long start = SystemClock.elapsedRealtime();
+            trackList.buildWordIndex();
+            if (BuildConfig.DEBUG) {
+                Log.v(TAG, "Indexed " + trackList.size() + " tracks in " + (SystemClock.elapsedRealtime() - start) + " ms");
+            }
+        });
+    }
+
+    /**
+     * Returns the index that was built from exactly the given list instance. Used by the adapters
+     * to answer filter requests for the cached library lists without scanning them.
+     *
+     * @param list List shown by the caller
+     * @return The matching index or null if the list is not indexed (yet).
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends MPDGenericItem> MPDSearchIndex<T> getIndexFor(List<T> list) {
+        if (mArtists.isIndexOf((List<MPDArtist>) list)) {
+            return (MPDSearchIndex<T>) mArtists;
+        } else if (mAlbumArtists.isIndexOf((List<MPDArtist>) list)) {
+            return (MPDSearchIndex<T>) mAlbumArtists;
+        } else if (mAlbums.isIndexOf((List<MPDAlbum>) list)) {
+            return (MPDSearchIndex<T>) mAlbums;
+        }
+        return null;
+    }
+
+    @NonNull
+    public List<MPDArtist> searchArtists(@NonNull String query, int maxCount) {
+        return nonNull(mArtists.search(query, maxCount));
+    }
+
+    @NonNull
+    public List<MPDAlbum> searchAlbums(@NonNull String query, int maxCount) {
+        return nonNull(mAlbums.search(query, maxCount));
+    }
+
+    /**
+     * Searches the cached tracklist. Only the returned tracks are created as {@link MPDTrack}.
+     */
+    @NonNull
+    public List<MPDTrack> searchTracks(@NonNull String query, int maxCount) {
+        final MPDTrackList trackList = mTracks;
+        final List<MPDTrack> result = new ArrayList<>();
+        if (trackList != null) {
+            for (int index : trackList.searchTracks(query, maxCount)) {
+                result.add(trackList.getTrack(index));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Drops all indices, e.g. when the lists of another server are cached.
+     */
+    public void clear() {
+        mTracks = null;
+        mExecutor.execute(() -> {
+            mArtists.clear();
+            mAlbumArtists.clear();
+            mAlbums.clear();
+        });
+    }
+
+    private <T extends MPDGenericItem> void scheduleUpdate(MPDSearchIndex<T> index, List<T> items, String name) {
+        if (items == null) {
+            return;
+        }
+        mExecutor.execute(() -> runUpdate(index, items, name));
+    }
+
+    private static <T extends MPDGenericItem> void runUpdate(MPDSearchIndex<T> index, List<T> items, String name) {
+        final long start = SystemClock.elapsedRealtime();
+        try {
+            index.update(items);
+        } catch (RuntimeException e) {
+            // The list was modified while indexing, the next update will bring the index in sync
+            Log.e(TAG, "Could not index " + name + ": " + e.getMessage());
+            return;
+        }
+        if (BuildConfig.DEBUG) {
+            Log.v(TAG, "Indexed " + items.size() + " " + name + " in " + (SystemClock.elapsedRealtime() - start) + " ms");
+        }
+    }
+
+    private static <T> List<T> nonNull(List<T> list) {
+        return list != null ? list : new ArrayList<>();
+    }
+}
@@ -40,7 +40,6 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 
 class MPDResponseParser {
@@ -186,7 +185,7 @@ class MPDResponseParser {
         }
 
         // Sort the albums for later sectioning.
-        Collections.sort(albumList);
+        MPDSortHelper.sortAlbums(albumList);
         return albumList;
     }
 
@@ -295,7 +294,7 @@ class MPDResponseParser {
         }
 
         // Sort the artists for later sectioning.
-        Collections.sort(artistList);
+        MPDSortHelper.sortArtists(artistList);
 
         // If we used MBID filtering, it could happen that a user has an artist in the list multiple times,
         // once with and once without MBID. Try to filter this by sorting the list first by name and mbid count
@@ -0,0 +1,516 @@
+/*
+ *  Copyright (C) 2022 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://gitlab.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.mopidy.mplay.mpdservice.mpdprotocol;
+
+import androidx.annotation.NonNull;
+
+import org.mopidy.mplay.application.utils.StringCompareUtils;
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDGenericItem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory search index over a list of items.
+ * <p/>
+ * Every item is reduced to a normalized key (lower case, diacritics removed, words separated by
+ * a single space). The index keeps trigram posting lists of all words and a sorted word map for
+ * prefix lookups. Posting lists are ascending int arrays of internal item ids.
+ * <p/>
+ * The index is built by {@link #update(List)} from a background thread. Further calls with a
+ * changed list only index the items that were added and drop the ones that are gone.
+ */
+public class MPDSearchIndex<T extends MPDGenericItem> {
+
+    public interface KeyProvider<T> {
+        String getSearchKey(T item);
+    }
+
+    /**
+     * Rebuild the posting lists once more items were removed than are still alive.
+     */
+    private static final float COMPACT_RATIO = 0.5f;
+
+    private final KeyProvider<T> mKeyProvider;
+
+    private final ReentrantReadWriteLock mLock;
+
+    /**
+     * Item and normalized key per id. Removed ids are set to null.
+     */
+    private final ArrayList<T> mItems;
+
+    private final ArrayList<String> mKeys;
+
+    private final ArrayList<String> mRawKeys;
+
+    /**
+     * Position of the item within the list last passed to {@link #update(List)}.
+     */
+    private int[] mOrder;
+
+    private int mRemovedCount;
+
+    private final HashMap<Long, IntList> mTrigrams;
+
+    private final TreeMap<String, IntList> mWords;
+
+    /**
+     * Key as returned by the {@link KeyProvider} -> ids, used to match items of a new list
+     * against the indexed ones without normalizing them again.
+     */
+    private final HashMap<String, IntList> mKeyIds;
+
+    private volatile List<T> mSource;
+
+    public MPDSearchIndex() {
+        this(MPDGenericItem::getSectionTitle);
+    }
+
+    public MPDSearchIndex(@NonNull KeyProvider<T> keyProvider) {
+        mKeyProvider = keyProvider;
+        mLock = new ReentrantReadWriteLock();
+        mItems = new ArrayList<>();
+        mKeys = new ArrayList<>();
+        mRawKeys = new ArrayList<>();
+        mOrder = new int[0];
+        mTrigrams = new HashMap<>();
+        mWords = new TreeMap<>();
+        mKeyIds = new HashMap<>();
+    }
+
+    /**
+     * Brings the index in sync with the given list. Items that are already indexed keep their
+     * posting list entries, only new items are tokenized.
+     * Should not be called from the UI thread.
+     *
+     * @param items New content of the index
+     */
+    public void update(@NonNull List<T> items) {
+        final int count = items.size();
+        final String[] rawKeys = new String[count];
+        for (int i = 0; i < count; i++) {
+            final String rawKey = mKeyProvider.getSearchKey(items.get(i));
+            rawKeys[i] = rawKey != null ? rawKey : "";
+        }
+
+        mLock.writeLock().lock();
+        try {
+            final int[] newOrder = new int[mItems.size() + count];
+            Arrays.fill(newOrder, -1);
+
+            for (int i = 0; i < count; i++) {
+                final T item = items.get(i);
+                int id = findUnclaimed(rawKeys[i], item, newOrder);
+                if (id < 0) {
+                    id = addItem(item, rawKeys[i], StringCompareUtils.normalize(rawKeys[i]));
+                } else {
+                    // Keep the instance of the new list, results should reference its objects.
+                    mItems.set(id, item);
+                }
+                newOrder[id] = i;
+            }
+
+            // Everything not claimed by the new list is gone.
+            for (int id = 0; id < mItems.size(); id++) {
+                if (newOrder[id] == -1 && mItems.get(id) != null) {
+                    removeItem(id);
+                }
+            }
+            mOrder = newOrder;
+            mSource = items;
+
+            if (mRemovedCount > mItems.size() * COMPACT_RATIO) {
+                compact();
+            }
+        } finally {
+            mLock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        mLock.writeLock().lock();
+        mItems.clear();
+        mKeys.clear();
+        mRawKeys.clear();
+        mOrder = new int[0];
+        mRemovedCount = 0;
+        mTrigrams.clear();
+        mWords.clear();
+        mKeyIds.clear();
+        mSource = null;
+        mLock.writeLock().unlock();
+    }
+
+    /**
+     * @param list List to check
+     * @return True if the index was last updated with this exact list instance.
+     */
+    public boolean isIndexOf(List<T> list) {
+        return list != null && mSource == list;
+    }
+
+    public int size() {
+        mLock.readLock().lock();
+        int size = mItems.size() - mRemovedCount;
+        mLock.readLock().unlock();
+        return size;
+    }
+
+    /**
+     * Returns all items whose key contains every word of the query, in the order of the indexed
+     * list.
+     *
+     * @param query Filter string as typed by the user
+     * @return Matching items or null if the index is currently being updated.
+     */
+    public List<T> filter(@NonNull String query) {
+        if (!mLock.readLock().tryLock()) {
+            return null;
+        }
+        try {
+            final String[] words = splitWords(StringCompareUtils.normalize(query));
+            final int[] ids = findCandidates(words, false);
+
+            final long[] matches = new long[ids.length];
+            int matchCount = 0;
+            for (int id : ids) {
+                if (matchesWords(mKeys.get(id), words)) {
+                    matches[matchCount++] = ((long) mOrder[id] << 32) | id;
+                }
+            }
+            Arrays.sort(matches, 0, matchCount);
+
+            final List<T> result = new ArrayList<>(matchCount);
+            for (int i = 0; i < matchCount; i++) {
+                result.add(mItems.get((int) matches[i]));
+            }
+            return result;
+        } finally {
+            mLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Type-ahead search. Every word of the query must be the prefix of a word of the item.
+     * Results are ranked: exact matches first, then items starting with the query, then the
+     * remaining ones. Shorter keys are ranked before longer ones.
+     *
+     * @param query    Search string as typed by the user
+     * @param maxCount Maximum number of results
+     * @return Ranked matches or null if the index is currently being updated.
+     */
+    public List<T> search(@NonNull String query, int maxCount) {
+        if (!mLock.readLock().tryLock()) {
+            return null;
+        }
+        try {
+            final String normalizedQuery = StringCompareUtils.normalize(query);
+            final String[] words = splitWords(normalizedQuery);
+            final int[] ids = findCandidates(words, true);
+
+            final long[] matches = new long[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                final String key = mKeys.get(ids[i]);
+                final long rank;
+                if (key.equals(normalizedQuery)) {
+                    rank = 0;
+                } else if (key.startsWith(normalizedQuery)) {
+                    rank = 1;
+                } else {
+                    rank = 2;
+                }
+                final long length = Math.min(key.length(), 0xFFFFF);
+                matches[i] = (rank << 52) | (length << 32) | ids[i];
+            }
+            Arrays.sort(matches);
+
+            final int resultCount = Math.min(maxCount, matches.length);
+            final List<T> result = new ArrayList<>(resultCount);
+            for (int i = 0; i < resultCount; i++) {
+                result.add(mItems.get((int) (matches[i] & 0xFFFFFFFFL)));
+            }
+            return result;
+        } finally {
+            mLock.readLock().unlock();
+        }
+    }
+
+    private static String[] splitWords(String normalized) {
+        if (normalized.isEmpty()) {
+            return new String[0];
+        }
+        return normalized.split(" ");
+    }
+
+    private static boolean matchesWords(String key, String[] words) {
+        if (key == null) {
+            return false;
+        }
+        for (String word : words) {
+            if (!key.contains(word)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long trigram(String word, int start) {
+        return ((long) word.charAt(start) << 32) | ((long) word.charAt(start + 1) << 16) | word.charAt(start + 2);
+    }
+
+    /**
+     * Collects the ids that can match the given words.
+     *
+     * @param words      Normalized query words
+     * @param prefixOnly If true words must be prefixes of item words, otherwise they can occur
+     *                   anywhere within the key (candidates then still need to be verified).
+     * @return Ascending ids of alive items
+     */
+    private int[] findCandidates(String[] words, boolean prefixOnly) {
+        int[] candidates = null;
+
+        for (String word : words) {
+            final int[] wordIds;
+            if (prefixOnly) {
+                wordIds = prefixIds(word);
+            } else if (word.length() >= 3) {
+                wordIds = trigramIds(word);
+            } else {
+                // Too short for trigrams, checked against the keys afterwards
+                continue;
+            }
+            candidates = candidates == null ? wordIds : intersect(candidates, wordIds);
+            if (candidates.length == 0) {
+                return candidates;
+            }
+        }
+
+        if (candidates == null) {
+            candidates = new int[mItems.size() - mRemovedCount];
+            int count = 0;
+            for (int id = 0; id < mItems.size(); id++) {
+                if (mItems.get(id) != null) {
+                    candidates[count++] = id;
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private int[] trigramIds(String word) {
+        int[] result = null;
+        for (int i = 0; i + 3 <= word.length(); i++) {
+            final IntList list = mTrigrams.get(trigram(word, i));
+            if (list == null) {
+                return new int[0];
+            }
+            result = result == null ? list.toArray() : intersect(result, list.mValues, list.mSize);
+            if (result.length == 0) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private int[] prefixIds(String prefix) {
+        final SortedMap<String, IntList> words = mWords.subMap(prefix, prefix + Character.MAX_VALUE);
+        if (words.size() == 1) {
+            return words.values().iterator().next().toArray();
+        }
+
+        final boolean[] marks = new boolean[mItems.size()];
+        int count = 0;
+        for (IntList list : words.values()) {
+            for (int i = 0; i < list.mSize; i++) {
+                if (!marks[list.mValues[i]]) {
+                    marks[list.mValues[i]] = true;
+                    count++;
+                }
+            }
+        }
+
+        final int[] result = new int[count];
+        int pos = 0;
+        for (int id = 0; id < marks.length && pos < count; id++) {
+            if (marks[id]) {
+                result[pos++] = id;
+            }
+        }
+        return result;
+    }
+
+    private static int[] intersect(int[] first, int[] second) {
+        return intersect(first, second, second.length);
+    }
+
+    private static int[] intersect(int[] first, int[] second, int secondSize) {
+        final int[] result = new int[Math.min(first.length, secondSize)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < secondSize) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                result[count++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    private int findUnclaimed(String rawKey, T item, int[] claimed) {
+        final IntList ids = mKeyIds.get(rawKey);
+        if (ids == null) {
+            return -1;
+        }
+        for (int i = 0; i < ids.mSize; i++) {
+            final int id = ids.mValues[i];
+            final T indexed = mItems.get(id);
+            if (claimed[id] == -1 && indexed != null && indexed.equals(item)) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    private int addItem(T item, String rawKey, String key) {
+        final int id = mItems.size();
+        mItems.add(item);
+        mKeys.add(key);
+        mRawKeys.add(rawKey);
+
+        getOrCreate(mKeyIds, rawKey).addId(id);
+
+        for (String word : splitWords(key)) {
+            getOrCreate(mWords, word).addId(id);
+            for (int i = 0; i + 3 <= word.length(); i++) {
+                getOrCreate(mTrigrams, trigram(word, i)).addId(id);
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Marks an item as removed. Its id stays in the trigram posting lists until the next
+     * compaction, candidates are verified against the (then missing) key anyway. The word map is
+     * used without verification, so the id is removed from it right away.
+     */
+    private void removeItem(int id) {
+        final IntList keyIds = mKeyIds.get(mRawKeys.get(id));
+        if (keyIds != null) {
+            keyIds.removeId(id);
+        }
+        for (String word : splitWords(mKeys.get(id))) {
+            final IntList wordIds = mWords.get(word);
+            if (wordIds != null) {
+                wordIds.removeId(id);
+                if (wordIds.mSize == 0) {
+                    mWords.remove(word);
+                }
+            }
+        }
+        mItems.set(id, null);
+        mKeys.set(id, null);
+        mRawKeys.set(id, null);
+        mRemovedCount++;
+    }
+
+    private void compact() {
+        final ArrayList<T> items = new ArrayList<>(mItems.size() - mRemovedCount);
+        final ArrayList<String> keys = new ArrayList<>(items.size());
+        final ArrayList<String> rawKeys = new ArrayList<>(items.size());
+        final int[] order = new int[mItems.size() - mRemovedCount];
+        for (int id = 0; id < mItems.size(); id++) {
+            if (mItems.get(id) != null) {
+                order[items.size()] = mOrder[id];
+                items.add(mItems.get(id));
+                keys.add(mKeys.get(id));
+                rawKeys.add(mRawKeys.get(id));
+            }
+        }
+
+        mItems.clear();
+        mKeys.clear();
+        mRawKeys.clear();
+        mTrigrams.clear();
+        mWords.clear();
+        mKeyIds.clear();
+        mRemovedCount = 0;
+        for (int i = 0; i < items.size(); i++) {
+            addItem(items.get(i), rawKeys.get(i), keys.get(i));
+        }
+        mOrder = order;
+    }
+
+    private static <K> IntList getOrCreate(Map<K, IntList> map, K key) {
+        IntList list = map.get(key);
+        if (list == null) {
+            list = new IntList();
+            map.put(key, list);
+        }
+        return list;
+    }
+
+    /**
+     * Growable array of ascending ids.
+     */
+    private static class IntList {
+        private int[] mValues = new int[2];
+
+        private int mSize;
+
+        void addId(int id) {
+            // Ids are added in ascending order, so a duplicate can only be the last value.
+            if (mSize > 0 && mValues[mSize - 1] == id) {
+                return;
+            }
+            if (mSize == mValues.length) {
+                mValues = Arrays.copyOf(mValues, mSize * 2);
+            }
+            mValues[mSize++] = id;
+        }
+
+        void removeId(int id) {
+            final int index = Arrays.binarySearch(mValues, 0, mSize, id);
+            if (index >= 0) {
+                System.arraycopy(mValues, index + 1, mValues, index, mSize - index - 1);
+                mSize--;
+            }
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(mValues, mSize);
+        }
+    }
+}
@@ -0,0 +1,610 @@
+/*
+ *  Copyright (C) 2022 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://gitlab.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.mopidy.mplay.mpdservice.mpdprotocol;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDArtist;
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDCurrentStatus;
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDTrack;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Compact binary copy of the last session of a server profile (status, current track, the head
+ * of the tracklist and the library lists). It is written when the app leaves the foreground and
+ * read with a memory-mapped read on the next start, so the UI can show the last state before
+ * the connection is up.
+ * <p>
+ * The restored snapshot is held until {@link #reconcile(MPDCurrentStatus)} is called with the
+ * first status of the server.
+ */
+public class MPDSessionSnapshot {
+    private static final String TAG = MPDSessionSnapshot.class.getSimpleName();
+
+    /**
+     * Number of tracklist entries (from the start of the tracklist) that are saved.
+     */
+    public static final int MAX_TRACKS = 1000;
+
+    private static final int MAGIC = 0x4d504c53;
+
+    private static final int VERSION = 2;
+
+    private static final int NO_LIST = -1;
+
+    /**
+     * Smallest number of bytes an entry of the lists can take (all strings null, no tags). Used
+     * to reject list lengths that can not fit into the rest of the file before allocating.
+     */
+    private static final int MIN_TRACK_LIST_ENTRY_SIZE = 38;
+
+    private static final int MIN_ALBUM_SIZE = 32;
+
+    private static final int MIN_ARTIST_SIZE = 16;
+
+    private static final MPDTrack.StringTagTypes[] TAG_TYPES = MPDTrack.StringTagTypes.values();
+
+    private static final MPDCurrentStatus.MPD_PLAYBACK_STATE[] PLAYBACK_STATES = MPDCurrentStatus.MPD_PLAYBACK_STATE.values();
+
+    private static MPDSessionSnapshot sRestored;
+
+    private final long mCreated;
+
+    private MPDCurrentStatus mStatus;
+
+    private MPDTrack mTrack;
+
+    private MPDTrackList mTrackList;
+
+    private List<MPDAlbum> mAlbums;
+
+    private List<MPDArtist> mArtists;
+
+    public MPDSessionSnapshot(MPDCurrentStatus status, MPDTrack track, MPDTrackList trackList,
+                              List<MPDAlbum> albums, List<MPDArtist> artists) {
+        this(System.currentTimeMillis(), status, track, trackList, albums, artists);
+    }
+
+    private MPDSessionSnapshot(long created, MPDCurrentStatus status, MPDTrack track, MPDTrackList trackList,
+                               List<MPDAlbum> albums, List<MPDArtist> artists) {
+        mCreated = created;
+        mStatus = status;
+        mTrack = track;
+        mTrackList = trackList;
+        mAlbums = albums;
+        mArtists = artists;
+    }
+
+    public long getCreationDate() {
+        return mCreated;
+    }
+
+    @Nullable
+    public MPDCurrentStatus getStatus() {
+        return mStatus;
+    }
+
+    @Nullable
+    public MPDTrack getTrack() {
+        return mTrack;
+    }
+
+    /**
+     * Returns the saved head of the tracklist if it belongs to the tracklist described by the
+     * given status (same version and length).
+     *
+     * @param status Status to check the saved tracklist against.
+     * @return The saved tracklist head or null if not available or outdated.
+     */
+    @Nullable
+    public synchronized MPDTrackList getTrackList(MPDCurrentStatus status) {
+        if (mTrackList == null || mStatus == null || status == null) {
+            return null;
+        }
+        if (status.getPlaylistVersion() != mStatus.getPlaylistVersion() || status.getPlaylistLength() != mStatus.getPlaylistLength()) {
+            return null;
+        }
+        return mTrackList;
+    }
+
+    public synchronized void releaseTrackList() {
+        mTrackList = null;
+    }
+
+    @Nullable
+    public synchronized List<MPDAlbum> getAlbums() {
+        return mAlbums;
+    }
+
+    @Nullable
+    public synchronized List<MPDArtist> getArtists() {
+        return mArtists;
+    }
+
+    /**
+     * @return The snapshot restored on this start or null if none was restored or it was
+     * reconciled with the server state already.
+     */
+    @Nullable
+    public static synchronized MPDSessionSnapshot getRestored() {
+        return sRestored;
+    }
+
+    /**
+     * Loads the snapshot from the given file and keeps it as the restored snapshot.
+     *
+     * @param file Snapshot file of the profile.
+     * @return The loaded snapshot or null if the file does not exist or is not readable.
+     */
+    @Nullable
+    public static synchronized MPDSessionSnapshot restore(@NonNull File file) {
+        long startTime = System.nanoTime();
+        sRestored = load(file);
+        if (sRestored != null) {
+            Log.v(TAG, "Restored session snapshot in " + (System.nanoTime() - startTime) / 1000 + " us");
+        }
+        return sRestored;
+    }
+
+    /**
+     * Reconciles the restored snapshot with the first status received from the server. The
+     * library lists are dropped because the views reload them after connecting. The tracklist
+     * head is only kept if it still matches the server side tracklist.
+     *
+     * @param status Status received from the server.
+     */
+    public static synchronized void reconcile(MPDCurrentStatus status) {
+        if (sRestored == null) {
+            return;
+        }
+
+        if (sRestored.getTrackList(status) == null) {
+            sRestored = null;
+            return;
+        }
+
+        synchronized (sRestored) {
+            sRestored.mAlbums = null;
+            sRestored.mArtists = null;
+        }
+    }
+
+    /**
+     * Writes the snapshot to the given file. The data is written to a temporary file first and
+     * then moved to the final location, so an interrupted write never leaves a broken snapshot.
+     *
+     * @param file Snapshot file of the profile.
+     */
+    public void save(@NonNull File file) {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            Log.e(TAG, "Could not create snapshot directory: " + parent);
+            return;
+        }
+
+        File tempFile = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(mCreated);
+
+            out.writeBoolean(mStatus != null);
+            if (mStatus != null) {
+                writeStatus(out, mStatus);
+            }
+
+            out.writeBoolean(mTrack != null);
+            if (mTrack != null) {
+                writeTrack(out, mTrack);
+            }
+
+            MPDTrackList trackList = mTrackList;
+            if (trackList == null) {
+                out.writeInt(NO_LIST);
+            } else {
+                int count = Math.min(trackList.size(), MAX_TRACKS);
+                out.writeInt(count);
+                for (int i = 0; i < count; i++) {
+                    writeTrackListEntry(out, trackList, i);
+                }
+            }
+
+            List<MPDAlbum> albums = mAlbums;
+            if (albums == null) {
+                out.writeInt(NO_LIST);
+            } else {
+                out.writeInt(albums.size());
+                for (MPDAlbum album : albums) {
+                    writeAlbum(out, album);
+                }
+            }
+
+            List<MPDArtist> artists = mArtists;
+            if (artists == null) {
+                out.writeInt(NO_LIST);
+            } else {
+                out.writeInt(artists.size());
+                for (MPDArtist artist : artists) {
+                    writeArtist(out, artist);
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Could not write session snapshot: " + e.getMessage());
+            tempFile.delete();
+            return;
+        }
+
+        if (!tempFile.renameTo(file)) {
+            Log.e(TAG, "Could not move session snapshot to " + file);
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Reads a snapshot with a memory-mapped read of the given file.
+     *
+     * @param file Snapshot file of the profile.
+     * @return The snapshot or null if the file does not exist or has an unknown format.
+     */
+    @Nullable
+    public static MPDSessionSnapshot load(@NonNull File file) {
+        if (!file.exists()) {
+            return null;
+        }
+
+        try (FileInputStream inputStream = new FileInputStream(file);
+             FileChannel channel = inputStream.getChannel()) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                Log.v(TAG, "Ignoring session snapshot with unknown format: " + file);
+                return null;
+            }
+            long created = buffer.getLong();
+
+            MPDCurrentStatus status = buffer.get() != 0 ? readStatus(buffer) : null;
+            MPDTrack track = buffer.get() != 0 ? readTrack(buffer) : null;
+
+            MPDTrackList trackList = null;
+            int count = readCount(buffer, MIN_TRACK_LIST_ENTRY_SIZE, MAX_TRACKS);
+            if (count != NO_LIST) {
+                trackList = new MPDTrackList(count);
+                for (int i = 0; i < count; i++) {
+                    readTrackListEntry(buffer, trackList);
+                }
+            }
+
+            List<MPDAlbum> albums = null;
+            count = readCount(buffer, MIN_ALBUM_SIZE, Integer.MAX_VALUE);
+            if (count != NO_LIST) {
+                albums = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    albums.add(readAlbum(buffer));
+                }
+            }
+
+            List<MPDArtist> artists = null;
+            count = readCount(buffer, MIN_ARTIST_SIZE, Integer.MAX_VALUE);
+            if (count != NO_LIST) {
+                artists = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    artists.add(readArtist(buffer));
+                }
+            }
+
+            return new MPDSessionSnapshot(created, status, track, trackList, albums, artists);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            Log.e(TAG, "Could not read session snapshot: " + e.getMessage());
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Reads the length of a list and checks it before the list is allocated.
+     *
+     * @param buffer       Buffer to read from.
+     * @param minEntrySize Smallest size of one entry of the list in bytes.
+     * @param maxCount     Largest number of entries that is written for the list.
+     * @return The number of entries or {@link #NO_LIST}.
+     * @throws IllegalArgumentException If the length is invalid or the entries can not fit into
+     *                                  the remaining buffer.
+     */
+    private static int readCount(ByteBuffer buffer, int minEntrySize, int maxCount) {
+        int count = buffer.getInt();
+        if (count == NO_LIST) {
+            return count;
+        }
+        if (count < 0 || count > maxCount || count > buffer.remaining() / minEntrySize) {
+            throw new IllegalArgumentException("Invalid list length " + count);
+        }
+        return count;
+    }
+
+    private static void writeStatus(DataOutputStream out, MPDCurrentStatus status) throws IOException {
+        out.writeInt(status.getVolume());
+        out.writeInt(status.getRepeat());
+        out.writeInt(status.getRandom());
+        out.writeInt(status.getSinglePlayback());
+        out.writeInt(status.getConsume());
+        out.writeInt(status.getPlaylistVersion());
+        out.writeInt(status.getPlaylistLength());
+        out.writeInt(status.getCurrentSongIndex());
+        out.writeInt(status.getNextSongIndex());
+        out.writeInt(status.getSamplerate());
+        writeString(out, status.getBitDepth());
+        out.writeInt(status.getChannelCount());
+        out.writeInt(status.getBitrate());
+        out.writeFloat(status.getElapsedTime());
+        out.writeFloat(status.getTrackLength());
+        out.writeInt(status.getUpdateDBJob());
+        out.writeByte(status.getPlaybackState().ordinal());
+    }
+
+    private static MPDCurrentStatus readStatus(ByteBuffer buffer) {
+        MPDCurrentStatus status = new MPDCurrentStatus();
+        status.setVolume(buffer.getInt());
+        status.setRepeat(buffer.getInt());
+        status.setRandom(buffer.getInt());
+        status.setSinglePlayback(buffer.getInt());
+        status.setConsume(buffer.getInt());
+        status.setPlaylistVersion(buffer.getInt());
+        status.setPlaylistLength(buffer.getInt());
+        status.setCurrentSongIndex(buffer.getInt());
+        status.setNextSongIndex(buffer.getInt());
+        status.setSamplerate(buffer.getInt());
+        status.setBitDepth(nonNull(readString(buffer)));
+        status.setChannelCount(buffer.getInt());
+        status.setBitrate(buffer.getInt());
+        status.setElapsedTime(buffer.getFloat());
+        status.setTrackLength(buffer.getFloat());
+        status.setUpdateDBJob(buffer.getInt());
+
+        int state = buffer.get();
+        if (state < 0 || state >= PLAYBACK_STATES.length) {
+            throw new IllegalArgumentException("Invalid playback state " + state);
+        }
+        status.setPlaybackState(PLAYBACK_STATES[state]);
+        return status;
+    }
+
+    private static void writeTrack(DataOutputStream out, MPDTrack track) throws IOException {
+        writeString(out, track.getPath());
+        writeString(out, track.getURI());
+        writeString(out, track.getName());
+        writeString(out, track.getRawArtwork());
+        out.writeInt(track.getLength());
+        out.writeInt(track.getTrackNumber());
+        out.writeInt(track.getAlbumTrackCount());
+        out.writeInt(track.getDiscNumber());
+        out.writeInt(track.getAlbumDiscCount());
+        out.writeInt(track.getSongPosition());
+        out.writeInt(track.getSongID());
+        out.writeBoolean(track.hasLike());
+
+        // Tags are written as (ordinal, value) pairs of the set tags only
+        int tagCount = 0;
+        for (MPDTrack.StringTagTypes tag : TAG_TYPES) {
+            if (!track.getStringTag(tag).isEmpty()) {
+                tagCount++;
+            }
+        }
+        out.writeByte(tagCount);
+        for (MPDTrack.StringTagTypes tag : TAG_TYPES) {
+            String value = track.getStringTag(tag);
+            if (!value.isEmpty()) {
+                out.writeByte(tag.ordinal());
+                writeString(out, value);
+            }
+        }
+    }
+
+    private static MPDTrack readTrack(ByteBuffer buffer) {
+        MPDTrack track = new MPDTrack(nonNull(readString(buffer)));
+        track.setURI(readString(buffer));
+        track.setName(readString(buffer));
+        track.setArtwork(readString(buffer));
+        track.setLength(buffer.getInt());
+        track.setTrackNumber(buffer.getInt());
+        track.setAlbumTrackCount(buffer.getInt());
+        track.setDiscNumber(buffer.getInt());
+        track.psetAlbumDiscCount(buffer.getInt());
+        track.setSongPosition(buffer.getInt());
+        track.setSongID(buffer.getInt());
+        track.setLike(buffer.get() != 0);
+
+        int tagCount = buffer.get();
+        for (int i = 0; i < tagCount; i++) {
+            int ordinal = buffer.get();
+            String value = nonNull(readString(buffer));
+            if (ordinal >= 0 && ordinal < TAG_TYPES.length) {
+                track.setStringTag(TAG_TYPES[ordinal], value);
+            }
+        }
+        return track;
+    }
+
+    private static void writeTrackListEntry(DataOutputStream out, MPDTrackList trackList, int index) throws IOException {
+        out.writeInt(trackList.getTlid(index));
+        writeString(out, trackList.getURI(index));
+        writeString(out, trackList.getTitle(index));
+        writeString(out, trackList.getArtist(index));
+        writeString(out, trackList.getAlbum(index));
+        writeString(out, trackList.getStringTag(index, MPDTrack.StringTagTypes.ALBUM_URI));
+        writeString(out, trackList.getArtwork(index));
+        out.writeInt(trackList.getLength(index));
+        out.writeInt(trackList.getPosition(index));
+        out.writeBoolean(trackList.hasLike(index));
+
+        // Remaining tags as (ordinal, value) pairs of the set tags only, like in writeTrack
+        int tagCount = 0;
+        for (MPDTrack.StringTagTypes tag : TAG_TYPES) {
+            if (!MPDTrackList.hasDedicatedColumn(tag) && !trackList.getStringTag(index, tag).isEmpty()) {
+                tagCount++;
+            }
+        }
+        out.writeByte(tagCount);
+        for (MPDTrack.StringTagTypes tag : TAG_TYPES) {
+            if (!MPDTrackList.hasDedicatedColumn(tag)) {
+                String value = trackList.getStringTag(index, tag);
+                if (!value.isEmpty()) {
+                    out.writeByte(tag.ordinal());
+                    writeString(out, value);
+                }
+            }
+        }
+    }
+
+    private static void readTrackListEntry(ByteBuffer buffer, MPDTrackList trackList) {
+        int tlid = buffer.getInt();
+        String uri = readString(buffer);
+        String title = readString(buffer);
+        String artist = readString(buffer);
+        String album = readString(buffer);
+        String albumURI = readString(buffer);
+        String artwork = readString(buffer);
+        int length = buffer.getInt();
+        int position = buffer.getInt();
+        boolean like = buffer.get() != 0;
+        trackList.add(tlid, uri, title, artist, album, albumURI, artwork, length, position, like);
+
+        int tagCount = buffer.get();
+        for (int i = 0; i < tagCount; i++) {
+            int ordinal = buffer.get();
+            String value = readString(buffer);
+            if (ordinal >= 0 && ordinal < TAG_TYPES.length) {
+                trackList.setStringTag(trackList.size() - 1, TAG_TYPES[ordinal], value);
+            }
+        }
+    }
+
+    private static void writeAlbum(DataOutputStream out, MPDAlbum album) throws IOException {
+        writeString(out, album.getName());
+        writeString(out, album.getURI());
+        writeString(out, album.getMBID());
+        writeString(out, album.getArtistName());
+        writeString(out, album.getArtistSortName());
+        writeString(out, album.getRawArtwork());
+        Date date = album.getDate();
+        out.writeLong(date != null ? date.getTime() : Long.MIN_VALUE);
+    }
+
+    private static MPDAlbum readAlbum(ByteBuffer buffer) {
+        MPDAlbum album = new MPDAlbum(nonNull(readString(buffer)), readString(buffer));
+        String value = readString(buffer);
+        if (value != null) {
+            album.setMBID(value);
+        }
+        value = readString(buffer);
+        if (value != null) {
+            album.setArtistName(value);
+        }
+        value = readString(buffer);
+        if (value != null) {
+            album.setArtistSortName(value);
+        }
+        album.setArtwork(readString(buffer));
+        long date = buffer.getLong();
+        if (date != Long.MIN_VALUE) {
+            album.setDate(new Date(date));
+        }
+        return album;
+    }
+
+    private static void writeArtist(DataOutputStream out, MPDArtist artist) throws IOException {
+        writeString(out, artist.getArtistName());
+        writeString(out, artist.getURI());
+        out.writeInt(artist.getMBIDCount());
+        for (int i = 0; i < artist.getMBIDCount(); i++) {
+            writeString(out, artist.getMBID(i));
+        }
+        writeString(out, artist.getRawArtwork());
+    }
+
+    private static MPDArtist readArtist(ByteBuffer buffer) {
+        MPDArtist artist = new MPDArtist(nonNull(readString(buffer)), readString(buffer));
+        int mbidCount = buffer.getInt();
+        for (int i = 0; i < mbidCount; i++) {
+            artist.addMBID(nonNull(readString(buffer)));
+        }
+        artist.setArtwork(readString(buffer));
+        return artist;
+    }
+
+    /**
+     * Strings are written as the length of the UTF-8 bytes followed by the bytes. A length of -1
+     * marks a null value.
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid string length " + length);
+        }
+
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    @NonNull
+    private static String nonNull(String value) {
+        return value == null ? "" : value;
+    }
+}
@@ -22,20 +22,422 @@
 
 package org.mopidy.mplay.mpdservice.mpdprotocol;
 
+import androidx.annotation.NonNull;
+
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDArtist;
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDDirectory;
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDPlaylist;
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDSortKeyHolder;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDTrack;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
 
-import java.util.Collections;
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
+/**
+ * Sorting of the library lists.
+ * <p/>
+ * Names are compared by {@link CollationKey}s of the current locale. The key of an item is only
+ * created once and cached on the item ({@link MPDSortKeyHolder}), so sorting the same list again
+ * (e.g. after a reconnect) does not need to touch the collator at all. Large lists are sorted by a
+ * parallel merge sort. All methods are meant to be called from a background thread.
+ */
 public class MPDSortHelper {
 
+    /**
+     * Ignore leading articles ("The Beatles" is sorted as "Beatles").
+     */
+    public static final int FLAG_STRIP_ARTICLES = 1;
+
+    /**
+     * Compare numbers within names by their value ("Vol. 2" before "Vol. 10").
+     */
+    public static final int FLAG_NUMERIC = 1 << 1;
+
+    private static final int FLAG_MASK = FLAG_STRIP_ARTICLES | FLAG_NUMERIC;
+
+    /**
+     * Lists with up to this many items are sorted by a single thread.
+     */
+    private static final int PARALLEL_THRESHOLD = 8192;
+
+    /**
+     * Digit runs are left padded to this length for {@link #FLAG_NUMERIC}.
+     */
+    private static final int NUMBER_LENGTH = 10;
+
+    private static final String[] ARTICLES = {"the ", "a ", "an ", "der ", "die ", "das ", "le ", "la ", "les ", "el ", "los ", "las ", "il "};
+
+    private static final ForkJoinPool sPool = new ForkJoinPool(Math.max(2, Runtime.getRuntime().availableProcessors() - 1));
+
+    private static int sFlags = FLAG_NUMERIC;
+
+    private static Locale sKeyLocale;
+
+    private static int sKeyGeneration;
+
+    public static synchronized void setFlags(int flags) {
+        sFlags = flags & FLAG_MASK;
+    }
+
+    public static synchronized void setStripArticles(boolean stripArticles) {
+        sFlags = stripArticles ? (sFlags | FLAG_STRIP_ARTICLES) : (sFlags & ~FLAG_STRIP_ARTICLES);
+    }
+
+    public static synchronized int getFlags() {
+        return sFlags;
+    }
+
+    /**
+     * Returns the id for cached keys with the given flags. A new id range is used whenever the
+     * default locale changes, so cached keys of the old locale are not used anymore.
+     */
+    private static synchronized int getKeyId(int flags) {
+        Locale locale = Locale.getDefault();
+        if (!locale.equals(sKeyLocale)) {
+            sKeyLocale = locale;
+            sKeyGeneration++;
+        }
+        return (sKeyGeneration << 2) | flags;
+    }
+
     /**
      * Sorts a list of {@link MPDFileEntry} objects in the right order of their index (if
      * the objects are from type {@link MPDTrack}. All other elements are located at the end of the list.
      * @param inList List of objects to sort.
      */
     public static void sortFileListNumeric(List<MPDFileEntry> inList) {
-        Collections.sort(inList, new MPDFileEntry.MPDFileIndexComparator());
+        final int count = inList.size();
+        if (count < 2) {
+            return;
+        }
+
+        final Collator collator = Collator.getInstance();
+        final FileSortEntry[] entries = new FileSortEntry[count];
+        for (int i = 0; i < count; i++) {
+            entries[i] = new FileSortEntry(inList.get(i), collator);
+        }
+
+        sort(entries, FILE_ENTRY_COMPARATOR);
+        writeBack(inList, entries);
+    }
+
+    /**
+     * Sorts albums by their name with the default flags.
+     */
+    public static void sortAlbums(List<MPDAlbum> albums) {
+        sortByName(albums, getFlags());
+    }
+
+    /**
+     * Sorts artists by their name with the default flags.
+     */
+    public static void sortArtists(List<MPDArtist> artists) {
+        sortByName(artists, getFlags());
+    }
+
+    /**
+     * Sorts albums by their date. Albums of the same date keep their order.
+     */
+    public static void sortAlbumsByDate(List<MPDAlbum> albums) {
+        final int count = albums.size();
+        if (count < 2) {
+            return;
+        }
+
+        final DateSortEntry[] entries = new DateSortEntry[count];
+        for (int i = 0; i < count; i++) {
+            entries[i] = new DateSortEntry(albums.get(i));
+        }
+
+        sort(entries, (o1, o2) -> Long.compare(o1.mDate, o2.mDate));
+        writeBack(albums, entries);
+    }
+
+    /**
+     * Sorts items by the collation key of their sort text. Items with the same key are ordered by
+     * their natural order.
+     *
+     * @param items List to sort in place
+     * @param flags Combination of {@link #FLAG_STRIP_ARTICLES} and {@link #FLAG_NUMERIC}
+     */
+    public static <T extends MPDSortKeyHolder & Comparable<T>> void sortByName(List<T> items, int flags) {
+        final int count = items.size();
+        if (count < 2) {
+            return;
+        }
+
+        final int keyId = getKeyId(flags & FLAG_MASK);
+        @SuppressWarnings("unchecked") final NameSortEntry<T>[] entries = new NameSortEntry[count];
+        for (int i = 0; i < count; i++) {
+            entries[i] = new NameSortEntry<>(items.get(i));
+        }
+
+        // Create the missing keys, one collator per chunk as collators are not thread safe.
+        if (count <= PARALLEL_THRESHOLD) {
+            new KeyTask(entries, keyId, flags & FLAG_MASK, 0, count).compute();
+        } else {
+            sPool.invoke(new KeyTask(entries, keyId, flags & FLAG_MASK, 0, count));
+        }
+
+        sort(entries, (o1, o2) -> {
+            final int result = o1.mKey.compareTo(o2.mKey);
+            return result != 0 ? result : o1.mItem.compareTo(o2.mItem);
+        });
+        writeBack(items, entries);
+    }
+
+    /**
+     * Creates the collation key of a name with the given flags.
+     *
+     * @param text     Text to create the key for
+     * @param collator Collator to use, must not be used by another thread concurrently
+     * @param flags    Combination of {@link #FLAG_STRIP_ARTICLES} and {@link #FLAG_NUMERIC}
+     * @return The collation key
+     */
+    @NonNull
+    public static CollationKey createSortKey(String text, Collator collator, int flags) {
+        String sortText = text == null ? "" : text;
+        if ((flags & FLAG_STRIP_ARTICLES) != 0) {
+            sortText = stripArticle(sortText);
+        }
+        if ((flags & FLAG_NUMERIC) != 0) {
+            sortText = padNumbers(sortText);
+        }
+        return collator.getCollationKey(sortText);
+    }
+
+    /**
+     * @param text Text to strip
+     * @return The text without a leading article or the text itself if it has none.
+     */
+    @NonNull
+    public static String stripArticle(@NonNull String text) {
+        for (String article : ARTICLES) {
+            if (text.length() > article.length() && text.regionMatches(true, 0, article, 0, article.length())) {
+                return text.substring(article.length());
+            }
+        }
+        return text;
+    }
+
+    private static String padNumbers(String text) {
+        StringBuilder builder = null;
+        int i = 0;
+        while (i < text.length()) {
+            if (!Character.isDigit(text.charAt(i))) {
+                if (builder != null) {
+                    builder.append(text.charAt(i));
+                }
+                i++;
+                continue;
+            }
+
+            int end = i;
+            while (end < text.length() && Character.isDigit(text.charAt(end))) {
+                end++;
+            }
+            if (builder == null) {
+                builder = new StringBuilder(text.length() + NUMBER_LENGTH);
+                builder.append(text, 0, i);
+            }
+            for (int pad = end - i; pad < NUMBER_LENGTH; pad++) {
+                builder.append('0');
+            }
+            builder.append(text, i, end);
+            i = end;
+        }
+        return builder != null ? builder.toString() : text;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> void sort(E[] entries, Comparator<? super E> comparator) {
+        if (entries.length <= PARALLEL_THRESHOLD) {
+            Arrays.sort(entries, comparator);
+        } else {
+            sPool.invoke(new MergeSortTask<>(entries, (E[]) new Object[entries.length], comparator, 0, entries.length));
+        }
+    }
+
+    private static <T> void writeBack(List<T> list, SortEntry<? extends T>[] sorted) {
+        final ListIterator<T> iterator = list.listIterator();
+        for (SortEntry<? extends T> entry : sorted) {
+            iterator.next();
+            iterator.set(entry.mItem);
+        }
+    }
+
+    /**
+     * Gets the collation keys of a range of items, creating and caching the missing ones.
+     */
+    private static class KeyTask extends RecursiveAction {
+        private final NameSortEntry<?>[] mItems;
+
+        private final int mKeyId;
+
+        private final int mFlags;
+
+        private final int mStart;
+
+        private final int mEnd;
+
+        KeyTask(NameSortEntry<?>[] items, int keyId, int flags, int start, int end) {
+            mItems = items;
+            mKeyId = keyId;
+            mFlags = flags;
+            mStart = start;
+            mEnd = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (mEnd - mStart > PARALLEL_THRESHOLD) {
+                final int middle = (mStart + mEnd) >>> 1;
+                invokeAll(new KeyTask(mItems, mKeyId, mFlags, mStart, middle), new KeyTask(mItems, mKeyId, mFlags, middle, mEnd));
+                return;
+            }
+
+            Collator collator = null;
+            for (int i = mStart; i < mEnd; i++) {
+                final MPDSortKeyHolder item = mItems[i].mItem;
+                CollationKey key = item.getSortKey(mKeyId);
+                if (key == null) {
+                    if (collator == null) {
+                        collator = Collator.getInstance();
+                    }
+                    key = createSortKey(item.getSortText(), collator, mFlags);
+                    item.setSortKey(mKeyId, key);
+                }
+                mItems[i].mKey = key;
+            }
+        }
     }
+
+    /**
+     * Stable merge sort. Ranges up to {@link #PARALLEL_THRESHOLD} are sorted by
+     * {@link Arrays#sort(Object[], int, int, Comparator)}, larger ranges are split and the sorted
+     * halves merged.
+     */
+    private static class MergeSortTask<E> extends RecursiveAction {
+        private final E[] mEntries;
+
+        private final E[] mBuffer;
+
+        private final Comparator<? super E> mComparator;
+
+        private final int mStart;
+
+        private final int mEnd;
+
+        MergeSortTask(E[] entries, E[] buffer, Comparator<? super E> comparator, int start, int end) {
+            mEntries = entries;
+            mBuffer = buffer;
+            mComparator = comparator;
+            mStart = start;
+            mEnd = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (mEnd - mStart <= PARALLEL_THRESHOLD) {
+                Arrays.sort(mEntries, mStart, mEnd, mComparator);
+                return;
+            }
+
+            final int middle = (mStart + mEnd) >>> 1;
+            invokeAll(new MergeSortTask<>(mEntries, mBuffer, mComparator, mStart, middle),
+                    new MergeSortTask<>(mEntries, mBuffer, mComparator, middle, mEnd));
+
+            // Already in order, nothing to merge
+            if (mComparator.compare(mEntries[middle - 1], mEntries[middle]) <= 0) {
+                return;
+            }
+
+            System.arraycopy(mEntries, mStart, mBuffer, mStart, mEnd - mStart);
+            int left = mStart;
+            int right = middle;
+            for (int i = mStart; i < mEnd; i++) {
+                if (right >= mEnd || (left < middle && mComparator.compare(mBuffer[left], mBuffer[right]) <= 0)) {
+                    mEntries[i] = mBuffer[left++];
+                } else {
+                    mEntries[i] = mBuffer[right++];
+                }
+            }
+        }
+    }
+
+    private static class SortEntry<T> {
+        final T mItem;
+
+        SortEntry(T item) {
+            mItem = item;
+        }
+    }
+
+    private static class NameSortEntry<T extends MPDSortKeyHolder> extends SortEntry<T> {
+        CollationKey mKey;
+
+        NameSortEntry(T item) {
+            super(item);
+        }
+    }
+
+    private static class DateSortEntry extends SortEntry<MPDAlbum> {
+        final long mDate;
+
+        DateSortEntry(MPDAlbum album) {
+            super(album);
+            mDate = album.getDate().getTime();
+        }
+    }
+
+    /**
+     * Precomputed sort data of a file entry: directories first, then tracks by album, disc and
+     * track number, then playlists.
+     */
+    private static class FileSortEntry extends SortEntry<MPDFileEntry> {
+        final int mCategory;
+
+        final String mAlbumMBID;
+
+        final long mIndex;
+
+        final CollationKey mNameKey;
+
+        FileSortEntry(MPDFileEntry entry, Collator collator) {
+            super(entry);
+            if (entry instanceof MPDTrack) {
+                final MPDTrack track = (MPDTrack) entry;
+                mCategory = 1;
+                mAlbumMBID = track.getStringTag(MPDTrack.StringTagTypes.ALBUM_MBID);
+                mIndex = ((long) track.getDiscNumber() << 32) | (track.getTrackNumber() & 0xFFFFFFFFL);
+                mNameKey = null;
+            } else {
+                mCategory = entry instanceof MPDDirectory ? 0 : (entry instanceof MPDPlaylist ? 2 : 3);
+                mAlbumMBID = null;
+                mIndex = 0;
+                final String name = entry instanceof MPDDirectory ? entry.getSectionTitle() : entry.getFilename();
+                mNameKey = createSortKey(name, collator, FLAG_NUMERIC);
+            }
+        }
+    }
+
+    private static final Comparator<FileSortEntry> FILE_ENTRY_COMPARATOR = (o1, o2) -> {
+        if (o1.mCategory != o2.mCategory) {
+            return Integer.compare(o1.mCategory, o2.mCategory);
+        }
+        if (o1.mCategory == 1) {
+            final int result = o1.mAlbumMBID.compareTo(o2.mAlbumMBID);
+            return result != 0 ? result : Long.compare(o1.mIndex, o2.mIndex);
+        }
+        return o1.mNameKey.compareTo(o2.mNameKey);
+    };
 }
@@ -0,0 +1,692 @@
+/*
+ *  Copyright (C) 2022 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://gitlab.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.mopidy.mplay.mpdservice.mpdprotocol;
+
+import androidx.annotation.NonNull;
+
+import org.mopidy.mplay.application.utils.StringCompareUtils;
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDStringPool;
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDTrack;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Column oriented container for the tracks of the servers tracklist (queue).
+ * <p/>
+ * Instead of one {@link MPDTrack} object per entry this keeps the fields the queue needs in
+ * primitive arrays. Title, artist, album and artwork are stored as indices into a table of
+ * distinct strings and all URIs share one packed char buffer. The remaining string tags are kept
+ * in the same way in one column per tag, allocated when the first entry sets the tag. {@link MPDTrack} objects are only
+ * created on demand by {@link #get(int)}, e.g. for the rows that are currently bound to a view.
+ * <p/>
+ * The list is built once by the network thread with {@link #add(MPDTrack, int)} and is
+ * read-only afterwards.
+ */
+public class MPDTrackList extends AbstractList<MPDFileEntry> implements RandomAccess {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Marker for an empty slot of the tlid hash table. Mopidy tlids start with 1.
+     */
+    private static final int NO_TLID = 0;
+
+    private static final MPDTrack.StringTagTypes[] TAG_TYPES = MPDTrack.StringTagTypes.values();
+
+    private int mSize;
+
+    private int[] mTlids;
+
+    private int[] mLengths;
+
+    private int[] mPositions;
+
+    private int[] mTitles;
+
+    private int[] mArtists;
+
+    private int[] mAlbums;
+
+    private int[] mAlbumURIs;
+
+    private int[] mArtworks;
+
+    private boolean[] mLikes;
+
+    /**
+     * String indices of the tags without a dedicated column, by tag ordinal. A column stays null
+     * until an entry has a value for the tag.
+     */
+    private final int[][] mTagColumns = new int[TAG_TYPES.length][];
+
+    /**
+     * All URIs concatenated. Entry i occupies [mURIOffsets[i], mURIOffsets[i + 1]).
+     */
+    private char[] mURIChars;
+
+    private int[] mURIOffsets;
+
+    /**
+     * Table of distinct tag values. Index 0 is always the empty string.
+     */
+    private final ArrayList<String> mStrings;
+
+    private final HashMap<String, Integer> mStringIndices;
+
+    /**
+     * Variant of mStrings normalized by {@link StringCompareUtils#normalize(String)}, created lazily
+     * for searching.
+     */
+    private String[] mNormalizedStrings;
+
+    /**
+     * Word of the normalized strings -> ascending indices of the strings containing it, for
+     * prefix lookups. Created lazily for the strings known at that time.
+     */
+    private TreeMap<String, int[]> mWords;
+
+    private int mWordsStringCount;
+
+    /**
+     * Open addressing hash table tlid -> list index, created lazily.
+     */
+    private int[] mTlidTable;
+
+    private int[] mTlidTableIndices;
+
+    public MPDTrackList() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public MPDTrackList(int capacity) {
+        capacity = Math.max(capacity, 1);
+        mTlids = new int[capacity];
+        mLengths = new int[capacity];
+        mPositions = new int[capacity];
+        mTitles = new int[capacity];
+        mArtists = new int[capacity];
+        mAlbums = new int[capacity];
+        mAlbumURIs = new int[capacity];
+        mArtworks = new int[capacity];
+        mLikes = new boolean[capacity];
+        mURIOffsets = new int[capacity + 1];
+        mURIChars = new char[capacity * 32];
+
+        mStrings = new ArrayList<>();
+        mStringIndices = new HashMap<>();
+        mStrings.add("");
+        mStringIndices.put("", 0);
+    }
+
+    /**
+     * Appends a track to the list with all of its string tags.
+     *
+     * @param track Track to append
+     * @param tlid  Tracklist id of the entry on the server
+     */
+    public void add(@NonNull MPDTrack track, int tlid) {
+        add(tlid, track.getURI(), track.getStringTag(MPDTrack.StringTagTypes.TITLE),
+                track.getStringTag(MPDTrack.StringTagTypes.ARTIST),
+                track.getStringTag(MPDTrack.StringTagTypes.ALBUM),
+                track.getStringTag(MPDTrack.StringTagTypes.ALBUM_URI),
+                track.getRawArtwork(), track.getLength(), track.getSongPosition(), track.hasLike());
+
+        for (MPDTrack.StringTagTypes tag : TAG_TYPES) {
+            if (!hasDedicatedColumn(tag)) {
+                setStringTag(mSize - 1, tag, track.getStringTag(tag));
+            }
+        }
+    }
+
+    /**
+     * Appends an entry from its raw fields. Used by decoders that write directly into the list
+     * without creating an intermediate {@link MPDTrack}.
+     *
+     * @param length Length in seconds
+     */
+    public void add(int tlid, String uri, String title, String artist, String album, String albumURI,
+                    String artwork, int length, int position, boolean like) {
+        ensureCapacity(mSize + 1);
+
+        mTlids[mSize] = tlid;
+        mLengths[mSize] = length;
+        mPositions[mSize] = position;
+        mTitles[mSize] = stringIndex(title);
+        mArtists[mSize] = stringIndex(artist);
+        mAlbums[mSize] = stringIndex(album);
+        mAlbumURIs[mSize] = stringIndex(albumURI);
+        mArtworks[mSize] = stringIndex(artwork);
+        mLikes[mSize] = like;
+
+        if (uri == null) {
+            uri = "";
+        }
+        int uriStart = reserveURI(uri.length());
+        uri.getChars(0, uri.length(), mURIChars, uriStart);
+
+        mSize++;
+
+        mTlidTable = null;
+    }
+
+    /**
+     * Appends the entries from start (inclusive) to end (exclusive) of another list with all of
+     * their tags. Copies the columns directly without creating {@link MPDTrack} objects.
+     */
+    public void addRange(@NonNull MPDTrackList source, int start, int end) {
+        if (start < end) {
+            source.checkIndex(start);
+            source.checkIndex(end - 1);
+        }
+        ensureCapacity(mSize + end - start);
+
+        for (int i = start; i < end; i++) {
+            mTlids[mSize] = source.mTlids[i];
+            mLengths[mSize] = source.mLengths[i];
+            mPositions[mSize] = source.mPositions[i];
+            mTitles[mSize] = stringIndex(source.mStrings.get(source.mTitles[i]));
+            mArtists[mSize] = stringIndex(source.mStrings.get(source.mArtists[i]));
+            mAlbums[mSize] = stringIndex(source.mStrings.get(source.mAlbums[i]));
+            mAlbumURIs[mSize] = stringIndex(source.mStrings.get(source.mAlbumURIs[i]));
+            mArtworks[mSize] = stringIndex(source.mStrings.get(source.mArtworks[i]));
+            mLikes[mSize] = source.mLikes[i];
+
+            int uriLength = source.mURIOffsets[i + 1] - source.mURIOffsets[i];
+            int uriStart = reserveURI(uriLength);
+            System.arraycopy(source.mURIChars, source.mURIOffsets[i], mURIChars, uriStart, uriLength);
+
+            mSize++;
+
+            for (int tag = 0; tag < TAG_TYPES.length; tag++) {
+                int[] column = source.mTagColumns[tag];
+                if (column != null && column[i] != 0) {
+                    setStringTag(mSize - 1, TAG_TYPES[tag], source.mStrings.get(column[i]));
+                }
+            }
+        }
+
+        mTlidTable = null;
+    }
+
+    /**
+     * Creates a new {@link MPDTrack} for the entry at the given index. The object is not
+     * backed by this list, so changes to it are not reflected here.
+     */
+    @Override
+    public MPDFileEntry get(int index) {
+        return getTrack(index);
+    }
+
+    @NonNull
+    public MPDTrack getTrack(int index) {
+        checkIndex(index);
+
+        String uri = getURI(index);
+        MPDTrack track = new MPDTrack(uri);
+        track.setURI(uri);
+
+        String title = mStrings.get(mTitles[index]);
+        track.setName(title);
+        track.setStringTag(MPDTrack.StringTagTypes.TITLE, title);
+        if (mArtists[index] != 0) {
+            track.setStringTag(MPDTrack.StringTagTypes.ARTIST, mStrings.get(mArtists[index]));
+        }
+        if (mAlbums[index] != 0) {
+            track.setStringTag(MPDTrack.StringTagTypes.ALBUM, mStrings.get(mAlbums[index]));
+        }
+        if (mAlbumURIs[index] != 0) {
+            track.setStringTag(MPDTrack.StringTagTypes.ALBUM_URI, mStrings.get(mAlbumURIs[index]));
+        }
+        for (int tag = 0; tag < TAG_TYPES.length; tag++) {
+            int[] column = mTagColumns[tag];
+            if (column != null && column[index] != 0) {
+                track.setStringTag(TAG_TYPES[tag], mStrings.get(column[index]));
+            }
+        }
+        track.setArtwork(mStrings.get(mArtworks[index]));
+        track.setLength(mLengths[index]);
+        track.setSongPosition(mPositions[index]);
+        track.setSongID(mTlids[index]);
+        track.setLike(mLikes[index]);
+        return track;
+    }
+
+    /**
+     * Creates a new list with the entries from start (inclusive) to end (exclusive).
+     */
+    @NonNull
+    public MPDTrackList copyRange(int start, int end) {
+        MPDTrackList copy = new MPDTrackList(end - start);
+        copy.addRange(this, start, end);
+        return copy;
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    public int getTlid(int index) {
+        checkIndex(index);
+        return mTlids[index];
+    }
+
+    public int getLength(int index) {
+        checkIndex(index);
+        return mLengths[index];
+    }
+
+    public int getPosition(int index) {
+        checkIndex(index);
+        return mPositions[index];
+    }
+
+    @NonNull
+    public String getTitle(int index) {
+        checkIndex(index);
+        return mStrings.get(mTitles[index]);
+    }
+
+    @NonNull
+    public String getArtist(int index) {
+        checkIndex(index);
+        return mStrings.get(mArtists[index]);
+    }
+
+    @NonNull
+    public String getAlbum(int index) {
+        checkIndex(index);
+        return mStrings.get(mAlbums[index]);
+    }
+
+    @NonNull
+    public String getArtwork(int index) {
+        checkIndex(index);
+        return mStrings.get(mArtworks[index]);
+    }
+
+    public boolean hasLike(int index) {
+        checkIndex(index);
+        return mLikes[index];
+    }
+
+    /**
+     * @return The value of the tag for the entry or an empty string if it is not set.
+     */
+    @NonNull
+    public String getStringTag(int index, @NonNull MPDTrack.StringTagTypes tag) {
+        checkIndex(index);
+        final int[] column = getColumn(tag);
+        return column == null ? "" : mStrings.get(column[index]);
+    }
+
+    /**
+     * Sets a string tag of an existing entry. Used to add the tags that
+     * {@link #add(int, String, String, String, String, String, String, int, int, boolean)} has no
+     * parameter for.
+     *
+     * @param value Value of the tag, null or empty to unset it.
+     */
+    public void setStringTag(int index, @NonNull MPDTrack.StringTagTypes tag, String value) {
+        checkIndex(index);
+        final int stringIndex = stringIndex(value);
+        int[] column = getColumn(tag);
+        if (column == null) {
+            if (stringIndex == 0) {
+                return;
+            }
+            column = new int[mTlids.length];
+            mTagColumns[tag.ordinal()] = column;
+        }
+        column[index] = stringIndex;
+    }
+
+    /**
+     * @return True for the tags that have their own parameter in
+     * {@link #add(int, String, String, String, String, String, String, int, int, boolean)}.
+     */
+    public static boolean hasDedicatedColumn(@NonNull MPDTrack.StringTagTypes tag) {
+        switch (tag) {
+            case TITLE:
+            case ARTIST:
+            case ALBUM:
+            case ALBUM_URI:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @NonNull
+    public String getURI(int index) {
+        checkIndex(index);
+        return new String(mURIChars, mURIOffsets[index], mURIOffsets[index + 1] - mURIOffsets[index]);
+    }
+
+    /**
+     * Checks if two entries belong to the same album without creating any objects.
+     */
+    public boolean isSameAlbum(int index, int otherIndex) {
+        checkIndex(index);
+        checkIndex(otherIndex);
+        return mAlbums[index] == mAlbums[otherIndex];
+    }
+
+    /**
+     * Returns the list index of the entry with the given tlid.
+     *
+     * @param tlid Tracklist id to look for
+     * @return Index within this list or -1 if not part of the list.
+     */
+    public synchronized int indexOfTlid(int tlid) {
+        if (tlid == NO_TLID || mSize == 0) {
+            return -1;
+        }
+        if (mTlidTable == null) {
+            buildTlidTable();
+        }
+
+        int mask = mTlidTable.length - 1;
+        int slot = mix(tlid) & mask;
+        while (mTlidTable[slot] != NO_TLID) {
+            if (mTlidTable[slot] == tlid) {
+                return mTlidTableIndices[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Searches title, artist and album of all entries for the given term (case and diacritics
+     * insensitive). Every word of the term must be contained in one of the three fields.
+     * The distinct tag values work as a token index, so each one is only compared once.
+     *
+     * @param term Term to search for
+     * @return Ascending list indices of matching entries
+     */
+    @NonNull
+    public synchronized int[] findTracks(@NonNull String term) {
+        String normalizedTerm = StringCompareUtils.normalize(term);
+        if (normalizedTerm.isEmpty()) {
+            return new int[0];
+        }
+        String[] words = normalizedTerm.split(" ");
+        // Words beyond the mask size only narrow the result further, ignore them
+        int wordCount = Math.min(words.length, Integer.SIZE - 1);
+        int allWords = (1 << wordCount) - 1;
+
+        updateNormalizedStrings();
+
+        // Bit w is set if the string contains word w
+        int[] matchingWords = new int[mNormalizedStrings.length];
+        for (int i = 0; i < mNormalizedStrings.length; i++) {
+            for (int w = 0; w < wordCount; w++) {
+                if (mNormalizedStrings[i].contains(words[w])) {
+                    matchingWords[i] |= 1 << w;
+                }
+            }
+        }
+
+        int[] result = new int[16];
+        int resultCount = 0;
+        for (int i = 0; i < mSize; i++) {
+            if ((matchingWords[mTitles[i]] | matchingWords[mArtists[i]] | matchingWords[mAlbums[i]]) == allWords) {
+                if (resultCount == result.length) {
+                    result = Arrays.copyOf(result, result.length * 2);
+                }
+                result[resultCount++] = i;
+            }
+        }
+        return Arrays.copyOf(result, resultCount);
+    }
+
+    /**
+     * Type-ahead search over title, artist and album. Every word of the query must be the prefix
+     * of a word in one of the three fields. The words of the distinct tag values are kept in a
+     * sorted map, so a query only looks at the matching words and then scans the int columns.
+     * <p/>
+     * Results are ranked like {@link MPDSearchIndex#search(String, int)} by the title: exact
+     * matches first, then titles starting with the query, then the remaining entries. Shorter
+     * titles are ranked before longer ones.
+     *
+     * @param query    Search string as typed by the user
+     * @param maxCount Maximum number of results
+     * @return Ranked list indices of matching entries
+     */
+    @NonNull
+    public synchronized int[] searchTracks(@NonNull String query, int maxCount) {
+        String normalizedQuery = StringCompareUtils.normalize(query);
+        if (normalizedQuery.isEmpty() || maxCount <= 0) {
+            return new int[0];
+        }
+        String[] words = normalizedQuery.split(" ");
+        int wordCount = Math.min(words.length, Integer.SIZE - 1);
+        int allWords = (1 << wordCount) - 1;
+
+        buildWordIndex();
+
+        // Bit w is set if a word of the string starts with query word w
+        int[] matchingWords = new int[mNormalizedStrings.length];
+        for (int w = 0; w < wordCount; w++) {
+            SortedMap<String, int[]> prefixWords = mWords.subMap(words[w], words[w] + Character.MAX_VALUE);
+            if (prefixWords.isEmpty()) {
+                return new int[0];
+            }
+            for (int[] strings : prefixWords.values()) {
+                for (int string : strings) {
+                    matchingWords[string] |= 1 << w;
+                }
+            }
+        }
+
+        long[] matches = new long[16];
+        int matchCount = 0;
+        for (int i = 0; i < mSize; i++) {
+            int title = mTitles[i];
+            if ((matchingWords[title] | matchingWords[mArtists[i]] | matchingWords[mAlbums[i]]) != allWords) {
+                continue;
+            }
+            String titleKey = mNormalizedStrings[title];
+            long rank;
+            if (titleKey.equals(normalizedQuery)) {
+                rank = 0;
+            } else if (titleKey.startsWith(normalizedQuery)) {
+                rank = 1;
+            } else {
+                rank = 2;
+            }
+            long length = Math.min(titleKey.length(), 0xFFFFF);
+            if (matchCount == matches.length) {
+                matches = Arrays.copyOf(matches, matches.length * 2);
+            }
+            matches[matchCount++] = (rank << 52) | (length << 32) | i;
+        }
+        Arrays.sort(matches, 0, matchCount);
+
+        int[] result = new int[Math.min(maxCount, matchCount)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (int) matches[i];
+        }
+        return result;
+    }
+
+    /**
+     * Builds the word map used by {@link #searchTracks(String, int)}, if the strings changed
+     * since it was built. Called by the library index on its background thread after the list
+     * was cached, so the first query does not have to do it.
+     */
+    public synchronized void buildWordIndex() {
+        updateNormalizedStrings();
+        if (mWords != null && mWordsStringCount == mNormalizedStrings.length) {
+            return;
+        }
+
+        TreeMap<String, int[]> words = new TreeMap<>();
+        HashMap<String, Integer> wordSizes = new HashMap<>();
+        for (int i = 1; i < mNormalizedStrings.length; i++) {
+            String normalized = mNormalizedStrings[i];
+            if (normalized.isEmpty()) {
+                continue;
+            }
+            for (String word : normalized.split(" ")) {
+                int[] strings = words.get(word);
+                int size = strings == null ? 0 : wordSizes.get(word);
+                if (size > 0 && strings[size - 1] == i) {
+                    // Word repeated within the same string
+                    continue;
+                }
+                if (strings == null) {
+                    strings = new int[1];
+                } else if (size == strings.length) {
+                    strings = Arrays.copyOf(strings, size * 2);
+                }
+                strings[size] = i;
+                words.put(word, strings);
+                wordSizes.put(word, size + 1);
+            }
+        }
+        for (Map.Entry<String, int[]> entry : words.entrySet()) {
+            int size = wordSizes.get(entry.getKey());
+            if (size != entry.getValue().length) {
+                entry.setValue(Arrays.copyOf(entry.getValue(), size));
+            }
+        }
+
+        mWords = words;
+        mWordsStringCount = mNormalizedStrings.length;
+    }
+
+    private void updateNormalizedStrings() {
+        if (mNormalizedStrings == null || mNormalizedStrings.length != mStrings.size()) {
+            int known = mNormalizedStrings == null ? 0 : Math.min(mNormalizedStrings.length, mStrings.size());
+            mNormalizedStrings = mNormalizedStrings == null ? new String[mStrings.size()] : Arrays.copyOf(mNormalizedStrings, mStrings.size());
+            for (int i = known; i < mNormalizedStrings.length; i++) {
+                mNormalizedStrings[i] = StringCompareUtils.normalize(mStrings.get(i));
+            }
+        }
+    }
+
+    /**
+     * Reserves the space for the URI of the entry at mSize in the char buffer.
+     *
+     * @return Start offset of the URI
+     */
+    private int reserveURI(int length) {
+        int uriStart = mURIOffsets[mSize];
+        if (mURIChars.length < uriStart + length) {
+            mURIChars = Arrays.copyOf(mURIChars, Math.max(mURIChars.length * 2, uriStart + length));
+        }
+        mURIOffsets[mSize + 1] = uriStart + length;
+        return uriStart;
+    }
+
+    private int[] getColumn(MPDTrack.StringTagTypes tag) {
+        switch (tag) {
+            case TITLE:
+                return mTitles;
+            case ARTIST:
+                return mArtists;
+            case ALBUM:
+                return mAlbums;
+            case ALBUM_URI:
+                return mAlbumURIs;
+            default:
+                return mTagColumns[tag.ordinal()];
+        }
+    }
+
+    private int stringIndex(String value) {
+        if (value == null || value.isEmpty()) {
+            return 0;
+        }
+        Integer index = mStringIndices.get(value);
+        if (index == null) {
+            index = mStrings.size();
+            mStrings.add(MPDStringPool.intern(value));
+            mStringIndices.put(value, index);
+        }
+        return index;
+    }
+
+    private void buildTlidTable() {
+        int tableSize = Integer.highestOneBit(Math.max(mSize, 1) * 2) * 2;
+        mTlidTable = new int[tableSize];
+        mTlidTableIndices = new int[tableSize];
+
+        int mask = tableSize - 1;
+        for (int i = 0; i < mSize; i++) {
+            int tlid = mTlids[i];
+            if (tlid == NO_TLID) {
+                continue;
+            }
+            int slot = mix(tlid) & mask;
+            while (mTlidTable[slot] != NO_TLID && mTlidTable[slot] != tlid) {
+                slot = (slot + 1) & mask;
+            }
+            mTlidTable[slot] = tlid;
+            mTlidTableIndices[slot] = i;
+        }
+    }
+
+    private static int mix(int value) {
+        int hash = value * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= mTlids.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, mTlids.length * 2);
+        mTlids = Arrays.copyOf(mTlids, newCapacity);
+        mLengths = Arrays.copyOf(mLengths, newCapacity);
+        mPositions = Arrays.copyOf(mPositions, newCapacity);
+        mTitles = Arrays.copyOf(mTitles, newCapacity);
+        mArtists = Arrays.copyOf(mArtists, newCapacity);
+        mAlbums = Arrays.copyOf(mAlbums, newCapacity);
+        mAlbumURIs = Arrays.copyOf(mAlbumURIs, newCapacity);
+        mArtworks = Arrays.copyOf(mArtworks, newCapacity);
+        mLikes = Arrays.copyOf(mLikes, newCapacity);
+        for (int tag = 0; tag < mTagColumns.length; tag++) {
+            if (mTagColumns[tag] != null) {
+                mTagColumns[tag] = Arrays.copyOf(mTagColumns[tag], newCapacity);
+            }
+        }
+        mURIOffsets = Arrays.copyOf(mURIOffsets, newCapacity + 1);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+        }
+    }
+}
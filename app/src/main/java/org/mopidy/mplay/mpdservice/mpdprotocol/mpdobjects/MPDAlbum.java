@@ -28,11 +28,12 @@ import android.os.Parcelable;
 
 import androidx.annotation.NonNull;
 
+import java.text.CollationKey;
 import java.text.Collator;
 import java.util.Comparator;
 import java.util.Date;
 
-public class MPDAlbum implements MPDGenericItem, Comparable<MPDAlbum>, Parcelable {
+public class MPDAlbum implements MPDGenericItem, MPDSortKeyHolder, Comparable<MPDAlbum>, Parcelable {
 
 
 
@@ -63,9 +64,14 @@ public class MPDAlbum implements MPDGenericItem, Comparable<MPDAlbum>, Parcelabl
 
     private boolean mImageFetching;
 
+    /* Cached collation key, not parceled */
+    private CollationKey mSortKey;
+
+    private int mSortKeyId;
+
     public MPDAlbum(@NonNull String name, String uri) {
         mUri = uri;
-        mName = name;
+        mName = MPDStringPool.intern(name);
         mMBID = "";
         mArtistName = "";
         mArtistSortName = "";
@@ -78,6 +84,14 @@ public class MPDAlbum implements MPDGenericItem, Comparable<MPDAlbum>, Parcelabl
         mArtwork = artwork;
     }
 
+    /**
+     * @return The artwork template as received from the server (without size replacement)
+     */
+    @NonNull
+    public String getRawArtwork() {
+        return mArtwork == null ? "" : mArtwork;
+    }
+
     public boolean hasArtwork() {
         if (mArtwork == null) return false;
         return !mArtwork.isEmpty();
@@ -93,18 +107,19 @@ public class MPDAlbum implements MPDGenericItem, Comparable<MPDAlbum>, Parcelabl
     }
 
     public void setTitle(String name) {
-        mName = name;
+        mName = MPDStringPool.intern(name);
     }
     /* Getters */
 
     protected MPDAlbum(Parcel in) {
+        mName = MPDStringPool.intern(in.readString());
         mUri = in.readString();
-        mName = mUri;
-        mMBID = in.readString();
-        mArtistName = in.readString();
-        mArtistSortName = in.readString();
+        mMBID = MPDStringPool.intern(in.readString());
+        mArtistName = MPDStringPool.intern(in.readString());
+        mArtistSortName = MPDStringPool.intern(in.readString());
+        mArtwork = in.readString();
         mImageFetching = in.readByte() != 0;
-        mDate = (Date) in.readSerializable();
+        mDate = new Date(in.readLong());
     }
 
     public static final Creator<MPDAlbum> CREATOR = new Creator<MPDAlbum>() {
@@ -136,7 +151,7 @@ public class MPDAlbum implements MPDGenericItem, Comparable<MPDAlbum>, Parcelabl
 
 
     public void setArtistName(@NonNull String artistName) {
-        mArtistName = artistName;
+        mArtistName = MPDStringPool.intern(artistName);
     }
 
     @NonNull
@@ -145,11 +160,11 @@ public class MPDAlbum implements MPDGenericItem, Comparable<MPDAlbum>, Parcelabl
     }
 
     public void setArtistSortName(@NonNull String artistSortName) {
-        mArtistSortName = artistSortName;
+        mArtistSortName = MPDStringPool.intern(artistSortName);
     }
 
     public void setMBID(@NonNull String mbid) {
-        mMBID = mbid;
+        mMBID = MPDStringPool.intern(mbid);
     }
 
     public void setDate(@NonNull Date date) {
@@ -175,6 +190,22 @@ public class MPDAlbum implements MPDGenericItem, Comparable<MPDAlbum>, Parcelabl
         return mName;
     }
 
+    @Override
+    public String getSortText() {
+        return mName;
+    }
+
+    @Override
+    public synchronized CollationKey getSortKey(int keyId) {
+        return mSortKeyId == keyId ? mSortKey : null;
+    }
+
+    @Override
+    public synchronized void setSortKey(int keyId, CollationKey key) {
+        mSortKeyId = keyId;
+        mSortKey = key;
+    }
+
     @Override
     public boolean equals(Object object) {
         if (!(object instanceof MPDAlbum)) {
@@ -223,11 +254,13 @@ public class MPDAlbum implements MPDGenericItem, Comparable<MPDAlbum>, Parcelabl
     @Override
     public void writeToParcel(Parcel dest, int flags) {
         dest.writeString(mName);
+        dest.writeString(mUri);
         dest.writeString(mMBID);
         dest.writeString(mArtistName);
         dest.writeString(mArtistSortName);
+        dest.writeString(mArtwork);
         dest.writeByte((byte) (mImageFetching ? 1 : 0));
-        dest.writeSerializable(mDate);
+        dest.writeLong(mDate.getTime());
     }
 
     public static class MPDAlbumDateComparator implements Comparator<MPDAlbum> {
@@ -28,10 +28,12 @@ import android.os.Parcelable;
 
 import androidx.annotation.NonNull;
 
+import java.text.CollationKey;
 import java.text.Collator;
 import java.util.ArrayList;
+import java.util.Arrays;
 
-public class MPDArtist implements MPDGenericItem, Comparable<MPDArtist>, Parcelable {
+public class MPDArtist implements MPDGenericItem, MPDSortKeyHolder, Comparable<MPDArtist>, Parcelable {
     /* Artist properties */
     @NonNull
     private String pArtistName;
@@ -39,22 +41,37 @@ public class MPDArtist implements MPDGenericItem, Comparable<MPDArtist>, Parcela
     @NonNull
     private final String pUrl;
 
-    /* Musicbrainz ID */
+    private static final String[] NO_MBIDS = new String[0];
+
+    /* Musicbrainz IDs. Most artists have none or one, so a plain array is used. */
     @NonNull
-    private final ArrayList<String> pMBIDs;
+    private String[] pMBIDs;
 
     private boolean mImageFetching;
 
+    /* Cached collation key, not parceled */
+    private CollationKey mSortKey;
+
+    private int mSortKeyId;
+
     public MPDArtist(@NonNull String name, String url) {
-        pArtistName = name;
+        pArtistName = MPDStringPool.intern(name);
         pUrl = url;
-        pMBIDs = new ArrayList<>();
+        pMBIDs = NO_MBIDS;
     }
 
     protected MPDArtist(Parcel in) {
-        pArtistName = in.readString();
-        pUrl = pArtistName;
-        pMBIDs = in.createStringArrayList();
+        pArtistName = MPDStringPool.intern(in.readString());
+        pUrl = in.readString();
+        pMBIDs = NO_MBIDS;
+        int mbidCount = in.readInt();
+        if (mbidCount > 0) {
+            pMBIDs = new String[mbidCount];
+            for (int i = 0; i < mbidCount; i++) {
+                pMBIDs[i] = MPDStringPool.intern(in.readString());
+            }
+        }
+        mArtwork = in.readString();
         mImageFetching = in.readByte() != 0;
     }
 
@@ -76,6 +93,14 @@ public class MPDArtist implements MPDGenericItem, Comparable<MPDArtist>, Parcela
         mArtwork = artwork;
     }
 
+    /**
+     * @return The artwork template as received from the server (without size replacement)
+     */
+    @NonNull
+    public String getRawArtwork() {
+        return mArtwork == null ? "" : mArtwork;
+    }
+
     public boolean hasArtwork() {
         if(mArtwork == null) return false;
         return !mArtwork.isEmpty();
@@ -91,25 +116,31 @@ public class MPDArtist implements MPDGenericItem, Comparable<MPDArtist>, Parcela
     }
 
     public int getMBIDCount() {
-        return pMBIDs.size();
+        return pMBIDs.length;
     }
 
     public String getMBID(int position) {
-        return pMBIDs.get(position);
+        return pMBIDs[position];
     }
 
     public void addMBID(@NonNull String mbid) {
-        pMBIDs.add(mbid);
+        pMBIDs = Arrays.copyOf(pMBIDs, pMBIDs.length + 1);
+        pMBIDs[pMBIDs.length - 1] = MPDStringPool.intern(mbid);
     }
 
     public void setMBID(@NonNull String mbid) {
-        pMBIDs.clear();
-        pMBIDs.add(mbid);
+        pMBIDs = new String[]{MPDStringPool.intern(mbid)};
     }
 
     public void setMBIDs(@NonNull ArrayList<String> mbids) {
-        pMBIDs.clear();
-        pMBIDs.addAll(mbids);
+        if (mbids.isEmpty()) {
+            pMBIDs = NO_MBIDS;
+            return;
+        }
+        pMBIDs = new String[mbids.size()];
+        for (int i = 0; i < pMBIDs.length; i++) {
+            pMBIDs[i] = MPDStringPool.intern(mbids.get(i));
+        }
     }
 
 
@@ -119,6 +150,22 @@ public class MPDArtist implements MPDGenericItem, Comparable<MPDArtist>, Parcela
         return pArtistName;
     }
 
+    @Override
+    public String getSortText() {
+        return pArtistName;
+    }
+
+    @Override
+    public synchronized CollationKey getSortKey(int keyId) {
+        return mSortKeyId == keyId ? mSortKey : null;
+    }
+
+    @Override
+    public synchronized void setSortKey(int keyId, CollationKey key) {
+        mSortKeyId = keyId;
+        mSortKey = key;
+    }
+
     @Override
     public boolean equals(Object object) {
         if (!(object instanceof MPDArtist)) {
@@ -126,16 +173,11 @@ public class MPDArtist implements MPDGenericItem, Comparable<MPDArtist>, Parcela
         }
 
         MPDArtist artist = (MPDArtist) object;
-        if (!artist.pArtistName.toLowerCase().equals(pArtistName.toLowerCase()) || (artist.pMBIDs.size() != pMBIDs.size())) {
+        if (!artist.pArtistName.toLowerCase().equals(pArtistName.toLowerCase()) || (artist.pMBIDs.length != pMBIDs.length)) {
             return false;
         }
 
-        for (int i = 0; i < pMBIDs.size(); i++) {
-            if (!pMBIDs.get(i).equals(artist.pMBIDs.get(i))) {
-                return false;
-            }
-        }
-        return true;
+        return Arrays.equals(pMBIDs, artist.pMBIDs);
     }
 
     @Override
@@ -149,8 +191,8 @@ public class MPDArtist implements MPDGenericItem, Comparable<MPDArtist>, Parcela
         if (compareResult == 0) {
             // Try to position artists with one mbid at the end
 
-            int size = pMBIDs.size();
-            int anotherSize = another.pMBIDs.size();
+            int size = pMBIDs.length;
+            int anotherSize = another.pMBIDs.length;
             if (size > anotherSize) {
                 // This object is "greater" than another
                 return 1;
@@ -160,7 +202,7 @@ public class MPDArtist implements MPDGenericItem, Comparable<MPDArtist>, Parcela
             } else {
                 // Create some random order for MBID arrays (must be consistent)
                 if (size > 0) {
-                    return pMBIDs.get(0).compareTo(another.pMBIDs.get(0));
+                    return pMBIDs[0].compareTo(another.pMBIDs[0]);
                 } else {
                     return 0;
                 }
@@ -196,13 +238,17 @@ public class MPDArtist implements MPDGenericItem, Comparable<MPDArtist>, Parcela
     @Override
     public void writeToParcel(Parcel dest, int flags) {
         dest.writeString(pArtistName);
-        String[] mbids = pMBIDs.toArray(new String[0]);
-        dest.writeStringArray(mbids);
+        dest.writeString(pUrl);
+        dest.writeInt(pMBIDs.length);
+        for (String mbid : pMBIDs) {
+            dest.writeString(mbid);
+        }
+        dest.writeString(mArtwork);
         dest.writeByte(mImageFetching ? (byte) 1 : (byte) 0);
     }
 
     public void setName(String name) {
-        pArtistName = name;
+        pArtistName = MPDStringPool.intern(name);
     }
 
     public String getURI() {
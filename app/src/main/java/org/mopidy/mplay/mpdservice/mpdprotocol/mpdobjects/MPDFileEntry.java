@@ -134,6 +134,14 @@ public abstract class MPDFileEntry implements MPDGenericItem, Comparable<MPDFile
         return "http://" + mArtwork.replace("%1",size).replace("%2",size);
     }
 
+    /**
+     * @return The artwork template as received from the server (without size replacement)
+     */
+    @NonNull
+    public String getRawArtwork() {
+        return mArtwork == null ? "" : mArtwork;
+    }
+
     public boolean hasArtwork() {
         if (mArtwork == null) return false;
         return !mArtwork.isEmpty();
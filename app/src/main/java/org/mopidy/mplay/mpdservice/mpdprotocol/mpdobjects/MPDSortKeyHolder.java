@@ -0,0 +1,45 @@
+/*
+ *  Copyright (C) 2022 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://gitlab.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects;
+
+import java.text.CollationKey;
+
+/**
+ * Item that caches the collation key used for sorting it, see
+ * {@link org.mopidy.mplay.mpdservice.mpdprotocol.MPDSortHelper}.
+ */
+public interface MPDSortKeyHolder {
+
+    /**
+     * @return The text the item is sorted by.
+     */
+    String getSortText();
+
+    /**
+     * @param keyId Id of the locale and options the key was created with.
+     * @return The cached key or null if no key with this id is cached.
+     */
+    CollationKey getSortKey(int keyId);
+
+    void setSortKey(int keyId, CollationKey key);
+}
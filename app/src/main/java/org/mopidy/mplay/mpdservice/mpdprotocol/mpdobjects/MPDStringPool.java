@@ -0,0 +1,73 @@
+/*
+ *  Copyright (C) 2022 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://gitlab.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects;
+
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+
+/**
+ * Shared pool for tag values that repeat across many items (artist, album, genre,...).
+ * A queue with thousands of tracks of the same album then only holds one instance of the
+ * album and artist strings. Entries are only weakly held, so values are dropped again once no
+ * item references them anymore.
+ */
+public final class MPDStringPool {
+
+    private static final WeakHashMap<String, WeakReference<String>> sPool = new WeakHashMap<>();
+
+    private MPDStringPool() {
+    }
+
+    /**
+     * Returns the pooled instance for the given value. Empty values are returned unchanged.
+     *
+     * @param value Value to intern, can be null.
+     * @return Shared instance equal to value or null if value was null.
+     */
+    public static String intern(String value) {
+        if (value == null || value.isEmpty()) {
+            return value;
+        }
+
+        synchronized (sPool) {
+            WeakReference<String> reference = sPool.get(value);
+            if (reference != null) {
+                String pooled = reference.get();
+                if (pooled != null) {
+                    return pooled;
+                }
+            }
+            sPool.put(value, new WeakReference<>(value));
+            return value;
+        }
+    }
+
+    /**
+     * @return Number of distinct values currently held by the pool.
+     */
+    public static int size() {
+        synchronized (sPool) {
+            return sPool.size();
+        }
+    }
+}
@@ -32,8 +32,6 @@ import androidx.annotation.NonNull;
 import org.mopidy.mplay.R;
 import org.mopidy.mplay.application.adapters.CurrentPlaylistAdapter;
 
-import java.util.HashMap;
-
 /**
  * This class represents an MPDTrack. This is the same type for tracks and files.
  * This is used for tracks in playlist, album, search results,... and for music files when
@@ -42,33 +40,52 @@ import java.util.HashMap;
 public class MPDTrack extends MPDFileEntry implements MPDGenericItem, Parcelable {
 
     public enum StringTagTypes {
-        ARTIST,
-        ARTISTSORT,
-        ALBUM,
-        ALBUMSORT,
-        ALBUMARTIST,
-        ALBUMARTISTSORT,
-        DATE,
-        TITLE,
-        NAME,
-        GENRE,
-        COMPOSER,
-        PERFORMER,
-        CONDUCTOR,
-        WORK,
-        COMMENT,
-        LABEL,
-        ARTIST_MBID,
-        ALBUM_MBID,
-        ALBUMARTIST_MBID,
-        TRACK_MBID,
-        RELEASETRACK_MBID,
-        WORK_MBID,
-        ARTIST_URI,
-        ALBUM_URI;
-    }
-
-    private final HashMap<StringTagTypes, String> pStringTags;
+        ARTIST(true),
+        ARTISTSORT(true),
+        ALBUM(true),
+        ALBUMSORT(true),
+        ALBUMARTIST(true),
+        ALBUMARTISTSORT(true),
+        DATE(true),
+        TITLE(false),
+        NAME(false),
+        GENRE(true),
+        COMPOSER(true),
+        PERFORMER(true),
+        CONDUCTOR(true),
+        WORK(true),
+        COMMENT(false),
+        LABEL(true),
+        ARTIST_MBID(true),
+        ALBUM_MBID(true),
+        ALBUMARTIST_MBID(true),
+        TRACK_MBID(false),
+        RELEASETRACK_MBID(false),
+        WORK_MBID(true),
+        ARTIST_URI(true),
+        ALBUM_URI(true);
+
+        /**
+         * True for tags that are usually shared by many tracks (album, artist,...). Values of
+         * these tags are interned in {@link MPDStringPool}.
+         */
+        private final boolean mShared;
+
+        StringTagTypes(boolean shared) {
+            mShared = shared;
+        }
+
+        public boolean isShared() {
+            return mShared;
+        }
+    }
+
+    private static final StringTagTypes[] TAG_TYPES = StringTagTypes.values();
+
+    /**
+     * Tag values indexed by {@link StringTagTypes#ordinal()}. Unset tags are null.
+     */
+    private final String[] pStringTags;
 
     /**
      * Length in seconds
@@ -112,7 +129,18 @@ public class MPDTrack extends MPDFileEntry implements MPDGenericItem, Parcelable
 
     private String pURI;
 
+    /**
+     * Bits of the flags byte used by the parcel encoding
+     */
+    private static final int PARCEL_FLAG_FETCHING = 0x1;
+    private static final int PARCEL_FLAG_LIKE = 0x2;
+
     protected MPDTrack(Parcel in) {
+        super(in.readString());
+        setURI(in.readString());
+        mName = in.readString();
+        mArtwork = in.readString();
+
         pLength = in.readInt();
         pTrackNumber = in.readInt();
         pAlbumTrackCount = in.readInt();
@@ -123,14 +151,30 @@ public class MPDTrack extends MPDFileEntry implements MPDGenericItem, Parcelable
         pChannelCount = in.readInt();
         pSampleRate = in.readInt();
         pBitDepth = in.readInt();
-        pImageFetching = in.readByte() != 0;
-        pStringTags = (HashMap<StringTagTypes, String>) in.readSerializable();
-        mArtwork = in.readString();
-        pLike = in.readBoolean();
+
+        int flags = in.readByte();
+        pImageFetching = (flags & PARCEL_FLAG_FETCHING) != 0;
+        pLike = (flags & PARCEL_FLAG_LIKE) != 0;
+
+        // Tags are written as (ordinal, value) pairs of the set tags only
+        pStringTags = new String[TAG_TYPES.length];
+        int tagCount = in.readInt();
+        for (int i = 0; i < tagCount; i++) {
+            int ordinal = in.readInt();
+            String value = in.readString();
+            if (ordinal >= 0 && ordinal < TAG_TYPES.length) {
+                setStringTag(TAG_TYPES[ordinal], value);
+            }
+        }
     }
 
     @Override
     public void writeToParcel(Parcel dest, int flags) {
+        dest.writeString(mPath);
+        dest.writeString(getURI());
+        dest.writeString(mName);
+        dest.writeString(mArtwork);
+
         dest.writeInt(pLength);
         dest.writeInt(pTrackNumber);
         dest.writeInt(pAlbumTrackCount);
@@ -141,10 +185,22 @@ public class MPDTrack extends MPDFileEntry implements MPDGenericItem, Parcelable
         dest.writeInt(pChannelCount);
         dest.writeInt(pSampleRate);
         dest.writeInt(pBitDepth);
-        dest.writeByte((byte) (pImageFetching ? 1 : 0));
-        dest.writeSerializable(pStringTags);
-        dest.writeString(mArtwork);
-        dest.writeBoolean(pLike);
+
+        dest.writeByte((byte) ((pImageFetching ? PARCEL_FLAG_FETCHING : 0) | (pLike ? PARCEL_FLAG_LIKE : 0)));
+
+        int tagCount = 0;
+        for (String value : pStringTags) {
+            if (value != null) {
+                tagCount++;
+            }
+        }
+        dest.writeInt(tagCount);
+        for (int i = 0; i < pStringTags.length; i++) {
+            if (pStringTags[i] != null) {
+                dest.writeInt(i);
+                dest.writeString(pStringTags[i]);
+            }
+        }
     }
 
     public void setLike(boolean like) {
@@ -218,7 +274,7 @@ public class MPDTrack extends MPDFileEntry implements MPDGenericItem, Parcelable
         super(path);
         pLength = 0;
 
-        pStringTags = new HashMap<>();
+        pStringTags = new String[TAG_TYPES.length];
 
         pImageFetching = false;
     }
@@ -307,12 +363,12 @@ public class MPDTrack extends MPDFileEntry implements MPDGenericItem, Parcelable
 
     @NonNull
     public String getStringTag(StringTagTypes tag) {
-        String tagValue = pStringTags.get(tag);
+        String tagValue = pStringTags[tag.ordinal()];
         return tagValue == null ? "" : tagValue;
     }
 
     public void setStringTag(StringTagTypes tag, @NonNull String value) {
-        pStringTags.put(tag, value);
+        pStringTags[tag.ordinal()] = tag.isShared() ? MPDStringPool.intern(value) : value;
     }
 
     /**
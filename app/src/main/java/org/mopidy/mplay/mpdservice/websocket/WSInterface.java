@@ -34,13 +34,18 @@ import com.neovisionaries.ws.client.WebSocketFactory;
 import com.neovisionaries.ws.client.WebSocketFrame;
 import com.neovisionaries.ws.client.WebSocketState;
 
+import org.mopidy.mplay.application.utils.HTTPClient;
 import org.mopidy.mplay.mpdservice.LocalPlayer;
 import org.mopidy.mplay.mpdservice.handlers.MPDConnectionStateChangeHandler;
 import org.mopidy.mplay.mpdservice.handlers.MPDIdleChangeHandler;
+import org.mopidy.mplay.mpdservice.mpdprotocol.MPDBrowseCache;
 import org.mopidy.mplay.mpdservice.mpdprotocol.MPDCache;
 import org.mopidy.mplay.mpdservice.mpdprotocol.MPDCapabilities;
 import org.mopidy.mplay.mpdservice.mpdprotocol.MPDCommands;
 import org.mopidy.mplay.mpdservice.mpdprotocol.MPDException;
+import org.mopidy.mplay.mpdservice.mpdprotocol.MPDLibraryIndex;
+import org.mopidy.mplay.mpdservice.mpdprotocol.MPDSortHelper;
+import org.mopidy.mplay.mpdservice.mpdprotocol.MPDTrackList;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDArtist;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDCurrentStatus;
@@ -48,11 +53,14 @@ import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDOutput;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDStatistics;
 import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDTrack;
-import org.mopidy.mplay.mpdservice.websocket.types.JSONAlbum;
-import org.mopidy.mplay.mpdservice.websocket.types.JSONArtist;
+import org.mopidy.mplay.mpdservice.websocket.decoder.JSONModelDecoder;
+import org.mopidy.mplay.mpdservice.websocket.types.JSONImage;
 import org.mopidy.mplay.mpdservice.websocket.types.JSONSimplePlaylist;
 import org.mopidy.mplay.mpdservice.websocket.types.JSONSimpleTrack;
+import org.mopidy.mplay.mpdservice.websocket.types.params.JSONParamsCriteria;
+import org.mopidy.mplay.mpdservice.websocket.types.params.JSONParamsDistinct;
 import org.mopidy.mplay.mpdservice.websocket.types.params.JSONParamsPlaylist;
+import org.mopidy.mplay.mpdservice.websocket.types.params.JSONParamsQuery;
 import org.mopidy.mplay.mpdservice.websocket.types.params.JSONParamsRemove;
 import org.mopidy.mplay.mpdservice.websocket.types.params.JSONParamsStartEnd;
 import org.mopidy.mplay.mpdservice.websocket.types.params.JSONParamsStartEndPosition;
@@ -67,33 +75,38 @@ import org.mopidy.mplay.mpdservice.websocket.types.JSONPlaylist;
 import org.mopidy.mplay.mpdservice.websocket.types.JSONSearchAlbumQuery;
 import org.mopidy.mplay.mpdservice.websocket.types.JSONSearchAnyQuery;
 import org.mopidy.mplay.mpdservice.websocket.types.JSONSearchArtistQuery;
-import org.mopidy.mplay.mpdservice.websocket.types.JSONSearchResult;
 import org.mopidy.mplay.mpdservice.websocket.types.JSONSearchTrackQuery;
-import org.mopidy.mplay.mpdservice.websocket.types.responses.JSONBrowseResponse;
-import org.mopidy.mplay.mpdservice.websocket.types.responses.JSONLookupResponse;
 import org.mopidy.mplay.mpdservice.websocket.types.responses.JSONPlaylistResponse;
 import org.mopidy.mplay.mpdservice.websocket.types.responses.JSONPlaylistsResponse;
 import org.mopidy.mplay.mpdservice.websocket.types.JSONRequest;
 import org.mopidy.mplay.mpdservice.websocket.types.responses.JSONResponse;
 import org.mopidy.mplay.mpdservice.websocket.types.JSONSearchParams;
-import org.mopidy.mplay.mpdservice.websocket.types.responses.JSONSearchResponse;
 import org.mopidy.mplay.mpdservice.websocket.types.responses.JSONSimpleResponse;
-import org.mopidy.mplay.mpdservice.websocket.types.JSONTLTrack;
 import org.mopidy.mplay.mpdservice.websocket.types.responses.JSONTLTrackResponse;
 import org.mopidy.mplay.mpdservice.websocket.types.responses.JSONTLTracksResponse;
-import org.mopidy.mplay.mpdservice.websocket.types.JSONTrack;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
-import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
 
 
 public class WSInterface  {
@@ -113,6 +126,66 @@ public class WSInterface  {
 
     private static final long MAX_IMAGE_SIZE = 50 * 1024 * 1024; // 50 MB
 
+    private static final int IMAGE_BUFFER_SIZE = 16 * 1024;
+
+    /**
+     * URI scheme of Mopidy-Local. Its library can be browsed by album and artist, which only
+     * transfers names and URIs.
+     */
+    private static final String LOCAL_URI_SCHEME = "local";
+    private static final String LOCAL_ALBUMS_URI = "local:directory?type=album";
+    private static final String LOCAL_ARTISTS_URI = "local:directory?type=artist&role=artist";
+    private static final String LOCAL_ALBUMARTISTS_URI = "local:directory?type=artist&role=albumartist";
+
+    /**
+     * Fields of core.library.get_distinct
+     */
+    private static final String DISTINCT_FIELD_ALBUM = "album";
+    private static final String DISTINCT_FIELD_ARTIST = "artist";
+    private static final String DISTINCT_FIELD_ALBUMARTIST = "albumartist";
+
+    /**
+     * Tags that are served for the generic list requests
+     */
+    private static final List<String> SERVER_TAGS = Collections.singletonList(DISTINCT_FIELD_ALBUMARTIST);
+
+    /**
+     * MPD commands that have an equivalent in this interface
+     */
+    private static final List<String> SERVER_COMMANDS = Collections.singletonList(MPDCommands.MPD_COMMAND_PLAYLIST_FIND);
+
+    /**
+     * Fields of core.tracklist.filter
+     */
+    private static final String TRACKLIST_FIELD_NAME = "name";
+    private static final String TRACKLIST_FIELD_URI = "uri";
+
+    /**
+     * Maximum number of tracklist entries returned by a search in the tracklist
+     */
+    private static final int MAX_TRACKLIST_FIND_RESULTS = 100;
+
+    /**
+     * Maximum number of directories that are prefetched for one visible range of a file list
+     */
+    private static final int MAX_PREFETCH_DIRECTORIES = 8;
+
+    /**
+     * Maximum number of URIs that are resolved with one core.library.get_images call
+     */
+    private static final int MAX_IMAGE_URIS_PER_REQUEST = 100;
+
+    /**
+     * Time in ms that single artwork requests wait for further requests to share their
+     * core.library.get_images call with
+     */
+    private static final long IMAGE_BATCH_WINDOW = 30;
+
+    /**
+     * Maximum number of URIs whose images are cached
+     */
+    private static final int MAX_CACHED_IMAGE_URIS = 1024;
+
     //private static WSInterface mArtworkInterface;
     //private static WSInterface mBackgroundInterface;
     private static WSInterface mGenericInterface;
@@ -124,7 +197,42 @@ public class WSInterface  {
     ExecutorService es = Executors.newFixedThreadPool(2);
     ListeningExecutorService service = MoreExecutors.listeningDecorator(es);
 
-    private HashMap<Integer,String> responses = new HashMap<>();
+    /**
+     * Single low priority thread for directory prefetches, so that they never delay requests
+     * the user is waiting for.
+     */
+    private final ExecutorService mPrefetchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "BrowsePrefetch");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    private final AtomicInteger mPrefetchGeneration = new AtomicInteger();
+
+    /**
+     * Images of the URIs resolved with core.library.get_images, least recently used first.
+     * URIs without images are cached with an empty list.
+     */
+    private final LinkedHashMap<String, List<JSONImage>> mImageCache = new LinkedHashMap<String, List<JSONImage>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<JSONImage>> eldest) {
+            return size() > MAX_CACHED_IMAGE_URIS;
+        }
+    };
+
+    /**
+     * URIs of single artwork requests that are collected for the next core.library.get_images
+     * call. The first request of a batch sends it for all requests that arrived meanwhile.
+     */
+    private static class ImageBatch {
+        private final Set<String> mURIs = new LinkedHashSet<>();
+        private final CountDownLatch mDone = new CountDownLatch(1);
+        private Map<String, List<JSONImage>> mImages = Collections.emptyMap();
+    }
+
+    private final Object mImageBatchLock = new Object();
+    private ImageBatch mPendingImageBatch;
+
+    private final ConcurrentHashMap<Integer,String> responses = new ConcurrentHashMap<>();
     private MPDIdleChangeHandler mIDLEChangeHandler;
     private LocalPlayer mPlayer = null;
 
@@ -211,11 +319,24 @@ public class WSInterface  {
             case "volume_changed":
                 mIDLEChangeHandler.noIdle();
                 break;
+
+            // Playlists are part of the browse results of their backends
+            case "playlists_loaded":
+            case "playlist_changed":
+            case "playlist_deleted":
+                mCache.getBrowseCache().invalidateAll();
+                break;
         }
     }
 
     private void setInstanceServerParameters(String hostname, String password, int port) {
         mCache = new MPDCache(0);
+        MPDLibraryIndex.getInstance().clear();
+        // Answers that arrived after their request gave up waiting
+        responses.clear();
+        synchronized (mImageCache) {
+            mImageCache.clear();
+        }
         mHostname = hostname;
         mPassword = password;
         mPort = port;
@@ -261,7 +382,7 @@ public class WSInterface  {
     }
 
     public MPDCapabilities getServerCapabilities() {
-        MPDCapabilities caps = new MPDCapabilities("17.1.0", null, null);
+        MPDCapabilities caps = new MPDCapabilities("17.1.0", SERVER_COMMANDS, SERVER_TAGS);
         return caps;
     }
 
@@ -275,6 +396,13 @@ public class WSInterface  {
         }
     }
 
+    /**
+     * @return The cache of the current server. Used to create the session snapshot.
+     */
+    public MPDCache getCache() {
+        return mCache;
+    }
+
     public boolean isConnected() {
         if (mConnection == null) return false;
         return mConnection.isOpen();
@@ -282,8 +410,174 @@ public class WSInterface  {
 
 
 
-    public byte[] getAlbumArt(String model, boolean b) throws MPDException {
-        return null;
+    /**
+     * Downloads the artwork of a track, album or artist URI. From the images the server knows for
+     * the URI the one closest to the requested size is used. Concurrent requests share one
+     * core.library.get_images call.
+     *
+     * @param uri  URI of the item
+     * @param size Requested size in pixels, 0 for the largest image
+     * @return Image data or null if the server has no image for the URI
+     */
+    public byte[] getAlbumArt(String uri, int size) {
+        if (uri == null || uri.isEmpty()) {
+            return null;
+        }
+        JSONImage image = JSONImage.selectBestImage(getImagesBatched(uri), size);
+        if (image == null) {
+            return null;
+        }
+        return downloadImage(image.uri);
+    }
+
+    /**
+     * Resolves the images of multiple URIs (tracks, albums or artists) with
+     * core.library.get_images. Cached URIs are served directly, all others are requested
+     * together with as few calls as possible.
+     *
+     * @param uris URIs to resolve
+     * @return Images of the resolved URIs. URIs that could not be resolved are missing.
+     */
+    public Map<String, List<JSONImage>> getImages(Collection<String> uris) {
+        Map<String, List<JSONImage>> result = new HashMap<>();
+        Set<String> missing = new LinkedHashSet<>();
+        synchronized (mImageCache) {
+            for (String uri : uris) {
+                if (uri == null || uri.isEmpty()) {
+                    continue;
+                }
+                List<JSONImage> images = mImageCache.get(uri);
+                if (images != null) {
+                    result.put(uri, images);
+                } else {
+                    missing.add(uri);
+                }
+            }
+        }
+
+        List<String> missingURIs = new ArrayList<>(missing);
+        for (int start = 0; start < missingURIs.size(); start += MAX_IMAGE_URIS_PER_REQUEST) {
+            ArrayList<String> chunk = new ArrayList<>(missingURIs.subList(start, Math.min(missingURIs.size(), start + MAX_IMAGE_URIS_PER_REQUEST)));
+            JSONRequest request = new JSONRequest(getNextID(), "core.library.get_images", new JSONParamsURIList(chunk));
+            sendRequest(request);
+            Map<String, List<JSONImage>> images = JSONModelDecoder.decodeImages(waitResponse(request));
+            if (images.isEmpty()) {
+                // The server answers with an entry for every URI, so this request failed.
+                // Nothing is cached to retry the URIs with the next request.
+                continue;
+            }
+            synchronized (mImageCache) {
+                for (String uri : chunk) {
+                    List<JSONImage> uriImages = images.get(uri);
+                    if (uriImages == null) {
+                        uriImages = Collections.emptyList();
+                    }
+                    mImageCache.put(uri, uriImages);
+                    result.put(uri, uriImages);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Resolves the images of a single URI. Requests from other threads that arrive within
+     * {@link #IMAGE_BATCH_WINDOW} are combined into the same core.library.get_images call.
+     */
+    private List<JSONImage> getImagesBatched(String uri) {
+        synchronized (mImageCache) {
+            List<JSONImage> images = mImageCache.get(uri);
+            if (images != null) {
+                return images;
+            }
+        }
+
+        ImageBatch batch;
+        boolean sender = false;
+        synchronized (mImageBatchLock) {
+            batch = mPendingImageBatch;
+            if (batch == null) {
+                batch = new ImageBatch();
+                mPendingImageBatch = batch;
+                sender = true;
+            }
+            batch.mURIs.add(uri);
+        }
+
+        if (sender) {
+            try {
+                Thread.sleep(IMAGE_BATCH_WINDOW);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (mImageBatchLock) {
+                mPendingImageBatch = null;
+            }
+            try {
+                batch.mImages = getImages(batch.mURIs);
+            } finally {
+                batch.mDone.countDown();
+            }
+        } else {
+            try {
+                batch.mDone.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Collections.emptyList();
+            }
+        }
+
+        List<JSONImage> images = batch.mImages.get(uri);
+        return images != null ? images : Collections.<JSONImage>emptyList();
+    }
+
+    /**
+     * Downloads an image with the shared HTTP client. Relative URIs, as used by Mopidy-Local,
+     * are served by the HTTP server of Mopidy. The body is read up to {@link #MAX_IMAGE_SIZE},
+     * also if the server does not announce its length (chunked responses).
+     *
+     * @param imageURI URI of the image
+     * @return Image data or null if the download failed or the image is too large
+     */
+    private byte[] downloadImage(String imageURI) {
+        String url = imageURI;
+        if (url.startsWith("/")) {
+            url = "http://" + mHostname + ":" + mPort + url;
+        }
+        Request request;
+        try {
+            request = new Request.Builder().url(url).build();
+        } catch (IllegalArgumentException e) {
+            Log.e(TAG, "Unsupported image URI: " + imageURI);
+            return null;
+        }
+        try (Response response = HTTPClient.getInstance().newCall(request).execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                return null;
+            }
+            // -1 if unknown, the limit is then checked while reading
+            long contentLength = body.contentLength();
+            if (contentLength > MAX_IMAGE_SIZE) {
+                return null;
+            }
+            ByteArrayOutputStream data = new ByteArrayOutputStream(contentLength > 0 ? (int) contentLength : IMAGE_BUFFER_SIZE);
+            byte[] buffer = new byte[IMAGE_BUFFER_SIZE];
+            try (InputStream input = body.byteStream()) {
+                int read;
+                while ((read = input.read(buffer)) != -1) {
+                    if (data.size() + read > MAX_IMAGE_SIZE) {
+                        Log.e(TAG, "Image larger than " + MAX_IMAGE_SIZE + " bytes: " + url);
+                        return null;
+                    }
+                    data.write(buffer, 0, read);
+                }
+            }
+            return data.size() > 0 ? data.toByteArray() : null;
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot download image " + url + ": " + e.getMessage());
+            return null;
+        }
     }
 
     public void connect() throws  MPDException {
@@ -328,7 +622,7 @@ public class WSInterface  {
 
     public List<MPDFileEntry> getAlbumTracks(String albumName, String albumMBID) throws MPDException {
         Log.e(TAG, "getalbumtracks");
-        return new ArrayList<>();
+        return searchTracks(new JSONParamsQuery(true).addField(DISTINCT_FIELD_ALBUM, albumName));
     }
 
     public void nextSong() {
@@ -500,16 +794,25 @@ public class WSInterface  {
         String response_current_track = waitResponse(request_current_track);
         JSONTLTrackResponse current_track = gson.fromJson(response_current_track, JSONTLTrackResponse.class);
         if (current_track.result != null) {
-            JSONRequest request_index = new JSONRequest(getNextID(), "core.tracklist.index", new JSONParamsTLID(current_track.result.tlid));
-            sendRequest(request_index);
             result.setTrackLength(current_track.result.track.length/1000.0f);
 
-            String message_index = waitResponse(request_index);
-            JSONSimpleResponse index = gson.fromJson(message_index, JSONSimpleResponse.class);
-            if(index.result == null)
-                throw new MPDException("Track index result is null");
-            result.setCurrentSongIndex(Integer.valueOf(index.result));
-
+            // Resolve the index from the cached tracklist if possible to save a round trip
+            int cachedIndex = -1;
+            if (mCache.trackListValid() && mCache.getTracklist() != null) {
+                cachedIndex = mCache.getTracklist().indexOfTlid(current_track.result.tlid);
+            }
+            if (cachedIndex >= 0) {
+                result.setCurrentSongIndex(cachedIndex);
+            } else {
+                JSONRequest request_index = new JSONRequest(getNextID(), "core.tracklist.index", new JSONParamsTLID(current_track.result.tlid));
+                sendRequest(request_index);
+
+                String message_index = waitResponse(request_index);
+                JSONSimpleResponse index = gson.fromJson(message_index, JSONSimpleResponse.class);
+                if(index.result == null)
+                    throw new MPDException("Track index result is null");
+                result.setCurrentSongIndex(Integer.valueOf(index.result));
+            }
         }
         mCache.cacheStatus(result);
         return result;
@@ -595,7 +898,7 @@ public class WSInterface  {
         Log.e(TAG, "disableoutput");
     }
 
-    private int getNextID() {
+    private synchronized int getNextID() {
         requestId++;
         return requestId;
     }
@@ -605,62 +908,140 @@ public class WSInterface  {
 
 
     private boolean cancelWaiters = false;
-    private int mWaiters = 0;
+    private final AtomicInteger mWaiters = new AtomicInteger();
+
+    /**
+     * Waits for the response of the request. The response is removed from {@link #responses}
+     * once it is read, so every response can only be awaited once.
+     */
     private String waitResponse(JSONRequest request, int maxRetry, boolean nowaiter) {
         int waittime = 50;
-        if(!nowaiter)  mWaiters++;
+        if(!nowaiter)  mWaiters.incrementAndGet();
+        String response;
         try {
-            while(responses.get(request.id) == null) {
+            while((response = responses.remove(request.id)) == null) {
                     Thread.sleep(100);
                     waittime--;
                 if (mConnection == null) {
-                        mWaiters--;
+                        mWaiters.decrementAndGet();
                         return "{}";
                 }
                 if(waittime < 0 ||  mConnection.getState() == WebSocketState.CLOSED) {
                     Log.e(TAG,"Wait response Fail "+request.method+" "+String.valueOf(waittime)+" "+String.valueOf(mConnection.getState()));
                     if (cancelWaiters) {
-                        mWaiters--;
+                        mWaiters.decrementAndGet();
                         return "{}";
                     }
                     if (mConnection.getState() == WebSocketState.CLOSED) {
-                       mWaiters--;
+                       mWaiters.decrementAndGet();
                        return "{}";
                     }
                     if (maxRetry > 0) {
                         sendRequest(request);
                         return waitResponse(request,maxRetry-1,true);
                     } else {
-                        mWaiters--;
+                        mWaiters.decrementAndGet();
                         return "{}";
                     }
                 }
             }
         } catch (InterruptedException e) {
             e.printStackTrace();
+            response = "{}";
         }
-        mWaiters--;
-        return responses.get(request.id);
+        mWaiters.decrementAndGet();
+        return response;
     }
 
     public List<MPDAlbum> getAlbums() {
-        int id = getNextID();
-        JSONRequest request = new JSONRequest(id, "core.library.search");
-        JSONSearchParams params = new JSONSearchParams(new JSONSearchAlbumQuery("_____"));
-        request.setParams(params);
+        List<MPDAlbum> result = null;
+        if (hasLocalLibrary()) {
+            result = browseAlbums(LOCAL_ALBUMS_URI);
+        }
+        if (result == null || result.isEmpty()) {
+            result = new ArrayList<>();
+            for (String name : getDistinct(new JSONParamsDistinct(DISTINCT_FIELD_ALBUM))) {
+                result.add(new MPDAlbum(name, ""));
+            }
+            MPDSortHelper.sortAlbums(result);
+        }
+        if (!result.isEmpty()) {
+            mCache.cacheAlbums(result);
+        }
+        return result;
+    }
+
+    /**
+     * Requests the URI schemes of the backends of the server. The list is cached per server.
+     */
+    private List<String> getURISchemes() {
+        List<String> schemes = mCache.getURISchemes();
+        if (schemes == null) {
+            JSONRequest request = new JSONRequest(getNextID(), "core.get_uri_schemes");
+            sendRequest(request);
+            schemes = JSONModelDecoder.decodeStringList(waitResponse(request));
+            if (!schemes.isEmpty()) {
+                mCache.cacheURISchemes(schemes);
+            }
+        }
+        return schemes;
+    }
+
+    /**
+     * Returns the URI schemes of the backends that can be searched separately. An empty list
+     * means that the backends are unknown and only a combined search is possible.
+     */
+    public List<String> getSearchURISchemes() {
+        return new ArrayList<>(getURISchemes());
+    }
+
+    private boolean hasLocalLibrary() {
+        return getURISchemes().contains(LOCAL_URI_SCHEME);
+    }
+
+    /**
+     * Requests the distinct values of a field with core.library.get_distinct. Only the values
+     * are transferred, no tracks.
+     */
+    private List<String> getDistinct(JSONParamsDistinct params) {
+        JSONRequest request = new JSONRequest(getNextID(), "core.library.get_distinct", params);
         sendRequest(request);
-        String message = waitResponse(request);
-        Gson gson = new Gson();
-        JSONSearchResponse response = gson.fromJson(message, JSONSearchResponse.class);
+        return JSONModelDecoder.decodeStringList(waitResponse(request));
+    }
 
-        ArrayList<MPDAlbum> result = new ArrayList<>();
-        if(response.result != null && response.result.size() > 0)
-            for (JSONAlbum album: response.result.get(0).albums) {
-                result.add(album.toMPDAlbum());
+    private List<MPDAlbum> browseAlbums(String uri) {
+        JSONRequest request = new JSONRequest(getNextID(), "core.library.browse", new JSONParamsURI(uri));
+        sendRequest(request);
+        return JSONModelDecoder.decodeBrowseAlbums(waitResponse(request));
+    }
+
+    /**
+     * Creates an artist list either by browsing the local library with the given URI or from the
+     * distinct values of the given field.
+     */
+    private List<MPDArtist> getArtistList(String localURI, String distinctField) {
+        List<MPDArtist> result = null;
+        if (hasLocalLibrary()) {
+            JSONRequest request = new JSONRequest(getNextID(), "core.library.browse", new JSONParamsURI(localURI));
+            sendRequest(request);
+            result = JSONModelDecoder.decodeBrowseArtists(waitResponse(request));
+        }
+        if (result == null || result.isEmpty()) {
+            result = new ArrayList<>();
+            for (String name : getDistinct(new JSONParamsDistinct(distinctField))) {
+                result.add(new MPDArtist(name, ""));
             }
+            MPDSortHelper.sortArtists(result);
+        }
         return result;
     }
 
+    private List<MPDFileEntry> searchTracks(JSONParamsQuery params) {
+        JSONRequest request = new JSONRequest(getNextID(), "core.library.search", params);
+        sendRequest(request);
+        return JSONModelDecoder.decodeSearchTracks(waitResponse(request));
+    }
+
     public List<MPDAlbum> getAlbumsInPath(String path) {
         Log.e(TAG, "getalbumsinpath");
         return new ArrayList<MPDAlbum>();
@@ -689,72 +1070,73 @@ public class WSInterface  {
         Log.e(TAG, "getartistalbums");
         JSONRequest request_files = new JSONRequest(getNextID(), "core.library.browse", new JSONParamsURI(artistUri));
         mConnection.sendText(request_files.toJSONWithNulls());
-        Gson gson = new Gson();
         String message = waitResponse(request_files);
-        JSONBrowseResponse refs = gson.fromJson(message, JSONBrowseResponse.class);
-        ArrayList<MPDAlbum> result = new ArrayList<MPDAlbum>();
-        if(refs.result != null)
-            for (JSONTrack track: refs.result) {
-                result.add(track.toMPDAlbum());
-            }
+        return JSONModelDecoder.decodeBrowseAlbums(message);
+    }
+
+    /**
+     * Lists the albums of an artist that is only known by its name, e.g. artists created from
+     * the distinct values of the artist field.
+     */
+    public List<MPDAlbum> getArtistAlbumsByName(String artistName) {
+        Log.e(TAG, "getartistalbumsbyname");
+        List<MPDAlbum> result = new ArrayList<>();
+        for (String name : getDistinct(new JSONParamsDistinct(DISTINCT_FIELD_ALBUM, DISTINCT_FIELD_ARTIST, artistName))) {
+            MPDAlbum album = new MPDAlbum(name, "");
+            album.setArtistName(artistName);
+            result.add(album);
+        }
+        MPDSortHelper.sortAlbums(result);
         return result;
     }
 
     public List<MPDAlbum> getArtistSortAlbums(String artistName) {
         Log.e(TAG, "getartistsortalbums");
-
-        return new ArrayList<MPDAlbum>();
+        // Mopidy has no sort tags, the artist name is used
+        return getArtistAlbumsByName(artistName);
     }
 
     public List<MPDArtist> getArtists() {
-        int id = getNextID();
-        JSONRequest request = new JSONRequest(id, "core.library.search");
-        JSONSearchParams params = new JSONSearchParams(new JSONSearchArtistQuery("_____"));
-        request.setParams(params);
-        sendRequest(request);
-        Gson gson = new Gson();
-        String message = waitResponse(request);
-        JSONSearchResponse response = gson.fromJson(message, JSONSearchResponse.class);
-
-        ArrayList<MPDArtist> result = new ArrayList<>();
-        if(response.result != null && response.result.size() > 0)
-            for (JSONArtist artist: response.result.get(0).artists) {
-                result.add(artist.toMPDArtist());
-            }
+        List<MPDArtist> result = getArtistList(LOCAL_ARTISTS_URI, DISTINCT_FIELD_ARTIST);
+        if (!result.isEmpty()) {
+            mCache.cacheArtists(result);
+        }
         return result;
     }
 
+    /**
+     * Mopidy has no artistsort tag, so this is the artist list sorted by name.
+     */
     public List<MPDArtist> getArtistsSort() {
         Log.e(TAG, "getartistssort");
-        return new ArrayList<MPDArtist>();
+        List<MPDArtist> result = mCache.getArtists();
+        return result != null ? result : getArtists();
     }
 
     public List<MPDArtist> getAlbumArtists() {
         Log.e(TAG, "getalbumartists");
-        return new ArrayList<MPDArtist>();
+        List<MPDArtist> result = getArtistList(LOCAL_ALBUMARTISTS_URI, DISTINCT_FIELD_ALBUMARTIST);
+        if (!result.isEmpty()) {
+            mCache.cacheAlbumArtists(result);
+        }
+        return result;
     }
 
+    /**
+     * Mopidy has no albumartistsort tag, so this is the album artist list sorted by name.
+     */
     public List<MPDArtist> getAlbumArtistsSort() {
         Log.e(TAG, "getalbumartistssort");
-        return new ArrayList<MPDArtist>();
+        List<MPDArtist> result = mCache.getAlbumArtists();
+        return result != null ? result : getAlbumArtists();
     }
 
     public List<MPDFileEntry> getAlbumTracks(String albumURI) {
         Log.e(TAG, "getalbumtracks");
         JSONRequest request_files = new JSONRequest(getNextID(), "core.library.lookup", new JSONParamsURIList(albumURI));
         mConnection.sendText(request_files.toJSONWithNulls());
-        Gson gson = new Gson();
         String message = waitResponse(request_files);
-        JSONLookupResponse refs = gson.fromJson(message, JSONLookupResponse.class);
-        ArrayList<MPDFileEntry> result = new ArrayList<MPDFileEntry>();
-        if (refs.result != null)
-            for(String key: refs.result.keySet()) {
-                for (JSONTrack track : refs.result.get(key)) {
-                        result.add(track.toMPDTrack());
-                }
-            }
-
-        return result;
+        return JSONModelDecoder.decodeLookupTracks(message);
     }
 
     public List<MPDFileEntry> getAllTracks() {
@@ -764,34 +1146,80 @@ public class WSInterface  {
 
     public List<MPDFileEntry> getFiles(String path) {
         Log.e(TAG, "getfiles");
+        List<MPDFileEntry> cached = mCache.getBrowseCache().get(path);
+        if (cached != null) {
+            return cached;
+        }
+        return browseFiles(path, false);
+    }
+
+    private List<MPDFileEntry> browseFiles(String path, boolean prefetch) {
         String uri = path;
         if (path.isEmpty()) {
             uri = null;
         }
         JSONRequest request_files = new JSONRequest(getNextID(), "core.library.browse", new JSONParamsURI(uri));
         mConnection.sendText(request_files.toJSONWithNulls());
-        Gson gson = new Gson();
         String message = waitResponse(request_files);
-        JSONBrowseResponse refs = gson.fromJson(message, JSONBrowseResponse.class);
-        ArrayList<MPDFileEntry> result = new ArrayList<MPDFileEntry>();
-        for (JSONTrack track: refs.result) {
-            if ("track".equals(track.type))
-                result.add(track.toMPDTrack());
-            else
-                result.add(track.toMPDDirectory());
+        List<MPDFileEntry> result = JSONModelDecoder.decodeBrowse(message);
+        if (result == null) {
+            // Failed requests are not cached, the next visit asks the server again
+            return new ArrayList<>();
         }
-        // new ArrayList<MPDFileEntry>();
+        mCache.getBrowseCache().put(path, result, prefetch);
         return result;
     }
 
+    /**
+     * Fetches the given directories in the background, so that they can be opened from the
+     * browse cache. A new call supersedes the directories of the previous one which were not
+     * fetched yet.
+     *
+     * @param paths URIs of the directories that are visible to the user.
+     */
+    public void prefetchFiles(List<String> paths) {
+        final int generation = mPrefetchGeneration.incrementAndGet();
+        final MPDBrowseCache cache = mCache.getBrowseCache();
+        int count = 0;
+        for (final String path : paths) {
+            if (count >= MAX_PREFETCH_DIRECTORIES) {
+                break;
+            }
+            if (cache.contains(path)) {
+                continue;
+            }
+            count++;
+            mPrefetchExecutor.execute(() -> {
+                if (generation != mPrefetchGeneration.get() || !isConnected() || cache.contains(path)) {
+                    return;
+                }
+                browseFiles(path, true);
+            });
+        }
+    }
+
+    /**
+     * Removes a directory from the browse cache, so that the next request fetches it from the server.
+     */
+    public void invalidateFiles(String path) {
+        mCache.getBrowseCache().invalidate(path);
+    }
+
+    /**
+     * @return Usage statistics of the browse cache.
+     */
+    public String getBrowseCacheStatistics() {
+        return mCache.getBrowseCache().getStatistics();
+    }
+
     public List<MPDFileEntry> getArtistAlbumTracks(String albumName, String artistName, String albumMBID) {
         Log.e(TAG, "getartistalbumtracks");
-        return new ArrayList<MPDFileEntry>();
+        return searchTracks(new JSONParamsQuery(true).addField(DISTINCT_FIELD_ALBUM, albumName).addField(DISTINCT_FIELD_ARTIST, artistName));
     }
 
     public List<MPDFileEntry> getArtistSortAlbumTracks(String albumName, String artistName, String albumMBID) {
         Log.e(TAG, "getartistsortalbumtracks");
-        return new ArrayList<MPDFileEntry>();
+        return getArtistAlbumTracks(albumName, artistName, albumMBID);
     }
 
     public List<MPDFileEntry> getCurrentPlaylist() throws MPDException {
@@ -800,17 +1228,11 @@ public class WSInterface  {
             return mCache.getTracklist();
         JSONRequest request_tracklist = new JSONRequest(getNextID(), "core.tracklist.get_tl_tracks");
         sendRequest(request_tracklist);
-        Gson gson = new Gson();
         String message = waitResponse(request_tracklist);
-        JSONTLTracksResponse tl_tracks = gson.fromJson(message, JSONTLTracksResponse.class);
-        ArrayList<MPDFileEntry> result = new ArrayList<MPDFileEntry>();
-        if (tl_tracks.result == null) {
+        MPDTrackList result = JSONModelDecoder.decodeTLTracks(message, 0);
+        if (result == null) {
             Log.e(TAG, message);
-//            return mCache.getTracklist();
-            new MPDException("Cannot get current tracklist");
-        }
-        for (JSONTLTrack track: tl_tracks.result) {
-            result.add(track.track.toMPDTrack());
+            throw new MPDException("Cannot get current tracklist");
         }
         mCache.cacheTracklist(result);
         return result;
@@ -820,30 +1242,21 @@ public class WSInterface  {
         Log.e(TAG, "getcurrentplaylistwindow");
         JSONRequest request_tracklist = new JSONRequest(getNextID(), "core.tracklist.slice",new JSONParamsStartEnd(start,end));
         mConnection.sendText(request_tracklist.toJSON());
-        Gson gson = new Gson();
         String message = waitResponse(request_tracklist);
-        JSONTLTracksResponse tl_tracks = gson.fromJson(message, JSONTLTracksResponse.class);
-        ArrayList<MPDFileEntry> result = new ArrayList<MPDFileEntry>();
-        if(tl_tracks.result != null)
-            for (JSONTLTrack track: tl_tracks.result) {
-                result.add(track.track.toMPDTrack());
-            }
+        MPDTrackList result = JSONModelDecoder.decodeTLTracks(message, start);
+        if (result == null) {
+            // Not cached, the window is requested again
+            return new MPDTrackList();
+        }
+        mCache.cacheTracklistWindow(start, result);
         return result;
     }
 
     public List<MPDFileEntry> getSavedPlaylist(String playlistName) {
         JSONRequest request_playlist = new JSONRequest(getNextID(), "core.playlists.lookup", new JSONParamsURI(playlistName));
         mConnection.sendText(request_playlist.toJSON());
-        Gson gson = new Gson();
         String message = waitResponse(request_playlist);
-        JSONPlaylistResponse playlist = gson.fromJson(message, JSONPlaylistResponse.class);
-        ArrayList<MPDFileEntry> result = new ArrayList<MPDFileEntry>();
-        if (playlist.result != null)
-            if (playlist.result.tracks != null)
-                for (JSONTrack track: playlist.result.tracks) {
-                    result.add(track.toMPDTrack());
-                }
-        return result;
+        return JSONModelDecoder.decodePlaylistTracks(message);
     }
 
     public List<MPDFileEntry> getPlaylists() throws MPDException {
@@ -869,17 +1282,12 @@ public class WSInterface  {
     }
 
     public void doLike(String likeURI) {
-        URL url = null;
-        try {
-            url = new URL("http://"+mHostname+":6680/musicbox_darkclient/"+likeURI);
-            HttpURLConnection con = (HttpURLConnection) url.openConnection();
-            InputStream responseStream = con.getInputStream();
-            Scanner s = new Scanner(responseStream).useDelimiter("\\A");
-            String result = s.hasNext() ? s.next(): "";
+        Request request = new Request.Builder().url("http://"+mHostname+":6680/musicbox_darkclient/"+likeURI).build();
+        try (Response response = HTTPClient.getInstance().newCall(request).execute()) {
+            ResponseBody body = response.body();
+            String result = body != null ? body.string() : "";
             Log.e(TAG,result);
-        } catch (MalformedURLException e) {
-            e.printStackTrace();
-        } catch (IOException e) {
+        } catch (IllegalArgumentException | IOException e) {
             e.printStackTrace();
         }
     }
@@ -993,8 +1401,77 @@ public class WSInterface  {
 
     public List<MPDFileEntry> getPlaylistFindTrack(String url) {
         Log.e(TAG, "playlistfindtrack");
-        return new ArrayList<MPDFileEntry>();
+        return findTracklistEntries(new JSONParamsCriteria().addField(TRACKLIST_FIELD_URI, url));
+    }
+
+    /**
+     * Searches the tracklist on the server for entries whose title or URI equals the term.
+     *
+     * @param term Exact title or URI to search for
+     * @return Matching entries with their tracklist position, ordered by position.
+     */
+    public MPDTrackList findInTracklist(String term) {
+        Log.e(TAG, "findintracklist");
+        MPDTrackList result = findTracklistEntries(new JSONParamsCriteria().addField(TRACKLIST_FIELD_NAME, term));
+        if (result.isEmpty() && term.indexOf(':') > 0) {
+            result = findTracklistEntries(new JSONParamsCriteria().addField(TRACKLIST_FIELD_URI, term));
+        }
+        return result;
+    }
+
+    /**
+     * Filters the tracklist with core.tracklist.filter. The filter does not return positions, so
+     * they are resolved from the cached tracklist or with core.tracklist.index. The index
+     * requests are sent at once and then awaited, which costs only one round trip.
+     *
+     * @param criteria Fields and values to match exactly
+     * @return Matching entries with their tracklist position, ordered by position.
+     */
+    private MPDTrackList findTracklistEntries(JSONParamsCriteria criteria) {
+        JSONRequest request = new JSONRequest(getNextID(), "core.tracklist.filter", criteria);
+        sendRequest(request);
+        MPDTrackList found = JSONModelDecoder.decodeTLTracks(waitResponse(request), 0);
+        if (found == null) {
+            return new MPDTrackList();
+        }
+
+        int count = Math.min(found.size(), MAX_TRACKLIST_FIND_RESULTS);
+        int[] positions = new int[count];
+        JSONRequest[] indexRequests = new JSONRequest[count];
 
+        MPDTrackList cachedTracks = mCache.trackListValid() ? mCache.getTracklist() : null;
+        for (int i = 0; i < count; i++) {
+            positions[i] = cachedTracks != null ? cachedTracks.indexOfTlid(found.getTlid(i)) : -1;
+            if (positions[i] < 0) {
+                indexRequests[i] = new JSONRequest(getNextID(), "core.tracklist.index", new JSONParamsTLID(found.getTlid(i)));
+                sendRequest(indexRequests[i]);
+            }
+        }
+
+        Gson gson = new Gson();
+        for (int i = 0; i < count; i++) {
+            if (indexRequests[i] != null) {
+                JSONSimpleResponse index = gson.fromJson(waitResponse(indexRequests[i]), JSONSimpleResponse.class);
+                positions[i] = (index == null || index.result == null) ? -1 : Integer.parseInt(index.result);
+            }
+        }
+
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (first, second) -> Integer.compare(positions[first], positions[second]));
+
+        MPDTrackList result = new MPDTrackList(count);
+        for (int i : order) {
+            // Entries removed in the meantime have no index anymore
+            if (positions[i] >= 0) {
+                MPDTrack track = found.getTrack(i);
+                track.setSongPosition(positions[i]);
+                result.add(track, found.getTlid(i));
+            }
+        }
+        return result;
     }
 
     public void shufflePlaylist() {
@@ -1047,10 +1524,26 @@ public class WSInterface  {
 
     public void updateDatabase(String updatePath) {
         Log.e(TAG, "updateDatabase");
+        // Mopidy has no rescan command, but the user expects to see the current library afterwards
+        mCache.getBrowseCache().invalidateAll();
     }
 
     public List<MPDFileEntry> getSearchedFiles(String term, MPDCommands.MPD_SEARCH_TYPE type) {
-        Log.e(TAG, "getSearchedFiles");
+        List<MPDFileEntry> result = getSearchedFiles(term, type, null);
+        return result != null ? result : new ArrayList<>();
+    }
+
+    /**
+     * Searches the library of the server. If a URI scheme is given only the backend
+     * responsible for this scheme is searched.
+     *
+     * @param term      Search term
+     * @param type      Field to search in
+     * @param uriScheme URI scheme of the backend to search or null to search all backends
+     * @return The results or null if the search failed.
+     */
+    public List<MPDFileEntry> getSearchedFiles(String term, MPDCommands.MPD_SEARCH_TYPE type, String uriScheme) {
+        Log.e(TAG, "getSearchedFiles " + uriScheme);
         int id = getNextID();
         JSONRequest request = new JSONRequest(id, "core.library.search");
         JSONSearchParams params;
@@ -1069,28 +1562,13 @@ public class WSInterface  {
                 break;
 
         }
+        if (uriScheme != null) {
+            params.uris = Collections.singletonList(uriScheme + ":");
+        }
         request.setParams(params);
         sendRequest(request);
         String message = waitResponse(request);
-        Gson gson = new Gson();
-        JSONSearchResponse response = gson.fromJson(message, JSONSearchResponse.class);
-
-        ArrayList<MPDFileEntry> result = new ArrayList<>();
-        for (JSONSearchResult res: response.result) {
-            if (res.albums != null)
-              for (JSONAlbum album: res.albums) {
-                  result.add(album.toMPDDirectory());
-              }
-            if (res.artists != null)
-              for (JSONArtist artist: res.artists) {
-                  result.add(artist.toMPDDirectory());
-              }
-            if (res.tracks != null)
-              for (JSONTrack track: res.tracks) {
-                  result.add(track.toMPDTrack());
-              }
-        }
-        return result;
+        return JSONModelDecoder.decodeSearchFiles(message);
     }
 
     public void addSearchedFiles(String term, MPDCommands.MPD_SEARCH_TYPE type) {
@@ -1106,13 +1584,10 @@ public class WSInterface  {
             } else {
                 JSONRequest request_files = new JSONRequest(getNextID(), "core.library.lookup", new JSONParamsURIList(entry.getURI()));
                 mConnection.sendText(request_files.toJSONWithNulls());
-                Gson gson = new Gson();
                 String message = waitResponse(request_files);
-                JSONLookupResponse res = gson.fromJson(message, JSONLookupResponse.class);
-                for (String key : res.result.keySet()) {
-                    for (JSONTrack track: res.result.get(key))
-                      if (track.uri.contains("track:"))
-                        uris.add(track.uri);
+                for (MPDFileEntry track : JSONModelDecoder.decodeLookupTracks(message)) {
+                    if (track.getURI().contains("track:"))
+                        uris.add(track.getURI());
                 }
             }
         }
@@ -1125,13 +1600,12 @@ public class WSInterface  {
     public MPDTrack getCurrentSong() throws MPDException {
         JSONRequest request_current_track = new JSONRequest(getNextID(), "core.playback.get_current_tl_track");
         sendRequest(request_current_track);
-        Gson gson = new Gson();
         String message = waitResponse(request_current_track);
-        JSONTLTrackResponse tl_track = gson.fromJson(message, JSONTLTrackResponse.class);
-        if (tl_track.result == null) {
+        MPDTrack track = JSONModelDecoder.decodeTLTrack(message);
+        if (track == null) {
             return new MPDTrack("");
         }
-        return tl_track.result.track.toMPDTrack();
+        return track;
     }
 
     public void addMPDIdleChangeHandler(MPDIdleChangeHandler idleStateListener) {
@@ -32,6 +32,7 @@ import com.neovisionaries.ws.client.WebSocketFactory;
 import com.neovisionaries.ws.client.WebSocketFrame;
 import com.neovisionaries.ws.client.WebSocketState;
 
+import org.mopidy.mplay.application.utils.HTTPClient;
 import org.mopidy.mplay.mpdservice.mpdprotocol.MPDException;
 import org.mopidy.mplay.mpdservice.profilemanagement.MPDProfileManager;
 import org.mopidy.mplay.mpdservice.profilemanagement.MPDServerProfile;
@@ -40,13 +41,14 @@ import org.mopidy.mplay.mpdservice.websocket.types.JSONMasterRequest;
 import org.mopidy.mplay.mpdservice.websocket.types.responses.JSONMasterResponse;
 
 import java.io.IOException;
-import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 
+import okhttp3.Request;
+import okhttp3.Response;
+
 public class WSMasterInterface {
     private static final String TAG = WSInterface.class.getSimpleName();
     private static WSMasterInterface mGenericInterface;
@@ -175,18 +177,11 @@ public class WSMasterInterface {
             if (mHostname.isEmpty()) return;
 
             String urlString = "http://"+mHostname+":"+String.valueOf(mPort)+"/master/socketapi/ws";
-            URL url = new URL(urlString);
-            HttpURLConnection connection = (HttpURLConnection)url.openConnection();
-            connection.setRequestMethod("GET");
-            connection.connect();
-            int code = connection.getResponseCode();
+            int code = getResponseCode(urlString);
             if (code == 404) { //no master plugin detected
+                // The second probe reuses the kept alive connection of the first one
                 urlString = "http://"+mHostname+":"+String.valueOf(mPort)+"/mopidy_mopidy/socketapi/ws";
-                url = new URL(urlString);
-                connection = (HttpURLConnection)url.openConnection();
-                connection.setRequestMethod("GET");
-                connection.connect();
-                code = connection.getResponseCode();
+                code = getResponseCode(urlString);
                 if ( code == 404) { //no mopidy-mopidy plugin detected
                     return;
                 }
@@ -211,10 +206,17 @@ public class WSMasterInterface {
 
                 }
             });
-        } catch (IOException e) {
+        } catch (IllegalArgumentException | IOException e) {
             e.printStackTrace();
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
     }
+
+    private static int getResponseCode(String urlString) throws IOException {
+        Request request = new Request.Builder().url(urlString).build();
+        try (Response response = HTTPClient.getInstance().newCall(request).execute()) {
+            return response.code();
+        }
+    }
 }
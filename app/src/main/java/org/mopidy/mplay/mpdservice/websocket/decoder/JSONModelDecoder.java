@@ -0,0 +1,929 @@
+/*
+ *  Copyright (C) 2022 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://gitlab.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.mopidy.mplay.mpdservice.websocket.decoder;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import org.mopidy.mplay.mpdservice.mpdprotocol.MPDTrackList;
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDArtist;
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDDirectory;
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDTrack;
+import org.mopidy.mplay.mpdservice.websocket.types.JSONImage;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes Mopidy JSON-RPC responses directly into the mpdobjects without creating the
+ * intermediate JSONTrack/JSONAlbum/JSONArtist graph. Only the fields used by the application are
+ * read, everything else is skipped by the stream reader without being materialized.
+ * <p/>
+ * All methods take the complete response message ({"jsonrpc": .., "id": .., "result": ..}).
+ * Malformed messages or a missing result yield empty results, like the gson based parsing did.
+ * Only {@link #decodeTLTracks(String, int)}, {@link #decodeBrowse(String)} and
+ * {@link #decodeSearchFiles(String)} report them separately, so that a failed request is not taken
+ * for an empty tracklist, directory or search result.
+ */
+public class JSONModelDecoder {
+    private static final String TAG = JSONModelDecoder.class.getSimpleName();
+
+    private interface ResultReader {
+        void read(JsonReader reader) throws IOException;
+    }
+
+    /**
+     * Reusable holder for the fields of one track. Reset before each track.
+     */
+    private static class TrackFields {
+        String uri;
+        String name;
+        String artwork;
+        boolean like;
+        int length;
+        int trackNumber;
+        int discNumber;
+        String date;
+        String genre;
+        String comment;
+        String trackMBID;
+        String artist;
+        String artistURI;
+        String artistMBID;
+        String album;
+        String albumURI;
+        String albumMBID;
+        String albumDate;
+        String albumArtist;
+        String albumArtistMBID;
+        String composer;
+        String performer;
+
+        void reset() {
+            uri = null;
+            name = null;
+            artwork = null;
+            like = false;
+            length = 0;
+            trackNumber = 0;
+            discNumber = 0;
+            date = null;
+            genre = null;
+            comment = null;
+            trackMBID = null;
+            artist = null;
+            artistURI = null;
+            artistMBID = null;
+            album = null;
+            albumURI = null;
+            albumMBID = null;
+            albumDate = null;
+            albumArtist = null;
+            albumArtistMBID = null;
+            composer = null;
+            performer = null;
+        }
+    }
+
+    /**
+     * Holder for the first artist of an artist array.
+     */
+    private static class ArtistFields {
+        String name;
+        String uri;
+        String mbid;
+    }
+
+    /**
+     * Decodes a list of TlTrack objects (core.tracklist.get_tl_tracks, core.tracklist.slice).
+     *
+     * @param message        Response message
+     * @param positionOffset Position of the first entry in the servers tracklist
+     * @return Tracklist store with all decoded entries or null if the request failed or the
+     * response could not be decoded.
+     */
+    @Nullable
+    public static MPDTrackList decodeTLTracks(String message, int positionOffset) {
+        final MPDTrackList result = new MPDTrackList();
+        final TrackFields fields = new TrackFields();
+        final ArtistFields artist = new ArtistFields();
+        final boolean decoded = decodeResult(message, reader -> {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                int tlid = 0;
+                fields.reset();
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String key = reader.nextName();
+                    if ("tlid".equals(key)) {
+                        tlid = nextInt(reader);
+                    } else if ("track".equals(key) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                        readTrackFields(reader, fields, artist);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                result.add(tlid, fields.uri, fields.name, fields.artist, fields.album, fields.albumURI,
+                        fields.artwork, fields.length / 1000, positionOffset + result.size(), fields.like);
+                setTags(result, result.size() - 1, fields);
+            }
+            reader.endArray();
+        });
+        return decoded ? result : null;
+    }
+
+    /**
+     * Decodes a single TlTrack (core.playback.get_current_tl_track).
+     *
+     * @return The decoded track with the tlid as song id or null if no track is set.
+     */
+    @Nullable
+    public static MPDTrack decodeTLTrack(String message) {
+        final MPDTrack[] result = new MPDTrack[1];
+        decodeResult(message, reader -> {
+            TrackFields fields = new TrackFields();
+            fields.reset();
+            int tlid = 0;
+            boolean hasTrack = false;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String key = reader.nextName();
+                if ("tlid".equals(key)) {
+                    tlid = nextInt(reader);
+                } else if ("track".equals(key) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    readTrackFields(reader, fields, new ArtistFields());
+                    hasTrack = true;
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (hasTrack) {
+                result[0] = createTrack(fields);
+                result[0].setSongID(tlid);
+            }
+        });
+        return result[0];
+    }
+
+    /**
+     * Decodes the result of core.library.lookup (map of uri to a list of tracks).
+     */
+    @NonNull
+    public static List<MPDFileEntry> decodeLookupTracks(String message) {
+        final List<MPDFileEntry> result = new ArrayList<>();
+        decodeResult(message, reader -> {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                reader.nextName();
+                readTrackArray(reader, result);
+            }
+            reader.endObject();
+        });
+        return result;
+    }
+
+    /**
+     * Decodes the Ref list of core.library.browse. Track refs are returned as {@link MPDTrack},
+     * all others as {@link MPDDirectory}.
+     *
+     * @return The entries or null if the request failed or the response could not be decoded.
+     */
+    @Nullable
+    public static List<MPDFileEntry> decodeBrowse(String message) {
+        final List<MPDFileEntry> result = new ArrayList<>();
+        final boolean decoded = decodeResult(message, reader -> {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                String[] ref = readRef(reader);
+                String uri = ref[0] == null ? "" : ref[0];
+                if ("track".equals(ref[2])) {
+                    MPDTrack track = new MPDTrack(uri);
+                    track.setURI(uri);
+                    track.setName(ref[1]);
+                    track.setArtwork(ref[3]);
+                    if (ref[1] != null) {
+                        track.setStringTag(MPDTrack.StringTagTypes.TITLE, ref[1]);
+                    }
+                    result.add(track);
+                } else {
+                    MPDDirectory dir = new MPDDirectory(uri);
+                    dir.setName(ref[1]);
+                    dir.setArtwork(ref[3]);
+                    dir.setURI(uri);
+                    result.add(dir);
+                }
+            }
+            reader.endArray();
+        });
+        return decoded ? result : null;
+    }
+
+    /**
+     * Decodes the Ref list of core.library.browse as albums.
+     */
+    @NonNull
+    public static List<MPDAlbum> decodeBrowseAlbums(String message) {
+        final List<MPDAlbum> result = new ArrayList<>();
+        decodeResult(message, reader -> {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                String[] ref = readRef(reader);
+                MPDAlbum album = new MPDAlbum(ref[1] == null ? "" : ref[1], ref[0]);
+                album.setArtwork(ref[3]);
+                result.add(album);
+            }
+            reader.endArray();
+        });
+        return result;
+    }
+
+    /**
+     * Decodes the Ref list of core.library.browse as artists.
+     */
+    @NonNull
+    public static List<MPDArtist> decodeBrowseArtists(String message) {
+        final List<MPDArtist> result = new ArrayList<>();
+        decodeResult(message, reader -> {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                String[] ref = readRef(reader);
+                MPDArtist artist = new MPDArtist(ref[1] == null ? "" : ref[1], ref[0]);
+                artist.setArtwork(ref[3]);
+                result.add(artist);
+            }
+            reader.endArray();
+        });
+        return result;
+    }
+
+    /**
+     * Decodes a list of strings, e.g. the values of core.library.get_distinct.
+     */
+    @NonNull
+    public static List<String> decodeStringList(String message) {
+        final List<String> result = new ArrayList<>();
+        decodeResult(message, reader -> {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                String value = nextString(reader);
+                if (value != null && !value.isEmpty()) {
+                    result.add(value);
+                }
+            }
+            reader.endArray();
+        });
+        return result;
+    }
+
+    /**
+     * Decodes the result of core.library.get_images, a map of the requested URIs to their
+     * images. URIs without images are contained with an empty list.
+     */
+    @NonNull
+    public static Map<String, List<JSONImage>> decodeImages(String message) {
+        final Map<String, List<JSONImage>> result = new HashMap<>();
+        decodeResult(message, reader -> {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String uri = reader.nextName();
+                List<JSONImage> images = new ArrayList<>();
+                if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        JSONImage image = readImage(reader);
+                        if (image != null) {
+                            images.add(image);
+                        }
+                    }
+                    reader.endArray();
+                } else {
+                    reader.skipValue();
+                }
+                result.put(uri, images);
+            }
+            reader.endObject();
+        });
+        return result;
+    }
+
+    /**
+     * Decodes the tracks of all SearchResults of core.library.search.
+     */
+    @NonNull
+    public static List<MPDFileEntry> decodeSearchTracks(String message) {
+        final List<MPDFileEntry> result = new ArrayList<>();
+        decodeResult(message, reader -> {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if ("tracks".equals(reader.nextName())) {
+                        readTrackArray(reader, result);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            }
+            reader.endArray();
+        });
+        return result;
+    }
+
+    /**
+     * Decodes the tracks of a playlist (core.playlists.lookup).
+     */
+    @NonNull
+    public static List<MPDFileEntry> decodePlaylistTracks(String message) {
+        final List<MPDFileEntry> result = new ArrayList<>();
+        decodeResult(message, reader -> {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("tracks".equals(reader.nextName())) {
+                    readTrackArray(reader, result);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        });
+        return result;
+    }
+
+    /**
+     * Decodes all SearchResults of core.library.search into file entries. Albums and artists are
+     * returned as {@link MPDDirectory}, tracks as {@link MPDTrack}.
+     *
+     * @return The file entries or null if the request failed or the response could not be
+     * decoded.
+     */
+    @Nullable
+    public static List<MPDFileEntry> decodeSearchFiles(String message) {
+        final List<MPDFileEntry> result = new ArrayList<>();
+        final boolean decoded = decodeResult(message, reader -> {
+            List<MPDFileEntry> albums = new ArrayList<>();
+            List<MPDFileEntry> artists = new ArrayList<>();
+            List<MPDFileEntry> tracks = new ArrayList<>();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                albums.clear();
+                artists.clear();
+                tracks.clear();
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String key = reader.nextName();
+                    if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+                        reader.skipValue();
+                    } else if ("albums".equals(key)) {
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            MPDAlbum album = readAlbum(reader);
+                            MPDDirectory dir = new MPDDirectory(album.getURI() == null ? "" : album.getURI());
+                            dir.setName(album.getName());
+                            dir.setURI(album.getURI());
+                            dir.setArtwork(album.hasArtwork() ? album.getRawArtwork() : "");
+                            dir.setType("album");
+                            albums.add(dir);
+                        }
+                        reader.endArray();
+                    } else if ("artists".equals(key)) {
+                        reader.beginArray();
+                        ArtistFields artist = new ArtistFields();
+                        while (reader.hasNext()) {
+                            String artwork = readArtist(reader, artist);
+                            MPDDirectory dir = new MPDDirectory(artist.uri == null ? "" : artist.uri);
+                            dir.setName(artist.name);
+                            dir.setURI(artist.uri);
+                            dir.setArtwork(artwork);
+                            artists.add(dir);
+                        }
+                        reader.endArray();
+                    } else if ("tracks".equals(key)) {
+                        readTrackArray(reader, tracks);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+
+                // Keep the order albums, artists, tracks per backend
+                result.addAll(albums);
+                result.addAll(artists);
+                result.addAll(tracks);
+            }
+            reader.endArray();
+        });
+        return decoded ? result : null;
+    }
+
+    /**
+     * Decodes the albums of the first SearchResult of core.library.search.
+     */
+    @NonNull
+    public static List<MPDAlbum> decodeSearchAlbums(String message) {
+        final List<MPDAlbum> result = new ArrayList<>();
+        decodeFirstSearchResultArray(message, "albums", reader -> result.add(readAlbum(reader)));
+        return result;
+    }
+
+    /**
+     * Decodes the artists of the first SearchResult of core.library.search.
+     */
+    @NonNull
+    public static List<MPDArtist> decodeSearchArtists(String message) {
+        final List<MPDArtist> result = new ArrayList<>();
+        final ArtistFields fields = new ArtistFields();
+        decodeFirstSearchResultArray(message, "artists", reader -> {
+            String artwork = readArtist(reader, fields);
+            MPDArtist artist = new MPDArtist(fields.name == null ? "" : fields.name, fields.uri);
+            artist.setArtwork(artwork);
+            if (fields.mbid != null && !fields.mbid.isEmpty()) {
+                artist.setMBID(fields.mbid);
+            }
+            result.add(artist);
+        });
+        return result;
+    }
+
+    private static void decodeFirstSearchResultArray(String message, final String arrayName, final ResultReader elementReader) {
+        decodeResult(message, reader -> {
+            reader.beginArray();
+            boolean first = true;
+            while (reader.hasNext()) {
+                if (!first || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                    reader.skipValue();
+                    continue;
+                }
+                first = false;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (arrayName.equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            elementReader.read(reader);
+                        }
+                        reader.endArray();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            }
+            reader.endArray();
+        });
+    }
+
+    /**
+     * Positions the reader at the "result" member of the response and hands it to resultReader.
+     * A null result is ignored.
+     *
+     * @return False if the response has no result member, is an error response or could not be
+     * decoded.
+     */
+    private static boolean decodeResult(String message, ResultReader resultReader) {
+        if (message == null) {
+            return false;
+        }
+        boolean hasResult = false;
+        try (JsonReader reader = new JsonReader(new StringReader(message))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("result".equals(name)) {
+                    hasResult = true;
+                    if (reader.peek() != JsonToken.NULL) {
+                        resultReader.read(reader);
+                    } else {
+                        reader.skipValue();
+                    }
+                } else if ("error".equals(name)) {
+                    Log.e(TAG, "Request failed: " + message);
+                    return false;
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            Log.e(TAG, "Cannot decode response: " + e.getMessage());
+            return false;
+        }
+        return hasResult;
+    }
+
+    private static void readTrackArray(JsonReader reader, List<MPDFileEntry> result) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return;
+        }
+        TrackFields fields = new TrackFields();
+        ArtistFields artist = new ArtistFields();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+            fields.reset();
+            readTrackFields(reader, fields, artist);
+            result.add(createTrack(fields));
+        }
+        reader.endArray();
+    }
+
+    private static void readTrackFields(JsonReader reader, TrackFields fields, ArtistFields artist) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "uri":
+                    fields.uri = nextString(reader);
+                    break;
+                case "name":
+                    fields.name = nextString(reader);
+                    break;
+                case "artwork":
+                    fields.artwork = nextString(reader);
+                    break;
+                case "like":
+                    fields.like = nextBoolean(reader);
+                    break;
+                case "length":
+                    fields.length = nextInt(reader);
+                    break;
+                case "track_no":
+                    fields.trackNumber = nextInt(reader);
+                    break;
+                case "disc_no":
+                    fields.discNumber = nextInt(reader);
+                    break;
+                case "date":
+                    fields.date = nextString(reader);
+                    break;
+                case "genre":
+                    fields.genre = nextString(reader);
+                    break;
+                case "comment":
+                    fields.comment = nextString(reader);
+                    break;
+                case "musicbrainz_id":
+                    fields.trackMBID = nextString(reader);
+                    break;
+                case "artists":
+                    if (readFirstArtist(reader, artist)) {
+                        fields.artist = artist.name;
+                        fields.artistURI = artist.uri;
+                        fields.artistMBID = artist.mbid;
+                    }
+                    break;
+                case "composers":
+                    if (readFirstArtist(reader, artist)) {
+                        fields.composer = artist.name;
+                    }
+                    break;
+                case "performers":
+                    if (readFirstArtist(reader, artist)) {
+                        fields.performer = artist.name;
+                    }
+                    break;
+                case "album":
+                    readTrackAlbum(reader, fields, artist);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+    }
+
+    private static void readTrackAlbum(JsonReader reader, TrackFields fields, ArtistFields artist) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "name":
+                    fields.album = nextString(reader);
+                    break;
+                case "uri":
+                    fields.albumURI = nextString(reader);
+                    break;
+                case "musicbrainz_id":
+                    fields.albumMBID = nextString(reader);
+                    break;
+                case "date":
+                    fields.albumDate = nextString(reader);
+                    break;
+                case "artists":
+                    if (readFirstArtist(reader, artist)) {
+                        fields.albumArtist = artist.name;
+                        fields.albumArtistMBID = artist.mbid;
+                    }
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+    }
+
+    @NonNull
+    private static MPDAlbum readAlbum(JsonReader reader) throws IOException {
+        String name = null;
+        String uri = null;
+        String artwork = null;
+        String mbid = null;
+        ArtistFields artist = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "name":
+                    name = nextString(reader);
+                    break;
+                case "uri":
+                    uri = nextString(reader);
+                    break;
+                case "artwork":
+                    artwork = nextString(reader);
+                    break;
+                case "musicbrainz_id":
+                    mbid = nextString(reader);
+                    break;
+                case "artists":
+                    artist = new ArtistFields();
+                    if (!readFirstArtist(reader, artist)) {
+                        artist = null;
+                    }
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        MPDAlbum album = new MPDAlbum(name == null ? "" : name, uri);
+        album.setArtwork(artwork);
+        if (mbid != null) {
+            album.setMBID(mbid);
+        }
+        if (artist != null && artist.name != null) {
+            album.setArtistName(artist.name);
+        }
+        return album;
+    }
+
+    /**
+     * Reads the first artist of an artist array into fields and skips the others.
+     *
+     * @return True if an artist was read.
+     */
+    private static boolean readFirstArtist(JsonReader reader, ArtistFields fields) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return false;
+        }
+        boolean found = false;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (found || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+            } else {
+                readArtist(reader, fields);
+                found = true;
+            }
+        }
+        reader.endArray();
+        return found;
+    }
+
+    /**
+     * Reads an artist object into fields.
+     *
+     * @return The artwork of the artist if any.
+     */
+    private static String readArtist(JsonReader reader, ArtistFields fields) throws IOException {
+        fields.name = null;
+        fields.uri = null;
+        fields.mbid = null;
+        String artwork = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "name":
+                    fields.name = nextString(reader);
+                    break;
+                case "uri":
+                    fields.uri = nextString(reader);
+                    break;
+                case "musicbrainz_id":
+                    fields.mbid = nextString(reader);
+                    break;
+                case "artwork":
+                    artwork = nextString(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        return artwork;
+    }
+
+    /**
+     * Reads a Ref object.
+     *
+     * @return Array of uri, name, type and artwork
+     */
+    private static String[] readRef(JsonReader reader) throws IOException {
+        String[] ref = new String[4];
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "uri":
+                    ref[0] = nextString(reader);
+                    break;
+                case "name":
+                    ref[1] = nextString(reader);
+                    break;
+                case "type":
+                    ref[2] = nextString(reader);
+                    break;
+                case "artwork":
+                    ref[3] = nextString(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        return ref;
+    }
+
+    @NonNull
+    private static MPDTrack createTrack(TrackFields fields) {
+        String uri = fields.uri == null ? "" : fields.uri;
+        MPDTrack track = new MPDTrack(uri);
+        track.setURI(uri);
+        track.setName(fields.name);
+        track.setArtwork(fields.artwork);
+        track.setLike(fields.like);
+        track.setLength(fields.length / 1000);
+        track.setTrackNumber(fields.trackNumber);
+        track.setDiscNumber(fields.discNumber);
+
+        setTag(track, MPDTrack.StringTagTypes.TITLE, fields.name);
+        setTag(track, MPDTrack.StringTagTypes.ARTIST, fields.artist);
+        setTag(track, MPDTrack.StringTagTypes.ARTIST_URI, fields.artistURI);
+        setTag(track, MPDTrack.StringTagTypes.ARTIST_MBID, fields.artistMBID);
+        setTag(track, MPDTrack.StringTagTypes.ALBUM, fields.album);
+        setTag(track, MPDTrack.StringTagTypes.ALBUM_URI, fields.albumURI);
+        setTag(track, MPDTrack.StringTagTypes.ALBUM_MBID, fields.albumMBID);
+        setTag(track, MPDTrack.StringTagTypes.ALBUMARTIST, fields.albumArtist);
+        setTag(track, MPDTrack.StringTagTypes.ALBUMARTIST_MBID, fields.albumArtistMBID);
+        setTag(track, MPDTrack.StringTagTypes.DATE, fields.date != null ? fields.date : fields.albumDate);
+        setTag(track, MPDTrack.StringTagTypes.GENRE, fields.genre);
+        setTag(track, MPDTrack.StringTagTypes.COMMENT, fields.comment);
+        setTag(track, MPDTrack.StringTagTypes.TRACK_MBID, fields.trackMBID);
+        setTag(track, MPDTrack.StringTagTypes.COMPOSER, fields.composer);
+        setTag(track, MPDTrack.StringTagTypes.PERFORMER, fields.performer);
+        return track;
+    }
+
+    /**
+     * Sets the tags of a tracklist entry that {@link MPDTrackList#add(int, String, String, String, String, String, String, int, int, boolean)}
+     * has no parameter for. Same tags as {@link #createTrack(TrackFields)}.
+     */
+    private static void setTags(MPDTrackList trackList, int index, TrackFields fields) {
+        trackList.setStringTag(index, MPDTrack.StringTagTypes.ARTIST_URI, fields.artistURI);
+        trackList.setStringTag(index, MPDTrack.StringTagTypes.ARTIST_MBID, fields.artistMBID);
+        trackList.setStringTag(index, MPDTrack.StringTagTypes.ALBUM_MBID, fields.albumMBID);
+        trackList.setStringTag(index, MPDTrack.StringTagTypes.ALBUMARTIST, fields.albumArtist);
+        trackList.setStringTag(index, MPDTrack.StringTagTypes.ALBUMARTIST_MBID, fields.albumArtistMBID);
+        trackList.setStringTag(index, MPDTrack.StringTagTypes.DATE, fields.date != null ? fields.date : fields.albumDate);
+        trackList.setStringTag(index, MPDTrack.StringTagTypes.GENRE, fields.genre);
+        trackList.setStringTag(index, MPDTrack.StringTagTypes.COMMENT, fields.comment);
+        trackList.setStringTag(index, MPDTrack.StringTagTypes.TRACK_MBID, fields.trackMBID);
+        trackList.setStringTag(index, MPDTrack.StringTagTypes.COMPOSER, fields.composer);
+        trackList.setStringTag(index, MPDTrack.StringTagTypes.PERFORMER, fields.performer);
+    }
+
+    private static void setTag(MPDTrack track, MPDTrack.StringTagTypes tag, String value) {
+        if (value != null && !value.isEmpty()) {
+            track.setStringTag(tag, value);
+        }
+    }
+
+    @Nullable
+    private static JSONImage readImage(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+        String uri = null;
+        int width = 0;
+        int height = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "uri":
+                    uri = nextString(reader);
+                    break;
+                case "width":
+                    width = nextInt(reader);
+                    break;
+                case "height":
+                    height = nextInt(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        if (uri == null || uri.isEmpty()) {
+            return null;
+        }
+        return new JSONImage(uri, width, height);
+    }
+
+    @Nullable
+    private static String nextString(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return reader.nextString();
+        } else if (token == JsonToken.BOOLEAN) {
+            return String.valueOf(reader.nextBoolean());
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    private static int nextInt(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NUMBER) {
+            return (int) reader.nextDouble();
+        } else if (token == JsonToken.STRING) {
+            try {
+                return (int) Double.parseDouble(reader.nextString());
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        reader.skipValue();
+        return 0;
+    }
+
+    private static boolean nextBoolean(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.BOOLEAN) {
+            return reader.nextBoolean();
+        } else if (token == JsonToken.STRING) {
+            return Boolean.parseBoolean(reader.nextString());
+        }
+        reader.skipValue();
+        return false;
+    }
+}
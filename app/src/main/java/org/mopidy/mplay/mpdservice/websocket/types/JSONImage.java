@@ -0,0 +1,85 @@
+/*
+ *  Copyright (C) 2022 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://gitlab.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.mopidy.mplay.mpdservice.websocket.types;
+
+import java.util.List;
+
+/**
+ * Image model of Mopidy as returned by core.library.get_images. Width and height are optional
+ * and 0 if the backend does not know them.
+ */
+public class JSONImage {
+    public String uri;
+    public int width;
+    public int height;
+
+    public JSONImage(String uri, int width, int height) {
+        this.uri = uri;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * @return The larger dimension of the image or 0 if the size is unknown.
+     */
+    public int getSize() {
+        return Math.max(width, height);
+    }
+
+    /**
+     * Selects the image that fits the requested size best: the smallest image that is at least
+     * as large as requested, otherwise the largest one. Images without size are only used if no
+     * image has a known size.
+     *
+     * @param images Images of one URI
+     * @param size   Requested size in pixels, 0 for the largest image
+     * @return The selected image or null if the list is empty
+     */
+    public static JSONImage selectBestImage(List<JSONImage> images, int size) {
+        JSONImage best = null;
+        for (JSONImage image : images) {
+            if (image.uri == null || image.uri.isEmpty()) {
+                continue;
+            }
+            if (best == null) {
+                best = image;
+                continue;
+            }
+            int imageSize = image.getSize();
+            int bestSize = best.getSize();
+            if (imageSize == 0) {
+                continue;
+            }
+            if (bestSize == 0) {
+                best = image;
+            } else if (size > 0 && imageSize >= size) {
+                if (bestSize < size || imageSize < bestSize) {
+                    best = image;
+                }
+            } else if (imageSize > bestSize && (size <= 0 || bestSize < size)) {
+                best = image;
+            }
+        }
+        return best;
+    }
+}
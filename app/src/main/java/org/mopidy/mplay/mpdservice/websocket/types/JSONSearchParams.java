@@ -24,8 +24,14 @@ package org.mopidy.mplay.mpdservice.websocket.types;
 
 import org.mopidy.mplay.mpdservice.websocket.types.params.JSONParams;
 
+import java.util.List;
+
 public class JSONSearchParams extends JSONParams {
     public JSONSearchVariantQuery query;
+    /**
+     * Optional list of URI roots to limit the search to, null searches all backends.
+     */
+    public List<String> uris;
     public JSONSearchParams(JSONSearchVariantQuery query) {
         this.query = query;
     }
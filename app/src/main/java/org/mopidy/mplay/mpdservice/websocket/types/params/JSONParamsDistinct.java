@@ -0,0 +1,45 @@
+/*
+ *  Copyright (C) 2022 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://gitlab.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.mopidy.mplay.mpdservice.websocket.types.params;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Parameters of core.library.get_distinct. The optional query limits the values to tracks
+ * matching all given fields.
+ */
+public class JSONParamsDistinct extends JSONParams {
+    public String field;
+    public HashMap<String, ArrayList<String>> query;
+    public JSONParamsDistinct(String field) {
+        this.field = field;
+    }
+    public JSONParamsDistinct(String field, String queryField, String queryValue) {
+        this.field = field;
+        this.query = new HashMap<>();
+        ArrayList<String> values = new ArrayList<>();
+        values.add(queryValue);
+        query.put(queryField, values);
+    }
+}
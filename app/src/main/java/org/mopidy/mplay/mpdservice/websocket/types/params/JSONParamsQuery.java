@@ -0,0 +1,46 @@
+/*
+ *  Copyright (C) 2022 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://gitlab.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.mopidy.mplay.mpdservice.websocket.types.params;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Parameters of core.library.search with a query over arbitrary fields.
+ */
+public class JSONParamsQuery extends JSONParams {
+    public HashMap<String, ArrayList<String>> query = new HashMap<>();
+    public boolean exact;
+    public JSONParamsQuery(boolean exact) {
+        this.exact = exact;
+    }
+    public JSONParamsQuery addField(String field, String value) {
+        ArrayList<String> values = query.get(field);
+        if (values == null) {
+            values = new ArrayList<>();
+            query.put(field, values);
+        }
+        values.add(value);
+        return this;
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ *  Copyright (C) 2022 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://gitlab.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.mopidy.mplay.application.artwork.storage;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Plain JVM benchmark of the album artwork table with 20k rows, comparing the table without
+ * indexes (as it was before database version 23) with the keyed and indexed table. Uses the
+ * statements of {@link AlbumArtTable} through JDBC, so it runs without a device. Besides the
+ * platform android.jar (no Android method is called) the sqlite-jdbc driver is needed:
+ * <pre>
+ * javac -d out -cp android.jar -sourcepath app/src/main/java \
+ *     app/src/test/java/org/mopidy/mplay/application/artwork/storage/ArtworkDatabaseBenchmark.java
+ * java -cp out:android.jar:sqlite-jdbc.jar org.mopidy.mplay.application.artwork.storage.ArtworkDatabaseBenchmark
+ * </pre>
+ * Both databases live in memory, so the numbers show the query cost without any I/O. Before any
+ * timing is done the migration and the query plans of the lookups are checked.
+ */
+public class ArtworkDatabaseBenchmark {
+
+    private static final int ROW_COUNT = 20000;
+
+    /**
+     * Rows that were added again by replace() while the table had no key
+     */
+    private static final int DUPLICATE_COUNT = 3000;
+
+    private static final int ARTIST_COUNT = 2000;
+
+    private static final int LOOKUP_COUNT = 20000;
+
+    private static final int INSERT_COUNT = 2000;
+
+    private static final int ROUNDS = 5;
+
+    private static final String IMAGE = "CASE WHEN " + AlbumArtTable.COLUMN_IMAGE_NOT_FOUND + "=1 THEN '' ELSE " +
+            AlbumArtTable.COLUMN_IMAGE_FILE_PATH + " END";
+
+    private static final String LOOKUP = "SELECT " + IMAGE + " FROM " + AlbumArtTable.TABLE_NAME + " WHERE ";
+
+    private static final String LOOKUP_BY_MBID = LOOKUP + AlbumArtTable.COLUMN_ALBUM_MBID + "=? LIMIT 1";
+
+    private static final String LOOKUP_BY_NAME_AND_ARTIST = LOOKUP + AlbumArtTable.COLUMN_ALBUM_NAME + "=? AND " +
+            AlbumArtTable.COLUMN_ARTIST_NAME + "=? LIMIT 1";
+
+    private static final String LOOKUP_BY_NAME = LOOKUP + AlbumArtTable.COLUMN_ALBUM_NAME + "=? LIMIT 1";
+
+    /**
+     * Same statement as SQLiteDatabase.replace()
+     */
+    private static final String REPLACE = "INSERT OR REPLACE INTO " + AlbumArtTable.TABLE_NAME + " (" +
+            AlbumArtTable.COLUMN_ALBUM_MBID + "," + AlbumArtTable.COLUMN_ALBUM_NAME + "," +
+            AlbumArtTable.COLUMN_ARTIST_NAME + "," + AlbumArtTable.COLUMN_IMAGE_NOT_FOUND + "," +
+            AlbumArtTable.COLUMN_IMAGE_FILE_PATH + "," + AlbumArtTable.COLUMN_THUMBNAIL_FILE_PATH + ") VALUES (?,?,?,?,?,?)";
+
+    public static void main(String[] args) throws SQLException {
+        try (Connection legacy = DriverManager.getConnection("jdbc:sqlite::memory:");
+             Connection indexed = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            execute(legacy, AlbumArtTable.DATABASE_CREATE);
+            fill(legacy);
+
+            execute(indexed, AlbumArtTable.DATABASE_CREATE);
+            fill(indexed);
+            // Same steps as the upgrade to version 23
+            execute(indexed, AlbumArtTable.REMOVE_DUPLICATES);
+            execute(indexed, AlbumArtTable.INDEX_KEY_CREATE);
+            execute(indexed, AlbumArtTable.INDEX_NAME_CREATE);
+            execute(indexed, AlbumArtTable.INDEX_IMAGE_CREATE);
+            execute(indexed, AlbumArtTable.INDEX_THUMBNAIL_CREATE);
+
+            if (!checkMigration(legacy, indexed) || !checkQueryPlans(indexed)) {
+                System.exit(1);
+            }
+
+            for (int round = 0; round < ROUNDS; round++) {
+                final long legacyLookupTime = lookup(legacy, round);
+                final long lookupTime = lookup(indexed, round);
+                final long legacyInsertTime = insert(legacy, round);
+                final long insertTime = insert(indexed, round);
+
+                System.out.printf(Locale.ROOT, "round %d: lookup: no index %.1f us, indexed %.2f us; insert: no index %.1f us (%d rows), indexed %.1f us (%d rows)%n",
+                        round, legacyLookupTime / 1e3 / LOOKUP_COUNT, lookupTime / 1e3 / LOOKUP_COUNT,
+                        legacyInsertTime / 1e3 / INSERT_COUNT, count(legacy), insertTime / 1e3 / INSERT_COUNT, count(indexed));
+            }
+        }
+    }
+
+    /**
+     * Checks that the migration kept exactly one row per album and the newest image of it.
+     */
+    private static boolean checkMigration(final Connection legacy, final Connection indexed) throws SQLException {
+        final int legacyCount = count(legacy);
+        final int indexedCount = count(indexed);
+        if (legacyCount != ROW_COUNT + DUPLICATE_COUNT || indexedCount != ROW_COUNT) {
+            System.out.println("unexpected row counts " + legacyCount + " / " + indexedCount);
+            return false;
+        }
+
+        try (PreparedStatement statement = indexed.prepareStatement(LOOKUP_BY_NAME_AND_ARTIST)) {
+            for (int i = 0; i < DUPLICATE_COUNT; i++) {
+                statement.setString(1, albumName(i));
+                statement.setString(2, artistName(i));
+                if (!imagePath(i, true).equals(queryForString(statement))) {
+                    System.out.println("migration did not keep the newest row of " + albumName(i));
+                    return false;
+                }
+            }
+        }
+        System.out.println("migration removed " + (legacyCount - indexedCount) + " duplicates");
+        return true;
+    }
+
+    private static boolean checkQueryPlans(final Connection connection) throws SQLException {
+        for (String lookup : new String[]{LOOKUP_BY_MBID, LOOKUP_BY_NAME_AND_ARTIST, LOOKUP_BY_NAME}) {
+            try (Statement statement = connection.createStatement();
+                 ResultSet plan = statement.executeQuery("EXPLAIN QUERY PLAN " + lookup.replace("?", "''"))) {
+                final StringBuilder details = new StringBuilder();
+                while (plan.next()) {
+                    details.append(plan.getString("detail")).append(' ');
+                }
+                if (!details.toString().contains("USING") || !details.toString().contains("INDEX")) {
+                    System.out.println("lookup does not use an index: " + details);
+                    return false;
+                }
+                System.out.println(details.toString().trim());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds all albums and afterwards the duplicates, like replace() did on a table without key.
+     */
+    private static void fill(final Connection connection) throws SQLException {
+        connection.setAutoCommit(false);
+        try (PreparedStatement statement = connection.prepareStatement(REPLACE)) {
+            for (int i = 0; i < ROW_COUNT; i++) {
+                bindRow(statement, i, false);
+                statement.executeUpdate();
+            }
+            for (int i = 0; i < DUPLICATE_COUNT; i++) {
+                bindRow(statement, i, true);
+                statement.executeUpdate();
+            }
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+    }
+
+    /**
+     * Looks up random albums like ArtworkDatabaseManager.getAlbumImage() does: by mbid if the
+     * album has one, otherwise by album and artist name.
+     *
+     * @return Time of all lookups in ns
+     */
+    private static long lookup(final Connection connection, final int round) throws SQLException {
+        final Random random = new Random(round);
+        int found = 0;
+        final long start = System.nanoTime();
+        try (PreparedStatement byMBID = connection.prepareStatement(LOOKUP_BY_MBID);
+             PreparedStatement byNameAndArtist = connection.prepareStatement(LOOKUP_BY_NAME_AND_ARTIST)) {
+            for (int i = 0; i < LOOKUP_COUNT; i++) {
+                final int album = random.nextInt(ROW_COUNT);
+                final String mbid = mbid(album);
+                final String path;
+                if (!mbid.isEmpty()) {
+                    byMBID.setString(1, mbid);
+                    path = queryForString(byMBID);
+                } else {
+                    byNameAndArtist.setString(1, albumName(album));
+                    byNameAndArtist.setString(2, artistName(album));
+                    path = queryForString(byNameAndArtist);
+                }
+                if (path != null) {
+                    found++;
+                }
+            }
+        }
+        final long time = System.nanoTime() - start;
+        if (found != LOOKUP_COUNT) {
+            throw new IllegalStateException("only " + found + " of " + LOOKUP_COUNT + " albums found");
+        }
+        return time;
+    }
+
+    /**
+     * Replaces the images of random albums, one transaction per insert like
+     * ArtworkDatabaseManager.insertAlbumImage().
+     *
+     * @return Time of all inserts in ns
+     */
+    private static long insert(final Connection connection, final int round) throws SQLException {
+        final Random random = new Random(round);
+        final long start = System.nanoTime();
+        try (PreparedStatement statement = connection.prepareStatement(REPLACE)) {
+            for (int i = 0; i < INSERT_COUNT; i++) {
+                bindRow(statement, random.nextInt(ROW_COUNT), true);
+                statement.executeUpdate();
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void bindRow(final PreparedStatement statement, final int album, final boolean replaced) throws SQLException {
+        statement.setString(1, mbid(album));
+        statement.setString(2, albumName(album));
+        statement.setString(3, artistName(album));
+        statement.setInt(4, 0);
+        statement.setString(5, imagePath(album, replaced));
+        statement.setString(6, null);
+    }
+
+    private static String mbid(final int album) {
+        return album % 3 == 0 ? String.format(Locale.ROOT, "%08x-0000-4000-8000-%012x", album, album * 7919L) : "";
+    }
+
+    private static String albumName(final int album) {
+        return "Album " + album;
+    }
+
+    private static String artistName(final int album) {
+        return "Artist " + album % ARTIST_COUNT;
+    }
+
+    private static String imagePath(final int album, final boolean replaced) {
+        return String.format(Locale.ROOT, "%064x", album * 2L + (replaced ? 1 : 0));
+    }
+
+    private static String queryForString(final PreparedStatement statement) throws SQLException {
+        try (ResultSet result = statement.executeQuery()) {
+            return result.next() ? result.getString(1) : null;
+        }
+    }
+
+    private static int count(final Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT COUNT(*) FROM " + AlbumArtTable.TABLE_NAME)) {
+            result.next();
+            return result.getInt(1);
+        }
+    }
+
+    private static void execute(final Connection connection, final String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
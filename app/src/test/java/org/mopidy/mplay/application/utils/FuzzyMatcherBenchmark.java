@@ -0,0 +1,229 @@
+/*
+ *  Copyright (C) 2022 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://gitlab.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.mopidy.mplay.application.utils;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Plain JVM benchmark comparing {@link FuzzyMatcher} with the normalized Levenshtein comparison
+ * it replaced. Runs without a device, only the androidx annotation jar is needed:
+ * <pre>
+ * javac -d out -cp annotation.jar app/src/main/java/org/mopidy/mplay/application/utils/{FuzzyMatcher,StringCompareUtils}.java \
+ *     app/src/test/java/org/mopidy/mplay/application/utils/FuzzyMatcherBenchmark.java
+ * java -cp out:annotation.jar org.mopidy.mplay.application.utils.FuzzyMatcherBenchmark
+ * </pre>
+ * The bounded distance is checked against the full dynamic program before any timing is done.
+ */
+public class FuzzyMatcherBenchmark {
+
+    private static final String ALPHABET = "abcdefghij klmnop";
+
+    private static final String[] WORDS = {"The", "Dark", "Side", "of", "the", "Moon", "Live", "at",
+            "Pompeii", "Remastered", "Deluxe", "Edition", "Greatest", "Hits", "Vol.", "2", "Symphony",
+            "No.", "9", "Love"};
+
+    private static final int PAIR_COUNT = 5000;
+
+    private static final int REPETITIONS = 10;
+
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        final Random random = new Random(1);
+
+        if (!checkDistance(random)) {
+            System.exit(1);
+        }
+        checkAgreement(random);
+
+        final String[] expected = new String[PAIR_COUNT];
+        final String[] candidates = new String[PAIR_COUNT];
+        for (int i = 0; i < PAIR_COUNT; i++) {
+            final StringBuilder builder = new StringBuilder();
+            final int wordCount = 2 + random.nextInt(6);
+            for (int j = 0; j < wordCount; j++) {
+                if (j > 0) {
+                    builder.append(' ');
+                }
+                builder.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            expected[i] = builder.toString();
+
+            final int kind = random.nextInt(3);
+            if (kind == 0) {
+                candidates[i] = expected[i] + " (Remastered 2011)";
+            } else if (kind == 1) {
+                candidates[i] = mutate(random, expected[i], ALPHABET);
+            } else {
+                candidates[i] = WORDS[random.nextInt(WORDS.length)] + ' ' + WORDS[random.nextInt(WORDS.length)];
+            }
+        }
+
+        final FuzzyMatcher matcher = FuzzyMatcher.getInstance();
+        final double comparisons = PAIR_COUNT * REPETITIONS;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            int legacyMatches = 0;
+            for (int rep = 0; rep < REPETITIONS; rep++) {
+                for (int i = 0; i < PAIR_COUNT; i++) {
+                    if (legacyCompare(expected[i], candidates[i])) {
+                        legacyMatches++;
+                    }
+                }
+            }
+            final long legacyTime = System.nanoTime() - start;
+
+            // Expected keys are normalized once per request, like ArtworkRequestModel does.
+            final String[] keys = new String[PAIR_COUNT];
+            for (int i = 0; i < PAIR_COUNT; i++) {
+                keys[i] = FuzzyMatcher.normalize(expected[i]);
+            }
+
+            start = System.nanoTime();
+            int matches = 0;
+            for (int rep = 0; rep < REPETITIONS; rep++) {
+                for (int i = 0; i < PAIR_COUNT; i++) {
+                    if (matcher.score(keys[i], FuzzyMatcher.normalize(candidates[i])) != FuzzyMatcher.NO_MATCH) {
+                        matches++;
+                    }
+                }
+            }
+            final long matcherTime = System.nanoTime() - start;
+
+            System.out.printf(Locale.ROOT, "round %d: legacy %.1f ns/cmp (%d matches), fuzzy matcher %.1f ns/cmp (%d matches)%n",
+                    round, legacyTime / comparisons, legacyMatches, matcherTime / comparisons, matches);
+        }
+    }
+
+    /**
+     * Compares the bounded distance with the full Levenshtein distance on random pairs.
+     */
+    private static boolean checkDistance(final Random random) {
+        final FuzzyMatcher matcher = new FuzzyMatcher(0.2f);
+        for (int i = 0; i < 200000; i++) {
+            final String first = randomString(random, ALPHABET, random.nextInt(30));
+            final String second = mutate(random, first, ALPHABET);
+            final int maxDistance = random.nextInt(8);
+
+            final int full = levenshtein(first, second);
+            final int expected = full <= maxDistance ? full : maxDistance + 1;
+            final int bounded = matcher.distance(first, second, maxDistance);
+            if (bounded != expected) {
+                System.out.println("distance mismatch for \"" + first + "\" / \"" + second + "\" (max "
+                        + maxDistance + "): " + bounded + " instead of " + expected);
+                return false;
+            }
+        }
+        System.out.println("bounded distance matches full distance");
+        return true;
+    }
+
+    /**
+     * Counts how often the matcher decides like the legacy comparison on lower case names.
+     */
+    private static void checkAgreement(final Random random) {
+        final String alphabet = "abcdefghijklmnop";
+        final FuzzyMatcher matcher = new FuzzyMatcher(0.2f);
+        int agree = 0;
+        final int count = 100000;
+        for (int i = 0; i < count; i++) {
+            final String first = randomString(random, alphabet, 3 + random.nextInt(25));
+            final String second = random.nextBoolean() ? mutate(random, first, alphabet)
+                    : randomString(random, alphabet, 3 + random.nextInt(25));
+            if (legacyCompare(first, second) == matcher.matches(first, second)) {
+                agree++;
+            }
+        }
+        System.out.println("decision agreement " + agree + '/' + count);
+    }
+
+    /**
+     * The comparison used before {@link FuzzyMatcher}: normalized Levenshtein distance below 0.2
+     * or a case insensitive substring match.
+     */
+    private static boolean legacyCompare(final String expected, final String actual) {
+        final int maxLength = Math.max(expected.length(), actual.length());
+        final double distance = maxLength == 0 ? 0 : (double) levenshtein(expected, actual) / maxLength;
+        if (distance < 0.2) {
+            return true;
+        }
+        final String expectedLower = expected.toLowerCase();
+        final String actualLower = actual.toLowerCase();
+        return actualLower.contains(expectedLower) || expectedLower.contains(actualLower);
+    }
+
+    private static int levenshtein(final String first, final String second) {
+        if (first.equals(second)) {
+            return 0;
+        }
+        if (first.isEmpty()) {
+            return second.length();
+        }
+        if (second.isEmpty()) {
+            return first.length();
+        }
+
+        int[] previous = new int[second.length() + 1];
+        int[] current = new int[second.length() + 1];
+        for (int i = 0; i < previous.length; i++) {
+            previous[i] = i;
+        }
+        for (int i = 0; i < first.length(); i++) {
+            current[0] = i + 1;
+            for (int j = 0; j < second.length(); j++) {
+                final int cost = first.charAt(i) == second.charAt(j) ? 0 : 1;
+                current[j + 1] = Math.min(current[j] + 1, Math.min(previous[j + 1] + 1, previous[j] + cost));
+            }
+            final int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[second.length()];
+    }
+
+    private static String randomString(final Random random, final String alphabet, final int length) {
+        final StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return builder.toString();
+    }
+
+    private static String mutate(final Random random, final String value, final String alphabet) {
+        final StringBuilder builder = new StringBuilder(value);
+        final int edits = random.nextInt(6);
+        for (int i = 0; i < edits; i++) {
+            final int operation = random.nextInt(3);
+            if (operation == 0 || builder.length() == 0) {
+                builder.insert(builder.length() == 0 ? 0 : random.nextInt(builder.length() + 1),
+                        alphabet.charAt(random.nextInt(alphabet.length())));
+            } else if (operation == 1) {
+                builder.deleteCharAt(random.nextInt(builder.length()));
+            } else {
+                builder.setCharAt(random.nextInt(builder.length()), alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+        }
+        return builder.toString();
+    }
+}
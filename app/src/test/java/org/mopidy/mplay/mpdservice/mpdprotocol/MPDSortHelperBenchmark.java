@@ -0,0 +1,141 @@
+/*
+ *  Copyright (C) 2022 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://gitlab.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.mopidy.mplay.mpdservice.mpdprotocol;
+
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Plain JVM benchmark comparing {@link MPDSortHelper} with sorting the library lists by
+ * {@link Collections#sort(List)}, which asks the collator on every comparison. Runs without a
+ * device, with the platform android.jar on the classpath (no Android method is called):
+ * <pre>
+ * javac -d out -cp android.jar -sourcepath app/src/main/java \
+ *     app/src/test/java/org/mopidy/mplay/mpdservice/mpdprotocol/MPDSortHelperBenchmark.java
+ * java -cp out:android.jar org.mopidy.mplay.mpdservice.mpdprotocol.MPDSortHelperBenchmark
+ * </pre>
+ * The order of the helper is checked against the collator order before any timing is done.
+ */
+public class MPDSortHelperBenchmark {
+
+    private static final String[] SYLLABLES = {"ka", "Lo", "mi", "Ne", "ru", "sta", "Bel", "the ",
+            "\u00d6r", "\u00e9", "mon", "dri", "Xa", "po ", "ven", "The ", "Vol. ", "1", "2", "10"};
+
+    private static final int ALBUM_COUNT = 50000;
+
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        if (!checkOrder()) {
+            System.exit(1);
+        }
+
+        for (int round = 0; round < ROUNDS; round++) {
+            final List<MPDAlbum> legacy = createAlbums();
+            long start = System.nanoTime();
+            Collections.sort(legacy);
+            final long legacyTime = System.nanoTime() - start;
+
+            // New album objects, so every key has to be created
+            final List<MPDAlbum> albums = createAlbums();
+            start = System.nanoTime();
+            MPDSortHelper.sortByName(albums, 0);
+            final long coldTime = System.nanoTime() - start;
+
+            // Same objects again, e.g. the list of the next reconnect
+            Collections.shuffle(albums, new Random(round));
+            start = System.nanoTime();
+            MPDSortHelper.sortByName(albums, 0);
+            final long cachedTime = System.nanoTime() - start;
+
+            final List<MPDAlbum> legacyDates = createAlbums();
+            start = System.nanoTime();
+            Collections.sort(legacyDates, new MPDAlbum.MPDAlbumDateComparator());
+            final long legacyDateTime = System.nanoTime() - start;
+
+            final List<MPDAlbum> dates = createAlbums();
+            start = System.nanoTime();
+            MPDSortHelper.sortAlbumsByDate(dates);
+            final long dateTime = System.nanoTime() - start;
+
+            System.out.printf(Locale.ROOT, "round %d: by name: Collections.sort %.1f ms, helper %.1f ms (keys cached %.1f ms); by date: comparator %.1f ms, helper %.1f ms%n",
+                    round, legacyTime / 1e6, coldTime / 1e6, cachedTime / 1e6, legacyDateTime / 1e6, dateTime / 1e6);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Compares the helper results with the collator order and the date comparator.
+     */
+    private static boolean checkOrder() {
+        final List<MPDAlbum> expected = createAlbums();
+        Collections.sort(expected);
+        final List<MPDAlbum> albums = createAlbums();
+        MPDSortHelper.sortByName(albums, 0);
+        for (int i = 0; i < albums.size(); i++) {
+            if (!albums.get(i).getName().equals(expected.get(i).getName())) {
+                System.out.println("name order differs at " + i + ": " + albums.get(i).getName()
+                        + " instead of " + expected.get(i).getName());
+                return false;
+            }
+        }
+
+        final List<MPDAlbum> dates = createAlbums();
+        MPDSortHelper.sortAlbumsByDate(dates);
+        for (int i = 1; i < dates.size(); i++) {
+            if (dates.get(i - 1).getDate().after(dates.get(i).getDate())) {
+                System.out.println("date order differs at " + i);
+                return false;
+            }
+        }
+        System.out.println("order matches the collator and the date comparator");
+        return true;
+    }
+
+    /**
+     * Creates the same random album list on every call.
+     */
+    private static List<MPDAlbum> createAlbums() {
+        final Random random = new Random(3);
+        final List<MPDAlbum> albums = new ArrayList<>(ALBUM_COUNT);
+        for (int i = 0; i < ALBUM_COUNT; i++) {
+            final StringBuilder name = new StringBuilder();
+            final int syllableCount = 2 + random.nextInt(5);
+            for (int j = 0; j < syllableCount; j++) {
+                name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            name.append(i % 7);
+
+            final MPDAlbum album = new MPDAlbum(name.toString(), "");
+            album.setDate(new Date(random.nextInt(1000) * 86400000L));
+            albums.add(album);
+        }
+        return albums;
+    }
+}
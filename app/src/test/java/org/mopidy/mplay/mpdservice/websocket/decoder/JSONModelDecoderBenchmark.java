@@ -0,0 +1,192 @@
+/*
+ *  Copyright (C) 2022 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://gitlab.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.mopidy.mplay.mpdservice.websocket.decoder;
+
+import com.google.gson.Gson;
+
+import org.mopidy.mplay.mpdservice.mpdprotocol.MPDTrackList;
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
+import org.mopidy.mplay.mpdservice.mpdprotocol.mpdobjects.MPDTrack;
+import org.mopidy.mplay.mpdservice.websocket.types.JSONTLTrack;
+import org.mopidy.mplay.mpdservice.websocket.types.responses.JSONTLTracksResponse;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Plain JVM benchmark comparing {@link JSONModelDecoder} with the gson object model decode
+ * (JSONTLTracksResponse graph and {@code JSONTrack.toMPDTrack()}) it replaced. Runs without a
+ * device, with gson and the platform android.jar on the classpath (no Android method is called):
+ * <pre>
+ * javac -d out -cp android.jar:gson.jar -sourcepath app/src/main/java \
+ *     app/src/test/java/org/mopidy/mplay/mpdservice/websocket/decoder/JSONModelDecoderBenchmark.java
+ * java -cp out:android.jar:gson.jar org.mopidy.mplay.mpdservice.websocket.decoder.JSONModelDecoderBenchmark
+ * </pre>
+ * Allocated bytes are measured per thread, which needs a HotSpot based JVM.
+ */
+public class JSONModelDecoderBenchmark {
+
+    private static final int TRACK_COUNT = 10000;
+
+    private static final int ROUNDS = 15;
+
+    /**
+     * Keeps the results alive so the decoding is not optimized away
+     */
+    private static Object sSink;
+
+    public static void main(String[] args) {
+        final String message = createTracklistMessage(TRACK_COUNT);
+        final Gson gson = new Gson();
+
+        if (!checkResults(message, gson)) {
+            System.exit(1);
+        }
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long allocated = allocatedBytes();
+            long start = System.nanoTime();
+            final JSONTLTracksResponse response = gson.fromJson(message, JSONTLTracksResponse.class);
+            final List<MPDFileEntry> tracks = new ArrayList<>(response.result.size());
+            for (JSONTLTrack track : response.result) {
+                tracks.add(track.track.toMPDTrack());
+            }
+            final long gsonTime = System.nanoTime() - start;
+            final long gsonBytes = allocatedBytes() - allocated;
+            sSink = tracks;
+
+            allocated = allocatedBytes();
+            start = System.nanoTime();
+            sSink = JSONModelDecoder.decodeTLTracks(message, 0);
+            final long decoderTime = System.nanoTime() - start;
+            final long decoderBytes = allocatedBytes() - allocated;
+
+            System.out.printf(Locale.ROOT, "round %d: gson graph + toMPDTrack() %d B/track %.2f us/track, decodeTLTracks() %d B/track %.2f us/track%n",
+                    round, gsonBytes / TRACK_COUNT, gsonTime / 1e3 / TRACK_COUNT, decoderBytes / TRACK_COUNT, decoderTime / 1e3 / TRACK_COUNT);
+        }
+
+        final String lookupMessage = createLookupMessage(TRACK_COUNT);
+        for (int round = 0; round < ROUNDS; round++) {
+            final long allocated = allocatedBytes();
+            final long start = System.nanoTime();
+            final List<MPDFileEntry> tracks = JSONModelDecoder.decodeLookupTracks(lookupMessage);
+            final long time = System.nanoTime() - start;
+            final long bytes = allocatedBytes() - allocated;
+            sSink = tracks;
+
+            if (round == ROUNDS - 1) {
+                System.out.printf(Locale.ROOT, "decodeLookupTracks() (full MPDTrack) %d B/track %.2f us/track%n",
+                        bytes / Math.max(tracks.size(), 1), time / 1e3 / Math.max(tracks.size(), 1));
+            }
+        }
+    }
+
+    /**
+     * Compares the tracks of both decoders before any timing is done.
+     */
+    private static boolean checkResults(final String message, final Gson gson) {
+        final MPDTrackList trackList = JSONModelDecoder.decodeTLTracks(message, 0);
+        final JSONTLTracksResponse response = gson.fromJson(message, JSONTLTracksResponse.class);
+        if (trackList == null || trackList.size() != response.result.size()) {
+            System.out.println("track count differs");
+            return false;
+        }
+
+        for (int i = 0; i < trackList.size(); i++) {
+            final MPDTrack decoded = trackList.getTrack(i);
+            final MPDTrack expected = response.result.get(i).track.toMPDTrack();
+            if (!decoded.getURI().equals(expected.getURI())
+                    || trackList.getTlid(i) != response.result.get(i).tlid
+                    || !sameTag(decoded, expected, MPDTrack.StringTagTypes.TITLE)
+                    || !sameTag(decoded, expected, MPDTrack.StringTagTypes.ARTIST)
+                    || !sameTag(decoded, expected, MPDTrack.StringTagTypes.ALBUM)) {
+                System.out.println("track " + i + " differs: " + decoded.getURI() + " / " + expected.getURI());
+                return false;
+            }
+        }
+        System.out.println("decoded tracks match the gson object model");
+        return true;
+    }
+
+    private static boolean sameTag(final MPDTrack first, final MPDTrack second, final MPDTrack.StringTagTypes tag) {
+        return first.getStringTag(tag).equals(second.getStringTag(tag));
+    }
+
+    private static long allocatedBytes() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    /**
+     * @return A core.tracklist.get_tl_tracks response as sent by Mopidy-Local, 12 tracks per album.
+     */
+    private static String createTracklistMessage(final int count) {
+        final StringBuilder builder = new StringBuilder("{\"jsonrpc\":\"2.0\",\"id\":7,\"result\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("{\"__model__\":\"TlTrack\",\"tlid\":").append(i + 1).append(",\"track\":");
+            appendTrack(builder, i);
+            builder.append('}');
+        }
+        return builder.append("]}").toString();
+    }
+
+    /**
+     * @return A core.library.lookup response with the same tracks as one result list.
+     */
+    private static String createLookupMessage(final int count) {
+        final StringBuilder builder = new StringBuilder("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":{\"local:album\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            appendTrack(builder, i);
+        }
+        return builder.append("]}}").toString();
+    }
+
+    private static void appendTrack(final StringBuilder builder, final int index) {
+        final int album = index / 12;
+        final int artist = album / 5;
+        builder.append("{\"__model__\":\"Track\",\"uri\":\"local:track:Artist%20").append(artist).append("/Album%20").append(album).append('/').append(index).append(".flac\"")
+                .append(",\"name\":\"Track title ").append(index).append('"')
+                .append(",\"artists\":[{\"__model__\":\"Artist\",\"uri\":\"local:artist:md5:").append(artist)
+                .append("\",\"name\":\"Artist name ").append(artist)
+                .append("\",\"musicbrainz_id\":\"0b2a3c4d-aaaa-bbbb-cccc-").append(artist).append("\"}]")
+                .append(",\"album\":{\"__model__\":\"Album\",\"uri\":\"local:album:md5:").append(album)
+                .append("\",\"name\":\"Album title number ").append(album)
+                .append("\",\"artists\":[{\"__model__\":\"Artist\",\"uri\":\"local:artist:md5:").append(artist)
+                .append("\",\"name\":\"Artist name ").append(artist).append("\"}],\"num_tracks\":12,\"num_discs\":1,\"date\":\"1999\"}")
+                .append(",\"genre\":\"Rock\",\"track_no\":").append(index % 12 + 1)
+                .append(",\"disc_no\":1,\"date\":\"1999\",\"length\":").append(200000 + index)
+                .append(",\"bitrate\":1411,\"comment\":\"\",\"last_modified\":1600000000000}");
+    }
+}